@@ -0,0 +1,261 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+
+package ch.niceideas.common.http;
+
+import ch.niceideas.common.utils.StringUtils;
+import org.apache.hc.client5.http.async.methods.AbstractBinResponseConsumer;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+
+/**
+ * Non-blocking counterpart of {@link HttpClient}, built on the httpclient5 async client.
+ * <br>
+ * Requests don't pin a thread while in flight : a handful of I/O reactor threads serve all connections, which allows
+ * to fan out requests to a large number of hosts at once.
+ * <br>
+ * The response body is read entirely in memory before the returned future completes, which suits the small answers of
+ * the liveness requests this client is used for. Large responses should go through {@link HttpClient} and
+ * {@link HttpClientResponse#getContentStream()} instead.
+ * <br>
+ * Only GET requests are supported as of now.
+ */
+public class AsyncHttpClient implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(AsyncHttpClient.class);
+
+    private static final int REQUEST_TIMEOUT = 20 * 1000; // 20 seconds
+    private static final int RESPONSE_CHUNK_SIZE = 64 * 1024;
+
+    private final PoolingAsyncClientConnectionManager cm;
+    private final CloseableHttpAsyncClient httpClient;
+
+    public AsyncHttpClient(int maxConnectionsPerRoute, int maxConnections, int keepAliveSeconds) {
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setResponseTimeout(Timeout.ofMilliseconds(REQUEST_TIMEOUT))
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(REQUEST_TIMEOUT))
+                .setConnectionKeepAlive(TimeValue.ofSeconds(keepAliveSeconds))
+                .build();
+
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(REQUEST_TIMEOUT))
+                .setSocketTimeout(Timeout.ofMilliseconds(REQUEST_TIMEOUT))
+                .setTimeToLive(TimeValue.ofSeconds(keepAliveSeconds))
+                .build();
+
+        cm = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setDefaultConnectionConfig(connectionConfig)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setMaxConnTotal(maxConnections)
+                .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.LAX)
+                .setConnPoolPolicy(PoolReusePolicy.LIFO)
+                .build();
+
+        httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(cm)
+                .setDefaultRequestConfig(requestConfig)
+                .evictIdleConnections(TimeValue.ofSeconds(keepAliveSeconds))
+                .build();
+
+        httpClient.start();
+    }
+
+    @Override
+    public void close() {
+        httpClient.close(CloseMode.GRACEFUL);
+    }
+
+    /**
+     * Send a GET request to the given URL.
+     *
+     * @param url The target URL. Expected of the form <code>[http://]serverAddress:serverPort[/path/to/page]</code>
+     * @param requestHeaders headers to be added to the request, can be null
+     * @return a future completed with the response, or completed exceptionally with an {@link HttpClientException}
+     */
+    public CompletableFuture<HttpClientResponse> sendRequest(String url, Properties requestHeaders) {
+
+        CompletableFuture<HttpClientResponse> result = new CompletableFuture<>();
+
+        // 1. ValidateRequest
+        Matcher matcher = HttpClient.requestValidationPattern.matcher(url);
+        if (!matcher.matches()) {
+            logger.error("Unknown URL form : " + url);
+            result.completeExceptionally(new HttpClientException ("Unknown URL form : " + url));
+            return result;
+        }
+
+        // 2. Create Http request
+        HttpHost host;
+        SimpleHttpRequest request;
+        try {
+            String schemeString = matcher.group(2);
+            String portString = matcher.group(5);
+            host = new HttpHost(
+                    StringUtils.isBlank(schemeString) ? "http" : schemeString,
+                    matcher.group(3),
+                    StringUtils.isBlank(portString) ? -1 : Integer.parseInt(portString));
+
+            String uriString = matcher.group(7);
+            String queryString = matcher.group(9);
+            SimpleRequestBuilder builder = SimpleRequestBuilder.get()
+                    .setHttpHost(host)
+                    .setPath(HttpClient.ensureEscaping(uriString + (queryString == null ? "" : queryString)).replaceAll("\\|", "%7C"));
+            if (requestHeaders != null) {
+                requestHeaders.stringPropertyNames().forEach(key -> builder.addHeader(key, requestHeaders.getProperty(key)));
+            }
+            request = builder.build();
+
+        } catch (IllegalArgumentException e) {
+            logger.warn (e, e);
+            result.completeExceptionally(new HttpClientException (e.getMessage(), e));
+            return result;
+        }
+
+        // 3. Send request
+        Future<HttpClientResponse> pendingResponse = httpClient.execute(
+                SimpleRequestProducer.create(request),
+                new BufferingResponseConsumer(host.toString()),
+                new FutureCallback<>() {
+                    @Override
+                    public void completed(HttpClientResponse response) {
+                        result.complete(response);
+                    }
+
+                    @Override
+                    public void failed(Exception e) {
+                        logger.debug(e, e);
+                        result.completeExceptionally(new HttpClientException (e.getMessage(), e));
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        result.cancel(false);
+                    }
+                });
+
+        // cancelling the returned future aborts the exchange
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                pendingResponse.cancel(true);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Copies the response body in memory chunk by chunk as it arrives from the I/O reactor, accepting up to
+     * RESPONSE_CHUNK_SIZE bytes at a time. The response is only built once the whole body has been received.
+     */
+    private static class BufferingResponseConsumer extends AbstractBinResponseConsumer<HttpClientResponse> {
+
+        private final String targetHost;
+
+        private int responseCode;
+        private String reasonPhrase;
+        private final Map<String, String> headers = new HashMap<>();
+        private ByteArrayOutputStream content = null;
+
+        BufferingResponseConsumer(String targetHost) {
+            this.targetHost = targetHost;
+        }
+
+        @Override
+        protected void start(HttpResponse response, ContentType contentType) throws HttpException {
+            responseCode = response.getCode();
+            reasonPhrase = response.getReasonPhrase();
+            for (Header header : response.getHeaders()) {
+                headers.put(header.getName(), header.getValue());
+            }
+            content = new ByteArrayOutputStream();
+        }
+
+        @Override
+        protected int capacityIncrement() {
+            return RESPONSE_CHUNK_SIZE;
+        }
+
+        @Override
+        protected void data(ByteBuffer src, boolean endOfStream) {
+            if (src.hasArray()) {
+                content.write(src.array(), src.arrayOffset() + src.position(), src.remaining());
+                src.position(src.limit());
+            } else {
+                while (src.hasRemaining()) {
+                    content.write(src.get());
+                }
+            }
+        }
+
+        @Override
+        protected HttpClientResponse buildResult() {
+            return new HttpClientResponse(responseCode, reasonPhrase, headers, content.toByteArray(), targetHost);
+        }
+
+        @Override
+        public void releaseResources() {
+            content = null;
+        }
+    }
+}
@@ -34,7 +34,6 @@
 
 package ch.niceideas.common.http;
 
-import ch.niceideas.common.exceptions.CommonRTException;
 import ch.niceideas.common.utils.StringUtils;
 import org.apache.hc.client5.http.classic.methods.*;
 import org.apache.hc.client5.http.config.ConnectionConfig;
@@ -77,8 +76,8 @@ public class HttpClient implements Closeable {
     private static final Logger logger = Logger.getLogger(HttpClient.class);
     
     private static final int REQUEST_TIMEOUT = 20 * 1000; // 20 seconds
-    private static final int MAX_CONNECTIONS = 200;
-    private static final int MAX_CONNECTIONS_PER_ROUTE = 5;
+    private static final int DEFAULT_MAX_CONNECTIONS = 200;
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 5;
 
 
     /**
@@ -182,7 +181,15 @@ public class HttpClient implements Closeable {
         this (userAgent, null);
     }
 
+    public HttpClient(int maxConnectionsPerRoute, int maxConnections) {
+        this (DEFAULT_USER_AGENT, null, maxConnectionsPerRoute, maxConnections);
+    }
+
     public HttpClient(String userAgent, Map<String, String> defaultHeaders) {
+        this (userAgent, defaultHeaders, DEFAULT_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    public HttpClient(String userAgent, Map<String, String> defaultHeaders, int maxConnectionsPerRoute, int maxConnections) {
 
         if (StringUtils.isNotBlank(userAgent)) {
             this.userAgent = userAgent;
@@ -213,8 +220,8 @@ public class HttpClient implements Closeable {
                 }))
                 .setDefaultSocketConfig(socketConfig)
                 .setDefaultConnectionConfig(connectionConfig)
-                .setMaxConnPerRoute(MAX_CONNECTIONS_PER_ROUTE)
-                .setMaxConnTotal(MAX_CONNECTIONS)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setMaxConnTotal(maxConnections)
                 .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.LAX)
                 .setConnPoolPolicy(PoolReusePolicy.LIFO)
                 .build();
@@ -363,31 +370,35 @@ public class HttpClient implements Closeable {
         context.setAttribute(HttpClientContext.COOKIE_STORE, cookieStore);
 
         // 5. Send request
-        HttpClientResponse response;
+        ClassicHttpResponse httpResponse;
         try {
-            response = httpClient.execute( //
+            httpResponse = httpClient.executeOpen( //
                     new HttpHost(StringUtils.isBlank(schemeString) ? "http" : schemeString,
                             serverString,
                             StringUtils.isBlank(portString) ? -1 : Integer.parseInt(portString)), //
                     request,
-                    context,
-                    // 6. Process response.
-                    httpResponse -> {
-                        try {
-                            return processResponse(httpResponse, (HttpHost) context.getAttribute("http.target_host"));
-                        } catch (HttpClientException e) {
-                            throw new CommonRTException(e);
-                        }
-                    });
-
-        } catch (CommonRTException e) {
-            throw new HttpClientException(e);
+                    context);
+
         } catch (NumberFormatException | IOException e) {
             logger.debug(e, e);
             throw new HttpClientException (e.getMessage(), e);
         }
-        
-        return response;
+
+        // 6. Process response. The content is left in the open response to be streamed by the caller
+        try {
+            return processResponse(httpResponse, (HttpHost) context.getAttribute("http.target_host"));
+        } catch (HttpClientException | RuntimeException e) {
+            closeQuietly(httpResponse);
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(ClassicHttpResponse httpResponse) {
+        try {
+            httpResponse.close();
+        } catch (IOException e) {
+            logger.debug(e, e);
+        }
     }
 
     public static String ensureEscaping(String s) {
@@ -410,7 +421,7 @@ public class HttpClient implements Closeable {
     }
 
     private HttpClientResponse processResponse(ClassicHttpResponse response, HttpHost targetHost) throws HttpClientException {
-        return new HttpClientResponse(response, targetHost != null ? targetHost.toString() : null);
+        return new HttpClientResponse(response, targetHost != null ? targetHost.toString() : null, true);
     }
 
     private static HttpEntity buildEntity(Object content, ContentType type) {
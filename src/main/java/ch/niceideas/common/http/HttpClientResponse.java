@@ -42,8 +42,10 @@ import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.log4j.Logger;
 
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.Collections;
 import java.util.HashMap;
@@ -63,6 +65,7 @@ public class HttpClientResponse implements Closeable {
     private static final Logger logger = Logger.getLogger(HttpClientResponse.class);
 
     private final HttpEntity responseEntity;
+    private final ClassicHttpResponse openResponse;
     private final String targetHost;
 
     private final Map<String, String> headerMap = new HashMap<>();
@@ -71,10 +74,20 @@ public class HttpClientResponse implements Closeable {
     private final String reasonPhrase;
 
     private byte[] respBytes;
+    private boolean contentStreamed = false;
 
     public HttpClientResponse(ClassicHttpResponse response, String targetHost) throws HttpClientException {
+        this (response, targetHost, false);
+    }
+
+    /**
+     * @param streamed when true, the content is not read upfront but left in the open response, to be consumed with
+     *                 {@link #getContentStream()}. The open response is closed by {@link #release()}.
+     */
+    public HttpClientResponse(ClassicHttpResponse response, String targetHost, boolean streamed) throws HttpClientException {
         super();
         this.responseEntity = response.getEntity();
+        this.openResponse = streamed ? response : null;
         this.targetHost = targetHost;
 
         this.responseCode = response.getCode();
@@ -96,14 +109,42 @@ public class HttpClientResponse implements Closeable {
 
         }
 
-        this.resolveContent();
+        if (!streamed) {
+            this.resolveContent();
+        }
+    }
+
+    /**
+     * Build a response around content that is already available, such as a section of a composite response.
+     */
+    public HttpClientResponse(int responseCode, String reasonPhrase, Map<String, String> headers, byte[] content, String targetHost) {
+        super();
+        this.responseEntity = null;
+        this.openResponse = null;
+        this.targetHost = targetHost;
+
+        this.responseCode = responseCode;
+        this.reasonPhrase = reasonPhrase;
+
+        if (headers != null) {
+            headerMap.putAll(headers);
+        }
+
+        this.respBytes = content;
     }
 
     /**
-     * 
+     * Consume what remains of the content and close the underlying response, if still open.
      */
     public void release() {
         EntityUtils.consumeQuietly(responseEntity);
+        if (openResponse instanceof Closeable) {
+            try {
+                ((Closeable) openResponse).close();
+            } catch (IOException e) {
+                logger.debug(e, e);
+            }
+        }
     }
 
     /**
@@ -135,6 +176,9 @@ public class HttpClientResponse implements Closeable {
      */
     public String asString(Charset encoding) throws HttpClientException {
 
+        if (respBytes == null && responseEntity != null) {
+            resolveContent(); // streamed response
+        }
         if (respBytes == null) {
             StringBuilder responseInformation = buildResponseInformation();
             responseInformation.append("No response has been provided by target server.");
@@ -158,8 +202,39 @@ public class HttpClientResponse implements Closeable {
         return messageBuilder;
     }
 
+    /**
+     * Give access to the content as a stream, without reading it all first when the response is streamed.
+     * <br>
+     * The stream of a streamed response can only be obtained once and the content is no longer available through
+     * {@link #asString(Charset)} afterwards.
+     *
+     * @return the content of the response, an empty stream if there is none
+     * @throws HttpClientException if anything goes wrong
+     */
+    public InputStream getContentStream() throws HttpClientException {
+        if (respBytes != null) {
+            return new ByteArrayInputStream(respBytes);
+        }
+        if (responseEntity == null) {
+            return InputStream.nullInputStream();
+        }
+        if (contentStreamed) {
+            throw new IllegalStateException("Content stream has already been consumed");
+        }
+        try {
+            contentStreamed = true;
+            return responseEntity.getContent();
+        } catch (IOException e) {
+            logger.error(e, e);
+            throw new HttpClientException(e.getMessage(), e);
+        }
+    }
+
     public void resolveContent() throws HttpClientException {
         if (respBytes == null) {
+            if (contentStreamed) {
+                throw new IllegalStateException("Content has already been consumed as a stream");
+            }
             if (responseEntity == null) {
                 StringBuilder responseInformation = buildResponseInformation();
                 responseInformation.append("No response has been provided by target server.");
@@ -176,6 +251,17 @@ public class HttpClientResponse implements Closeable {
         }
     }
 
+    /**
+     * @param name the name of the header, case insensitive
+     * @return the value of the header or null if there is no such header
+     */
+    public String getHeader(String name) {
+        return headerMap.entrySet().stream()
+                .filter(entry -> entry.getKey().equalsIgnoreCase(name))
+                .map(Map.Entry::getValue)
+                .findFirst().orElse(null);
+    }
+
     public String getContentType() {
         String ctTyp1 = getHeaderMap().get("Content-Type");
         if (StringUtils.isNotBlank(ctTyp1)) {
@@ -0,0 +1,155 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+
+package ch.niceideas.common.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Splits the content of an input stream in lines as it is read, without ever materializing the whole content.
+ * <br>
+ * Lines are separated by '\n' only and returned without it. In order to behave just as
+ * <code>String.split("\n")</code>, empty lines are returned only when followed by a non-empty line.
+ * <br>
+ * Read and line buffers are reused from one line to the next, a single String is allocated per returned line.
+ */
+public class LineTokenizer implements Closeable {
+
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final int INITIAL_LINE_BUFFER_SIZE = 256;
+
+    private final InputStream input;
+    private final Charset charset;
+
+    private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+    private int readPosition = 0;
+    private int readLimit = 0;
+    private boolean endOfStream = false;
+
+    private byte[] lineBuffer = new byte[INITIAL_LINE_BUFFER_SIZE];
+
+    private int pendingEmptyLines = 0;
+    private String pendingLine = null;
+
+    public LineTokenizer(InputStream input, Charset charset) {
+        this.input = input;
+        this.charset = charset;
+    }
+
+    /**
+     * @return the next line or null when the end of the stream has been reached
+     */
+    public String nextLine() throws IOException {
+
+        if (pendingEmptyLines > 0) {
+            pendingEmptyLines--;
+            return "";
+        }
+        if (pendingLine != null) {
+            String line = pendingLine;
+            pendingLine = null;
+            return line;
+        }
+
+        String line;
+        while ((line = readLine()) != null) {
+            if (line.isEmpty()) {
+                pendingEmptyLines++;
+            } else if (pendingEmptyLines > 0) {
+                // empty lines are only returned once we know they are followed by a non-empty line
+                pendingLine = line;
+                pendingEmptyLines--;
+                return "";
+            } else {
+                return line;
+            }
+        }
+
+        // trailing empty lines are dropped
+        pendingEmptyLines = 0;
+        return null;
+    }
+
+    private String readLine() throws IOException {
+        int lineLength = 0;
+        while (true) {
+            if (readPosition >= readLimit) {
+                if (endOfStream || !fill()) {
+                    return lineLength > 0 ? new String(lineBuffer, 0, lineLength, charset) : null;
+                }
+            }
+
+            int start = readPosition;
+            while (readPosition < readLimit && readBuffer[readPosition] != '\n') {
+                readPosition++;
+            }
+
+            int chunkLength = readPosition - start;
+            if (lineLength + chunkLength > lineBuffer.length) {
+                lineBuffer = Arrays.copyOf(lineBuffer, Math.max(lineBuffer.length * 2, lineLength + chunkLength));
+            }
+            System.arraycopy(readBuffer, start, lineBuffer, lineLength, chunkLength);
+            lineLength += chunkLength;
+
+            if (readPosition < readLimit) {
+                readPosition++; // skip '\n'
+                return new String(lineBuffer, 0, lineLength, charset);
+            }
+        }
+    }
+
+    private boolean fill() throws IOException {
+        int read;
+        do {
+            read = input.read(readBuffer, 0, readBuffer.length);
+        } while (read == 0);
+
+        if (read < 0) {
+            endOfStream = true;
+            return false;
+        }
+        readPosition = 0;
+        readLimit = read;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
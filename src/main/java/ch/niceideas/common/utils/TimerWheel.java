@@ -0,0 +1,197 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+
+package ch.niceideas.common.utils;
+
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel notifying keys once their deadline is passed.
+ * <br>
+ * Time is split in ticks of tickMillis. A deadline falls in the bucket of its tick modulo the wheel size along with the
+ * number of rounds of the wheel to wait for. Every tick only the bucket of that tick is looked at, so that scheduling,
+ * cancelling and expiring are O(1) whatever the number of pending deadlines. Deadlines are notified at the end of
+ * their tick, i.e. at most one tick late.
+ * <br>
+ * Expired keys are passed to the expiry handler on the thread of the wheel, which is only started by {@link #start()}.
+ * A key can only be scheduled once: scheduling it again replaces its previous deadline.
+ */
+public class TimerWheel<K> implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(TimerWheel.class);
+
+    private final String threadName;
+    private final long tickMillis;
+    private final int mask;
+    private final long startTime;
+    private final Consumer<K> expiryHandler;
+
+    private final List<Map<K, Timeout>> buckets;
+    private final Map<K, Timeout> timeouts = new HashMap<>();
+    private long currentTick = 0;
+
+    private ScheduledExecutorService ticker = null;
+
+    public TimerWheel(String threadName, long tickMillis, int wheelSize, Consumer<K> expiryHandler) {
+        this (threadName, tickMillis, wheelSize, expiryHandler, System.currentTimeMillis());
+    }
+
+    TimerWheel(String threadName, long tickMillis, int wheelSize, Consumer<K> expiryHandler, long startTime) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.threadName = threadName;
+        this.tickMillis = tickMillis;
+        this.startTime = startTime;
+        this.expiryHandler = expiryHandler;
+
+        // power of two so that the bucket of a tick is a mere mask
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.mask = size - 1;
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            buckets.add(new LinkedHashMap<>());
+        }
+    }
+
+    public synchronized void start() {
+        if (ticker == null) {
+            ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+            ticker.scheduleAtFixedRate(() -> advance(System.currentTimeMillis()), tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    /**
+     * Schedule the given key to expire at the given deadline (epoch milliseconds), replacing any deadline it already
+     * had. A deadline in the past expires at the end of the current tick.
+     */
+    public synchronized void schedule(K key, long deadline) {
+        cancel(key);
+        long targetTick = Math.max(Math.floorDiv(deadline - startTime, tickMillis), currentTick);
+        Timeout timeout = new Timeout(deadline, (int) (targetTick & mask), (targetTick - currentTick) / buckets.size());
+        buckets.get(timeout.bucket).put(key, timeout);
+        timeouts.put(key, timeout);
+    }
+
+    /**
+     * @return true if the key had a pending deadline
+     */
+    public synchronized boolean cancel(K key) {
+        Timeout timeout = timeouts.remove(key);
+        if (timeout != null) {
+            buckets.get(timeout.bucket).remove(key);
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void clear() {
+        timeouts.clear();
+        buckets.forEach(Map::clear);
+    }
+
+    /**
+     * @return the deadline of the given key or null if it has none pending
+     */
+    public synchronized Long getDeadline(K key) {
+        Timeout timeout = timeouts.get(key);
+        return timeout == null ? null : timeout.deadline;
+    }
+
+    public synchronized int size() {
+        return timeouts.size();
+    }
+
+    /**
+     * Process all ticks ended at the given time and pass the keys expired to the expiry handler.
+     */
+    void advance(long now) {
+        List<K> expired = new ArrayList<>();
+        synchronized (this) {
+            while (startTime + (currentTick + 1) * tickMillis <= now) {
+                Iterator<Map.Entry<K, Timeout>> iterator = buckets.get((int) (currentTick & mask)).entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<K, Timeout> entry = iterator.next();
+                    Timeout timeout = entry.getValue();
+                    if (timeout.remainingRounds <= 0) {
+                        iterator.remove();
+                        timeouts.remove(entry.getKey());
+                        expired.add(entry.getKey());
+                    } else {
+                        timeout.remainingRounds--;
+                    }
+                }
+                currentTick++;
+            }
+        }
+        for (K key : expired) {
+            try {
+                expiryHandler.accept(key);
+            } catch (RuntimeException e) {
+                logger.error (e, e);
+            }
+        }
+    }
+
+    private static class Timeout {
+        private final long deadline;
+        private final int bucket;
+        private long remainingRounds;
+
+        private Timeout(long deadline, int bucket, long remainingRounds) {
+            this.deadline = deadline;
+            this.bucket = bucket;
+            this.remainingRounds = remainingRounds;
+        }
+    }
+}
@@ -36,19 +36,31 @@ package ch.niceideas.eskimo.egmi.controllers;
 
 import ch.niceideas.common.utils.ProcessHelper;
 import ch.niceideas.common.utils.StringUtils;
+import ch.niceideas.eskimo.egmi.gluster.command.result.GlusterNodeSnapshotResult;
 import org.apache.log4j.Logger;
+import org.json.JSONObject;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
 
 @Controller
 public class CommandServer {
 
     private static final Logger logger = Logger.getLogger(CommandServer.class);
 
+    private static final String ETAG = "ETag";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+
     private ProcessHelper processHelper = new ProcessHelper();
 
     /** For tests */
@@ -56,9 +68,18 @@ public class CommandServer {
         this.processHelper = processHelper;
     }
 
+    public String execute (HttpServletResponse response, String command, String subcommand, String options) {
+        return execute (null, response, command, subcommand, options);
+    }
+
+    /**
+     * Every successful output comes with an ETag. When the client passes that ETag back in an If-None-Match header
+     * and the output didn't change, a 304 Not Modified without content is returned instead.
+     */
     @GetMapping(path="/command", produces="text/plain")
     @ResponseBody
     public String execute (
+            HttpServletRequest request,
             HttpServletResponse response,
             @RequestParam(name="command") String command,
             @RequestParam(name="subcommand") String subcommand,
@@ -92,13 +113,21 @@ public class CommandServer {
 
             // default leads to gluster command
             default:
-                commandLine = String.format("/usr/sbin/gluster --mode=script %s %s %s", command, subcommand, options);
+                commandLine = buildGlusterCommandLine(command, subcommand, options);
                 break;
         }
 
         String[] processCommand = commandLine.split(" ");
         try {
-            return processHelper.exec(processCommand, true);
+            String result = processHelper.exec(processCommand, true);
+
+            String etag = computeETag(result);
+            response.setHeader(ETAG, etag);
+            if (isNotModified(request, etag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return "";
+            }
+            return result;
 
         } catch (ProcessHelper.ProcessHelperException  e) {
             logger.error (e, e);
@@ -107,4 +136,86 @@ public class CommandServer {
             return e.getCompleteMessage();
         }
     }
+
+    /**
+     * Runs <code>pool list</code>, <code>volume info</code> and <code>volume status all detail</code> and returns
+     * their outputs in a single JSON payload, gzip compressed whenever the client accepts it.
+     * <br>
+     * Every section comes with its own ETag. Sections whose ETag is listed in the If-None-Match header are returned
+     * with a 304 status and without output.
+     */
+    @GetMapping(path="/node-snapshot", produces="application/json")
+    public void nodeSnapshot (HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        logger.info ("About to build node snapshot");
+
+        JSONObject snapshot = new JSONObject();
+        snapshot.put(GlusterNodeSnapshotResult.POOL_LIST, executeSnapshotSection(request, "pool", "list", ""));
+        snapshot.put(GlusterNodeSnapshotResult.VOLUME_INFO, executeSnapshotSection(request, "volume", "info", ""));
+        snapshot.put(GlusterNodeSnapshotResult.VOLUME_STATUS, executeSnapshotSection(request, "volume", "status", "all detail"));
+
+        byte[] content = snapshot.toString().getBytes(StandardCharsets.UTF_8);
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (StringUtils.isNotBlank(acceptEncoding) && acceptEncoding.contains("gzip")) {
+            response.setHeader("Content-Encoding", "gzip");
+            try (OutputStream out = new GZIPOutputStream(response.getOutputStream())) {
+                out.write(content);
+            }
+        } else {
+            response.setContentLength(content.length);
+            try (OutputStream out = response.getOutputStream()) {
+                out.write(content);
+            }
+        }
+    }
+
+    private JSONObject executeSnapshotSection (HttpServletRequest request, String command, String subcommand, String options) {
+        JSONObject section = new JSONObject();
+        try {
+            String result = processHelper.exec(buildGlusterCommandLine(command, subcommand, options).split(" "), true);
+
+            String etag = computeETag(result);
+            section.put (GlusterNodeSnapshotResult.ETAG, etag);
+            if (isNotModified(request, etag)) {
+                section.put (GlusterNodeSnapshotResult.STATUS, HttpServletResponse.SC_NOT_MODIFIED);
+            } else {
+                section.put (GlusterNodeSnapshotResult.OUTPUT, result);
+                section.put (GlusterNodeSnapshotResult.STATUS, HttpServletResponse.SC_OK);
+            }
+
+        } catch (ProcessHelper.ProcessHelperException  e) {
+            logger.error (e, e);
+
+            section.put (GlusterNodeSnapshotResult.OUTPUT, e.getCompleteMessage());
+            section.put (GlusterNodeSnapshotResult.STATUS, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+        return section;
+    }
+
+    private String computeETag (String content) {
+        return "\"" + DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    private boolean isNotModified (HttpServletRequest request, String etag) {
+        if (request == null) {
+            return false;
+        }
+        String ifNoneMatch = request.getHeader(IF_NONE_MATCH);
+        if (StringUtils.isBlank(ifNoneMatch)) {
+            return false;
+        }
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(candidate -> candidate.startsWith("W/") ? candidate.substring(2) : candidate)
+                .anyMatch(candidate -> candidate.equals(etag));
+    }
+
+    private String buildGlusterCommandLine(String command, String subcommand, String options) {
+        return String.format("/usr/sbin/gluster --mode=script %s %s %s", command, subcommand, options);
+    }
 }
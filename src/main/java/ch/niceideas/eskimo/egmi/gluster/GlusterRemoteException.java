@@ -43,4 +43,8 @@ public class GlusterRemoteException extends CommonBusinessException {
     public GlusterRemoteException(Throwable cause) {
         super(cause);
     }
+
+    public GlusterRemoteException(String message) {
+        super(message);
+    }
 }
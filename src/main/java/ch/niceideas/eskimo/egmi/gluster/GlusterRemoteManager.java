@@ -34,13 +34,21 @@
 
 package ch.niceideas.eskimo.egmi.gluster;
 
+import ch.niceideas.common.http.AsyncHttpClient;
 import ch.niceideas.common.http.HttpClient;
 import ch.niceideas.common.http.HttpClientException;
+import ch.niceideas.common.http.HttpClientResponse;
+import ch.niceideas.common.utils.FutureUtils;
 import ch.niceideas.common.utils.StringUtils;
+import ch.niceideas.eskimo.egmi.gluster.command.AbstractGlusterSimpleCommand;
+import ch.niceideas.eskimo.egmi.gluster.command.CommandResultCache;
+import ch.niceideas.eskimo.egmi.gluster.command.GlusterNodeSnapshot;
 import ch.niceideas.eskimo.egmi.gluster.command.GlusterPoolList;
 import ch.niceideas.eskimo.egmi.gluster.command.GlusterVolumeInfo;
 import ch.niceideas.eskimo.egmi.gluster.command.GlusterVolumeStatus;
 import ch.niceideas.eskimo.egmi.gluster.command.Ping;
+import ch.niceideas.eskimo.egmi.gluster.command.result.AbstractGlusterResult;
+import ch.niceideas.eskimo.egmi.gluster.command.result.GlusterNodeSnapshotResult;
 import ch.niceideas.eskimo.egmi.gluster.command.result.GlusterPoolListResult;
 import ch.niceideas.eskimo.egmi.gluster.command.result.GlusterVolumeInfoResult;
 import ch.niceideas.eskimo.egmi.gluster.command.result.GlusterVolumeStatusResult;
@@ -52,6 +60,7 @@ import ch.niceideas.eskimo.egmi.model.Node;
 import ch.niceideas.eskimo.egmi.model.NodeStatus;
 import ch.niceideas.eskimo.egmi.model.Volume;
 import ch.niceideas.eskimo.egmi.problems.CommandContext;
+import lombok.Data;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -60,30 +69,104 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Component
 @Scope(value = ConfigurableBeanFactory.SCOPE_SINGLETON)
-public class GlusterRemoteManager {
+public class GlusterRemoteManager implements ClusterMutationListener {
 
     private static final Logger logger = Logger.getLogger(GlusterRemoteManager.class);
 
+    /** how long a node whose command server doesn't support node snapshots is queried with individual commands */
+    private static final long SNAPSHOT_UNSUPPORTED_RETRY_MILLIS = 10 * 60 * 1000L;
+
     private static final Pattern IP_ADDRESS_REGEX = Pattern.compile("[0-9]+\\.[0-9]+\\.[0-9]+\\.[0-9]+");
 
     @Value("${remote.egmi.port}")
     private int glusterCommandServerPort = 18999;
 
+    @Value("${system.nodeStatus.parallelism:16}")
+    private int nodeStatusParallelism = 16;
+
+    @Value("${system.nodeStatus.deadlineSeconds:15}")
+    private int nodeStatusDeadlineSeconds = 15;
+
+    @Value("${system.nodeStatus.commandParallelism:48}")
+    private int commandParallelism = 48;
+
+    @Value("${system.nodeStatus.collectionMode:SNAPSHOT}")
+    private CollectionMode nodeStatusCollectionMode = CollectionMode.SNAPSHOT;
+
+    @Value("${system.hostnameResolution.ttlSeconds:600}")
+    private int hostnameResolutionTtlSeconds = 600;
+
+    @Value("${system.hostnameResolution.negativeTtlSeconds:60}")
+    private int hostnameResolutionNegativeTtlSeconds = 60;
+
+    @Value("${system.nodeStatus.conditionalFetch:true}")
+    private boolean conditionalFetch = true;
+
+    @Value("${system.circuitBreaker.failureThreshold:3}")
+    private int circuitBreakerFailureThreshold = 3;
+
+    @Value("${system.circuitBreaker.initialBackoffSeconds:10}")
+    private int circuitBreakerInitialBackoffSeconds = 10;
+
+    @Value("${system.circuitBreaker.maxBackoffSeconds:300}")
+    private int circuitBreakerMaxBackoffSeconds = 300;
+
+    private HostnameResolutionCache hostnameResolutionCache = null;
+
+    @Value("${system.nodeStatus.maxStalenessSeconds:60}")
+    private int nodeStatusMaxStalenessSeconds = 60;
+
+    @Value("${system.nodeStatus.snapshotMaxAgeSeconds:20}")
+    private int snapshotMaxAgeSeconds = 20;
+
+    @Value("${remote.http.maxConnectionsPerRoute:5}")
+    private int httpMaxConnectionsPerRoute = 5;
+
+    @Value("${remote.http.maxConnections:200}")
+    private int httpMaxConnections = 200;
+
+    @Value("${remote.http.keepAliveSeconds:60}")
+    private int httpKeepAliveSeconds = 60;
+
+    @Value("${system.liveness.asyncTransport:true}")
+    private boolean livenessAsyncTransport = true;
+
+    private NodeCircuitBreaker circuitBreaker = null;
+
+    private AsyncHttpClient asyncHttpClient = null;
+
+    private final Map<Node, LastGoodStatus> lastGoodStatuses = new ConcurrentHashMap<>();
+    private final Map<Node, Future<NodeStatus>> pendingRefreshes = new ConcurrentHashMap<>();
+    private final Map<Node, Long> eventRefreshTimes = new ConcurrentHashMap<>();
+    private final Map<Node, Long> snapshotUnsupportedNodes = new ConcurrentHashMap<>();
+
+    private final CommandResultCache commandResultCache = new CommandResultCache();
+
+    private ExecutorService nodeStatusExecutor = null;
+    private ExecutorService commandExecutor = null;
+
+    private final AtomicLong clusterVersion = new AtomicLong();
+    private volatile ClusterSnapshot lastSnapshot = null;
+    private volatile long lastCollectionStart = System.nanoTime();
+
     @Autowired
     private ManagementService managementService;
 
     @Bean
     public HttpClient httpClient() {
-        return new HttpClient();
+        return new HttpClient(httpMaxConnectionsPerRoute, httpMaxConnections);
     }
 
     @Autowired
@@ -96,25 +179,409 @@ public class GlusterRemoteManager {
     public void setManagementService (ManagementService managementService) {
         this.managementService = managementService;
     }
+    public void setSnapshotMaxAgeSeconds (int snapshotMaxAgeSeconds) {
+        this.snapshotMaxAgeSeconds = snapshotMaxAgeSeconds;
+    }
+    public void setNodeStatusDeadlineSeconds (int nodeStatusDeadlineSeconds) {
+        this.nodeStatusDeadlineSeconds = nodeStatusDeadlineSeconds;
+    }
+    public void setNodeStatusCollectionMode (CollectionMode nodeStatusCollectionMode) {
+        this.nodeStatusCollectionMode = nodeStatusCollectionMode;
+    }
+    public void setNodeStatusMaxStalenessSeconds (int nodeStatusMaxStalenessSeconds) {
+        this.nodeStatusMaxStalenessSeconds = nodeStatusMaxStalenessSeconds;
+    }
+    public void setLivenessAsyncTransport (boolean livenessAsyncTransport) {
+        this.livenessAsyncTransport = livenessAsyncTransport;
+    }
+    public void setGlusterCommandServerPort (int glusterCommandServerPort) {
+        this.glusterCommandServerPort = glusterCommandServerPort;
+    }
 
-    public Map<Node, NodeStatus> getAllNodeStatus() throws GlusterRemoteException {
+    @PreDestroy
+    public void destroy() {
+        synchronized (this) {
+            logger.info ("Shutting down node status executors");
+            if (nodeStatusExecutor != null) {
+                nodeStatusExecutor.shutdownNow();
+                nodeStatusExecutor = null;
+            }
+            if (commandExecutor != null) {
+                commandExecutor.shutdownNow();
+                commandExecutor = null;
+            }
+            if (asyncHttpClient != null) {
+                asyncHttpClient.close();
+                asyncHttpClient = null;
+            }
+        }
+    }
 
-        Map<Node, NodeStatus> retMap = new HashMap<>();
+    /*
+     * Executors are created lazily since pool sizes are only known once the configuration has been injected.
+     * Commands use their own pool since node status tasks block while waiting for them.
+     */
+    private synchronized ExecutorService getNodeStatusExecutor() {
+        if (nodeStatusExecutor == null) {
+            nodeStatusExecutor = createDaemonPool("egmi-node-status-", nodeStatusParallelism);
+        }
+        return nodeStatusExecutor;
+    }
 
+    private synchronized ExecutorService getCommandExecutor() {
+        if (commandExecutor == null) {
+            commandExecutor = createDaemonPool("egmi-command-", commandParallelism);
+        }
+        return commandExecutor;
+    }
+
+    public synchronized HostnameResolutionCache getHostnameResolutionCache() {
+        if (hostnameResolutionCache == null) {
+            hostnameResolutionCache = new HostnameResolutionCache(hostnameResolutionTtlSeconds, hostnameResolutionNegativeTtlSeconds);
+        }
+        return hostnameResolutionCache;
+    }
+
+    private synchronized AsyncHttpClient getAsyncHttpClient() {
+        if (asyncHttpClient == null) {
+            asyncHttpClient = new AsyncHttpClient(httpMaxConnectionsPerRoute, httpMaxConnections, httpKeepAliveSeconds);
+        }
+        return asyncHttpClient;
+    }
+
+    public synchronized NodeCircuitBreaker getCircuitBreaker() {
+        if (circuitBreaker == null) {
+            circuitBreaker = new NodeCircuitBreaker(
+                    circuitBreakerFailureThreshold, circuitBreakerInitialBackoffSeconds, circuitBreakerMaxBackoffSeconds);
+        }
+        return circuitBreaker;
+    }
+
+    private static ExecutorService createDaemonPool(String threadPrefix, int size) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max (1, size), runnable -> {
+            Thread thread = new Thread(runnable, threadPrefix + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Fetch the status of all nodes in parallel.
+     * <br>
+     * See {@link #collectAllNodeStatus()}, of which only the freshly fetched status map is returned.
+     */
+    public Map<Node, NodeStatus> getAllNodeStatus() throws GlusterRemoteException {
+        return collectAllNodeStatus().getNodesStatus();
+    }
+
+    /**
+     * Fetch the status of all nodes in parallel.
+     * <br>
+     * A single deadline applies to the whole collection. Nodes that didn't answer before that deadline are reported
+     * as timed out and left out of the returned map, just as nodes that couldn't be reached at all, so that the
+     * status of all other nodes can be returned right away.
+     * <br>
+     * Nodes whose circuit is open (see {@link NodeCircuitBreaker}) are not queried at all and left out as well.
+     * <br>
+     * When a node timed out and its last good status is not older than maxStalenessSeconds, a copy of it flagged as
+     * stale is used for display instead. Nodes that failed or whose circuit is open never get a stale status : they
+     * are really unavailable. Stale statuses are only part of the displayed status map, never of the status map shared
+     * with problem solvers, which only ever act on freshly fetched statuses. The refresh of a node that timed out is
+     * not cancelled but keeps running in the background and is picked up by the next call instead of querying the
+     * node again.
+     * <br>
+     * The nodes that timed out and the nodes for which a stale status is displayed are reported along with the status
+     * maps, so that concurrent callers, such as problem solvers, don't overwrite what another caller reports.
+     */
+    public NodeStatusCollection collectAllNodeStatus() throws GlusterRemoteException {
+
+        // taken before fetching anything so that a mutation happening during the fetch invalidates the snapshot
+        long version = clusterVersion.get();
+
+        long previousCollectionStart = lastCollectionStart;
+        lastCollectionStart = System.nanoTime();
+
+        Set<Node> allNodes;
         try {
-            for (Node node : managementService.getAllNodes()) {
-                try {
-                    retMap.put(node, getNodeStatus(node));
-                } catch (GlusterRemoteException e) {
-                    logger.debug (e, e);
-                    logger.error (e.getCompleteMessage());
+            allNodes = managementService.getAllNodes();
+        } catch (ManagementException e) {
+            logger.error (e, e);
+            throw new GlusterRemoteException(e);
+        }
+
+        Map<Node, Future<NodeStatus>> pendingStatuses = new HashMap<>();
+        for (Node node : allNodes) {
+            // refreshes requested before the previous collection started are too old to be used
+            Long eventRefreshTime = eventRefreshTimes.remove(node);
+            Future<NodeStatus> eventRefresh = eventRefreshTime != null && eventRefreshTime - previousCollectionStart >= 0
+                    ? pendingRefreshes.get(node) : null;
+            pendingStatuses.put(node, eventRefresh != null ? eventRefresh : refreshNodeStatus(node, false));
+        }
+
+        Set<Node> timedOutNodes = new HashSet<>();
+        boolean serveStale = nodeStatusMaxStalenessSeconds > 0;
+        Map<Node, NodeStatus> retMap = awaitAll(pendingStatuses, nodeStatusDeadlineSeconds, timedOutNodes, !serveStale);
+
+        Map<Node, NodeStatus> displayedMap = new HashMap<>(retMap);
+        Set<Node> staleNodes = new HashSet<>();
+        if (serveStale) {
+            long now = System.nanoTime();
+            for (Node node : timedOutNodes) {
+                LastGoodStatus lastGood = lastGoodStatuses.get(node);
+                if (lastGood != null
+                        && now - lastGood.getFetchTime() <= TimeUnit.SECONDS.toNanos(nodeStatusMaxStalenessSeconds)) {
+                    logger.warn ("Using last good status of node " + node + " fetched "
+                            + TimeUnit.NANOSECONDS.toSeconds(now - lastGood.getFetchTime()) + " seconds ago.");
+                    displayedMap.put(node, lastGood.getStatus().asStale());
+                    staleNodes.add(node);
                 }
             }
+        }
+        lastGoodStatuses.keySet().retainAll(allNodes);
+        pendingRefreshes.keySet().retainAll(allNodes);
+        eventRefreshTimes.keySet().retainAll(allNodes);
+        commandResultCache.retainNodes(allNodes);
+
+        HostnameResolutionCache resolutionCache = getHostnameResolutionCache();
+        logger.debug ("Hostname resolution cache - hits : " + resolutionCache.getHitCount() + " - misses : " + resolutionCache.getMissCount());
+        logger.debug ("Unchanged command results reused : " + commandResultCache.getReuseCount());
+
+        Map<Node, NodeStatus> nodesStatus = Collections.unmodifiableMap(retMap);
+        lastSnapshot = new ClusterSnapshot(version, System.nanoTime(), nodesStatus);
+        return new NodeStatusCollection(
+                nodesStatus, Collections.unmodifiableMap(displayedMap),
+                Collections.unmodifiableSet(timedOutNodes), Collections.unmodifiableSet(staleNodes));
+    }
+
+    /**
+     * Get the status of all nodes as returned by the last call to getAllNodeStatus() as long as it is not older than
+     * snapshotMaxAgeSeconds and no operation changing the cluster has been sent since that call started. Otherwise
+     * the status of all nodes is fetched again.
+     * <br>
+     * This is meant for problem solvers so that they share a single status collection per resolution iteration
+     * instead of each crawling the whole cluster again. The returned map is unmodifiable.
+     */
+    public Map<Node, NodeStatus> getSharedNodeStatus() throws GlusterRemoteException {
+        ClusterSnapshot snapshot = lastSnapshot;
+        if (snapshot != null
+                && snapshot.getVersion() == clusterVersion.get()
+                && System.nanoTime() - snapshot.getFetchTime() <= TimeUnit.SECONDS.toNanos(snapshotMaxAgeSeconds)) {
+            return snapshot.getNodesStatus();
+        }
+        return getAllNodeStatus();
+    }
+
+    /**
+     * Drop the status shared with problem solvers, so that the next call to getSharedNodeStatus() fetches the status
+     * of all nodes again.
+     */
+    public void invalidateSharedNodeStatus() {
+        lastSnapshot = null;
+    }
+
+    /**
+     * @return the version of the cluster state, increased every time an operation changing the cluster is sent
+     */
+    public long getClusterVersion() {
+        return clusterVersion.get();
+    }
+
+    @Override
+    public void clusterMutated() {
+        clusterVersion.incrementAndGet();
+    }
+
+    /**
+     * Fetch the status of the given nodes only, within the usual deadline, for an action to see its effect without
+     * waiting for the status of all nodes.
+     * <br>
+     * The nodes are always queried again, a refresh still running having possibly started before the action.
+     * <br>
+     * The fetched statuses are merged into a copy of the status of all nodes shared with problem solvers, keeping its
+     * version and fetch time. Nodes that didn't answer in time or failed are left out of the returned map.
+     */
+    public Map<Node, NodeStatus> getRefreshedNodeStatus (Set<Node> nodes) throws GlusterRemoteException {
+
+        Map<Node, Future<NodeStatus>> pendingStatuses = new HashMap<>();
+        for (Node node : nodes) {
+            pendingStatuses.put(node, refreshNodeStatus(node, true));
+        }
+
+        Map<Node, NodeStatus> refreshed = awaitAll(pendingStatuses, nodeStatusDeadlineSeconds, new HashSet<>(), false);
+
+        ClusterSnapshot snapshot = lastSnapshot;
+        if (snapshot != null) {
+            Map<Node, NodeStatus> merged = new HashMap<>(snapshot.getNodesStatus());
+            merged.keySet().removeAll(nodes);
+            merged.putAll(refreshed);
+            lastSnapshot = new ClusterSnapshot(snapshot.getVersion(), snapshot.getFetchTime(), Collections.unmodifiableMap(merged));
+        }
+
+        return refreshed;
+    }
+
+    /**
+     * Refresh the status of the given nodes right away, in the background, typically following an event reported by
+     * gluster about them.
+     * <br>
+     * The nodes are always queried again, a refresh still running having possibly started before the event. The
+     * status shared with problem solvers is dropped and the next call to getAllNodeStatus() uses these refreshes
+     * instead of querying the nodes again.
+     */
+    public void refreshNodes (Set<Node> nodes) {
+        if (nodes.isEmpty()) {
+            return;
+        }
+        clusterMutated();
+        for (Node node : nodes) {
+            eventRefreshTimes.put(node, System.nanoTime());
+            refreshNodeStatus(node, true);
+        }
+    }
+
+    /**
+     * Cheap liveness check of all nodes : only the peer list is fetched from every node, in parallel.
+     * <br>
+     * This is meant to be run much more often than getAllNodeStatus() in order to detect nodes going down or coming
+     * back up quickly without paying for the volume and brick details at every check.
+     *
+     * @return the nodes that answered the peer list query without error within the given deadline.
+     */
+    public Set<Node> getLiveNodes(int deadlineSeconds) throws GlusterRemoteException {
+
+        Set<Node> allNodes;
+        try {
+            allNodes = managementService.getAllNodes();
         } catch (ManagementException e) {
             logger.error (e, e);
             throw new GlusterRemoteException(e);
         }
 
+        NodeCircuitBreaker breaker = getCircuitBreaker();
+        Map<Node, Future<Boolean>> pendingLiveness = new HashMap<>();
+        if (livenessAsyncTransport) {
+            // non-blocking fan-out : no thread is held while waiting for the nodes
+            CommandContext context = new CommandContext(httpClient, glusterCommandServerPort, managementService);
+            AsyncHttpClient client = getAsyncHttpClient();
+            for (Node node : allNodes) {
+                // cancelling on the deadline aborts the exchange
+                CompletableFuture<GlusterPoolListResult> pendingPoolList = breaker.callAsync(node, target ->
+                        new GlusterPoolList(httpClient).executeAsync(target, context, client, commandResultCache));
+                pendingLiveness.put(node, FutureUtils.propagateCancellation(pendingPoolList,
+                        pendingPoolList.thenApply(poolResult -> !poolResult.isError())));
+            }
+        } else {
+            ExecutorService executor = getNodeStatusExecutor();
+            for (Node node : allNodes) {
+                pendingLiveness.put(node, executor.submit(() -> breaker.call(node, this::isNodeLive)));
+            }
+        }
+
+        Map<Node, Boolean> liveness = awaitAll(pendingLiveness, deadlineSeconds, new HashSet<>(), true);
+
+        return liveness.entrySet().stream()
+                .filter(Map.Entry::getValue)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    boolean isNodeLive (Node node) throws GlusterRemoteException {
+        try {
+            CommandContext context = new CommandContext(httpClient, glusterCommandServerPort, managementService);
+
+            GlusterPoolListResult poolResult = executeConditionally(new GlusterPoolList(httpClient), node, context);
+            return !poolResult.isError();
+
+        } catch (HttpClientException e) {
+            logger.debug (e, e);
+            throw new GlusterRemoteException(e);
+        }
+    }
+
+    /*
+     * Refresh the status of the node on the node status pool, unless a previous refresh is still running, in which
+     * case that one is returned. With forceNewFetch, the node is queried again once the previous refresh is done,
+     * never both at once. Successfully fetched statuses are kept as last good status of the node.
+     */
+    private Future<NodeStatus> refreshNodeStatus (Node node, boolean forceNewFetch) {
+        NodeCircuitBreaker breaker = getCircuitBreaker();
+        return pendingRefreshes.compute(node, (key, pendingRefresh) -> {
+            Future<NodeStatus> previousRefresh = null;
+            if (pendingRefresh != null && !pendingRefresh.isDone()) {
+                if (!forceNewFetch) {
+                    logger.debug ("Previous status refresh of node " + node + " still running. Waiting for it.");
+                    return pendingRefresh;
+                }
+                logger.debug ("Previous status refresh of node " + node + " still running. Refreshing again after it.");
+                previousRefresh = pendingRefresh;
+            }
+            Future<NodeStatus> awaitedRefresh = previousRefresh;
+            return getNodeStatusExecutor().submit(() -> {
+                if (awaitedRefresh != null) {
+                    awaitQuietly (awaitedRefresh);
+                }
+                NodeStatus nodeStatus = breaker.call(node, this::getNodeStatus);
+                if (!nodeStatus.isPoolStatusError()) {
+                    lastGoodStatuses.put(node, new LastGoodStatus(nodeStatus, System.nanoTime()));
+                }
+                return nodeStatus;
+            });
+        });
+    }
+
+    private static void awaitQuietly (Future<?> future) throws InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException | CancellationException e) {
+            logger.debug (e, e); // reported to whoever waits for it
+        }
+    }
+
+    /*
+     * Waits for the results of all nodes within a single deadline.
+     * Nodes that didn't answer in time are added to timedOutNodes, nodes for which the call failed are simply left out.
+     */
+    private <T> Map<Node, T> awaitAll (
+            Map<Node, Future<T>> pendingResults, int deadlineSeconds, Set<Node> timedOutNodes, boolean cancelOnTimeout)
+            throws GlusterRemoteException {
+
+        Map<Node, T> retMap = new HashMap<>();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(deadlineSeconds);
+        try {
+            for (Map.Entry<Node, Future<T>> entry : pendingResults.entrySet()) {
+                Node node = entry.getKey();
+                Future<T> pendingResult = entry.getValue();
+                try {
+                    retMap.put(node, pendingResult.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+
+                } catch (TimeoutException e) {
+                    logger.warn ("Node " + node + " didn't answer within " + deadlineSeconds + " seconds. Flagging it as timed out.");
+                    if (cancelOnTimeout) {
+                        pendingResult.cancel(true);
+                    }
+                    timedOutNodes.add(node);
+
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    logger.debug (cause, cause);
+                    if (cause instanceof CircuitOpenException) {
+                        logger.debug (cause.getMessage());
+                    } else if (cause instanceof GlusterRemoteException) {
+                        logger.error (((GlusterRemoteException)cause).getCompleteMessage());
+                    } else {
+                        logger.error (cause.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.debug (e, e);
+            pendingResults.values().forEach(pendingResult -> pendingResult.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new GlusterRemoteException(e);
+        }
+
         return retMap;
     }
 
@@ -133,87 +600,288 @@ public class GlusterRemoteManager {
             return hostname;
         }
 
-        CommandContext context = new CommandContext(httpClient, glusterCommandServerPort, managementService);
+        return getHostnameResolutionCache().resolve(node, hostname, () -> {
+            CommandContext context = new CommandContext(httpClient, glusterCommandServerPort, managementService);
 
-        PingResult pingResult = new Ping(httpClient, hostname).execute(node, context);
-        return pingResult.getResolvedIP();
+            PingResult pingResult = new Ping(httpClient, hostname).execute(node, context);
+            return pingResult.getResolvedIP();
+        });
     }
 
     NodeStatus getNodeStatus (Node node) throws GlusterRemoteException {
+        try {
 
-        NodeStatus status = new NodeStatus("{}");
+            CommandContext context = new CommandContext(httpClient, glusterCommandServerPort, managementService);
+
+            switch (nodeStatusCollectionMode) {
+                case SNAPSHOT:
+                    return getNodeStatusFromSnapshot(node, context);
+                case PIPELINED:
+                    return getNodeStatusPipelined(node, context, false);
+                case XML:
+                    return getNodeStatusPipelined(node, context, true);
+                default:
+                    return getNodeStatusSequential(node, context);
+            }
+
+        } catch (HttpClientException | IOException e) {
+            logger.warn (e.getMessage());
+            logger.debug (e, e);
+            // the node may come back with a different EGMI version, supporting node snapshots
+            snapshotUnsupportedNodes.remove(node);
+            throw new GlusterRemoteException(e);
+        }
+    }
+
+    private NodeStatus getNodeStatusSequential (Node node, CommandContext context) throws HttpClientException, IOException {
+
+        // 1. get peer list
+        GlusterPoolList poolListCmd = new GlusterPoolList(httpClient);
+        GlusterPoolListResult poolResult = executeConditionally(poolListCmd, node, context);
+        getHostnameResolutionCache().updatePeerUids(node, poolResult.getAllUids());
+
+        List<String> resolvedHostnames = new ArrayList<>();
+        for (int i = 0; i < poolResult.size(); i++) {
+            resolvedHostnames.add (resolve (poolResult.getHostname(i), node));
+        }
+
+        // 2. get volume information
+        GlusterVolumeInfo volumeInfoCmd = new GlusterVolumeInfo(httpClient);
+        GlusterVolumeInfoResult volumeInfo = executeConditionally(volumeInfoCmd, node, context);
+
+        // 3. Fetch brick details
+        GlusterVolumeStatus volumeStatusCmd = new GlusterVolumeStatus(httpClient, volumeInfo);
+        GlusterVolumeStatusResult volumeStatus = volumeStatusCmd.execute(node, context);
+
+        return buildNodeStatus (poolResult, resolvedHostnames, volumeInfo, volumeStatus);
+    }
+
+    private NodeStatus getNodeStatusPipelined (Node node, CommandContext context, boolean xmlOutput) throws HttpClientException, IOException {
+
+        // 1. Issue all independent commands at once
+        CompletableFuture<GlusterPoolListResult> poolResultFuture = submitCommand(
+                () -> executeConditionally(new GlusterPoolList(httpClient, xmlOutput), node, context));
+
+        CompletableFuture<GlusterVolumeInfoResult> volumeInfoFuture = submitCommand(
+                () -> executeConditionally(new GlusterVolumeInfo(httpClient, xmlOutput), node, context));
+
+        GlusterVolumeStatus volumeStatusCmd = new GlusterVolumeStatus(httpClient, volumeInfoFuture::join, xmlOutput);
+        CompletableFuture<HttpClientResponse> volumeStatusResponseFuture = submitCommand(
+                () -> volumeStatusCmd.fetch(node, context));
+
+        // 2. Resolve peer hostnames as soon as the peer list is available
+        CompletableFuture<List<String>> resolvedHostnamesFuture = poolResultFuture.thenCompose(
+                poolResult -> resolveAll(poolResult, node));
 
         try {
+            GlusterPoolListResult poolResult = await (poolResultFuture);
+            List<String> resolvedHostnames = await (resolvedHostnamesFuture);
+            GlusterVolumeInfoResult volumeInfo = await (volumeInfoFuture);
+
+            // 3. Only parsing brick details needs to wait for the volume information
+            GlusterVolumeStatusResult volumeStatus;
+            try (HttpClientResponse volumeStatusResponse = await (volumeStatusResponseFuture)) {
+                volumeStatus = volumeStatusCmd.parse(volumeStatusResponse);
+            }
 
-            CommandContext context = new CommandContext(httpClient, glusterCommandServerPort, managementService);
+            return buildNodeStatus (poolResult, resolvedHostnames, volumeInfo, volumeStatus);
 
-            // 1. get peer list
-            GlusterPoolList poolListCmd = new GlusterPoolList(httpClient);
-            GlusterPoolListResult poolResult = poolListCmd.execute(node, context);
-            for (int i = 0; i < poolResult.size(); i++) {
+        } finally {
+            // release the volume status response in any case, even if it comes after a failure of another command
+            volumeStatusResponseFuture.thenAccept(HttpClientResponse::close);
+        }
+    }
 
-                String uid = poolResult.getUid(i);
-                String hostname = resolve (poolResult.getHostname(i), node);
-                String state = poolResult.getState(i);
+    private NodeStatus getNodeStatusFromSnapshot (Node node, CommandContext context) throws HttpClientException, IOException {
 
-                status.setPeerInformation (i, uid, hostname, state);
+        Long unsupportedSince = snapshotUnsupportedNodes.get(node);
+        if (unsupportedSince != null) {
+            if (System.nanoTime() - unsupportedSince < TimeUnit.MILLISECONDS.toNanos(SNAPSHOT_UNSUPPORTED_RETRY_MILLIS)) {
+                return getNodeStatusPipelined(node, context, false);
             }
+            // the node may have been upgraded meanwhile
+            snapshotUnsupportedNodes.remove(node, unsupportedSince);
+        }
 
-            // 2. get volume information
-            GlusterVolumeInfo volumeInfoCmd = new GlusterVolumeInfo(httpClient);
-            GlusterVolumeInfoResult volumeInfo = volumeInfoCmd.execute(node, context);
+        GlusterNodeSnapshotResult snapshot = executeConditionally(new GlusterNodeSnapshot(httpClient), node, context);
+        if (snapshot.isError()) {
+            if (snapshot.isUnsupported()) {
+                // remote EGMI doesn't support node snapshots yet
+                logger.warn ("Node " + node + " doesn't support node snapshots (" + snapshot.getError() + "). "
+                        + "Using individual commands for this node for a while.");
+                snapshotUnsupportedNodes.put(node, System.nanoTime());
+            } else {
+                logger.warn ("Couldn't get node snapshot from " + node + " (" + snapshot.getError() + "). "
+                        + "Falling back to individual commands.");
+            }
+            return getNodeStatusPipelined(node, context, false);
+        }
 
-            // 3. Fetch brick details
-            GlusterVolumeStatus volumeStatusCmd = new GlusterVolumeStatus(httpClient, volumeInfo);
-            GlusterVolumeStatusResult volumeStatus = volumeStatusCmd.execute(node, context);
+        GlusterPoolListResult poolResult = snapshot.getPoolList();
+        List<String> resolvedHostnames = await (resolveAll(poolResult, node));
 
-            // 4. Add it all to brick status
-            int counter = 0;
-            for (Volume volume : volumeInfo.getAllVolumes()) {
+        return buildNodeStatus (poolResult, resolvedHostnames, snapshot.getVolumeInfo(), snapshot.getVolumeStatus());
+    }
 
-                status.setVolumeName (counter, volume.getName());
+    private <T extends AbstractGlusterResult<T>> T executeConditionally (
+            AbstractGlusterSimpleCommand<T> command, Node node, CommandContext context) throws HttpClientException {
+        if (conditionalFetch) {
+            return command.execute(node, context, commandResultCache);
+        } else {
+            return command.execute(node, context);
+        }
+    }
 
-                Set<String> volumeOptions = volumeInfo.getVolumeReconfiguredOptions(volume);
-                if (volumeOptions != null && !volumeOptions.isEmpty()) {
+    private CompletableFuture<List<String>> resolveAll (GlusterPoolListResult poolResult, Node node) {
+        getHostnameResolutionCache().updatePeerUids(node, poolResult.getAllUids());
 
-                    for (String option: volumeOptions) {
+        List<CompletableFuture<String>> resolutions = new ArrayList<>();
+        for (int i = 0; i < poolResult.size(); i++) {
+            String hostname = poolResult.getHostname(i);
+            resolutions.add (submitCommand(() -> resolve (hostname, node)));
+        }
+        return CompletableFuture.allOf(resolutions.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> resolutions.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
 
-                        String[] parsedOption = option.split(":");
-                        if (parsedOption.length == 2) {
+    private <R> CompletableFuture<R> submitCommand (RemoteCall<R> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call();
+            } catch (HttpClientException | IOException e) {
+                throw new CompletionException(e);
+            }
+        }, getCommandExecutor());
+    }
+
+    private static <R> R await (CompletableFuture<R> future) throws HttpClientException, IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HttpClientException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null ?
+                    e.getCause().getCause() : e.getCause();
+            if (cause instanceof HttpClientException) {
+                throw (HttpClientException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new HttpClientException(cause.getMessage(), cause);
+        }
+    }
 
-                            String optionKey = parsedOption[0].trim().replace(".", "__");
-                            String optionValue = parsedOption[1].trim();
+    private NodeStatus buildNodeStatus (
+            GlusterPoolListResult poolResult,
+            List<String> resolvedHostnames,
+            GlusterVolumeInfoResult volumeInfo,
+            GlusterVolumeStatusResult volumeStatus) {
 
-                            status.addVolumeOption (counter, optionKey, optionValue);
-                        }
-                    }
-                }
+        NodeStatus status = new NodeStatus("{}");
+
+        // 1. Add peers
+        for (int i = 0; i < poolResult.size(); i++) {
+
+            String uid = poolResult.getUid(i);
+            String hostname = resolvedHostnames.get(i);
+            String state = poolResult.getState(i);
 
-                volumeInfo.feedVolumeInfoInStatus(status, volume, counter);
+            status.setPeerInformation (i, uid, hostname, state);
+        }
+
+        // 2. Add it all to brick status
+        int counter = 0;
+        for (Volume volume : volumeInfo.getAllVolumes()) {
 
-                if (volumeInfo.hasBrickIds(volume)) {
+            status.setVolumeName (counter, volume.getName());
 
-                    Map<Integer, BrickId> bricks = volumeInfo.getNumberedBrickIds(volume);
+            Set<String> volumeOptions = volumeInfo.getVolumeReconfiguredOptions(volume);
+            if (volumeOptions != null && !volumeOptions.isEmpty()) {
 
-                    for (Integer brickNumber : bricks.keySet()) {
+                for (String option: volumeOptions) {
 
-                        BrickId brickId = bricks.get(brickNumber);
+                    String[] parsedOption = option.split(":");
+                    if (parsedOption.length == 2) {
 
-                        status.setBrickInformation(counter, brickNumber, brickId);
+                        String optionKey = parsedOption[0].trim().replace(".", "__");
+                        String optionValue = parsedOption[1].trim();
 
-                        volumeStatus.feedVolumeStatusInStatus (status, counter, (brickNumber - 1), brickId);
+                        status.addVolumeOption (counter, optionKey, optionValue);
                     }
                 }
+            }
+
+            volumeInfo.feedVolumeInfoInStatus(status, volume, counter);
+
+            if (volumeInfo.hasBrickIds(volume)) {
+
+                Map<Integer, BrickId> bricks = volumeInfo.getNumberedBrickIds(volume);
+
+                for (Integer brickNumber : bricks.keySet()) {
 
-                counter++;
+                    BrickId brickId = bricks.get(brickNumber);
+
+                    status.setBrickInformation(counter, brickNumber, brickId);
+
+                    volumeStatus.feedVolumeStatusInStatus (status, counter, (brickNumber - 1), brickId);
+                }
             }
 
-        } catch (HttpClientException | IOException e) {
-            logger.warn (e.getMessage());
-            logger.debug (e, e);
-            throw new GlusterRemoteException(e);
+            counter++;
         }
 
         return status;
     }
+
+    /**
+     * How the commands required to build the status of a single node are issued.
+     */
+    public enum CollectionMode {
+        /** one command after the other */
+        SEQUENTIAL,
+        /** all independent commands at once, only parsing the volume status waits for the volume info */
+        PIPELINED,
+        /** a single call to the node-snapshot endpoint returning all command outputs at once */
+        SNAPSHOT,
+        /** as PIPELINED, but with the commands returning XML, parsed by a streaming reader */
+        XML
+    }
+
+    /**
+     * The result of a collection of the status of all nodes : the freshly fetched status of every node that could be
+     * obtained, the same completed with the stale status of timed out nodes for display, the nodes that didn't answer
+     * before the deadline and the nodes for which their last good status is displayed.
+     */
+    @Data
+    public static class NodeStatusCollection {
+        private final Map<Node, NodeStatus> nodesStatus;
+        private final Map<Node, NodeStatus> displayedNodesStatus;
+        private final Set<Node> timedOutNodes;
+        private final Set<Node> staleNodes;
+
+        public static NodeStatusCollection of (Map<Node, NodeStatus> nodesStatus) {
+            return new NodeStatusCollection(nodesStatus, nodesStatus, Collections.emptySet(), Collections.emptySet());
+        }
+    }
+
+    @Data
+    private static class LastGoodStatus {
+        private final NodeStatus status;
+        private final long fetchTime;
+    }
+
+    @Data
+    private static class ClusterSnapshot {
+        private final long version;
+        private final long fetchTime;
+        private final Map<Node, NodeStatus> nodesStatus;
+    }
+
+    @FunctionalInterface
+    private interface RemoteCall<R> {
+        R call() throws HttpClientException, IOException;
+    }
 }
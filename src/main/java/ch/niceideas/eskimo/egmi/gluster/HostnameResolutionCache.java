@@ -0,0 +1,155 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+
+package ch.niceideas.eskimo.egmi.gluster;
+
+import ch.niceideas.common.http.HttpClientException;
+import ch.niceideas.eskimo.egmi.model.Node;
+import lombok.Data;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Caches the IP addresses peer hostnames resolve to, as seen from the node reporting them.
+ * <br>
+ * Failed resolutions (unknown hosts) are cached as well, for a shorter time. Failures to reach the reporting node are
+ * never cached.
+ * <br>
+ * All entries of a node are dropped as soon as the set of peer UIDs it reports changes.
+ */
+public class HostnameResolutionCache {
+
+    private static final Logger logger = Logger.getLogger(HostnameResolutionCache.class);
+
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final LongSupplier clock;
+
+    private final Map<ResolutionKey, Resolution> resolutions = new ConcurrentHashMap<>();
+    private final Map<Node, Set<String>> knownPeerUids = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public HostnameResolutionCache(int ttlSeconds, int negativeTtlSeconds) {
+        this (ttlSeconds, negativeTtlSeconds, System::nanoTime);
+    }
+
+    /** For tests */
+    HostnameResolutionCache(int ttlSeconds, int negativeTtlSeconds, LongSupplier clock) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+        this.clock = clock;
+    }
+
+    public String resolve (Node node, String hostname, Resolver resolver) throws HttpClientException, IOException {
+
+        ResolutionKey key = new ResolutionKey(node, hostname);
+        long now = clock.getAsLong();
+
+        Resolution cached = resolutions.get(key);
+        if (cached != null && cached.getExpiry() - now > 0) {
+            hits.increment();
+            if (cached.getFailure() != null) {
+                throw new IllegalStateException(cached.getFailure());
+            }
+            return cached.getResolvedIP();
+        }
+
+        misses.increment();
+        try {
+            String resolvedIP = resolver.resolve();
+            resolutions.put(key, new Resolution(resolvedIP, null, now + (resolvedIP != null ? ttlNanos : negativeTtlNanos)));
+            return resolvedIP;
+
+        } catch (IllegalStateException e) {
+            // the node answered but the hostname couldn't be resolved
+            resolutions.put(key, new Resolution(null, e.getMessage(), now + negativeTtlNanos));
+            throw e;
+        }
+    }
+
+    /**
+     * Drop all resolutions reported by the given node if its set of peers changed since last call.
+     */
+    public void updatePeerUids (Node node, Collection<String> peerUids) {
+        Set<String> newUids = new HashSet<>(peerUids);
+        Set<String> previousUids = knownPeerUids.put(node, newUids);
+        if (previousUids != null && !previousUids.equals(newUids)) {
+            logger.info ("Peers reported by " + node + " changed. Invalidating hostname resolutions.");
+            resolutions.keySet().removeIf(key -> key.getNode().equals(node));
+        }
+    }
+
+    public void clear() {
+        resolutions.clear();
+        knownPeerUids.clear();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return resolutions.size();
+    }
+
+    @FunctionalInterface
+    public interface Resolver {
+        String resolve() throws HttpClientException, IOException;
+    }
+
+    @Data
+    private static class ResolutionKey {
+        private final Node node;
+        private final String hostname;
+    }
+
+    @Data
+    private static class Resolution {
+        private final String resolvedIP;
+        private final String failure;
+        private final long expiry;
+    }
+}
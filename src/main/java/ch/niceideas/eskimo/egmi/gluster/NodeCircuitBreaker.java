@@ -0,0 +1,259 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+
+package ch.niceideas.eskimo.egmi.gluster;
+
+import ch.niceideas.common.utils.FutureUtils;
+import ch.niceideas.eskimo.egmi.model.Node;
+import org.apache.log4j.Logger;
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-node circuit breaker protecting the status collection from waiting again and again on unreachable nodes.
+ * <br>
+ * After failureThreshold consecutive failures the circuit of a node opens : calls to that node fail right away with
+ * the last failure until the backoff delay expires. A single probe call is then let through (half-open state). If it
+ * succeeds, the circuit closes again, otherwise it opens again with a doubled backoff delay, up to maxBackoff.
+ * <br>
+ * A failureThreshold of 0 disables the circuit breaker.
+ */
+public class NodeCircuitBreaker {
+
+    private static final Logger logger = Logger.getLogger(NodeCircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final LongSupplier clock;
+
+    private final Map<Node, Circuit> circuits = new ConcurrentHashMap<>();
+
+    public NodeCircuitBreaker(int failureThreshold, int initialBackoffSeconds, int maxBackoffSeconds) {
+        this (failureThreshold, initialBackoffSeconds, maxBackoffSeconds, System::nanoTime);
+    }
+
+    /** For tests */
+    NodeCircuitBreaker(int failureThreshold, int initialBackoffSeconds, int maxBackoffSeconds, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.initialBackoffNanos = TimeUnit.SECONDS.toNanos(initialBackoffSeconds);
+        this.maxBackoffNanos = Math.max (initialBackoffNanos, TimeUnit.SECONDS.toNanos(maxBackoffSeconds));
+        this.clock = clock;
+    }
+
+    /**
+     * Run the given call against the node unless its circuit is open.
+     *
+     * @throws CircuitOpenException if the circuit of the node is open, without running the call.
+     */
+    public <T> T call (Node node, NodeCall<T> call) throws GlusterRemoteException {
+        if (failureThreshold <= 0) {
+            return call.call(node);
+        }
+
+        Circuit circuit = circuits.computeIfAbsent(node, key -> new Circuit());
+        circuit.acquire(node);
+        try {
+            T result = call.call(node);
+            circuit.recordSuccess(node);
+            return result;
+        } catch (GlusterRemoteException e) {
+            circuit.recordFailure(node, e);
+            throw e;
+        } catch (RuntimeException e) {
+            circuit.recordFailure(node, new GlusterRemoteException(e));
+            throw e;
+        }
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #call(Node, NodeCall)}. The outcome is recorded when the returned future
+     * completes.
+     *
+     * @return a future completed exceptionally with a {@link CircuitOpenException} if the circuit of the node is open
+     */
+    public <T> CompletableFuture<T> callAsync (Node node, Function<Node, CompletableFuture<T>> call) {
+        if (failureThreshold <= 0) {
+            return call.apply(node);
+        }
+
+        Circuit circuit = circuits.computeIfAbsent(node, key -> new Circuit());
+        try {
+            circuit.acquire(node);
+        } catch (CircuitOpenException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<T> pendingResult;
+        try {
+            pendingResult = call.apply(node);
+        } catch (RuntimeException e) {
+            circuit.recordFailure(node, new GlusterRemoteException(e));
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return FutureUtils.propagateCancellation(pendingResult, pendingResult.whenComplete((result, error) -> {
+            if (error == null) {
+                circuit.recordSuccess(node);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                circuit.recordFailure(node, cause instanceof GlusterRemoteException
+                        ? (GlusterRemoteException) cause
+                        : new GlusterRemoteException(cause));
+            }
+        }));
+    }
+
+    public State getState (Node node) {
+        Circuit circuit = circuits.get(node);
+        return circuit == null ? State.CLOSED : circuit.getState();
+    }
+
+    /**
+     * @return the state of the circuit of every node that is not closed or that recently failed, as JSON objects.
+     */
+    public Map<Node, JSONObject> getStatus() {
+        Map<Node, JSONObject> retMap = new ConcurrentHashMap<>();
+        circuits.forEach((node, circuit) -> {
+            JSONObject status = circuit.toJSON();
+            if (status != null) {
+                retMap.put(node, status);
+            }
+        });
+        return retMap;
+    }
+
+    public void reset (Node node) {
+        circuits.remove(node);
+    }
+
+    @FunctionalInterface
+    public interface NodeCall<R> {
+        R call(Node node) throws GlusterRemoteException;
+    }
+
+    private class Circuit {
+
+        private State state = State.CLOSED;
+        private int consecutiveFailures = 0;
+        private long backoffNanos = 0;
+        private long openUntil = 0;
+        private String lastFailure = null;
+        private boolean probeInFlight = false;
+
+        synchronized State getState() {
+            return state;
+        }
+
+        synchronized void acquire(Node node) throws CircuitOpenException {
+            switch (state) {
+                case OPEN:
+                    if (clock.getAsLong() - openUntil < 0) {
+                        throw new CircuitOpenException(node, lastFailure);
+                    }
+                    logger.info ("Circuit of node " + node + " is half-open. Letting a probe call through.");
+                    state = State.HALF_OPEN;
+                    probeInFlight = true;
+                    break;
+                case HALF_OPEN:
+                    if (probeInFlight) {
+                        throw new CircuitOpenException(node, lastFailure);
+                    }
+                    probeInFlight = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        synchronized void recordSuccess(Node node) {
+            if (state != State.CLOSED) {
+                logger.info ("Node " + node + " answered again. Closing its circuit.");
+            }
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            backoffNanos = 0;
+            lastFailure = null;
+            probeInFlight = false;
+        }
+
+        synchronized void recordFailure(Node node, GlusterRemoteException failure) {
+            consecutiveFailures++;
+            lastFailure = failure.getCompleteMessage();
+            probeInFlight = false;
+
+            if (state == State.HALF_OPEN) {
+                backoffNanos = Math.min (backoffNanos * 2, maxBackoffNanos);
+            } else if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+                backoffNanos = initialBackoffNanos;
+            } else {
+                return;
+            }
+
+            state = State.OPEN;
+            openUntil = clock.getAsLong() + backoffNanos;
+            logger.warn ("Opening circuit of node " + node + " for " + TimeUnit.NANOSECONDS.toSeconds(backoffNanos)
+                    + " seconds after " + consecutiveFailures + " consecutive failures");
+        }
+
+        synchronized JSONObject toJSON() {
+            if (state == State.CLOSED && consecutiveFailures == 0) {
+                return null;
+            }
+            JSONObject json = new JSONObject();
+            json.put("state", state.name());
+            json.put("failures", consecutiveFailures);
+            if (state == State.OPEN) {
+                json.put("retry_in_seconds", Math.max (0, TimeUnit.NANOSECONDS.toSeconds(openUntil - clock.getAsLong())));
+            }
+            if (lastFailure != null) {
+                json.put("last_failure", lastFailure);
+            }
+            return json;
+        }
+    }
+}
@@ -34,9 +34,12 @@
 
 package ch.niceideas.eskimo.egmi.gluster.command;
 
+import ch.niceideas.common.http.AsyncHttpClient;
 import ch.niceideas.common.http.HttpClient;
 import ch.niceideas.common.http.HttpClientException;
 import ch.niceideas.common.http.HttpClientResponse;
+import ch.niceideas.common.http.HttpResponseStatus;
+import ch.niceideas.common.utils.FutureUtils;
 import ch.niceideas.common.utils.StringUtils;
 import ch.niceideas.eskimo.egmi.gluster.command.result.AbstractGlusterResult;
 import ch.niceideas.eskimo.egmi.model.Node;
@@ -44,9 +47,18 @@ import ch.niceideas.eskimo.egmi.problems.CommandContext;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public abstract class AbstractGlusterSimpleCommand<T extends AbstractGlusterResult<T>> {
 
+    public static final String ETAG = "ETag";
+    public static final String IF_NONE_MATCH = "If-None-Match";
+
+    /** Makes gluster commands supporting it return their output as XML */
+    public static final String XML_OPTION = "--xml";
+
     private final HttpClient httpClient;
 
     protected AbstractGlusterSimpleCommand (HttpClient httpClient) {
@@ -55,12 +67,19 @@ public abstract class AbstractGlusterSimpleCommand<T extends AbstractGlusterResu
 
     protected abstract String buildCommandUrl (Node node, CommandContext context);
 
-    protected final String buildSimpleCommandUrl (Node node, CommandContext context, String command, String subCommand, String... options) {
+    protected final String buildEndpointUrl (Node node, CommandContext context, String endpoint) {
         StringBuilder sb = new StringBuilder (node + ":" + context.getGlusterCommandServerPort());
         if (StringUtils.isNotBlank(context.getContextRoot())) {
             sb.append(context.getContextRoot().startsWith("/") ? context.getContextRoot() : ("/" + context.getContextRoot()));
         }
-        sb.append ("/command?command=");
+        sb.append ("/");
+        sb.append (endpoint);
+        return sb.toString();
+    }
+
+    protected final String buildSimpleCommandUrl (Node node, CommandContext context, String command, String subCommand, String... options) {
+        StringBuilder sb = new StringBuilder (buildEndpointUrl(node, context, "command"));
+        sb.append ("?command=");
         sb.append (command);
         sb.append ("&subcommand=");
         sb.append (StringUtils.isNotBlank(subCommand) ? subCommand: "");
@@ -76,10 +95,130 @@ public abstract class AbstractGlusterSimpleCommand<T extends AbstractGlusterResu
     protected abstract T buildResponse();
 
     public T execute (Node node, CommandContext context) throws HttpClientException {
-        try (HttpClientResponse response = httpClient.sendRequest(
-                buildCommandUrl(node, context))) {
-            return buildResponse().buildFromResponse(response);
+        try (HttpClientResponse response = fetch(node, context)) {
+            return parse(response);
+        }
+    }
+
+    /**
+     * Send the command conditionally, passing the ETag of the previous output to the command server. When the output
+     * didn't change, the previously parsed result is returned instead of parsing the output again.
+     * <br>
+     * Should the previous result be dropped from the cache in the meantime, the command is sent again unconditionally.
+     */
+    public T execute (Node node, CommandContext context, CommandResultCache resultCache) throws HttpClientException {
+        String url = buildCommandUrl(node, context);
+
+        String etag = resultCache.getETag(url);
+        if (etag != null) {
+            try (HttpClientResponse response = sendRequest(url, etag)) {
+                T result = handleConditionalResponse(url, etag, response, resultCache);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        try (HttpClientResponse response = sendRequest(url, null)) {
+            return handleConditionalResponse(url, null, response, resultCache);
+        }
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #execute(Node, CommandContext, CommandResultCache)} sending the command with
+     * the non-blocking HTTP client. Parsing happens on the thread completing the response.
+     *
+     * @return a future completed with the result or completed exceptionally with an {@link HttpClientException}
+     */
+    public CompletableFuture<T> executeAsync (Node node, CommandContext context, AsyncHttpClient asyncHttpClient, CommandResultCache resultCache) {
+        String url = buildCommandUrl(node, context);
+
+        String etag = resultCache.getETag(url);
+        if (etag == null) {
+            return sendAsync(url, null, asyncHttpClient, resultCache);
+        }
+        CompletableFuture<T> pendingResult = sendAsync(url, etag, asyncHttpClient, resultCache);
+        CompletableFuture<T> retriedResult = FutureUtils.propagateCancellation(pendingResult, new CompletableFuture<>());
+        pendingResult.whenComplete((result, error) -> {
+            if (error != null) {
+                retriedResult.completeExceptionally(error);
+            } else if (result != null) {
+                retriedResult.complete(result);
+            } else {
+                // the previous result was dropped from the cache meanwhile
+                CompletableFuture<T> retry = sendAsync(url, null, asyncHttpClient, resultCache);
+                retry.whenComplete((retryResult, retryError) -> {
+                    if (retryError != null) {
+                        retriedResult.completeExceptionally(retryError);
+                    } else {
+                        retriedResult.complete(retryResult);
+                    }
+                });
+                FutureUtils.propagateCancellation(retry, retriedResult);
+            }
+        });
+        return retriedResult;
+    }
+
+    private CompletableFuture<T> sendAsync (String url, String etag, AsyncHttpClient asyncHttpClient, CommandResultCache resultCache) {
+        Properties headers = null;
+        if (StringUtils.isNotBlank(etag)) {
+            headers = new Properties();
+            headers.setProperty(IF_NONE_MATCH, etag);
         }
+
+        CompletableFuture<HttpClientResponse> pendingResponse = asyncHttpClient.sendRequest(url, headers);
+        return FutureUtils.propagateCancellation(pendingResponse, pendingResponse.thenApply(response -> {
+            try (response) {
+                return handleConditionalResponse(url, etag, response, resultCache);
+            } catch (HttpClientException e) {
+                throw new CompletionException(e);
+            }
+        }));
+    }
+
+    /**
+     * @return the result of the response, or null when the output didn't change but the previous result is no longer
+     * cached, in which case the command has to be sent again unconditionally
+     */
+    @SuppressWarnings("unchecked")
+    private T handleConditionalResponse (String url, String etag, HttpClientResponse response, CommandResultCache resultCache) throws HttpClientException {
+
+        if (etag != null && response.getStatus() == HttpResponseStatus.NOT_MODIFIED) {
+            return (T) resultCache.reuse(url);
+        }
+
+        T result = parse(response);
+
+        String newEtag = response.getHeader(ETAG);
+        if (StringUtils.isNotBlank(newEtag) && !result.isError()) {
+            resultCache.put(url, newEtag, result);
+        } else {
+            resultCache.remove(url);
+        }
+        return result;
+    }
+
+    protected final HttpClientResponse sendRequest (String url, String ifNoneMatch) throws HttpClientException {
+        if (StringUtils.isBlank(ifNoneMatch)) {
+            return httpClient.sendRequest(url);
+        }
+        Properties headers = new Properties();
+        headers.setProperty(IF_NONE_MATCH, ifNoneMatch);
+        return httpClient.sendRequest(url, headers);
+    }
+
+    /**
+     * Send the command without parsing the result.
+     * <br>
+     * The caller is responsible for releasing the returned response, typically by passing it to
+     * {@link #parse(HttpClientResponse)} in a try-with-resources block.
+     */
+    public HttpClientResponse fetch (Node node, CommandContext context) throws HttpClientException {
+        return httpClient.sendRequest(buildCommandUrl(node, context));
+    }
+
+    public T parse (HttpClientResponse response) throws HttpClientException {
+        return buildResponse().buildFromResponse(response);
     }
 
 
@@ -35,6 +35,7 @@
 package ch.niceideas.eskimo.egmi.gluster.command;
 
 import ch.niceideas.common.http.HttpClient;
+import ch.niceideas.common.http.HttpClientException;
 import ch.niceideas.eskimo.egmi.gluster.command.result.SimpleOperationResult;
 import ch.niceideas.eskimo.egmi.model.Node;
 import ch.niceideas.eskimo.egmi.problems.CommandContext;
@@ -52,6 +53,18 @@ public class AbstractGlusterSimpleOperation extends AbstractGlusterSimpleCommand
         this.options = options;
     }
 
+    /**
+     * Operations change the cluster: the context is notified once the operation has been sent, whatever its outcome.
+     */
+    @Override
+    public SimpleOperationResult execute (Node node, CommandContext context) throws HttpClientException {
+        try {
+            return super.execute(node, context);
+        } finally {
+            context.clusterMutated();
+        }
+    }
+
     @Override
     protected final String buildCommandUrl(Node node, CommandContext context) {
         return buildSimpleCommandUrl(node, context, command, subCommand, options);
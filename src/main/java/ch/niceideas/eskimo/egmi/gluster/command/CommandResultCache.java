@@ -0,0 +1,112 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+
+package ch.niceideas.eskimo.egmi.gluster.command;
+
+import ch.niceideas.eskimo.egmi.gluster.command.result.AbstractGlusterResult;
+import ch.niceideas.eskimo.egmi.model.Node;
+import lombok.Data;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the last parsed result of commands along with the ETag the command server returned for it, so that a command
+ * can be sent conditionally and its previous result reused when the output didn't change.
+ * <br>
+ * Results are kept per key, typically the command URL, which starts with the target node. Results of nodes that left
+ * the cluster are dropped with {@link #retainNodes(Set)}.
+ */
+public class CommandResultCache {
+
+    private final Map<String, CachedResult> results = new ConcurrentHashMap<>();
+
+    private final LongAdder reuseCount = new LongAdder();
+
+    public String getETag (String key) {
+        CachedResult cached = results.get(key);
+        return cached != null ? cached.getEtag() : null;
+    }
+
+    /**
+     * @return a copy of the cached result for the caller to use on its own (see
+     * {@link AbstractGlusterResult#copyForReuse()}), or null if there is none
+     */
+    public AbstractGlusterResult<?> reuse (String key) {
+        CachedResult cached = results.get(key);
+        if (cached == null) {
+            return null;
+        }
+        reuseCount.increment();
+        return cached.getResult().copyForReuse();
+    }
+
+    /**
+     * Keeps a copy of the given result, so that the caller altering it afterwards doesn't affect the cached one.
+     */
+    public void put (String key, String etag, AbstractGlusterResult<?> result) {
+        results.put (key, new CachedResult(etag, result.copyForReuse()));
+    }
+
+    public void remove (String key) {
+        results.remove(key);
+    }
+
+    /**
+     * Drops the results of the nodes not in the given set, the keys being URLs starting with the target node.
+     */
+    public void retainNodes (Set<Node> nodes) {
+        Set<String> prefixes = nodes.stream()
+                .map(node -> node + ":")
+                .collect(Collectors.toSet());
+        results.keySet().removeIf(key -> prefixes.stream().noneMatch(key::startsWith));
+    }
+
+    public void clear() {
+        results.clear();
+    }
+
+    public long getReuseCount() {
+        return reuseCount.sum();
+    }
+
+    @Data
+    private static class CachedResult {
+        private final String etag;
+        private final AbstractGlusterResult<?> result;
+    }
+}
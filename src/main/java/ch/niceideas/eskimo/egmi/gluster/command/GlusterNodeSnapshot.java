@@ -0,0 +1,113 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+
+package ch.niceideas.eskimo.egmi.gluster.command;
+
+import ch.niceideas.common.http.HttpClient;
+import ch.niceideas.common.http.HttpClientException;
+import ch.niceideas.common.http.HttpClientResponse;
+import ch.niceideas.common.utils.StringUtils;
+import ch.niceideas.eskimo.egmi.gluster.command.result.AbstractGlusterResult;
+import ch.niceideas.eskimo.egmi.gluster.command.result.GlusterNodeSnapshotResult;
+import ch.niceideas.eskimo.egmi.model.Node;
+import ch.niceideas.eskimo.egmi.problems.CommandContext;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Fetches pool list, volume info and volume status of a node in a single round trip.
+ */
+public class GlusterNodeSnapshot extends AbstractGlusterSimpleCommand<GlusterNodeSnapshotResult>{
+
+    private static final String[] CONDITIONAL_SECTIONS = new String[] {
+            GlusterNodeSnapshotResult.POOL_LIST,
+            GlusterNodeSnapshotResult.VOLUME_INFO
+    };
+
+    public GlusterNodeSnapshot(HttpClient httpClient) {
+        super (httpClient);
+    }
+
+    @Override
+    protected String buildCommandUrl(Node node, CommandContext context) {
+        return buildEndpointUrl(node, context, "node-snapshot");
+    }
+
+    /**
+     * Pool list and volume info are fetched conditionally, section by section. Volume status changes with every brick
+     * usage change, there is no point in fetching it conditionally.
+     */
+    @Override
+    public GlusterNodeSnapshotResult execute(Node node, CommandContext context, CommandResultCache resultCache) throws HttpClientException {
+        String url = buildCommandUrl(node, context);
+
+        String ifNoneMatch = Arrays.stream(CONDITIONAL_SECTIONS)
+                .map(section -> resultCache.getETag(getSectionKey(url, section)))
+                .filter(StringUtils::isNotBlank)
+                .collect(Collectors.joining(", "));
+
+        try (HttpClientResponse response = sendRequest(url, ifNoneMatch)) {
+
+            GlusterNodeSnapshotResult result = new GlusterNodeSnapshotResult(
+                    section -> resultCache.reuse(getSectionKey(url, section)))
+                    .buildFromResponse(response);
+
+            cacheSection(resultCache, url, result, GlusterNodeSnapshotResult.POOL_LIST, result.getPoolList());
+            cacheSection(resultCache, url, result, GlusterNodeSnapshotResult.VOLUME_INFO, result.getVolumeInfo());
+
+            return result;
+        }
+    }
+
+    private void cacheSection (CommandResultCache resultCache, String url, GlusterNodeSnapshotResult result,
+                               String section, AbstractGlusterResult<?> sectionResult) {
+        String etag = result.getSectionETag(section);
+        if (!result.isError() && sectionResult != null && !sectionResult.isError() && StringUtils.isNotBlank(etag)) {
+            resultCache.put(getSectionKey(url, section), etag, sectionResult);
+        } else {
+            resultCache.remove(getSectionKey(url, section));
+        }
+    }
+
+    private static String getSectionKey (String url, String section) {
+        return url + "#" + section;
+    }
+
+    @Override
+    protected GlusterNodeSnapshotResult buildResponse() {
+        return new GlusterNodeSnapshotResult();
+    }
+
+}
@@ -41,18 +41,28 @@ import ch.niceideas.eskimo.egmi.problems.CommandContext;
 
 public class GlusterPoolList extends AbstractGlusterSimpleCommand<GlusterPoolListResult>{
 
+    private final boolean xmlOutput;
+
     public GlusterPoolList (HttpClient httpClient) {
+        this (httpClient, false);
+    }
+
+    /**
+     * @param xmlOutput whether to request the XML output of the gluster command and parse it as such
+     */
+    public GlusterPoolList (HttpClient httpClient, boolean xmlOutput) {
         super (httpClient);
+        this.xmlOutput = xmlOutput;
     }
 
     @Override
     protected String buildCommandUrl(Node node, CommandContext context) {
-        return buildSimpleCommandUrl(node, context, "pool", "list");
+        return buildSimpleCommandUrl(node, context, "pool", "list", xmlOutput ? XML_OPTION : null);
     }
 
     @Override
     protected GlusterPoolListResult buildResponse() {
-        return new GlusterPoolListResult();
+        return new GlusterPoolListResult(xmlOutput);
     }
 
 }
@@ -41,18 +41,28 @@ import ch.niceideas.eskimo.egmi.problems.CommandContext;
 
 public class GlusterVolumeInfo extends AbstractGlusterSimpleCommand<GlusterVolumeInfoResult>{
 
+    private final boolean xmlOutput;
+
     public GlusterVolumeInfo(HttpClient httpClient) {
+        this (httpClient, false);
+    }
+
+    /**
+     * @param xmlOutput whether to request the XML output of the gluster command and parse it as such
+     */
+    public GlusterVolumeInfo(HttpClient httpClient, boolean xmlOutput) {
         super (httpClient);
+        this.xmlOutput = xmlOutput;
     }
 
     @Override
     protected String buildCommandUrl(Node node, CommandContext context) {
-        return buildSimpleCommandUrl(node, context, "volume", "info");
+        return buildSimpleCommandUrl(node, context, "volume", "info", xmlOutput ? XML_OPTION : null);
     }
 
     @Override
     protected GlusterVolumeInfoResult buildResponse() {
-        return new GlusterVolumeInfoResult();
+        return new GlusterVolumeInfoResult(xmlOutput);
     }
 
 }
@@ -40,23 +40,44 @@ import ch.niceideas.eskimo.egmi.gluster.command.result.GlusterVolumeStatusResult
 import ch.niceideas.eskimo.egmi.model.Node;
 import ch.niceideas.eskimo.egmi.problems.CommandContext;
 
+import java.util.function.Supplier;
+
 public class GlusterVolumeStatus extends AbstractGlusterSimpleCommand<GlusterVolumeStatusResult>{
 
-    private final GlusterVolumeInfoResult volumeInfo;
+    private final Supplier<GlusterVolumeInfoResult> volumeInfoSupplier;
+
+    private final boolean xmlOutput;
 
     public GlusterVolumeStatus(HttpClient httpClient, GlusterVolumeInfoResult volumeInfo) {
+        this (httpClient, () -> volumeInfo);
+    }
+
+    /**
+     * The volume info is only required to parse the result, not to send the command. Using a supplier enables to
+     * fetch the volume status while the volume info is still being fetched.
+     */
+    public GlusterVolumeStatus(HttpClient httpClient, Supplier<GlusterVolumeInfoResult> volumeInfoSupplier) {
+        this (httpClient, volumeInfoSupplier, false);
+    }
+
+    /**
+     * @param xmlOutput whether to request the XML output of the gluster command and parse it as such. The volume
+     *                  info should then come from the XML output as well since it tells which volumes are not started.
+     */
+    public GlusterVolumeStatus(HttpClient httpClient, Supplier<GlusterVolumeInfoResult> volumeInfoSupplier, boolean xmlOutput) {
         super (httpClient);
-        this.volumeInfo = volumeInfo;
+        this.volumeInfoSupplier = volumeInfoSupplier;
+        this.xmlOutput = xmlOutput;
     }
 
     @Override
     protected String buildCommandUrl(Node node, CommandContext context) {
-        return buildSimpleCommandUrl(node, context, "volume", "status", "all", "detail");
+        return buildSimpleCommandUrl(node, context, "volume", "status", "all", "detail", xmlOutput ? XML_OPTION : null);
     }
 
     @Override
     protected GlusterVolumeStatusResult buildResponse() {
-        return new GlusterVolumeStatusResult(volumeInfo);
+        return new GlusterVolumeStatusResult(volumeInfoSupplier.get(), xmlOutput);
     }
 
 }
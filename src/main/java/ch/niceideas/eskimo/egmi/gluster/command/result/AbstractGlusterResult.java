@@ -44,6 +44,16 @@ public abstract class AbstractGlusterResult<T extends AbstractGlusterResult<T>>
 
     public abstract T buildFromResponse (HttpClientResponse response) throws HttpClientException;
 
+    /**
+     * Called when a parsed result is kept to be used again instead of parsing an unchanged command output, and every
+     * time it is used again. The kept result is shared by all callers, so results that are altered after parsing
+     * return a copy here, on which these changes don't affect other callers. Others can be shared as they are.
+     */
+    @SuppressWarnings("unchecked")
+    public T copyForReuse() {
+        return (T) this;
+    }
+
     public final boolean isError() {
         return StringUtils.isNotBlank(errorMessage);
     }
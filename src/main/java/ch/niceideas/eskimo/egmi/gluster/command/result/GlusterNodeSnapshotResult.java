@@ -0,0 +1,151 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+
+package ch.niceideas.eskimo.egmi.gluster.command.result;
+
+import ch.niceideas.common.http.HttpClientException;
+import ch.niceideas.common.http.HttpClientResponse;
+import ch.niceideas.common.http.HttpResponseStatus;
+import lombok.Getter;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The combined output of <code>pool list</code>, <code>volume info</code> and <code>volume status all detail</code>
+ * as returned by the <code>/node-snapshot</code> endpoint.
+ * <br>
+ * Every section holds the status code and output the corresponding <code>/command</code> call would have returned,
+ * so that each of them is parsed by the usual result class.
+ */
+public class GlusterNodeSnapshotResult extends AbstractGlusterResult<GlusterNodeSnapshotResult> {
+
+    public static final String POOL_LIST = "pool-list";
+    public static final String VOLUME_INFO = "volume-info";
+    public static final String VOLUME_STATUS = "volume-status";
+
+    public static final String STATUS = "status";
+    public static final String OUTPUT = "output";
+    public static final String ETAG = "etag";
+
+    private final Function<String, AbstractGlusterResult<?>> previousSections;
+
+    private final Map<String, String> sectionETags = new HashMap<>();
+
+    @Getter
+    private GlusterPoolListResult poolList = null;
+
+    @Getter
+    private GlusterVolumeInfoResult volumeInfo = null;
+
+    @Getter
+    private GlusterVolumeStatusResult volumeStatus = null;
+
+    /** true when the command server doesn't know the node snapshot endpoint, as older EGMI versions */
+    @Getter
+    private boolean unsupported = false;
+
+    public GlusterNodeSnapshotResult() {
+        this (section -> null);
+    }
+
+    /**
+     * @param previousSections provides the previously parsed result of sections returned as not modified
+     */
+    public GlusterNodeSnapshotResult(Function<String, AbstractGlusterResult<?>> previousSections) {
+        this.previousSections = previousSections;
+    }
+
+    public String getSectionETag(String section) {
+        return sectionETags.get(section);
+    }
+
+    @Override
+    public GlusterNodeSnapshotResult buildFromResponse(HttpClientResponse response) throws HttpClientException {
+        if (response.getStatusCode() != 200) {
+            unsupported = response.getStatusCode() == HttpResponseStatus.NOT_FOUND.getCode();
+            setError ("Failed to get a node snapshot from command server (" + response.getStatusCode() + ")");
+        } else {
+            try {
+                JSONObject snapshot = new JSONObject(response.asString(StandardCharsets.UTF_8));
+
+                poolList = parseSection(snapshot, POOL_LIST, response.getTargetHost(), GlusterPoolListResult::new);
+
+                volumeInfo = parseSection(snapshot, VOLUME_INFO, response.getTargetHost(), GlusterVolumeInfoResult::new);
+
+                // volume status parsing needs the volume info
+                volumeStatus = parseSection(snapshot, VOLUME_STATUS, response.getTargetHost(),
+                        () -> new GlusterVolumeStatusResult(volumeInfo));
+
+            } catch (JSONException e) {
+                setError ("Couldn't parse node snapshot : " + e.getMessage());
+            }
+        }
+
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R extends AbstractGlusterResult<R>> R parseSection (
+            JSONObject snapshot, String section, String targetHost, Supplier<R> resultBuilder) throws HttpClientException {
+
+        JSONObject sectionObject = snapshot.getJSONObject(section);
+        int status = sectionObject.getInt(STATUS);
+        String etag = sectionObject.optString(ETAG, null);
+
+        if (status == HttpResponseStatus.NOT_MODIFIED.getCode()) {
+            R previous = (R) previousSections.apply(section);
+            if (previous == null) {
+                throw new JSONException("Section " + section + " is unchanged but no previous result is available");
+            }
+            sectionETags.put(section, etag);
+            return previous;
+        }
+
+        if (etag != null && status == HttpResponseStatus.OK.getCode()) {
+            sectionETags.put(section, etag);
+        }
+
+        return resultBuilder.get().buildFromResponse(new HttpClientResponse(
+                status, status == 200 ? "Ok" : "Error", Collections.emptyMap(),
+                sectionObject.optString(OUTPUT, "").getBytes(StandardCharsets.UTF_8),
+                targetHost));
+    }
+}
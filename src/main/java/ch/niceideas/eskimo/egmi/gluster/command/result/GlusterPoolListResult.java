@@ -36,25 +36,43 @@ package ch.niceideas.eskimo.egmi.gluster.command.result;
 
 import ch.niceideas.common.http.HttpClientException;
 import ch.niceideas.common.http.HttpClientResponse;
+import ch.niceideas.common.utils.LineTokenizer;
 import ch.niceideas.eskimo.egmi.model.Node;
 import lombok.AllArgsConstructor;
 import lombok.Data;
-import lombok.NoArgsConstructor;
 
-import java.nio.charset.Charset;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-@NoArgsConstructor
 public class GlusterPoolListResult extends AbstractGlusterResult<GlusterPoolListResult> {
 
     private static final Pattern POOL_LIST_PARSER = Pattern.compile("([a-zA-Z0-9\\-._]+)[ \\t]+([a-zA-Z0-9\\-._]+)[ \\t]+([a-zA-Z0-9\\-._]+)");
 
+    private static final String CONNECTED = "Connected";
+    private static final String DISCONNECTED = "Disconnected";
+
     private final List<GlusterPeerEntry> entryList = new ArrayList<>();
 
+    private final boolean xmlOutput;
+
+    public GlusterPoolListResult() {
+        this (false);
+    }
+
+    /**
+     * @param xmlOutput whether the command output to parse is the one of <code>gluster --xml pool list</code>
+     */
+    public GlusterPoolListResult(boolean xmlOutput) {
+        this.xmlOutput = xmlOutput;
+    }
+
     public void addEntry (String uid, String hostname, String state) {
         entryList.add(new GlusterPeerEntry(uid, hostname, state));
     }
@@ -83,6 +101,12 @@ public class GlusterPoolListResult extends AbstractGlusterResult<GlusterPoolList
                 .collect(Collectors.toList());
     }
 
+    public List<String> getAllUids() {
+        return entryList.stream()
+                .map(GlusterPeerEntry::getUid)
+                .collect(Collectors.toList());
+    }
+
     public String getState(int row) {
         if (row > size()) {
             throw new IllegalArgumentException();
@@ -94,24 +118,41 @@ public class GlusterPoolListResult extends AbstractGlusterResult<GlusterPoolList
     public  GlusterPoolListResult buildFromResponse(HttpClientResponse response) throws HttpClientException {
         if (response.getStatusCode() != 200) {
             setError ("Failed to get an answer from command server");
+        } else if (xmlOutput) {
+            buildFromXml (response);
         } else {
-            String poolResult = response.asString(Charset.defaultCharset());
-            //System.err.println(poolResult);
-
-            Matcher poolListMatcher = POOL_LIST_PARSER.matcher(poolResult);
-            while (poolListMatcher.find()) {
-                String uid = poolListMatcher.group(1);
-                if (!uid.trim().equalsIgnoreCase("UUID")) {
-                    String hostname = poolListMatcher.group(2);
-                    String state = poolListMatcher.group(3);
-                    addEntry (uid, hostname, state);
+            try (LineTokenizer lines = new LineTokenizer(response.getContentStream(), StandardCharsets.UTF_8)) {
+
+                Matcher poolListMatcher = POOL_LIST_PARSER.matcher("");
+                for (String line = lines.nextLine(); line != null; line = lines.nextLine()) {
+                    poolListMatcher.reset(line);
+                    while (poolListMatcher.find()) {
+                        String uid = poolListMatcher.group(1);
+                        if (!uid.trim().equalsIgnoreCase("UUID")) {
+                            String hostname = poolListMatcher.group(2);
+                            String state = poolListMatcher.group(3);
+                            addEntry (uid, hostname, state);
+                        }
+                    }
                 }
+            } catch (IOException e) {
+                throw new HttpClientException(e.getMessage(), e);
             }
         }
 
         return this;
     }
 
+    /*
+    <peerStatus><peer><uuid>...</uuid><hostname>192.168.10.73</hostname><connected>1</connected></peer>...</peerStatus>
+     */
+    private void buildFromXml (HttpClientResponse response) throws HttpClientException {
+        String error = GlusterXmlOutput.read(response, new PoolListXmlHandler());
+        if (error != null) {
+            setError (error);
+        }
+    }
+
     public boolean isSuccess() {
         return !isError();
     }
@@ -120,6 +161,42 @@ public class GlusterPoolListResult extends AbstractGlusterResult<GlusterPoolList
         return getAllHosts().contains(host.getAddress());
     }
 
+    private class PoolListXmlHandler implements GlusterXmlOutput.ElementHandler {
+
+        private GlusterPeerEntry current = null;
+
+        @Override
+        public void startElement(String name, XMLStreamReader reader) throws XMLStreamException {
+            if (name.equals("peer")) {
+                current = new GlusterPeerEntry(null, null, null);
+            } else if (current != null) {
+                switch (name) {
+                    case "uuid":
+                        current.setUid(GlusterXmlOutput.text(reader));
+                        break;
+                    case "hostname":
+                        current.setHostname(GlusterXmlOutput.text(reader));
+                        break;
+                    case "connected":
+                        current.setState("1".equals(GlusterXmlOutput.text(reader)) ? CONNECTED : DISCONNECTED);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        @Override
+        public void endElement(String name) {
+            if (name.equals("peer")) {
+                if (current.getUid() != null && current.getHostname() != null) {
+                    entryList.add(current);
+                }
+                current = null;
+            }
+        }
+    }
+
     @Data
     @AllArgsConstructor
     private static class GlusterPeerEntry {
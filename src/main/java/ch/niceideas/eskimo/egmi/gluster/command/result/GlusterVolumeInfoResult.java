@@ -36,34 +36,53 @@ package ch.niceideas.eskimo.egmi.gluster.command.result;
 
 import ch.niceideas.common.http.HttpClientException;
 import ch.niceideas.common.http.HttpClientResponse;
+import ch.niceideas.common.utils.LineTokenizer;
 import ch.niceideas.common.utils.StringUtils;
 import ch.niceideas.eskimo.egmi.model.*;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import org.apache.log4j.Logger;
 
-import java.nio.charset.Charset;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-@NoArgsConstructor
 public class GlusterVolumeInfoResult extends AbstractGlusterResult<GlusterVolumeInfoResult> {
 
     private static final Logger logger = Logger.getLogger(GlusterVolumeInfoResult.class);
 
     private static final String VOLUME_NAME = "Volume Name:";
     private static final String TYPE = "Type:";
-    private static final String STORAGE_OWNER_UID = "storage.owner-uid:";
+    private static final String STORAGE_OWNER_UID_OPTION = "storage.owner-uid";
+    private static final String STORAGE_OWNER_UID = STORAGE_OWNER_UID_OPTION + ":";
     private static final String BRICK_PREFIX = "Brick";
     private static final String BRICKS_LABEL = "Bricks:";
+    private static final String STARTED = "Started";
 
     public static final Pattern BRICKS_REPR_PARSER = Pattern.compile("([0-9]+)( x [(]?([0-9]+)( \\+ ([0-9]+))?[)]? = ([0-9]+))?");
 
     private final Map<Volume, VolumeInformationWrapper> volumeInfos = new HashMap<>();
     private final Map<Volume, Map<Integer, BrickId>> volumeBricks = new HashMap<>();
     private final Map<Volume, Set<String>> reconfiguredOptions = new HashMap<>();
+    private final Set<Volume> notStartedVolumes = new HashSet<>();
+
+    private final boolean xmlOutput;
+
+    public GlusterVolumeInfoResult() {
+        this (false);
+    }
+
+    /**
+     * @param xmlOutput whether the command output to parse is the one of <code>gluster --xml volume info</code>
+     */
+    public GlusterVolumeInfoResult(boolean xmlOutput) {
+        this.xmlOutput = xmlOutput;
+    }
 
     public void overrideStatus(Volume volume, String status) {
         Optional.ofNullable(volumeInfos.get(volume))
@@ -71,12 +90,34 @@ public class GlusterVolumeInfoResult extends AbstractGlusterResult<GlusterVolume
                 .setStatus(status);
     }
 
+    /**
+     * Volume status overrides come from the volume status, which is fetched anew every time. The copy has its own
+     * volume information, with the status as parsed, i.e. OK, so that overrides never leak to other users of the same result.
+     */
+    @Override
+    public GlusterVolumeInfoResult copyForReuse() {
+        GlusterVolumeInfoResult copy = new GlusterVolumeInfoResult(xmlOutput);
+        copy.setError(getError());
+        volumeInfos.forEach((volume, volumeInfo) -> copy.volumeInfos.put(volume, volumeInfo.copyWithStatus("OK")));
+        volumeBricks.forEach((volume, bricks) -> copy.volumeBricks.put(volume, new HashMap<>(bricks)));
+        reconfiguredOptions.forEach((volume, options) -> copy.reconfiguredOptions.put(volume, new HashSet<>(options)));
+        copy.notStartedVolumes.addAll(notStartedVolumes);
+        return copy;
+    }
+
     public List<Volume> getAllVolumes() {
         return volumeInfos.keySet().stream()
                 .sorted()
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Only known from the XML output, the text output of <code>volume status</code> reports these volumes instead.
+     */
+    public Set<Volume> getNotStartedVolumes() {
+        return Collections.unmodifiableSet(notStartedVolumes);
+    }
+
     public Set<String> getVolumeReconfiguredOptions(Volume volume) {
         return reconfiguredOptions.get(volume);
     }
@@ -102,100 +143,263 @@ public class GlusterVolumeInfoResult extends AbstractGlusterResult<GlusterVolume
     public  GlusterVolumeInfoResult buildFromResponse(HttpClientResponse response) throws HttpClientException {
         if (response.getStatusCode() != 200) {
             setError ("Failed to get an answer from command server");
+        } else if (xmlOutput) {
+            String error = GlusterXmlOutput.read(response, new VolumeInfoXmlHandler());
+            if (error != null) {
+                setError (error);
+            }
         } else {
-            String volumeResult = response.asString(Charset.defaultCharset());
-            //System.err.println(volumeResult);
-
             Volume currentVolume = Volume.UNDEFINED;
             boolean parsingOptionsState = false;
 
-            for (String line : volumeResult.split("\n")) {
+            try (LineTokenizer lines = new LineTokenizer(response.getContentStream(), StandardCharsets.UTF_8)) {
+                for (String line = lines.nextLine(); line != null; line = lines.nextLine()) {
 
-                if (line.startsWith(VOLUME_NAME)) {
-                    currentVolume = Volume.from(line.substring(VOLUME_NAME.length()).trim());
-                    parsingOptionsState = false;
-                }
+                    if (line.startsWith(VOLUME_NAME)) {
+                        currentVolume = Volume.from(line.substring(VOLUME_NAME.length()).trim());
+                        parsingOptionsState = false;
+                    }
 
-                if (currentVolume.equals(Volume.UNDEFINED)) {
-                    continue;
-                }
+                    if (currentVolume.equals(Volume.UNDEFINED)) {
+                        continue;
+                    }
 
-                VolumeInformationWrapper volumeInfo = volumeInfos.computeIfAbsent(currentVolume, (key) -> new VolumeInformationWrapper());
-                volumeInfo.setStatus ("OK");
+                    VolumeInformationWrapper volumeInfo = volumeInfos.computeIfAbsent(currentVolume, (key) -> new VolumeInformationWrapper());
+                    volumeInfo.setStatus ("OK");
 
-                if (line.startsWith(TYPE)) {
-                    String type = line.substring(TYPE.length()).trim();
-                    volumeInfo.setType(type);
-                }
+                    if (line.startsWith(TYPE)) {
+                        String type = line.substring(TYPE.length()).trim();
+                        volumeInfo.setType(type);
+                    }
 
-                else if (line.startsWith(STORAGE_OWNER_UID)) {
-                    String owner = line.substring(STORAGE_OWNER_UID.length()).trim();
-                    volumeInfo.setOwner (owner);
-                }
+                    else if (line.startsWith(STORAGE_OWNER_UID)) {
+                        String owner = line.substring(STORAGE_OWNER_UID.length()).trim();
+                        volumeInfo.setOwner (owner);
+                    }
 
-                else if (line.startsWith("Number of Bricks:")) {
-                    String bricksRepr = line.substring("Number of Bricks:".length()).trim();
+                    else if (line.startsWith("Number of Bricks:")) {
+                        String bricksRepr = line.substring("Number of Bricks:".length()).trim();
 
-                    Matcher reprMatcher = BRICKS_REPR_PARSER.matcher(bricksRepr);
-                    if (reprMatcher.matches()) {
+                        Matcher reprMatcher = BRICKS_REPR_PARSER.matcher(bricksRepr);
+                        if (reprMatcher.matches()) {
 
-                        if (StringUtils.isBlank(reprMatcher.group(2))) {
+                            if (StringUtils.isBlank(reprMatcher.group(2))) {
 
-                            volumeInfo.setNbShards (reprMatcher.group(1));
-                            volumeInfo.setNbBricks (reprMatcher.group(1));
+                                volumeInfo.setNbShards (reprMatcher.group(1));
+                                volumeInfo.setNbBricks (reprMatcher.group(1));
 
-                        } else {
+                            } else {
 
-                            volumeInfo.setNbShards(reprMatcher.group(1));
-                            volumeInfo.setNbReplicas(reprMatcher.group(3));
-                            volumeInfo.setNbArbiters(reprMatcher.group(5));
-                            volumeInfo.setNbBricks(reprMatcher.group(6));
-                        }
+                                volumeInfo.setNbShards(reprMatcher.group(1));
+                                volumeInfo.setNbReplicas(reprMatcher.group(3));
+                                volumeInfo.setNbArbiters(reprMatcher.group(5));
+                                volumeInfo.setNbBricks(reprMatcher.group(6));
+                            }
 
-                    } else {
-                        logger.warn("CRITICAL : couldn't parse brock representation " + bricksRepr);
+                        } else {
+                            logger.warn("CRITICAL : couldn't parse brock representation " + bricksRepr);
+                        }
                     }
-                }
 
-                else if (line.startsWith(BRICK_PREFIX) && !line.trim().equalsIgnoreCase(BRICKS_LABEL)) {
+                    else if (line.startsWith(BRICK_PREFIX) && !line.trim().equalsIgnoreCase(BRICKS_LABEL)) {
+
+
+                        String brickNumberString = line.substring(BRICK_PREFIX.length(), line.indexOf(":", BRICK_PREFIX.length()));
+                        Integer brickNumber = Integer.valueOf(brickNumberString);
+
+                        String brickDef = line.substring(7).trim();
+                        if (StringUtils.isNotBlank(brickDef)) {
 
+                            String[] split = brickDef.split(":");
+                            String nodeAddress = split[0];
+                            String path = split[1];
 
-                    String brickNumberString = line.substring(BRICK_PREFIX.length(), line.indexOf(":", BRICK_PREFIX.length()));
-                    Integer brickNumber = Integer.valueOf(brickNumberString);
+                            Map<Integer, BrickId> brickMap = volumeBricks.computeIfAbsent(currentVolume, (key) -> new HashMap<>());
+                            brickMap.put(brickNumber, BrickId.fromNodeAndPath(Node.from(nodeAddress), path));
 
-                    String brickDef = line.substring(7).trim();
-                    if (StringUtils.isNotBlank(brickDef)) {
+                            //System.err.println (currentVolume +  " - " + node + " - " + path);
+                        }
+                    }
 
-                        String[] split = brickDef.split(":");
-                        String nodeAddress = split[0];
-                        String path = split[1];
+                    else if (line.startsWith("Options Reconfigured")) {
+                        parsingOptionsState = true;
 
-                        Map<Integer, BrickId> brickMap = volumeBricks.computeIfAbsent(currentVolume, (key) -> new HashMap<>());
-                        brickMap.put(brickNumber, BrickId.fromNodeAndPath(Node.from(nodeAddress), path));
+                    }
 
-                        //System.err.println (currentVolume +  " - " + node + " - " + path);
+                    else if (parsingOptionsState) {
+                        Set<String> options = reconfiguredOptions.computeIfAbsent(currentVolume, (key) -> new HashSet<>());
+                        options.add (line);
                     }
                 }
+            } catch (IOException e) {
+                throw new HttpClientException(e.getMessage(), e);
+            }
+        }
 
-                else if (line.startsWith("Options Reconfigured")) {
-                    parsingOptionsState = true;
+        return this;
+    }
 
+    /*
+    <volume><name>test1</name>...<statusStr>Started</statusStr>...<brickCount>3</brickCount><distCount>1</distCount>
+      <replicaCount>3</replicaCount><arbiterCount>0</arbiterCount><disperseCount>0</disperseCount>
+      <redundancyCount>0</redundancyCount><typeStr>Replicate</typeStr>...
+      <bricks><brick uuid="...">192.168.10.71:/var/lib/gluster/volume_bricks/test1<name>192.168.10.71:/var/lib/gluster/volume_bricks/test1</name>...</brick>...</bricks>
+      <options><option><name>nfs.disable</name><value>on</value></option>...</options>
+    </volume>
+     */
+    private class VolumeInfoXmlHandler implements GlusterXmlOutput.ElementHandler {
+
+        private Volume currentVolume = null;
+        private VolumeInformationWrapper volumeInfo = null;
+        private final Map<String, String> counts = new HashMap<>();
+
+        private boolean inBrick = false;
+        private int brickNumber = 0;
+
+        private boolean inOption = false;
+        private String optionName = null;
+        private String optionValue = null;
+
+        @Override
+        public void startElement(String name, XMLStreamReader reader) throws XMLStreamException {
+            if (inBrick) {
+                if (name.equals("name")) {
+                    addBrick (GlusterXmlOutput.text(reader));
                 }
+            } else if (inOption) {
+                if (name.equals("name")) {
+                    optionName = GlusterXmlOutput.text(reader);
+                } else if (name.equals("value")) {
+                    optionValue = reader.getElementText().trim();
+                }
+            } else if (currentVolume == null) {
+                if (name.equals("name")) {
+                    currentVolume = Volume.from(GlusterXmlOutput.text(reader));
+                    volumeInfo = volumeInfos.computeIfAbsent(currentVolume, (key) -> new VolumeInformationWrapper());
+                    volumeInfo.setStatus ("OK");
+                    counts.clear();
+                    brickNumber = 0;
+                }
+            } else {
+                switch (name) {
+                    case "statusStr":
+                        if (!STARTED.equals(GlusterXmlOutput.text(reader))) {
+                            notStartedVolumes.add(currentVolume);
+                        }
+                        break;
+                    case "typeStr":
+                        volumeInfo.setType(GlusterXmlOutput.text(reader));
+                        break;
+                    case "brickCount":
+                    case "replicaCount":
+                    case "arbiterCount":
+                    case "disperseCount":
+                    case "redundancyCount":
+                        counts.put(name, GlusterXmlOutput.text(reader));
+                        break;
+                    case "brick":
+                        inBrick = true;
+                        break;
+                    case "option":
+                        inOption = true;
+                        optionName = null;
+                        optionValue = null;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        @Override
+        public void endElement(String name) {
+            switch (name) {
+                case "brick":
+                    inBrick = false;
+                    break;
+                case "option":
+                    inOption = false;
+                    addOption();
+                    break;
+                case "volume":
+                    if (currentVolume != null) {
+                        setBrickCounts();
+                    }
+                    currentVolume = null;
+                    volumeInfo = null;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void addBrick (String brickDef) {
+            brickNumber++;
+            if (StringUtils.isNotBlank(brickDef) && brickDef.contains(":")) {
+                String nodeAddress = brickDef.substring(0, brickDef.indexOf(':'));
+                String path = brickDef.substring(brickDef.indexOf(':') + 1);
+
+                Map<Integer, BrickId> brickMap = volumeBricks.computeIfAbsent(currentVolume, (key) -> new HashMap<>());
+                brickMap.put(brickNumber, BrickId.fromNodeAndPath(Node.from(nodeAddress), path));
+            }
+        }
 
-                else if (parsingOptionsState) {
-                    Set<String> options = reconfiguredOptions.computeIfAbsent(currentVolume, (key) -> new HashSet<>());
-                    options.add (line);
+        private void addOption () {
+            if (StringUtils.isNotBlank(optionName)) {
+                if (optionName.equals(STORAGE_OWNER_UID_OPTION)) {
+                    volumeInfo.setOwner (optionValue);
                 }
+                Set<String> options = reconfiguredOptions.computeIfAbsent(currentVolume, (key) -> new HashSet<>());
+                options.add (optionName + ": " + optionValue);
             }
         }
 
-        return this;
+        /**
+         * Same figures as in the text output <code>Number of Bricks: 1 x (2 + 1) = 3</code>, where the XML
+         * output counts arbiters (resp. redundancy bricks) in the replica (resp. disperse) count.
+         */
+        private void setBrickCounts () {
+            int nbBricks = GlusterXmlOutput.intValue(counts.get("brickCount"));
+            int disperseCount = GlusterXmlOutput.intValue(counts.get("disperseCount"));
+            int replicaCount = GlusterXmlOutput.intValue(counts.get("replicaCount"));
+
+            int groupSize = 0;
+            int nbExtra = 0;
+            if (disperseCount > 0) {
+                groupSize = disperseCount;
+                nbExtra = GlusterXmlOutput.intValue(counts.get("redundancyCount"));
+            } else if (replicaCount > 1) {
+                groupSize = replicaCount;
+                nbExtra = GlusterXmlOutput.intValue(counts.get("arbiterCount"));
+            }
+
+            volumeInfo.setNbBricks (String.valueOf(nbBricks));
+            if (groupSize == 0) {
+                volumeInfo.setNbShards (String.valueOf(nbBricks));
+            } else {
+                volumeInfo.setNbShards (String.valueOf(nbBricks / groupSize));
+                volumeInfo.setNbReplicas (String.valueOf(groupSize - nbExtra));
+                volumeInfo.setNbArbiters (nbExtra > 0 ? String.valueOf(nbExtra) : null);
+            }
+        }
     }
 
     @EqualsAndHashCode(callSuper = true)
     @NoArgsConstructor
     private static class VolumeInformationWrapper extends NodeVolumeInformation {
 
+        VolumeInformationWrapper copyWithStatus(String status) {
+            VolumeInformationWrapper copy = new VolumeInformationWrapper();
+            copy.setStatus(status);
+            copy.setType(getType());
+            copy.setOwner(getOwner());
+            copy.setNbShards(getNbShards());
+            copy.setNbReplicas(getNbReplicas());
+            copy.setNbArbiters(getNbArbiters());
+            copy.setNbBricks(getNbBricks());
+            return copy;
+        }
+
         public void feedInStatus(NodeStatus nodeStatus, int counter) {
             nodeStatus.setValueForPath("volumes." + counter + ".status", getStatus());
             nodeStatus.setValueForPath("volumes." + counter + ".type", getType());
@@ -36,15 +36,22 @@ package ch.niceideas.eskimo.egmi.gluster.command.result;
 
 import ch.niceideas.common.http.HttpClientException;
 import ch.niceideas.common.http.HttpClientResponse;
+import ch.niceideas.common.utils.LineTokenizer;
 import ch.niceideas.common.utils.StringUtils;
 import ch.niceideas.eskimo.egmi.model.BrickId;
 import ch.niceideas.eskimo.egmi.model.NodeBrickInformation;
 import ch.niceideas.eskimo.egmi.model.NodeStatus;
 import ch.niceideas.eskimo.egmi.model.Volume;
+import ch.niceideas.eskimo.egmi.model.Node;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
-import java.nio.charset.Charset;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -68,8 +75,19 @@ public class GlusterVolumeStatusResult extends AbstractGlusterResult<GlusterVolu
 
     private final GlusterVolumeInfoResult volumeInfo;
 
+    private final boolean xmlOutput;
+
     public GlusterVolumeStatusResult (GlusterVolumeInfoResult volumeInfo) {
+        this (volumeInfo, false);
+    }
+
+    /**
+     * @param xmlOutput whether the command output to parse is the one of
+     *                  <code>gluster --xml volume status all detail</code>
+     */
+    public GlusterVolumeStatusResult (GlusterVolumeInfoResult volumeInfo, boolean xmlOutput) {
         this.volumeInfo = volumeInfo;
+        this.xmlOutput = xmlOutput;
     }
 
     public void feedVolumeStatusInStatus(NodeStatus status, int volumeCounter, int brickCounter, BrickId brickId) {
@@ -84,76 +102,105 @@ public class GlusterVolumeStatusResult extends AbstractGlusterResult<GlusterVolu
     public  GlusterVolumeStatusResult buildFromResponse(HttpClientResponse response) throws HttpClientException {
         if (response.getStatusCode() != 200) {
             setError ("Failed to get an answer from command server");
+        } else if (xmlOutput) {
+            buildFromXml (response);
         } else {
-            String brickResult = response.asString(Charset.defaultCharset());
-            //System.err.println(volumeResult);
-
             BrickId currentBrickId = BrickId.UNDEFINED;
 
-            for (String line : brickResult.split("\n")) {
+            try (LineTokenizer lines = new LineTokenizer(response.getContentStream(), StandardCharsets.UTF_8)) {
+                for (String line = lines.nextLine(); line != null; line = lines.nextLine()) {
 
-                // starting with edge cases
-                /* e.g.
-                Another transaction is in progress for logstash_data. Please try again after some time.
-                Another transaction is in progress for spark_data. Please try again after some time.
-                Volume test_2 is not started
-                 */
+                    // starting with edge cases
+                    /* e.g.
+                    Another transaction is in progress for logstash_data. Please try again after some time.
+                    Another transaction is in progress for spark_data. Please try again after some time.
+                    Volume test_2 is not started
+                     */
 
-                if (line.startsWith(SKIP_PREFIX)) {
-                    Volume volume = Volume.from (line.substring(SKIP_PREFIX.length(), line.indexOf(".", SKIP_PREFIX.length() + 1)).trim());
-                    volumeInfo.overrideStatus (volume, SKIP_TEMP_OP_FLAG);
-                    continue;
-                }
+                    if (line.startsWith(SKIP_PREFIX)) {
+                        Volume volume = Volume.from (line.substring(SKIP_PREFIX.length(), line.indexOf(".", SKIP_PREFIX.length() + 1)).trim());
+                        volumeInfo.overrideStatus (volume, SKIP_TEMP_OP_FLAG);
+                        continue;
+                    }
 
-                if (line.contains(IS_NOT_STARTED)) {
-                    Volume volume = Volume.from (line.substring(VOLUME_PREFIX.length(), line.indexOf(IS_NOT_STARTED)).trim());
-                    volumeInfo.overrideStatus (volume, VOL_NOT_STARTED_FLAG);
-                    continue;
-                }
+                    if (line.contains(IS_NOT_STARTED)) {
+                        Volume volume = Volume.from (line.substring(VOLUME_PREFIX.length(), line.indexOf(IS_NOT_STARTED)).trim());
+                        volumeInfo.overrideStatus (volume, VOL_NOT_STARTED_FLAG);
+                        continue;
+                    }
 
-                if (line.startsWith("Brick")) {
-                    String[] split = line.split(":");
-                    if (split.length >= 3) {
-                        String brickIdentifier = split[1].trim() + ":" + split[2].trim();
-                        if (brickIdentifier.startsWith("Brick ")) {
-                            brickIdentifier = brickIdentifier.substring("Brick ".length());
+                    if (line.startsWith("Brick")) {
+                        String[] split = line.split(":");
+                        if (split.length >= 3) {
+                            String brickIdentifier = split[1].trim() + ":" + split[2].trim();
+                            if (brickIdentifier.startsWith("Brick ")) {
+                                brickIdentifier = brickIdentifier.substring("Brick ".length());
+                            }
+                            currentBrickId = BrickId.fromIdentifier (brickIdentifier);
                         }
-                        currentBrickId = BrickId.fromIdentifier (brickIdentifier);
                     }
-                }
 
-                NodeBrickDetail brickDetail = brickDetails.computeIfAbsent(currentBrickId, (brick) -> new NodeBrickDetail());
+                    NodeBrickDetail brickDetail = brickDetails.computeIfAbsent(currentBrickId, (brick) -> new NodeBrickDetail());
 
-                String onlineStatus = getBrickInfo(line, ONLINE_PREFIX);
-                if (StringUtils.isNotBlank(onlineStatus)) {
-                    brickDetail.setStatus(onlineStatus.equals("Y") ? "OK" : "OFFLINE");
-                }
+                    String onlineStatus = getBrickInfo(line, ONLINE_PREFIX);
+                    if (StringUtils.isNotBlank(onlineStatus)) {
+                        brickDetail.setStatus(onlineStatus.equals("Y") ? "OK" : "OFFLINE");
+                    }
 
-                String fsType = getBrickInfo(line, FILE_SYSTEM_PREFIX);
-                if (StringUtils.isNotBlank(fsType)) {
-                    brickDetail.setFsType(fsType);
-                }
+                    String fsType = getBrickInfo(line, FILE_SYSTEM_PREFIX);
+                    if (StringUtils.isNotBlank(fsType)) {
+                        brickDetail.setFsType(fsType);
+                    }
 
-                String device = getBrickInfo(line, DEVICE_PREFIX);
-                if (StringUtils.isNotBlank(device)) {
-                    brickDetail.setDevice(device);
-                }
+                    String device = getBrickInfo(line, DEVICE_PREFIX);
+                    if (StringUtils.isNotBlank(device)) {
+                        brickDetail.setDevice(device);
+                    }
 
-                String free = getBrickInfo(line, DISK_SPACE_FREE_PREFIX);
-                if (StringUtils.isNotBlank(free)) {
-                    brickDetail.setFree(free);
-                }
+                    String free = getBrickInfo(line, DISK_SPACE_FREE_PREFIX);
+                    if (StringUtils.isNotBlank(free)) {
+                        brickDetail.setFree(free);
+                    }
 
-                String total = getBrickInfo(line, TOTAL_DISK_SPACE_PREFIX);
-                if (StringUtils.isNotBlank(total)) {
-                    brickDetail.setTotal(total);
+                    String total = getBrickInfo(line, TOTAL_DISK_SPACE_PREFIX);
+                    if (StringUtils.isNotBlank(total)) {
+                        brickDetail.setTotal(total);
+                    }
                 }
+            } catch (IOException e) {
+                throw new HttpClientException(e.getMessage(), e);
             }
         }
 
         return this;
     }
 
+    /*
+    <volStatus><volumes><volume><volName>test1</volName><nodeCount>3</nodeCount>
+      <node><hostname>192.168.10.71</hostname><path>/var/lib/gluster/volume_bricks/test1</path><peerid>...</peerid>
+        <status>1</status><port>49152</port><ports><tcp>49152</tcp><rdma>N/A</rdma></ports><pid>11154</pid>
+        <sizeTotal>42938118144</sizeTotal><sizeFree>35647090688</sizeFree><device>/dev/sda1</device>...
+        <fsName>xfs</fsName>...</node>...
+    </volume>...</volumes></volStatus>
+     */
+    private void buildFromXml (HttpClientResponse response) throws HttpClientException {
+        String error = GlusterXmlOutput.read(response, new VolumeStatusXmlHandler());
+
+        // the XML output simply leaves volumes that are not started out
+        for (Volume volume : volumeInfo.getNotStartedVolumes()) {
+            volumeInfo.overrideStatus (volume, VOL_NOT_STARTED_FLAG);
+        }
+
+        if (error != null) {
+            if (error.startsWith(SKIP_PREFIX) && error.indexOf(".", SKIP_PREFIX.length() + 1) > 0) {
+                Volume volume = Volume.from (error.substring(SKIP_PREFIX.length(), error.indexOf(".", SKIP_PREFIX.length() + 1)).trim());
+                volumeInfo.overrideStatus (volume, SKIP_TEMP_OP_FLAG);
+            } else {
+                setError (error);
+            }
+        }
+    }
+
     private String getBrickInfo(String line, String prefix) {
         if (line.startsWith(prefix)) {
             String[] split = line.split(":");
@@ -164,16 +211,91 @@ public class GlusterVolumeStatusResult extends AbstractGlusterResult<GlusterVolu
         return null;
     }
 
+    private class VolumeStatusXmlHandler implements GlusterXmlOutput.ElementHandler {
+
+        private boolean inNode = false;
+        private String hostname = null;
+        private String path = null;
+        private NodeBrickDetail brickDetail = null;
+
+        @Override
+        public void startElement(String name, XMLStreamReader reader) throws XMLStreamException {
+            if (name.equals("node")) {
+                inNode = true;
+                hostname = null;
+                path = null;
+                brickDetail = new NodeBrickDetail();
+            } else if (inNode) {
+                switch (name) {
+                    case "hostname":
+                        hostname = GlusterXmlOutput.text(reader);
+                        break;
+                    case "path":
+                        path = GlusterXmlOutput.text(reader);
+                        break;
+                    case "peerid":
+                        brickDetail.setPeerId(GlusterXmlOutput.text(reader));
+                        break;
+                    case "status":
+                        brickDetail.setStatus("1".equals(GlusterXmlOutput.text(reader)) ? "OK" : "OFFLINE");
+                        break;
+                    case "port":
+                        brickDetail.setPort(GlusterXmlOutput.text(reader));
+                        break;
+                    case "sizeTotal":
+                        brickDetail.setTotal(GlusterXmlOutput.toHumanReadableSize(GlusterXmlOutput.text(reader)));
+                        break;
+                    case "sizeFree":
+                        brickDetail.setFree(GlusterXmlOutput.toHumanReadableSize(GlusterXmlOutput.text(reader)));
+                        break;
+                    case "device":
+                        brickDetail.setDevice(GlusterXmlOutput.text(reader));
+                        break;
+                    case "fsName":
+                        brickDetail.setFsType(GlusterXmlOutput.text(reader));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        @Override
+        public void endElement(String name) {
+            if (name.equals("node")) {
+                inNode = false;
+                // daemons such as the self-heal daemon are reported as nodes without a brick path
+                if (StringUtils.isNotBlank(hostname) && path != null && path.startsWith("/")) {
+                    brickDetails.put(BrickId.fromNodeAndPath(Node.from(hostname), path), brickDetail);
+                }
+            }
+        }
+    }
+
     @EqualsAndHashCode(callSuper = true)
     @NoArgsConstructor
     private static class NodeBrickDetail extends NodeBrickInformation {
 
+        /** UUID of the peer hosting the brick, only known from the XML output */
+        @Getter @Setter
+        private String peerId;
+
+        /** only known from the XML output */
+        @Getter @Setter
+        private String port;
+
         public void feedInStatus(NodeStatus nodeStatus, int volumeCounter, int brickCounter) {
             nodeStatus.setValueForPath("volumes." + volumeCounter + ".bricks." + brickCounter + ".status", getStatus());
             nodeStatus.setValueForPath("volumes." + volumeCounter + ".bricks." + brickCounter + ".fs_type", getFsType());
             nodeStatus.setValueForPath("volumes." + volumeCounter + ".bricks." + brickCounter + ".device", getDevice());
             nodeStatus.setValueForPath("volumes." + volumeCounter + ".bricks." + brickCounter + ".free", getFree());
             nodeStatus.setValueForPath("volumes." + volumeCounter + ".bricks." + brickCounter + ".total", getTotal());
+            if (peerId != null) {
+                nodeStatus.setValueForPath("volumes." + volumeCounter + ".bricks." + brickCounter + ".peer_id", peerId);
+            }
+            if (port != null) {
+                nodeStatus.setValueForPath("volumes." + volumeCounter + ".bricks." + brickCounter + ".port", port);
+            }
         }
     }
 }
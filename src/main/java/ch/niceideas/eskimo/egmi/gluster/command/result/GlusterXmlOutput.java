@@ -0,0 +1,181 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+
+package ch.niceideas.eskimo.egmi.gluster.command.result;
+
+import ch.niceideas.common.http.HttpClientException;
+import ch.niceideas.common.http.HttpClientResponse;
+import ch.niceideas.common.utils.StringUtils;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * Streams through the output of a gluster command run with <code>--xml</code>, handing every element to the caller
+ * as it is read.
+ * <br>
+ * Every such output is wrapped in a <code>cliOutput</code> element starting with <code>opRet</code>,
+ * <code>opErrno</code> and <code>opErrstr</code>, which are consumed here.
+ */
+final class GlusterXmlOutput {
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private static final String OP_RET = "opRet";
+    private static final String OP_ERRSTR = "opErrstr";
+
+    private static final long KB = 1024L;
+    private static final long MB = KB * 1024L;
+    private static final long GB = MB * 1024L;
+    private static final long TB = GB * 1024L;
+    private static final long PB = TB * 1024L;
+
+    private GlusterXmlOutput() {}
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * Read the whole output, calling the handler on every start and end element.
+     *
+     * @return the error reported by gluster or null if the command succeeded
+     */
+    static String read (HttpClientResponse response, ElementHandler handler) throws HttpClientException {
+
+        String opRet = null;
+        String opErrstr = null;
+
+        try (InputStream stream = response.getContentStream()) {
+            XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(stream);
+            try {
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        String name = reader.getLocalName();
+                        if (OP_RET.equals(name)) {
+                            opRet = reader.getElementText().trim();
+                        } else if (OP_ERRSTR.equals(name)) {
+                            opErrstr = reader.getElementText().trim();
+                        } else {
+                            handler.startElement(name, reader);
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        handler.endElement(reader.getLocalName());
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | IOException e) {
+            throw new HttpClientException(e.getMessage(), e);
+        }
+
+        if (opRet == null) {
+            return "No gluster XML output received";
+        }
+        if (!"0".equals(opRet)) {
+            return StringUtils.isNotBlank(opErrstr) ? opErrstr : ("gluster command failed with code " + opRet);
+        }
+        return null;
+    }
+
+    /**
+     * @return the text of the current element, trimmed, or null if it is blank or <code>N/A</code>
+     */
+    static String text (XMLStreamReader reader) throws XMLStreamException {
+        String text = reader.getElementText().trim();
+        return StringUtils.isBlank(text) || text.equals("N/A") ? null : text;
+    }
+
+    static int intValue (String value) {
+        if (StringUtils.isBlank(value)) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Format a number of bytes the way the gluster text output does (e.g. <code>33.2GB</code>).
+     */
+    static String toHumanReadableSize (String bytesValue) {
+        if (StringUtils.isBlank(bytesValue)) {
+            return null;
+        }
+        long bytes;
+        try {
+            bytes = Long.parseLong(bytesValue);
+        } catch (NumberFormatException e) {
+            return bytesValue;
+        }
+        if (bytes >= PB) {
+            return String.format(Locale.ROOT, "%.1fPB", (double) bytes / PB);
+        } else if (bytes >= TB) {
+            return String.format(Locale.ROOT, "%.1fTB", (double) bytes / TB);
+        } else if (bytes >= GB) {
+            return String.format(Locale.ROOT, "%.1fGB", (double) bytes / GB);
+        } else if (bytes >= MB) {
+            return String.format(Locale.ROOT, "%.1fMB", (double) bytes / MB);
+        } else if (bytes >= KB) {
+            return String.format(Locale.ROOT, "%.1fKB", (double) bytes / KB);
+        }
+        return bytes + "Bytes";
+    }
+
+    interface ElementHandler {
+
+        /**
+         * The handler may consume the element content with {@link XMLStreamReader#getElementText()}, in which case
+         * {@link #endElement(String)} isn't called for it.
+         */
+        void startElement (String name, XMLStreamReader reader) throws XMLStreamException;
+
+        default void endElement (String name) {
+            // most elements are consumed on start
+        }
+    }
+}
@@ -38,7 +38,7 @@ import ch.niceideas.common.http.HttpClientException;
 import ch.niceideas.common.http.HttpClientResponse;
 import lombok.NoArgsConstructor;
 
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -54,7 +54,7 @@ public class PingResult extends AbstractGlusterResult<PingResult> {
         if (response.getStatusCode() != 200) {
             setError ("Failed to get an answer from command server");
         } else {
-            String pingResult = response.asString(Charset.defaultCharset());
+            String pingResult = response.asString(StandardCharsets.UTF_8);
 
             Matcher pingHostnameMatcher = PingResult.PING_RESULT_PATTERN.matcher(pingResult);
             if (!pingHostnameMatcher.find()) {
@@ -41,7 +41,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import org.apache.log4j.Logger;
 
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 @NoArgsConstructor
 public class SimpleOperationResult extends AbstractGlusterResult<SimpleOperationResult> {
@@ -61,7 +61,7 @@ public class SimpleOperationResult extends AbstractGlusterResult<SimpleOperation
         if (response.getStatusCode() != 200) {
             String message = null;
             try  {
-                message = response.asString(Charset.defaultCharset());
+                message = response.asString(StandardCharsets.UTF_8);
             } catch (HttpClientException e) {
                 logger.debug (e, e);
             }
@@ -71,7 +71,7 @@ public class SimpleOperationResult extends AbstractGlusterResult<SimpleOperation
                 setError("Failed to get an answer from command server. ");
             }
         } else {
-            message = response.asString(Charset.defaultCharset());
+            message = response.asString(StandardCharsets.UTF_8);
             if (message.contains(SUCCESS_TAG)) {
                 success = true;
             }
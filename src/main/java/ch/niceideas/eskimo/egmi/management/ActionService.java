@@ -81,7 +81,7 @@ public class ActionService {
 
             try {
 
-                CommandContext context = new CommandContext(httpClient, glusterCommandServerPort, managementService);
+                CommandContext context = new CommandContext(httpClient, glusterCommandServerPort, managementService, glusterRemoteManager);
 
                 managementService.info("Deleting Volume " + volume);
 
@@ -137,7 +137,7 @@ public class ActionService {
 
                 managementService.info("Stopping Volume " + volume);
 
-                CommandContext context = new CommandContext(httpClient, glusterCommandServerPort, managementService);
+                CommandContext context = new CommandContext(httpClient, glusterCommandServerPort, managementService, glusterRemoteManager);
 
                 List<Node> lastNodes = managementService.getSystemStatus().getNodeList();
                 if (lastNodes.size() <= 0) {
@@ -147,6 +147,8 @@ public class ActionService {
                 // Add host to new best candidate peers
                 AbstractProblem.executeSimpleOperation(new GlusterVolumeStop(httpClient, volume), context, lastNodes.get(0));
 
+                refreshStatus(() -> managementService.refreshVolumeStatus(volume));
+
             } catch (ManagementException | ResolutionStopException e) {
                 logger.error (e, e);
                 throw new ActionException(e);
@@ -162,7 +164,7 @@ public class ActionService {
 
                 managementService.info("Starting Volume " + volume);
 
-                CommandContext context = new CommandContext(httpClient, glusterCommandServerPort, managementService);
+                CommandContext context = new CommandContext(httpClient, glusterCommandServerPort, managementService, glusterRemoteManager);
 
                 List<Node> lastNodes = managementService.getSystemStatus().getNodeList();
                 if (lastNodes.size() <= 0) {
@@ -172,6 +174,8 @@ public class ActionService {
                 // Add host to new best candidate peers
                 AbstractProblem.executeSimpleOperation(new GlusterVolumeStart(httpClient, volume), context, lastNodes.get(0));
 
+                refreshStatus(() -> managementService.refreshVolumeStatus(volume));
+
             } catch (ManagementException | ResolutionStopException e) {
                 logger.error (e, e);
                 throw new ActionException(e);
@@ -187,12 +191,14 @@ public class ActionService {
 
                 managementService.info("Adding Volume " + volume);
 
-                CommandContext context = new CommandContext(httpClient, glusterCommandServerPort, managementService);
+                CommandContext context = new CommandContext(httpClient, glusterCommandServerPort, managementService, glusterRemoteManager);
 
-                if (!NoVolume.createVolume(volume, glusterRemoteManager, context)) {
+                if (!NoVolume.createVolume(volume, glusterRemoteManager.getAllNodeStatus(), context)) {
                     throw new ActionException("Couldn't create volume " + volume);
                 }
 
+                refreshStatus(() -> managementService.refreshVolumeStatus(volume));
+
             } catch (GlusterRemoteException | NodeStatusException| ResolutionStopException e) {
                 logger.error (e, e);
                 throw new ActionException(e);
@@ -208,7 +214,7 @@ public class ActionService {
 
                 managementService.info("Adding node " + node);
 
-                CommandContext context = new CommandContext(httpClient, glusterCommandServerPort, managementService);
+                CommandContext context = new CommandContext(httpClient, glusterCommandServerPort, managementService, glusterRemoteManager);
 
                 List<Node> lastNodes = managementService.getSystemStatus().getNodeList();
                 if (lastNodes.size() <= 0) {
@@ -218,10 +224,29 @@ public class ActionService {
                 // Add host to new best candidate peers
                 AbstractProblem.executeSimpleOperation(new GlusterPeerProbe(httpClient, node), context, lastNodes.get(0));
 
+                refreshStatus(() -> managementService.refreshNodeStatus(node));
+
             } catch (ManagementException | ResolutionStopException e) {
                 logger.error (e, e);
                 throw new ActionException(e);
             }
         });
     }
+
+    /*
+     * The action went through at this stage, failing to show it right away is no reason to report it as failed
+     * since the next status update will.
+     */
+    private void refreshStatus(StatusRefresh refresh) {
+        try {
+            refresh.run();
+        } catch (ManagementException e) {
+            logger.warn ("Couldn't refresh status after action : " + e.getMessage());
+            logger.debug (e, e);
+        }
+    }
+
+    private interface StatusRefresh {
+        void run () throws ManagementException;
+    }
 }
@@ -0,0 +1,151 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+package ch.niceideas.eskimo.egmi.management;
+
+import ch.niceideas.common.utils.StringUtils;
+import ch.niceideas.eskimo.egmi.gluster.GlusterRemoteManager;
+import ch.niceideas.eskimo.egmi.model.Node;
+import org.apache.log4j.Logger;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Handles the events posted by glustereventsd to the webhook registered with
+ * <code>gluster-eventsapi webhook-add http://&lt;egmi&gt;/gluster-events</code>.
+ * <br>
+ * Events reporting a change of the peers, bricks or volumes trigger an immediate background refresh of the status of
+ * the affected nodes only, followed by an early status update so that problems are raised right away instead of at
+ * the next orchestration loop. Other events are ignored.
+ */
+@Component
+@Scope(value = ConfigurableBeanFactory.SCOPE_SINGLETON)
+public class GlusterEventService {
+
+    private static final Logger logger = Logger.getLogger(GlusterEventService.class);
+
+    private static final Set<String> PEER_EVENTS = Set.of(
+            "PEER_ATTACH", "PEER_DETACH", "PEER_CONNECT", "PEER_DISCONNECT", "PEER_REJECT");
+
+    private static final Set<String> BRICK_EVENTS = Set.of(
+            "BRICK_CONNECTED", "BRICK_DISCONNECTED", "BRICK_START", "BRICK_STOP");
+
+    private static final Set<String> VOLUME_EVENTS = Set.of(
+            "VOLUME_CREATE", "VOLUME_START", "VOLUME_STOP", "VOLUME_DELETE", "VOLUME_SET", "VOLUME_RESET",
+            "VOLUME_ADD_BRICK", "VOLUME_REMOVE_BRICK_START", "VOLUME_REMOVE_BRICK_COMMIT",
+            "VOLUME_REMOVE_BRICK_FORCE", "VOLUME_REPLACE_BRICK");
+
+    @Autowired
+    private GlusterRemoteManager glusterRemoteManager;
+
+    @Autowired
+    private ManagementService managementService;
+
+    /* For tests */
+    void setGlusterRemoteManager (GlusterRemoteManager glusterRemoteManager) {
+        this.glusterRemoteManager = glusterRemoteManager;
+    }
+    void setManagementService (ManagementService managementService) {
+        this.managementService = managementService;
+    }
+
+    /**
+     * Handle a single event as posted by glustereventsd, i.e. <code>{"nodeid": ..., "ts": ..., "event": ...,
+     * "message": {...}}</code>.
+     *
+     * @param sourceAddress the address of the node that posted the event
+     * @return the nodes whose status is being refreshed, empty if the event doesn't impact the managed status
+     */
+    public Set<Node> handleEvent (String sourceAddress, JSONObject event) throws ManagementException {
+
+        String eventName = event.optString("event");
+        JSONObject message = event.optJSONObject("message");
+        if (message == null) {
+            message = new JSONObject();
+        }
+
+        Set<Node> candidates = new HashSet<>();
+        if (StringUtils.isNotBlank(sourceAddress)) {
+            candidates.add(Node.from(sourceAddress));
+        }
+
+        if (PEER_EVENTS.contains(eventName)) {
+            addHost(candidates, message.optString("host"));
+            addHost(candidates, message.optString("peer"));
+
+        } else if (BRICK_EVENTS.contains(eventName)) {
+            addHost(candidates, message.optString("peer"));
+            addHost(candidates, getBrickHost(message.optString("brick")));
+
+        } else if (!VOLUME_EVENTS.contains(eventName)) {
+            // volume events only need the node that reported it, volume information being the same on all nodes
+            logger.debug ("Ignoring gluster event " + eventName);
+            return Collections.emptySet();
+        }
+
+        Set<Node> affectedNodes = new HashSet<>(candidates);
+        affectedNodes.retainAll(managementService.getAllNodes());
+
+        managementService.info("Received gluster event " + eventName + " from " + sourceAddress
+                + (message.isEmpty() ? "" : " (" + message + ")") + ". Refreshing " + affectedNodes);
+
+        glusterRemoteManager.refreshNodes(affectedNodes);
+        managementService.requestStatusUpdate();
+
+        return affectedNodes;
+    }
+
+    private static void addHost (Set<Node> nodes, String host) {
+        if (StringUtils.isNotBlank(host)) {
+            nodes.add(Node.from(host));
+        }
+    }
+
+    /*
+     * Bricks are reported as host:/path
+     */
+    static String getBrickHost (String brick) {
+        if (StringUtils.isBlank(brick)) {
+            return null;
+        }
+        int separatorIndex = brick.indexOf(':');
+        return separatorIndex > 0 ? brick.substring(0, separatorIndex) : null;
+    }
+}
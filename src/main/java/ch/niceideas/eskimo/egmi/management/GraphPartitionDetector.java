@@ -47,20 +47,46 @@ import lombok.RequiredArgsConstructor;
 import org.apache.log4j.Logger;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class GraphPartitionDetector {
 
     private static final Logger logger = Logger.getLogger(GraphPartitionDetector.class);
 
+    /**
+     * Build the peer adjacency matrix of the given nodes.
+     */
+    public static PeerAdjacencyMatrix getPeerMatrix(Set<Node> nodes, Map<Node, NodeStatus> nodesStatus) throws NodeStatusException {
+        return PeerAdjacencyMatrix.build(nodes, nodesStatus);
+    }
+
+    /**
+     * Label the given nodes and their peers with their connected component.
+     */
+    public static PeerComponents getPeerComponents(Set<Node> nodes, Map<Node, NodeStatus> nodesStatus) throws NodeStatusException {
+        return new PeerComponents(getPeerMatrix(nodes, nodesStatus));
+    }
+
     public static void detectGraphPartitioning(
             ProblemManager problemManager,
             Set<Node> allNodes,
             SystemStatus newStatus,
             Map<Node, NodeStatus> nodesStatus) throws NodeStatusException  {
+        detectGraphPartitioning(problemManager, allNodes, newStatus, nodesStatus, getPeerMatrix(allNodes, nodesStatus));
+    }
+
+    /**
+     * @param peerMatrix the peer adjacency matrix of allNodes, built once per status update and shared with the other
+     *                   detections
+     */
+    public static void detectGraphPartitioning(
+            ProblemManager problemManager,
+            Set<Node> allNodes,
+            SystemStatus newStatus,
+            Map<Node, NodeStatus> nodesStatus,
+            PeerAdjacencyMatrix peerMatrix) {
 
         // 0. Build data structure
-        Map<Node, GraphNode> nodes = buildNodeGraph(allNodes, nodesStatus);
+        PeerComponents components = new PeerComponents(peerMatrix);
 
         // Find total number of volumes
         int totalVolumesCounter = nodesStatus.values().stream()
@@ -79,7 +105,7 @@ public class GraphPartitionDetector {
         }
 
         // 1. For every node, count number of nodes reachable on the connection graph from the node
-        Map<Node, Integer> counters = buildPeerTimesVolumeCounters(allNodes, nodes, nodesStatus);
+        Map<Node, Integer> counters = buildPeerTimesVolumeCounters(allNodes, components, nodesStatus);
 
         // 2. If every node, has same count as total number of nodes, there is no partitioning, we're good
         boolean allGood = true;
@@ -123,6 +149,10 @@ public class GraphPartitionDetector {
     }
 
     public static Map<Node, Integer> buildPeerTimesVolumeCounters(Set<Node> allNodes, Map<Node, GraphNode> nodes, Map<Node, NodeStatus> nodesStatus) {
+        return buildPeerTimesVolumeCounters(allNodes, new PeerComponents(nodes), nodesStatus);
+    }
+
+    public static Map<Node, Integer> buildPeerTimesVolumeCounters(Set<Node> allNodes, PeerComponents components, Map<Node, NodeStatus> nodesStatus) {
 
         // if at least one node has volumes configured, then I need to account volumes as well
         boolean alsoAccountVolumes = nodesStatus.values().stream()
@@ -136,9 +166,7 @@ public class GraphPartitionDetector {
 
         Map<Node, Integer> counters = new HashMap<>();
         for (Node host : allNodes) {
-            Set<Node> visited = buildPeerNetwork(nodes, host);
-
-            int peerCounter = visited.size();
+            int peerCounter = components.getReachableCount(host);
             int targetCounter = peerCounter;
 
             if (alsoAccountVolumes) {
@@ -161,25 +189,7 @@ public class GraphPartitionDetector {
     }
 
     public static Set<Node> buildPeerNetwork(Map<Node, GraphNode> nodes, Node host) {
-        Stack<GraphNode> stack = new Stack<>();
-        GraphNode current = nodes.get(host);
-        stack.push (current);
-
-        Set<GraphNode> visited = new HashSet<>();
-        visited.add(current);
-
-        while (!stack.isEmpty()) {
-            current = stack.pop();
-            for (GraphNode peer : current.getPeers()) {
-                if (!visited.contains(peer)) {
-                    stack.push (peer);
-                    visited.add(peer);
-                }
-            }
-        }
-        return visited.stream()
-                .map(GraphNode::getHost)
-                .collect(Collectors.toSet());
+        return new PeerComponents(nodes).getReachableNodes(host);
     }
 
     public static Map<Node, GraphNode> buildNodeGraph(Set<Node> allNodes, Map<Node, NodeStatus> nodesStatus) throws NodeStatusException {
@@ -0,0 +1,273 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+package ch.niceideas.eskimo.egmi.management;
+
+import ch.niceideas.common.json.JsonWrapper;
+import ch.niceideas.common.utils.FileException;
+import ch.niceideas.common.utils.FileUtils;
+import org.apache.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Runtime settings persisted as a snapshot file along with a journal of the changes made since.
+ * <br>
+ * Every change appends a single line to the journal, only holding the settings that were set or removed, and syncs it
+ * to disk, instead of rewriting the whole settings. Once the journal holds compactionThreshold records, the settings
+ * are written to the snapshot file atomically (see {@link SnapshotFilePersistence}) and the journal is emptied. The
+ * same happens on close, so that the snapshot file alone holds the settings after a clean shutdown.
+ * <br>
+ * Settings holding an object are diffed recursively, so that a record only holds the nested settings that changed.
+ * Other values, including arrays and the comma separated lists of discovered nodes and volumes, are recorded whole.
+ * <br>
+ * On load, the journal records are applied on top of the snapshot file in order. Records only hold the resulting
+ * values, so a crash between writing the snapshot and emptying the journal is harmless. An incomplete last record,
+ * left by a crash while appending it, is dropped and the settings compacted right away. A corrupt record anywhere
+ * else is skipped alone, the records after it are still applied.
+ * <br>
+ * An append failing midway, e.g. on a full disk, is truncated away so that the next record starts on a line of its
+ * own. If even that fails, the next change is written as a compaction instead of being appended.
+ */
+public class JournaledFilePersistence implements RuntimeSettingsPersistence {
+
+    private static final Logger logger = Logger.getLogger(JournaledFilePersistence.class);
+
+    static final String JOURNAL_SUFFIX = ".journal";
+
+    private static final String SET = "set";
+    private static final String UNSET = "unset";
+    private static final String UPDATE = "update";
+
+    private final File snapshotFile;
+    private final File journalFile;
+    private final int compactionThreshold;
+
+    private int journalRecords = 0;
+    private String lastSettings = null;
+    private boolean journalDamaged = false;
+
+    public JournaledFilePersistence(File snapshotFile, int compactionThreshold) {
+        this.snapshotFile = snapshotFile;
+        this.journalFile = new File(snapshotFile.getParentFile(), snapshotFile.getName() + JOURNAL_SUFFIX);
+        this.compactionThreshold = Math.max(1, compactionThreshold);
+    }
+
+    @Override
+    public synchronized String load() throws IOException {
+        if (!snapshotFile.exists() && !journalFile.exists()) {
+            return null;
+        }
+
+        JSONObject settings;
+        try {
+            settings = snapshotFile.exists() ?
+                    new JSONObject(new String (FileUtils.read(snapshotFile), StandardCharsets.UTF_8)) :
+                    new JSONObject();
+        } catch (FileException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+
+        journalRecords = 0;
+        boolean incomplete = false;
+        if (journalFile.exists()) {
+            List<String> records = Files.readAllLines(journalFile.toPath(), StandardCharsets.UTF_8);
+            for (int i = 0; i < records.size(); i++) {
+                String record = records.get(i);
+                if (record.isBlank()) {
+                    continue;
+                }
+                try {
+                    apply(settings, new JSONObject(record));
+                    journalRecords++;
+                } catch (JSONException e) {
+                    if (i == records.size() - 1) {
+                        logger.warn ("Dropping incomplete runtime settings journal record : " + record);
+                    } else {
+                        logger.error ("Skipping corrupt runtime settings journal record : " + record);
+                    }
+                    incomplete = true;
+                }
+            }
+        }
+
+        lastSettings = settings.toString();
+        if (incomplete || journalRecords >= compactionThreshold) {
+            compact();
+        }
+        return lastSettings;
+    }
+
+    @Override
+    public synchronized String persist(String previousSettings, String settings) throws IOException {
+        JSONObject record = diff(
+                previousSettings == null ? new JSONObject() : new JSONObject(previousSettings),
+                new JSONObject(settings));
+        lastSettings = settings;
+        if (journalDamaged) {
+            // the journal may end with a partial record, don't append after it
+            compact();
+            journalDamaged = false;
+            return settings;
+        }
+        if (record.isEmpty()) {
+            return settings;
+        }
+
+        try (FileChannel channel = FileChannel.open(journalFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long length = channel.size();
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap((record + "\n").getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            } catch (IOException e) {
+                truncate(channel, length);
+                throw e;
+            }
+        }
+        journalRecords++;
+
+        if (journalRecords >= compactionThreshold) {
+            compact();
+        }
+        return settings;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (journalRecords > 0) {
+            compact();
+        }
+    }
+
+    /**
+     * @return the number of records in the journal
+     */
+    public synchronized int getJournalRecords() {
+        return journalRecords;
+    }
+
+    private void truncate(FileChannel channel, long length) {
+        try {
+            channel.truncate(length);
+            channel.force(true);
+        } catch (IOException e) {
+            logger.error ("Couldn't remove partially appended runtime settings journal record : " + e.getMessage());
+            journalDamaged = true;
+        }
+    }
+
+    private void compact() throws IOException {
+        SnapshotFilePersistence.writeAtomically(snapshotFile, new JsonWrapper(lastSettings).getFormattedValue());
+        Files.deleteIfExists(journalFile.toPath());
+        journalRecords = 0;
+    }
+
+    static JSONObject diff(JSONObject previous, JSONObject current) {
+        JSONObject set = new JSONObject();
+        JSONObject update = new JSONObject();
+        for (String key : current.keySet()) {
+            Object previousValue = previous.opt(key);
+            Object currentValue = current.get(key);
+            if (previousValue instanceof JSONObject && currentValue instanceof JSONObject) {
+                JSONObject nested = diff((JSONObject) previousValue, (JSONObject) currentValue);
+                if (!nested.isEmpty()) {
+                    update.put(key, nested);
+                }
+            } else if (!previous.has(key) || !sameValue(previousValue, currentValue)) {
+                set.put(key, currentValue);
+            }
+        }
+        JSONArray unset = new JSONArray();
+        for (String key : previous.keySet()) {
+            if (!current.has(key)) {
+                unset.put(key);
+            }
+        }
+
+        JSONObject record = new JSONObject();
+        if (!set.isEmpty()) {
+            record.put(SET, set);
+        }
+        if (!update.isEmpty()) {
+            record.put(UPDATE, update);
+        }
+        if (!unset.isEmpty()) {
+            record.put(UNSET, unset);
+        }
+        return record;
+    }
+
+    static void apply(JSONObject settings, JSONObject record) {
+        JSONObject set = record.optJSONObject(SET);
+        if (set != null) {
+            for (String key : set.keySet()) {
+                settings.put(key, set.get(key));
+            }
+        }
+        JSONObject update = record.optJSONObject(UPDATE);
+        if (update != null) {
+            for (String key : update.keySet()) {
+                JSONObject nested = settings.optJSONObject(key);
+                if (nested == null) {
+                    nested = new JSONObject();
+                    settings.put(key, nested);
+                }
+                apply(nested, update.getJSONObject(key));
+            }
+        }
+        JSONArray unset = record.optJSONArray(UNSET);
+        if (unset != null) {
+            for (int i = 0; i < unset.length(); i++) {
+                settings.remove(unset.getString(i));
+            }
+        }
+    }
+
+    private static boolean sameValue(Object previous, Object current) {
+        return new JSONObject().put("value", previous).similar(new JSONObject().put("value", current));
+    }
+}
@@ -35,16 +35,15 @@
 package ch.niceideas.eskimo.egmi.management;
 
 import ch.niceideas.common.json.JsonWrapper;
-import ch.niceideas.common.utils.FileException;
-import ch.niceideas.common.utils.FileUtils;
 import ch.niceideas.common.utils.StringUtils;
+import ch.niceideas.eskimo.egmi.gluster.GlusterRemoteException;
 import ch.niceideas.eskimo.egmi.gluster.GlusterRemoteManager;
-import ch.niceideas.eskimo.egmi.gluster.command.result.GlusterVolumeStatusResult;
 import ch.niceideas.eskimo.egmi.model.*;
 import ch.niceideas.eskimo.egmi.problems.*;
 import ch.niceideas.eskimo.egmi.zookeeper.ZookeeperService;
 import lombok.Getter;
 import org.apache.log4j.Logger;
+import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
@@ -52,6 +51,7 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.io.File;
 import java.net.InetAddress;
@@ -59,6 +59,7 @@ import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
@@ -109,6 +110,15 @@ public class ManagementService implements ResolutionLogger, RuntimeSettingsOwner
     @Value("${system.statusUpdatePeriodSeconds}")
     private int statusUpdatePeriodSeconds = 30;
 
+    @Value("${system.livenessCheckPeriodSeconds:5}")
+    private int livenessCheckPeriodSeconds = 5;
+
+    @Value("${system.events.statusUpdatePeriodSeconds:0}")
+    private int eventDrivenStatusUpdatePeriodSeconds = 0;
+
+    @Value("${system.events.statusUpdateDelaySeconds:2}")
+    private int eventStatusUpdateDelaySeconds = 2;
+
     @Value("${target.numberOfBricks}")
     protected String targetNumberBricksString = "LOG_DISPATCH";
 
@@ -121,10 +131,26 @@ public class ManagementService implements ResolutionLogger, RuntimeSettingsOwner
     @Value("${config.performance.off}")
     private String performanceOffOptions;
 
+    @Value("${system.volumeAggregation.parallel:false}")
+    private boolean parallelVolumeAggregation = false;
+
+    @Value("${system.runtimeSettings.writeDelayMillis:500}")
+    private int runtimeSettingsWriteDelayMillis = 500;
+
+    @Value("${system.runtimeSettings.persistence:SNAPSHOT}")
+    private RuntimeSettingsPersistence.Mode runtimeSettingsPersistenceMode = RuntimeSettingsPersistence.Mode.SNAPSHOT;
+
+    @Value("${system.runtimeSettings.journal.compactionThreshold:100}")
+    private int runtimeSettingsCompactionThreshold = 100;
+
     private final ScheduledExecutorService statusRefreshScheduler;
+    private final ScheduledExecutorService livenessCheckScheduler;
+    private ScheduledFuture<?> nextStatusUpdate = null;
+    private Set<Node> lastLiveNodes = null;
     private final ReentrantLock statusUpdateLock = new ReentrantLock();
     private final AtomicReference<SystemStatus> lastStatus = new AtomicReference<>();
     private final AtomicReference<Exception> lastStatusException = new AtomicReference<>();
+    private volatile RuntimeSettingsStore runtimeSettingsStore = null;
 
     private final ThreadLocal<SimpleDateFormat> formatLocal = ThreadLocal.withInitial(() -> new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS"));
 
@@ -148,13 +174,28 @@ public class ManagementService implements ResolutionLogger, RuntimeSettingsOwner
     }
     public void setTestConfigStoragePath (String configStoragePath) {
         this.configStoragePath = configStoragePath;
+        closeRuntimeSettingsStore();
+    }
+    public void setRuntimeSettingsWriteDelayMillis (int runtimeSettingsWriteDelayMillis) {
+        this.runtimeSettingsWriteDelayMillis = runtimeSettingsWriteDelayMillis;
+        closeRuntimeSettingsStore();
+    }
+    public void setRuntimeSettingsPersistenceMode (RuntimeSettingsPersistence.Mode runtimeSettingsPersistenceMode) {
+        this.runtimeSettingsPersistenceMode = runtimeSettingsPersistenceMode;
+        closeRuntimeSettingsStore();
     }
     public void setTargetNumberBricksString(String targetNbrBricks) {
         this.targetNumberBricksString = targetNbrBricks;
     }
+    public void setParallelVolumeAggregation (boolean parallelVolumeAggregation) {
+        this.parallelVolumeAggregation = parallelVolumeAggregation;
+    }
     public void setDefaultNumberReplica (int defaultNumberReplica) {
         this.defaultNumberReplica = defaultNumberReplica;
     }
+    void setLastStatus (SystemStatus systemStatus) {
+        this.lastStatus.set(systemStatus);
+    }
 
     // constructor for spring
     public ManagementService() {
@@ -170,9 +211,22 @@ public class ManagementService implements ResolutionLogger, RuntimeSettingsOwner
             statusRefreshScheduler = Executors.newSingleThreadScheduledExecutor();
 
             logger.info("Initializing Status updater scheduler ...");
-            statusRefreshScheduler.schedule(this::updateSystemStatus, 5, TimeUnit.SECONDS); // start ASAP
+            scheduleStatusUpdate(5); // start ASAP
+
+            // Liveness checks run on their own thread so that they are not held back by a long status update
+            livenessCheckScheduler = Executors.newSingleThreadScheduledExecutor();
         } else {
             statusRefreshScheduler = null;
+            livenessCheckScheduler = null;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (livenessCheckScheduler != null && livenessCheckPeriodSeconds > 0) {
+            logger.info("Initializing liveness check scheduler ...");
+            livenessCheckScheduler.scheduleWithFixedDelay(
+                    this::runLivenessCheck, livenessCheckPeriodSeconds, livenessCheckPeriodSeconds, TimeUnit.SECONDS);
         }
     }
 
@@ -182,6 +236,91 @@ public class ManagementService implements ResolutionLogger, RuntimeSettingsOwner
         if (statusRefreshScheduler != null) {
             statusRefreshScheduler.shutdownNow();
         }
+        if (livenessCheckScheduler != null) {
+            livenessCheckScheduler.shutdownNow();
+        }
+        closeRuntimeSettingsStore();
+    }
+
+    /**
+     * Schedule the next status update unless one is already planned to happen sooner.
+     * <br>
+     * The status refresh scheduler is single threaded and every status update reschedules the next one, so this
+     * ensures there is always a single chain of updates, even when the liveness checks request an immediate one.
+     */
+    private synchronized void scheduleStatusUpdate(long delaySeconds) {
+        if (statusRefreshScheduler == null || statusRefreshScheduler.isShutdown()) {
+            return;
+        }
+        if (nextStatusUpdate != null && !nextStatusUpdate.isDone()) {
+            if (nextStatusUpdate.getDelay(TimeUnit.SECONDS) <= delaySeconds) {
+                return;
+            }
+            nextStatusUpdate.cancel(false);
+        }
+        nextStatusUpdate = statusRefreshScheduler.schedule(this::updateSystemStatus, delaySeconds, TimeUnit.SECONDS);
+    }
+
+    private synchronized void statusUpdateStarted() {
+        nextStatusUpdate = null;
+    }
+
+    /**
+     * Request an early status update following an event reported by gluster. The update is delayed by
+     * eventStatusUpdateDelaySeconds so that a burst of events results in a single update.
+     */
+    public void requestStatusUpdate() {
+        scheduleStatusUpdate(eventStatusUpdateDelaySeconds);
+    }
+
+    /*
+     * When gluster events are pushed to the webhook, changes are picked up as they happen and the regular status
+     * update only needs to catch what events don't report.
+     */
+    private int getSteadyStatusUpdatePeriodSeconds() {
+        return eventDrivenStatusUpdatePeriodSeconds > 0 ? eventDrivenStatusUpdatePeriodSeconds : statusUpdatePeriodSeconds;
+    }
+
+    private void runLivenessCheck() {
+        try {
+            if (checkLiveness()) {
+                scheduleStatusUpdate(0);
+            }
+        } catch (Exception e) {
+            // never let an exception reach the scheduler since it would cancel all subsequent checks
+            logger.error (e, e);
+        }
+    }
+
+    /**
+     * Cheap liveness check of all nodes, only fetching their peer list.
+     *
+     * @return true if the set of live nodes changed since the previous check, in which case a full status update
+     * should happen right away.
+     */
+    boolean checkLiveness() throws GlusterRemoteException {
+
+        if (!zookeeperService.isMaster()) {
+            lastLiveNodes = null;
+            return false;
+        }
+
+        Set<Node> liveNodes = glusterRemoteManager.getLiveNodes(Math.max (1, livenessCheckPeriodSeconds));
+
+        Set<Node> previousLiveNodes = lastLiveNodes;
+        lastLiveNodes = liveNodes;
+
+        if (previousLiveNodes == null || previousLiveNodes.equals(liveNodes)) {
+            return false;
+        }
+
+        Set<Node> downNodes = new HashSet<>(previousLiveNodes);
+        downNodes.removeAll(liveNodes);
+        Set<Node> upNodes = new HashSet<>(liveNodes);
+        upNodes.removeAll(previousLiveNodes);
+
+        info("Node liveness changed (down : " + downNodes + " - up : " + upNodes + "). Triggering status update.");
+        return true;
     }
 
     public Set<Volume> getVolumesPerformanceOff() {
@@ -237,16 +376,15 @@ public class ManagementService implements ResolutionLogger, RuntimeSettingsOwner
     public void updateSystemStatus() {
 
         logger.info ("- Updating System Status");
+        statusUpdateStarted();
 
         if (!zookeeperService.isMaster()) {
             logger.info ("  + Not updating status since I am no master");
-            if (statusRefreshScheduler != null) {
-                statusRefreshScheduler.schedule(this::updateSystemStatus, statusUpdatePeriodSeconds, TimeUnit.SECONDS);
-            }
+            scheduleStatusUpdate(statusUpdatePeriodSeconds);
             return;
         }
 
-        int effectiveStatusUpdatePeriodSeconds = statusUpdatePeriodSeconds;
+        int effectiveStatusUpdatePeriodSeconds = getSteadyStatusUpdatePeriodSeconds();
         try {
             statusUpdateLock.lock();
             logger.info ("  + Got lock - proceeding ...");
@@ -260,7 +398,9 @@ public class ManagementService implements ResolutionLogger, RuntimeSettingsOwner
                 runtimeConfiguredNodes = zookeeperService.getConfiguredNodes();
             }
 
-            Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getAllNodeStatus();
+            GlusterRemoteManager.NodeStatusCollection statusCollection = glusterRemoteManager.collectAllNodeStatus();
+            // the stale status of timed out nodes is only used to build the status, solvers fetch their own
+            Map<Node, NodeStatus> nodesStatus = statusCollection.getDisplayedNodesStatus();
 
             // 1. Build complete set of nodes and volumes
             Set<Node> allNodes = getRuntimeNodes(nodesStatus);
@@ -270,11 +410,31 @@ public class ManagementService implements ResolutionLogger, RuntimeSettingsOwner
             // -- problem detection phase
             SystemStatus newStatus = getSystemStatus(InetAddress.getLocalHost().toString(), nodesStatus, allNodes, allVolumes);
 
+            // 2. Flag nodes that didn't answer in time
+            for (Node node : statusCollection.getTimedOutNodes()) {
+                if (allNodes.contains(node)) {
+                    newStatus.flagNodeTimedOut(node);
+                    notifyInconsistency(" - node " + node + " didn't answer before the status collection deadline");
+                }
+            }
+            for (Node node : statusCollection.getStaleNodes()) {
+                if (allNodes.contains(node)) {
+                    newStatus.flagNodeStale(node);
+                    notifyInconsistency(" - using last good status of node " + node);
+                }
+            }
+            for (Map.Entry<Node, JSONObject> circuitEntry : glusterRemoteManager.getCircuitBreaker().getStatus().entrySet()) {
+                if (allNodes.contains(circuitEntry.getKey())) {
+                    newStatus.setNodeCircuitBreaker(circuitEntry.getKey(), circuitEntry.getValue());
+                }
+            }
+
             // 3. Detection connection graph partitioning
-            GraphPartitionDetector.detectGraphPartitioning (problemManager, allNodes, newStatus, nodesStatus);
+            PeerAdjacencyMatrix peerMatrix = GraphPartitionDetector.getPeerMatrix(allNodes, nodesStatus);
+            GraphPartitionDetector.detectGraphPartitioning (problemManager, allNodes, newStatus, nodesStatus, peerMatrix);
 
             // 4. Detect peer connection inconsistencies
-            detectConnectionInconsistencies (problemManager, allNodes, nodesStatus, newStatus);
+            detectConnectionInconsistencies (problemManager, allNodes, peerMatrix, newStatus);
 
             // -- END OF problem detection phase
 
@@ -307,9 +467,7 @@ public class ManagementService implements ResolutionLogger, RuntimeSettingsOwner
         } finally {
             statusUpdateLock.unlock();
             // reschedule
-            if (statusRefreshScheduler != null) {
-                statusRefreshScheduler.schedule(this::updateSystemStatus, effectiveStatusUpdatePeriodSeconds, TimeUnit.SECONDS);
-            }
+            scheduleStatusUpdate(effectiveStatusUpdatePeriodSeconds);
         }
     }
 
@@ -326,64 +484,30 @@ public class ManagementService implements ResolutionLogger, RuntimeSettingsOwner
         return newStatus;
     }
 
-    private void detectConnectionInconsistencies(ProblemManager problemManager, Set<Node> allNodes, Map<Node, NodeStatus> nodesStatus, SystemStatus newStatus) {
+    private void detectConnectionInconsistencies(ProblemManager problemManager, Set<Node> allNodes, PeerAdjacencyMatrix peerMatrix, SystemStatus newStatus) {
 
-        try {
-            // 1. Build all nodes neighbours
-            Map<Node, Set<Node>> nodesPeeers = new HashMap<>();
-            for (Node node : allNodes) {
+        // Find inconsistencies, i.e. other nodes having node as peer while node doesn't have them
+        // (allNodes come first in the matrix, in their iteration order)
+        for (int node = 0; node < allNodes.size(); node++) {
+            if (peerMatrix.isUp(node)) { // don't act on node down
 
-                NodeStatus nodeStatus = nodesStatus.get(node);
-                if (nodeStatus != null) { // don't act on node down
-                    nodesPeeers.put (node, nodeStatus.getAllPeers());
-                }
-            }
+                // individually consistent nodes are themselves in all their peer peer list
+                boolean consistent = peerMatrix.isIndividuallyConsistent(node);
 
-            // find individually consistent node, i.e. nodes that are themselves in all their peer peer list
-            Set<Node> individuallyConsistentNodes = new HashSet<>();
-            for (Node node : allNodes) {
-                boolean consistent = true;
-                Set<Node> nodePeers = nodesPeeers.get(node);
-                if (nodePeers != null) {
-                    for (Node other : nodePeers) {
-                        Set<Node> otherPeers = nodesPeeers.get(other);
-                        if (otherPeers == null || !otherPeers.contains(node)) {
-                            consistent = false;
+                for (int other = peerMatrix.nextAsymmetricPeer(node, 0);
+                     other >= 0;
+                     other = peerMatrix.nextAsymmetricPeer(node, other + 1)) {
+                    if (consistent) {
+                        if (flagNodeCorrupted(problemManager, newStatus, peerMatrix.getNode(other))) {
                             break;
                         }
-                    }
-                }
-                if (consistent) {
-                    individuallyConsistentNodes.add(node);
-                }
-            }
-
-            // 3. Find inconsistencies
-            for (Node node : allNodes) {
-                Set<Node> nodePeers = nodesPeeers.get(node);
-                if (nodePeers != null) {
-                    for (Node other : allNodes) {
-                        Set<Node> otherPeers = nodesPeeers.get(other);
-                        if (otherPeers != null) {
-
-                            if (otherPeers.contains(node) && !nodePeers.contains(other)) {
-                                if (individuallyConsistentNodes.contains(node)) {
-                                    if (flagNodeCorrupted(problemManager, newStatus, other)) {
-                                        break;
-                                    }
-                                } else {
-                                    if (flagNodeInconsistent(problemManager, newStatus, node, other)) {
-                                        break;
-                                    }
-                                }
-                            }
+                    } else {
+                        if (flagNodeInconsistent(problemManager, newStatus, peerMatrix.getNode(node), peerMatrix.getNode(other))) {
+                            break;
                         }
                     }
                 }
             }
-
-        } catch (NodeStatusException e) {
-            logger.error (e, e);
         }
     }
 
@@ -413,195 +537,102 @@ public class ManagementService implements ResolutionLogger, RuntimeSettingsOwner
                                    Set<Node> allNodes, Set<Volume> allVolumes, SystemStatus newStatus)
             throws NodeStatusException {
 
-        int targetNbrBricks = getTargetNumberOfBricks();
-        int targetNbrReplicas = getTargetNumberOfReplicas();
-        int targetNbrShards = targetNbrBricks / targetNbrReplicas;
-
-        for (Volume volume : allVolumes.stream().sorted().collect(Collectors.toList())) {
-            SystemVolumeInformation systemVolumeInfo = new SystemVolumeInformation();
-            systemVolumeInfo.setVolume(volume);
-
-            Set<String> errors = new HashSet<>();
-
-            // get volume information from all nodes
-            Map<String, String> options = new HashMap<>();
-
-            Map<BrickId, SystemBrickInformation> bricksInfo = new HashMap<>();
-
-            for (Node node : allNodes) {
-
-                NodeStatus nodeStatus = nodesStatus.get(node);
-                if (nodeStatus != null) {
-
-                    NodeVolumeInformation nodeVolumeInfo = nodeStatus.getVolumeInformation(volume);
-
-                    String type = nodeVolumeInfo != null ? nodeVolumeInfo.getType() : null;
-                    String owner = nodeVolumeInfo != null ? nodeVolumeInfo.getOwner() : null;
-                    String volStatus = nodeVolumeInfo != null ? nodeVolumeInfo.getStatus() : null;
-                    String effNbShards = nodeVolumeInfo != null ? nodeVolumeInfo.getNbShards() : null;
-                    String effNbReplicas = nodeVolumeInfo != null ? nodeVolumeInfo.getNbReplicas() : null;
-                    String effNbArbiters = nodeVolumeInfo != null ? nodeVolumeInfo.getNbArbiters() : null;
-                    String effNbBricks = nodeVolumeInfo != null ? nodeVolumeInfo.getNbBricks() : null;
-
-                    String nbReplicas = StringUtils.isBlank(effNbReplicas) ? null : (StringUtils.isNotBlank(effNbArbiters) ?
-                            "(" + effNbReplicas + " + " + effNbArbiters + ") / " + targetNbrReplicas :
-                            effNbReplicas + " / " + targetNbrReplicas);
-
-                    String nbShards = StringUtils.isBlank(effNbShards) ? null : (effNbShards + " / " + targetNbrShards);
-                    String nbBricks = StringUtils.isBlank(effNbBricks) ? null : (effNbBricks + " / " + targetNbrBricks);
-
-                    setInVolumeStatus(systemVolumeInfo, "type", type, systemVolumeInfo.getType(), true, errors, "TYPES");
+        VolumeStatusAggregator aggregator = createVolumeStatusAggregator();
 
-                    setInVolumeStatus(systemVolumeInfo, "owner", owner, systemVolumeInfo.getOwner(), true, errors, "OWNER");
+        for (VolumeStatusAggregator.VolumeAggregate aggregate : aggregator.aggregate(nodesStatus, allNodes, allVolumes, newStatus)) {
 
-                    setInVolumeStatus(systemVolumeInfo, "nb_shards", nbShards, systemVolumeInfo.getNbShards(), false, errors, "NB. SHARDS");
+            aggregate.getInconsistencies().forEach(this::notifyInconsistency);
 
-                    setInVolumeStatus(systemVolumeInfo, "nb_replicas", nbReplicas, systemVolumeInfo.getNbReplicas(), false, errors, "NB. REPL.");
+            aggregate.getProblems().forEach(problemManager::addProblem);
 
-                    setInVolumeStatus(systemVolumeInfo, "nb_bricks", nbBricks, systemVolumeInfo.getNbBricks(), false, errors, "NB. BRICKS");
-
-                    // volume options management
-                    Map<String, String> nodeOptions = nodeStatus.getReconfiguredOptions(volume);
-                    for (String optionKey : nodeOptions.keySet()) {
-                        String nodeOptionValue = nodeOptions.get(optionKey);
-
-                        String prevValue = options.get(optionKey);
-                        if (StringUtils.isBlank(prevValue)) {
-                            options.put(optionKey, nodeOptionValue);
-                        } else if (!prevValue.equals(nodeOptionValue)) {
-                            errors.add("DIFB. OPTIONS");
-                            notifyInconsistency(" - got option value " + nodeOptionValue + " while previous node had value " + prevValue);
-                        }
-                    }
-
-                    // volume brick management
-                    Map<BrickId, NodeBrickInformation> nodeBricksInfo = nodeStatus.getVolumeBricksInformation(volume);
-                    List<BrickId> brickIdList = new ArrayList<>(nodeBricksInfo.keySet());
-                    brickIdList.sort(new BrickIdNumberComparator (nodeBricksInfo));
-
-                    for (BrickId brickId : brickIdList) {
-
-                        NodeBrickInformation nodeBrickInfo = nodeBricksInfo.get(brickId);
-
-                        SystemBrickInformation brickInfo = bricksInfo.computeIfAbsent(brickId, (newId) -> new SystemBrickInformation());
-
-                        setInBrickInfo(brickInfo, "id", brickId.toString(), brickInfo.getId(), errors, "ID");
-
-                        Integer effNumberInt = nodeBrickInfo != null ? nodeBrickInfo.getNumber() : null;
-                        String effNumber = "?";
-                        if (effNumberInt != null) {
-                            effNumber = effNumberInt.toString();
-                        }
-                        setInBrickInfo(brickInfo, "number", effNumber, brickInfo.getNumberOverride(), errors, "NBR");
-
-                        setInBrickInfo(brickInfo, "node", brickId.getNode(), brickInfo.getNode(), errors, "NODE");
-
-                        setInBrickInfo(brickInfo, "path", brickId.getPath(), brickInfo.getPath(), errors, "PATH");
-
-                        if (StringUtils.isNotBlank(volStatus) && volStatus.equals(GlusterVolumeStatusResult.VOL_NOT_STARTED_FLAG)) { // this is set global, no point in continuing
-                            errors = new HashSet<>();
-                            errors.add("NOT STARTED ");
-                            problemManager.addProblem (new VolumeNotStarted(new Date(), volume));
-                            continue;
-                        }
+            newStatus.addVolumeInfo(aggregate.getVolumeInfo());
+        }
+    }
 
-                        if (nodeBrickInfo != null && (StringUtils.isBlank(volStatus) || !volStatus.contains("TEMP"))) {
+    private VolumeStatusAggregator createVolumeStatusAggregator() {
+        return new VolumeStatusAggregator(
+                getTargetNumberOfBricks(), getTargetNumberOfReplicas(),
+                getVolumesPerformanceOff(), getPerformanceOffOptions(),
+                parallelVolumeAggregation);
+    }
 
-                            String effStatus = nodeBrickInfo.getStatus();
-                            if (effStatus != null && effStatus.equals("OFFLINE")) {
-                                errors.add ("BRICK OFFLINE");
-                                problemManager.addProblem (new BrickOffline(new Date(), volume, brickId));
-                            }
+    /**
+     * Refresh the status of a single volume right after an action on it, without waiting for the next status update.
+     * <br>
+     * Only the nodes running bricks of the volume - or any node up when it has none yet - are queried, since volume
+     * information and volume status are reported cluster-wide by every node. The volume is aggregated from these
+     * nodes alone and merged, along with their node entries, into a copy of the current system status which then
+     * replaces it, readers of the previous one being unaffected. Problems are left to the next status update.
+     */
+    public void refreshVolumeStatus(Volume volume) throws ManagementException {
+        SystemStatus current = lastStatus.get();
+        if (current == null) {
+            return; // the next status update builds it all
+        }
 
-                            setInBrickInfo(brickInfo, "status", effStatus, brickInfo.getStatus(), errors, "STATUS");
+        Set<Node> volumeNodes = current.getNodeList().stream()
+                .filter(node -> current.hasBricksOnNode(volume, node))
+                .collect(Collectors.toCollection(TreeSet::new));
+        if (volumeNodes.isEmpty()) {
+            current.getNodeList().stream()
+                    .filter(node -> "OK".equals(current.getNodeStatus(node)))
+                    .findFirst()
+                    .ifPresent(volumeNodes::add);
+        }
 
-                            setInBrickInfo(brickInfo, "device", nodeBrickInfo.getDevice(), brickInfo.getDevice(), errors, "DEV");
+        try {
+            Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getRefreshedNodeStatus(volumeNodes);
 
-                            brickInfo.set("free", nodeBrickInfo.getFree());
+            SystemStatus newStatus = current.copy();
+            refreshNodeInfo(nodesStatus, volumeNodes, newStatus);
 
-                            brickInfo.set("tot", nodeBrickInfo.getTotal());
-                        }
-                    }
-                }
+            for (VolumeStatusAggregator.VolumeAggregate aggregate :
+                    createVolumeStatusAggregator().aggregate(nodesStatus, volumeNodes, Collections.singleton(volume), newStatus)) {
+                newStatus.replaceVolumeInfo(aggregate.getVolumeInfo());
             }
 
-            // Post status building consistency checks
-
-            // If not type was found, the volume is likely not configured at all
-            if (StringUtils.isBlank(systemVolumeInfo.getType())) {
-                errors.add("NO VOLUME");
-                problemManager.addProblem (new NoVolume(new Date(), volume));
-
-            } else {
-
-                if (bricksInfo.size() < targetNbrBricks) {
-                    errors.add("MISSING " + (targetNbrBricks - bricksInfo.size()) + " BRICKS");
-                    problemManager.addProblem (new MissingBrick(new Date(), volume, targetNbrBricks, bricksInfo.size()));
-                }
+            // a full status update that completed in the meantime is more recent
+            lastStatus.compareAndSet(current, newStatus);
 
-                // check options matching performance disablement
-                if (getVolumesPerformanceOff().contains(volume)) {
-                    for (String optionToTurnOff : getPerformanceOffOptions()) {
-
-                        String optionValue = options.get(optionToTurnOff.replace(".", "__"));
-                        if (StringUtils.isBlank(optionValue) || !optionValue.trim().equals("off")) {
-
-                            problemManager.addProblem (new WrongOption(new Date(), volume, optionToTurnOff, optionValue, "off"));
-                            errors.add(volume + " WRONG OPTION " + optionToTurnOff + "/" + optionValue);
-                        }
-                    }
-                }
-            }
-
-            // Check if a brick could not be built at all
-            for (BrickId brickId: bricksInfo.keySet()) {
-                SystemBrickInformation brickInfo = bricksInfo.get(brickId);
-                String status = brickInfo.getStatus();
-                if (StringUtils.isBlank(status)) {
-                    Node node = brickInfo.getNode();
-                    if (node != null) {
-                        // find nodeInfo
-                        String nodeStatus = newStatus.getNodeStatus(node);
-                        if (StringUtils.isBlank(nodeStatus) || nodeStatus.equals("KO")) {
-                            errors.add(node + " DOWN");
-                            problemManager.addProblem (new NodeDown(new Date(), volume, node));
-                            problemManager.addProblem (new NodeDownRemoval(new Date(), node));
-                        }
-                    }
-                }
-            }
+        } catch (GlusterRemoteException | NodeStatusException e) {
+            logger.error (e, e);
+            throw new ManagementException(e);
+        }
+    }
 
-            systemVolumeInfo.setStatus(errors.size() == 0 ? "OK" : String.join(" / ", errors));
+    /**
+     * Refresh the entry of a single node right after an action on it, without waiting for the next status update.
+     * Only that node is queried and its entry is merged into a copy of the current system status which then replaces
+     * it, as in {@link #refreshVolumeStatus(Volume)}.
+     */
+    public void refreshNodeStatus(Node node) throws ManagementException {
+        SystemStatus current = lastStatus.get();
+        if (current == null) {
+            return; // the next status update builds it all
+        }
 
-            systemVolumeInfo.setBricks(bricksInfo);
+        try {
+            Set<Node> nodes = Collections.singleton(node);
+            Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getRefreshedNodeStatus(nodes);
 
-            systemVolumeInfo.setOptions(options);
+            SystemStatus newStatus = current.copy();
+            refreshNodeInfo(nodesStatus, nodes, newStatus);
 
-            newStatus.addVolumeInfo(systemVolumeInfo);
-        }
-    }
+            lastStatus.compareAndSet(current, newStatus);
 
-    private void setInBrickInfo(SystemBrickInformation brickInfo, String attribute, Object value, Object previous, Set<String> errors, String errorTag) {
-        if (previous == null || StringUtils.isBlank(""+previous)) {
-            brickInfo.set(attribute, value);
-        } else if (!previous.equals(value)) {
-            errors.add("DIFB. " + errorTag);
-            notifyInconsistency(" - brickId " + brickInfo.getId() + " got " + value + " while value for previous node was " + previous);
+        } catch (GlusterRemoteException | NodeStatusException e) {
+            logger.error (e, e);
+            throw new ManagementException(e);
         }
     }
 
-    private void setInVolumeStatus(SystemVolumeInformation systemVolumeInfo, String attribute, String value, String previous, boolean append, Set<String> errors, String errorTag) {
-        if (StringUtils.isNotBlank(value)) {
-            if (StringUtils.isBlank(previous)) {
-                systemVolumeInfo.set(attribute, value);
-            } else if (!previous.equals(value)) {
-                errors.add("DIF " + errorTag);
-                if (append) {
-                    systemVolumeInfo.set(attribute, previous + "," + value);
-                } else {
-                    notifyInconsistency(" - for volume " + systemVolumeInfo.getVolume()
-                            + " - got " + attribute + "  " + value + " while value for previous node was " + previous);
-                }
+    private void refreshNodeInfo(Map<Node, NodeStatus> nodesStatus, Set<Node> nodes, SystemStatus systemStatus) throws NodeStatusException {
+        for (Node node : nodes) {
+            NodeStatus nodeStatus = nodesStatus.get(node);
+            if (nodeStatus != null && !nodeStatus.isPoolStatusError()) {
+                systemStatus.replaceNodeInfo(node, "OK", nodeStatus.getNodeInformation(node));
+            } else {
+                systemStatus.replaceNodeInfo(node, "KO", null);
             }
         }
     }
@@ -865,33 +896,59 @@ public class ManagementService implements ResolutionLogger, RuntimeSettingsOwner
         return env.getProperty(property);
     }
 
+    /*
+     * Created on first use since the storage path is only known once the configuration has been injected.
+     */
+    RuntimeSettingsStore getRuntimeSettingsStore() {
+        RuntimeSettingsStore store = runtimeSettingsStore;
+        if (store == null) {
+            synchronized (this) {
+                store = runtimeSettingsStore;
+                if (store == null) {
+                    store = new RuntimeSettingsStore(createRuntimeSettingsPersistence(), runtimeSettingsWriteDelayMillis);
+                    runtimeSettingsStore = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    private RuntimeSettingsPersistence createRuntimeSettingsPersistence() {
+        File file = new File(configStoragePath + RUNTIME_CONFIG_JSON_PATH);
+        switch (runtimeSettingsPersistenceMode) {
+            case JOURNAL:
+                return new JournaledFilePersistence(file, runtimeSettingsCompactionThreshold);
+            case ZOOKEEPER:
+                if (zookeeperService.isZookeeperUsed()) {
+                    return new ZookeeperSettingsPersistence(zookeeperService, new SnapshotFilePersistence(file));
+                }
+                logger.warn ("Zookeeper is not used. Runtime settings persisted locally only.");
+                return new SnapshotFilePersistence(file);
+            case SNAPSHOT:
+            default:
+                return new SnapshotFilePersistence(file);
+        }
+    }
+
+    private synchronized void closeRuntimeSettingsStore() {
+        if (runtimeSettingsStore != null) {
+            runtimeSettingsStore.close();
+            runtimeSettingsStore = null;
+        }
+    }
+
     public void saveRuntimeSetting(JsonWrapper settings) throws ManagementException {
+        // never in the middle of an atomic update
         runtimeConfigLock.lock();
         try {
-            FileUtils.writeFile(new File(configStoragePath + RUNTIME_CONFIG_JSON_PATH), settings.getFormattedValue());
-        } catch (FileException e) {
-            logger.error (e, e);
-            throw new ManagementException(e);
+            getRuntimeSettingsStore().write(settings);
         } finally {
             runtimeConfigLock.unlock();
         }
     }
 
     public JsonWrapper loadRuntimeSettings() throws ManagementException {
-        runtimeConfigLock.lock();
-        try {
-            File statusFile = new File(configStoragePath + RUNTIME_CONFIG_JSON_PATH);
-            if (!statusFile.exists()) {
-                return new JsonWrapper("{}");
-            }
-
-            return new JsonWrapper(new String (FileUtils.read(statusFile)));
-        } catch (FileException e) {
-            logger.error (e, e);
-            throw new ManagementException(e);
-        } finally {
-            runtimeConfigLock.unlock();
-        }
+        return getRuntimeSettingsStore().read();
     }
 
     @Override
@@ -0,0 +1,204 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+package ch.niceideas.eskimo.egmi.management;
+
+import ch.niceideas.eskimo.egmi.model.Node;
+import ch.niceideas.eskimo.egmi.model.NodeStatus;
+import ch.niceideas.eskimo.egmi.model.NodeStatusException;
+
+import java.util.*;
+
+/**
+ * Peer graph of a status snapshot as a bitset adjacency matrix.
+ * <br>
+ * Every node gets an ordinal: the given nodes first, in their iteration order, then the peers they report that are
+ * not part of them. Row <code>i</code> of the matrix holds the peers reported by node <code>i</code>, its transposed
+ * row the nodes reporting node <code>i</code> as peer. Only nodes having answered with a status have a row, they are
+ * flagged up.
+ * <br>
+ * Rows are stored as <code>long[]</code> words so that peering consistency is checked a word - 64 nodes - at a time.
+ * Instances are immutable. See {@link GraphPartitionDetector#getPeerMatrix(Set, Map)} for the cached instances shared
+ * by a status snapshot.
+ */
+public final class PeerAdjacencyMatrix {
+
+    private final List<Node> nodes;
+    private final Map<Node, Integer> ordinals;
+    private final int words;
+    private final long[][] rows;
+    private final long[][] columns;
+    private final long[] up;
+
+    private PeerAdjacencyMatrix(List<Node> nodes, Map<Node, Integer> ordinals) {
+        this.nodes = nodes;
+        this.ordinals = ordinals;
+        this.words = (nodes.size() + 63) >>> 6;
+        this.rows = new long[nodes.size()][words];
+        this.columns = new long[nodes.size()][words];
+        this.up = new long[words];
+    }
+
+    public static PeerAdjacencyMatrix build(Set<Node> allNodes, Map<Node, NodeStatus> nodesStatus) throws NodeStatusException {
+
+        List<Node> nodes = new ArrayList<>(allNodes);
+        Map<Node, Integer> ordinals = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            ordinals.put(nodes.get(i), i);
+        }
+
+        // peers first, so that the ordinals of peers out of allNodes are known before sizing the matrix
+        Map<Node, Set<Node>> nodesPeers = new HashMap<>();
+        for (Node node : allNodes) {
+            NodeStatus nodeStatus = nodesStatus.get(node);
+            if (nodeStatus != null) { // don't act on node down
+                Set<Node> peers = nodeStatus.getAllPeers();
+                nodesPeers.put(node, peers);
+                for (Node peer : peers) {
+                    if (!ordinals.containsKey(peer)) {
+                        ordinals.put(peer, nodes.size());
+                        nodes.add(peer);
+                    }
+                }
+            }
+        }
+
+        PeerAdjacencyMatrix matrix = new PeerAdjacencyMatrix(nodes, ordinals);
+        for (Map.Entry<Node, Set<Node>> entry : nodesPeers.entrySet()) {
+            int node = ordinals.get(entry.getKey());
+            set(matrix.up, node);
+            for (Node peer : entry.getValue()) {
+                int other = ordinals.get(peer);
+                set(matrix.rows[node], other);
+                set(matrix.columns[other], node);
+            }
+        }
+        return matrix;
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static boolean get(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public Node getNode(int ordinal) {
+        return nodes.get(ordinal);
+    }
+
+    /**
+     * @return the ordinal of the given node, or -1 if it is neither one of the nodes nor a peer of any of them
+     */
+    public int ordinalOf(Node node) {
+        Integer ordinal = ordinals.get(node);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    public boolean isUp(int node) {
+        return get(up, node);
+    }
+
+    public boolean isPeer(int node, int other) {
+        return get(rows[node], other);
+    }
+
+    /**
+     * @return the ordinals of the peers reported by the given node, in increasing order
+     */
+    public int[] getPeers(int node) {
+        long[] row = rows[node];
+        int count = 0;
+        for (long word : row) {
+            count += Long.bitCount(word);
+        }
+        int[] peers = new int[count];
+        int position = 0;
+        for (int word = 0; word < words; word++) {
+            long bits = row[word];
+            while (bits != 0) {
+                peers[position++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        return peers;
+    }
+
+    /**
+     * A node is individually consistent when it is up and it is itself in the peer list of every one of its peers,
+     * which implies these are all up.
+     */
+    public boolean isIndividuallyConsistent(int node) {
+        if (!isUp(node)) {
+            return false;
+        }
+        long[] row = rows[node];
+        long[] column = columns[node];
+        for (int word = 0; word < words; word++) {
+            if ((row[word] & ~column[word]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find the next node <code>other</code> - from the given ordinal on - that reports the given node as a peer while
+     * the given node doesn't report it back.
+     *
+     * @return the ordinal of that node, or -1 if there is none
+     */
+    public int nextAsymmetricPeer(int node, int fromOrdinal) {
+        if (fromOrdinal >= nodes.size()) {
+            return -1;
+        }
+        long[] row = rows[node];
+        long[] column = columns[node];
+        int word = fromOrdinal >>> 6;
+        long bits = column[word] & ~row[word] & (-1L << fromOrdinal);
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word >= words) {
+                return -1;
+            }
+            bits = column[word] & ~row[word];
+        }
+    }
+}
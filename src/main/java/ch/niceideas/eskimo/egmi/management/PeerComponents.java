@@ -0,0 +1,210 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+package ch.niceideas.eskimo.egmi.management;
+
+import ch.niceideas.eskimo.egmi.model.Node;
+
+import java.util.*;
+
+/**
+ * Labels every node of a peer connection graph with its strongly connected component and the set of nodes it can
+ * reach, in a single Tarjan pass over the graph.
+ * <br>
+ * Peering is not necessarily symmetric - every node reports its own view of the pool - hence the graph is directed.
+ * All nodes of a same strongly connected component reach exactly the same set of nodes, which is the component itself
+ * plus everything reachable from its successors in the condensed graph. Tarjan emits components in reverse
+ * topological order, so that the reachability of every successor is known by the time a component is completed.
+ * <br>
+ * Instances are immutable. See {@link GraphPartitionDetector#getPeerComponents(Set, Map)} for the cached instances
+ * shared by a status snapshot, built from its {@link PeerAdjacencyMatrix}.
+ */
+public final class PeerComponents {
+
+    private final List<Node> nodes;
+    private final Map<Node, Integer> ordinals;
+    private final int[] componentOf;
+    private final List<BitSet> componentReach;
+
+    public PeerComponents(Map<Node, GraphPartitionDetector.GraphNode> graph) {
+
+        nodes = new ArrayList<>(graph.keySet());
+        ordinals = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            ordinals.put(nodes.get(i), i);
+        }
+
+        int[][] adjacency = new int[nodes.size()][];
+        for (int i = 0; i < nodes.size(); i++) {
+            Collection<GraphPartitionDetector.GraphNode> peers = graph.get(nodes.get(i)).getPeers();
+            adjacency[i] = peers.stream()
+                    .map(GraphPartitionDetector.GraphNode::getHost)
+                    .mapToInt(ordinals::get)
+                    .toArray();
+        }
+
+        componentOf = new int[nodes.size()];
+        componentReach = new ArrayList<>();
+        runTarjan(adjacency);
+    }
+
+    public PeerComponents(PeerAdjacencyMatrix matrix) {
+
+        nodes = new ArrayList<>(matrix.size());
+        ordinals = new HashMap<>();
+        for (int i = 0; i < matrix.size(); i++) {
+            nodes.add(matrix.getNode(i));
+            ordinals.put(matrix.getNode(i), i);
+        }
+
+        int[][] adjacency = new int[nodes.size()][];
+        for (int i = 0; i < nodes.size(); i++) {
+            adjacency[i] = Arrays.stream(matrix.getPeers(i))
+                    .filter(peer -> !nodes.get(peer).matches("localhost"))
+                    .toArray();
+        }
+
+        componentOf = new int[nodes.size()];
+        componentReach = new ArrayList<>();
+        runTarjan(adjacency);
+    }
+
+    private void runTarjan(int[][] adjacency) {
+        int size = adjacency.length;
+        int[] index = new int[size];
+        int[] lowLink = new int[size];
+        int[] nextEdge = new int[size];
+        boolean[] onStack = new boolean[size];
+        Arrays.fill(index, -1);
+
+        int[] sccStack = new int[size];
+        int sccTop = 0;
+        int[] callStack = new int[size];
+        int counter = 0;
+
+        for (int root = 0; root < size; root++) {
+            if (index[root] != -1) {
+                continue;
+            }
+            int callTop = 0;
+            callStack[callTop++] = root;
+            index[root] = lowLink[root] = counter++;
+            sccStack[sccTop++] = root;
+            onStack[root] = true;
+
+            while (callTop > 0) {
+                int current = callStack[callTop - 1];
+                if (nextEdge[current] < adjacency[current].length) {
+                    int peer = adjacency[current][nextEdge[current]++];
+                    if (index[peer] == -1) {
+                        index[peer] = lowLink[peer] = counter++;
+                        sccStack[sccTop++] = peer;
+                        onStack[peer] = true;
+                        callStack[callTop++] = peer;
+                    } else if (onStack[peer]) {
+                        lowLink[current] = Math.min(lowLink[current], index[peer]);
+                    }
+                    continue;
+                }
+
+                callTop--;
+                if (callTop > 0) {
+                    int parent = callStack[callTop - 1];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[current]);
+                }
+
+                if (lowLink[current] == index[current]) {
+                    // current is the root of a component: pop it and compute its reachability
+                    int component = componentReach.size();
+                    BitSet reach = new BitSet(size);
+                    int bottom = sccTop;
+                    do {
+                        bottom--;
+                        onStack[sccStack[bottom]] = false;
+                        componentOf[sccStack[bottom]] = component;
+                        reach.set(sccStack[bottom]);
+                    } while (sccStack[bottom] != current);
+
+                    // every successor outside of the component belongs to a component already completed
+                    for (int i = bottom; i < sccTop; i++) {
+                        for (int peer : adjacency[sccStack[i]]) {
+                            if (componentOf[peer] != component) {
+                                reach.or(componentReach.get(componentOf[peer]));
+                            }
+                        }
+                    }
+                    sccTop = bottom;
+                    componentReach.add(reach);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of strongly connected components in the graph
+     */
+    public int getComponentCount() {
+        return componentReach.size();
+    }
+
+    /**
+     * @return the label of the strongly connected component of the given node, or -1 if the node is not in the graph
+     */
+    public int getComponent(Node node) {
+        Integer ordinal = ordinals.get(node);
+        return ordinal == null ? -1 : componentOf[ordinal];
+    }
+
+    /**
+     * @return the number of nodes reachable from the given node, including itself, or 0 if the node is not in the graph
+     */
+    public int getReachableCount(Node node) {
+        Integer ordinal = ordinals.get(node);
+        return ordinal == null ? 0 : componentReach.get(componentOf[ordinal]).cardinality();
+    }
+
+    /**
+     * @return a new mutable set with all nodes reachable from the given node, including itself
+     */
+    public Set<Node> getReachableNodes(Node node) {
+        Set<Node> retSet = new HashSet<>();
+        Integer ordinal = ordinals.get(node);
+        if (ordinal != null) {
+            BitSet reach = componentReach.get(componentOf[ordinal]);
+            for (int i = reach.nextSetBit(0); i >= 0; i = reach.nextSetBit(i + 1)) {
+                retSet.add(nodes.get(i));
+            }
+        }
+        return retSet;
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+package ch.niceideas.eskimo.egmi.management;
+
+import ch.niceideas.common.json.JsonWrapper;
+import lombok.Data;
+import org.apache.log4j.Logger;
+import org.json.JSONException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runtime settings kept in memory and written behind to their JSON file.
+ * <br>
+ * The settings are loaded once, on first access. Every change makes a new immutable, versioned snapshot that reads get
+ * a copy of without taking any lock. Changes are persisted writeDelayMillis after the first one, so that a burst of
+ * changes results in a single write of the last snapshot. A write delay of 0 writes every change before returning.
+ * A failed write is retried with an exponential backoff bounded to a minute, as long as the failure lasts.
+ * <br>
+ * How changes are persisted is up to the {@link RuntimeSettingsPersistence}, by default the whole file written to a
+ * temporary file, synced to disk and atomically renamed, so that a crash never leaves a truncated file behind. When the
+ * persistence is shared with other instances, the settings they write replace the current ones, unless there are
+ * local changes not persisted yet, which the persistence then merges with them.
+ */
+public class RuntimeSettingsStore implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(RuntimeSettingsStore.class);
+
+    private static final long MAX_RETRY_DELAY_MILLIS = 60000;
+    private static final long FAILURE_LOG_INTERVAL_MILLIS = 300000;
+
+    private final RuntimeSettingsPersistence persistence;
+    private final long writeDelayMillis;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Object persistMonitor = new Object();
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+
+    private volatile Snapshot persisted = null;
+    private ScheduledExecutorService writer = null;
+    private ScheduledFuture<?> pendingWrite = null;
+
+    // only used by the writer thread
+    private int failedWrites = 0;
+    private long lastFailureLogTime = 0;
+
+    public RuntimeSettingsStore(File file, long writeDelayMillis) {
+        this (new SnapshotFilePersistence(file), writeDelayMillis);
+    }
+
+    public RuntimeSettingsStore(RuntimeSettingsPersistence persistence, long writeDelayMillis) {
+        this.persistence = persistence;
+        this.writeDelayMillis = writeDelayMillis;
+        persistence.setChangeListener(this::settingsChanged);
+    }
+
+    /**
+     * @return a copy of the current settings, free to be modified by the caller
+     */
+    public JsonWrapper read() throws ManagementException {
+        return new JsonWrapper(getSnapshot().getJson());
+    }
+
+    /**
+     * @return the version of the current settings, increased by every change
+     */
+    public long getVersion() throws ManagementException {
+        return getSnapshot().getVersion();
+    }
+
+    /**
+     * @return the version of the settings last written to the file
+     */
+    public long getPersistedVersion() {
+        Snapshot snapshot = persisted;
+        return snapshot == null ? 0 : snapshot.getVersion();
+    }
+
+    /**
+     * Replace the settings. Settings equal to the current ones are ignored.
+     */
+    public void write(JsonWrapper settings) throws ManagementException {
+        writeLock.lock();
+        try {
+            Snapshot snapshot = getSnapshot();
+            String json = settings.getJSONObject().toString();
+            if (json.equals(snapshot.getJson())) {
+                return;
+            }
+            current.set(new Snapshot(snapshot.getVersion() + 1, json));
+        } finally {
+            writeLock.unlock();
+        }
+
+        if (writeDelayMillis <= 0) {
+            flush();
+        } else {
+            scheduleWrite();
+        }
+    }
+
+    /**
+     * Apply the updater to the current settings, no other change happening in between.
+     */
+    public void update(ManagementService.SettingsUpdater updater) throws ManagementException {
+        writeLock.lock();
+        try {
+            write(updater.updateSettings(read()));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Write the current settings to the file right away if they haven't been yet.
+     */
+    public void flush() throws ManagementException {
+        try {
+            persistCurrent();
+        } catch (IOException e) {
+            logger.error (e, e);
+            throw new ManagementException(e);
+        }
+    }
+
+    private void persistCurrent() throws IOException {
+        Snapshot snapshot = current.get();
+        if (snapshot == null) {
+            return;
+        }
+        String mergedSettings;
+        synchronized (persistMonitor) {
+            if (snapshot.getVersion() <= persisted.getVersion()) {
+                return;
+            }
+            String persistedSettings = persistence.persist(persisted.getJson(), snapshot.getJson());
+            persisted = snapshot;
+            mergedSettings = persistedSettings.equals(snapshot.getJson()) ? null : persistedSettings;
+        }
+        if (mergedSettings != null) {
+            // merged with the changes of another instance
+            settingsChanged(mergedSettings);
+        }
+    }
+
+    private boolean hasUnpersistedChanges() {
+        Snapshot snapshot = current.get();
+        return snapshot != null && snapshot.getVersion() > persisted.getVersion();
+    }
+
+    @Override
+    public void close() {
+        try {
+            flush();
+        } catch (ManagementException e) {
+            logger.error ("Runtime settings couldn't be written on close. Last changes are lost.");
+        }
+        try {
+            persistence.close();
+        } catch (IOException e) {
+            logger.error (e, e);
+        }
+        synchronized (this) {
+            if (writer != null) {
+                writer.shutdownNow();
+                writer = null;
+            }
+            pendingWrite = null;
+        }
+    }
+
+    /*
+     * Settings written by another instance sharing the persistence.
+     */
+    private void settingsChanged(String settings) {
+        String json;
+        try {
+            json = new JsonWrapper(settings).getJSONObject().toString();
+        } catch (JSONException e) {
+            logger.warn ("Ignoring invalid shared runtime settings : " + e.getMessage());
+            return;
+        }
+        writeLock.lock();
+        try {
+            Snapshot snapshot = current.get();
+            if (snapshot == null) {
+                return; // loaded from the persistence on first access
+            }
+            synchronized (persistMonitor) {
+                if (snapshot.getVersion() > persisted.getVersion() || json.equals(snapshot.getJson())) {
+                    return;
+                }
+                Snapshot changed = new Snapshot(snapshot.getVersion() + 1, json);
+                persisted = changed;
+                current.set(changed);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Snapshot getSnapshot() throws ManagementException {
+        Snapshot snapshot = current.get();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        writeLock.lock();
+        try {
+            snapshot = current.get();
+            if (snapshot == null) {
+                snapshot = new Snapshot(0, load());
+                persisted = snapshot;
+                current.set(snapshot);
+            }
+            return snapshot;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private String load() throws ManagementException {
+        try {
+            String json = persistence.load();
+            return json == null ? "{}" : new JsonWrapper(json).getJSONObject().toString();
+        } catch (IOException e) {
+            logger.error (e, e);
+            throw new ManagementException(e);
+        }
+    }
+
+    private synchronized void scheduleWrite() {
+        if (pendingWrite != null) {
+            return; // checks for changes made meanwhile once done
+        }
+        scheduleWrite(writeDelayMillis);
+    }
+
+    private synchronized void scheduleWrite(long delayMillis) {
+        if (writer == null) {
+            writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "egmi-runtime-settings-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        pendingWrite = writer.schedule(this::writeBehind, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void writeBehind() {
+        long nextDelayMillis = writeDelayMillis;
+        try {
+            persistCurrent();
+            if (failedWrites > 0) {
+                logger.info ("Runtime settings written again after " + failedWrites + " failed attempts.");
+            }
+            failedWrites = 0;
+        } catch (IOException e) {
+            // retry later rather than losing the change
+            failedWrites++;
+            nextDelayMillis = Math.min(
+                    Math.max(writeDelayMillis, MAX_RETRY_DELAY_MILLIS),
+                    writeDelayMillis << Math.min(failedWrites, 16));
+            long now = System.currentTimeMillis();
+            if (failedWrites == 1 || now - lastFailureLogTime >= FAILURE_LOG_INTERVAL_MILLIS) {
+                lastFailureLogTime = now;
+                logger.error ("Runtime settings couldn't be written (" + failedWrites + " attempts). Retrying in "
+                        + nextDelayMillis + " ms : " + e.getMessage());
+            }
+            logger.debug (e, e);
+        }
+        synchronized (this) {
+            pendingWrite = null;
+            // changes made while writing, that the write didn't include, or a failed write
+            if (writer != null && hasUnpersistedChanges()) {
+                scheduleWrite(nextDelayMillis);
+            }
+        }
+    }
+
+    @Data
+    private static class Snapshot {
+        private final long version;
+        private final String json;
+    }
+}
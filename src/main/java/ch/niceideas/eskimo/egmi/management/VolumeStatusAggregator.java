@@ -0,0 +1,321 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+
+package ch.niceideas.eskimo.egmi.management;
+
+import ch.niceideas.common.utils.StringUtils;
+import ch.niceideas.eskimo.egmi.gluster.command.result.GlusterVolumeStatusResult;
+import ch.niceideas.eskimo.egmi.model.*;
+import ch.niceideas.eskimo.egmi.problems.*;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Builds the system status of all volumes from the status reported by every node.
+ * <br>
+ * Node statuses are swept once, each node handing what it reports about a volume - volume information, options and
+ * bricks - to the accumulator of that volume. Accumulators are then folded independently from each other, possibly in
+ * parallel on the common fork/join pool, which only reads the system status being built.
+ * <br>
+ * Problems and inconsistency warnings found while folding are collected and returned along with the volume
+ * information, in volume order, for the caller to apply.
+ */
+@RequiredArgsConstructor
+class VolumeStatusAggregator {
+
+    private final int targetNbrBricks;
+    private final int targetNbrReplicas;
+    private final Set<Volume> volumesPerformanceOff;
+    private final Set<String> performanceOffOptions;
+    private final boolean parallel;
+
+    List<VolumeAggregate> aggregate(Map<Node, NodeStatus> nodesStatus, Set<Node> allNodes, Set<Volume> allVolumes,
+                                    SystemStatus newStatus) throws NodeStatusException {
+
+        Map<Volume, VolumeAccumulator> accumulators = new LinkedHashMap<>();
+        allVolumes.stream().sorted().forEach(volume -> accumulators.put(volume, new VolumeAccumulator(volume)));
+
+        // 1. Single sweep over all node statuses
+        if (!accumulators.isEmpty()) {
+            for (Node node : allNodes) {
+                NodeStatus nodeStatus = nodesStatus.get(node);
+                if (nodeStatus == null) {
+                    continue;
+                }
+                for (Volume volume : nodeStatus.getAllVolumes()) {
+                    VolumeAccumulator accumulator = accumulators.get(volume);
+                    if (accumulator != null) {
+                        accumulator.add(nodeStatus);
+                    }
+                }
+            }
+        }
+
+        // 2. Fold every volume independently
+        Stream<VolumeAccumulator> accumulatorStream = parallel ?
+                accumulators.values().parallelStream() :
+                accumulators.values().stream();
+
+        return accumulatorStream
+                .map(accumulator -> accumulator.fold(newStatus))
+                .collect(Collectors.toList());
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    static class VolumeAggregate {
+        private final SystemVolumeInformation volumeInfo;
+        private final List<Problem> problems;
+        private final List<String> inconsistencies;
+    }
+
+    /**
+     * What a single node reports about a volume, bricks sorted by number.
+     */
+    @RequiredArgsConstructor
+    private static class NodeContribution {
+        private final NodeVolumeInformation volumeInfo;
+        private final Map<String, String> options;
+        private final List<Map.Entry<BrickId, NodeBrickInformation>> bricks;
+    }
+
+    private class VolumeAccumulator {
+
+        private final Volume volume;
+        private final List<NodeContribution> contributions = new ArrayList<>();
+
+        private final List<Problem> problems = new ArrayList<>();
+        private final List<String> inconsistencies = new ArrayList<>();
+
+        private VolumeAccumulator(Volume volume) {
+            this.volume = volume;
+        }
+
+        private void add(NodeStatus nodeStatus) throws NodeStatusException {
+            List<Map.Entry<BrickId, NodeBrickInformation>> bricks =
+                    new ArrayList<>(nodeStatus.getVolumeBricksInformation(volume).entrySet());
+            bricks.sort(Map.Entry.comparingByValue());
+
+            contributions.add(new NodeContribution(
+                    nodeStatus.getVolumeInformation(volume),
+                    nodeStatus.getReconfiguredOptions(volume),
+                    bricks));
+        }
+
+        private VolumeAggregate fold(SystemStatus newStatus) {
+
+            int targetNbrShards = targetNbrBricks / targetNbrReplicas;
+
+            SystemVolumeInformation systemVolumeInfo = new SystemVolumeInformation();
+            systemVolumeInfo.setVolume(volume);
+
+            Set<String> errors = new HashSet<>();
+
+            Map<String, String> options = new HashMap<>();
+
+            Map<BrickId, SystemBrickInformation> bricksInfo = new HashMap<>();
+
+            for (NodeContribution contribution : contributions) {
+
+                NodeVolumeInformation nodeVolumeInfo = contribution.volumeInfo;
+
+                String type = nodeVolumeInfo != null ? nodeVolumeInfo.getType() : null;
+                String owner = nodeVolumeInfo != null ? nodeVolumeInfo.getOwner() : null;
+                String volStatus = nodeVolumeInfo != null ? nodeVolumeInfo.getStatus() : null;
+                String effNbShards = nodeVolumeInfo != null ? nodeVolumeInfo.getNbShards() : null;
+                String effNbReplicas = nodeVolumeInfo != null ? nodeVolumeInfo.getNbReplicas() : null;
+                String effNbArbiters = nodeVolumeInfo != null ? nodeVolumeInfo.getNbArbiters() : null;
+                String effNbBricks = nodeVolumeInfo != null ? nodeVolumeInfo.getNbBricks() : null;
+
+                String nbReplicas = StringUtils.isBlank(effNbReplicas) ? null : (StringUtils.isNotBlank(effNbArbiters) ?
+                        "(" + effNbReplicas + " + " + effNbArbiters + ") / " + targetNbrReplicas :
+                        effNbReplicas + " / " + targetNbrReplicas);
+
+                String nbShards = StringUtils.isBlank(effNbShards) ? null : (effNbShards + " / " + targetNbrShards);
+                String nbBricks = StringUtils.isBlank(effNbBricks) ? null : (effNbBricks + " / " + targetNbrBricks);
+
+                setInVolumeStatus(systemVolumeInfo, "type", type, systemVolumeInfo.getType(), true, errors, "TYPES");
+
+                setInVolumeStatus(systemVolumeInfo, "owner", owner, systemVolumeInfo.getOwner(), true, errors, "OWNER");
+
+                setInVolumeStatus(systemVolumeInfo, "nb_shards", nbShards, systemVolumeInfo.getNbShards(), false, errors, "NB. SHARDS");
+
+                setInVolumeStatus(systemVolumeInfo, "nb_replicas", nbReplicas, systemVolumeInfo.getNbReplicas(), false, errors, "NB. REPL.");
+
+                setInVolumeStatus(systemVolumeInfo, "nb_bricks", nbBricks, systemVolumeInfo.getNbBricks(), false, errors, "NB. BRICKS");
+
+                // volume options management
+                for (Map.Entry<String, String> option : contribution.options.entrySet()) {
+                    String nodeOptionValue = option.getValue();
+
+                    String prevValue = options.get(option.getKey());
+                    if (StringUtils.isBlank(prevValue)) {
+                        options.put(option.getKey(), nodeOptionValue);
+                    } else if (!prevValue.equals(nodeOptionValue)) {
+                        errors.add("DIFB. OPTIONS");
+                        inconsistencies.add(" - got option value " + nodeOptionValue + " while previous node had value " + prevValue);
+                    }
+                }
+
+                // volume brick management
+                for (Map.Entry<BrickId, NodeBrickInformation> brick : contribution.bricks) {
+
+                    BrickId brickId = brick.getKey();
+                    NodeBrickInformation nodeBrickInfo = brick.getValue();
+
+                    SystemBrickInformation brickInfo = bricksInfo.computeIfAbsent(brickId, (newId) -> new SystemBrickInformation());
+
+                    setInBrickInfo(brickInfo, "id", brickId.toString(), brickInfo.getId(), errors, "ID");
+
+                    Integer effNumberInt = nodeBrickInfo != null ? nodeBrickInfo.getNumber() : null;
+                    String effNumber = "?";
+                    if (effNumberInt != null) {
+                        effNumber = effNumberInt.toString();
+                    }
+                    setInBrickInfo(brickInfo, "number", effNumber, brickInfo.getNumberOverride(), errors, "NBR");
+
+                    setInBrickInfo(brickInfo, "node", brickId.getNode(), brickInfo.getNode(), errors, "NODE");
+
+                    setInBrickInfo(brickInfo, "path", brickId.getPath(), brickInfo.getPath(), errors, "PATH");
+
+                    if (StringUtils.isNotBlank(volStatus) && volStatus.equals(GlusterVolumeStatusResult.VOL_NOT_STARTED_FLAG)) { // this is set global, no point in continuing
+                        errors = new HashSet<>();
+                        errors.add("NOT STARTED ");
+                        problems.add (new VolumeNotStarted(new Date(), volume));
+                        continue;
+                    }
+
+                    if (nodeBrickInfo != null && (StringUtils.isBlank(volStatus) || !volStatus.contains("TEMP"))) {
+
+                        String effStatus = nodeBrickInfo.getStatus();
+                        if (effStatus != null && effStatus.equals("OFFLINE")) {
+                            errors.add ("BRICK OFFLINE");
+                            problems.add (new BrickOffline(new Date(), volume, brickId));
+                        }
+
+                        setInBrickInfo(brickInfo, "status", effStatus, brickInfo.getStatus(), errors, "STATUS");
+
+                        setInBrickInfo(brickInfo, "device", nodeBrickInfo.getDevice(), brickInfo.getDevice(), errors, "DEV");
+
+                        brickInfo.set("free", nodeBrickInfo.getFree());
+
+                        brickInfo.set("tot", nodeBrickInfo.getTotal());
+                    }
+                }
+            }
+
+            // Post status building consistency checks
+
+            // If not type was found, the volume is likely not configured at all
+            if (StringUtils.isBlank(systemVolumeInfo.getType())) {
+                errors.add("NO VOLUME");
+                problems.add (new NoVolume(new Date(), volume));
+
+            } else {
+
+                if (bricksInfo.size() < targetNbrBricks) {
+                    errors.add("MISSING " + (targetNbrBricks - bricksInfo.size()) + " BRICKS");
+                    problems.add (new MissingBrick(new Date(), volume, targetNbrBricks, bricksInfo.size()));
+                }
+
+                // check options matching performance disablement
+                if (volumesPerformanceOff.contains(volume)) {
+                    for (String optionToTurnOff : performanceOffOptions) {
+
+                        String optionValue = options.get(optionToTurnOff.replace(".", "__"));
+                        if (StringUtils.isBlank(optionValue) || !optionValue.trim().equals("off")) {
+
+                            problems.add (new WrongOption(new Date(), volume, optionToTurnOff, optionValue, "off"));
+                            errors.add(volume + " WRONG OPTION " + optionToTurnOff + "/" + optionValue);
+                        }
+                    }
+                }
+            }
+
+            // Check if a brick could not be built at all
+            for (SystemBrickInformation brickInfo : bricksInfo.values()) {
+                String status = brickInfo.getStatus();
+                if (StringUtils.isBlank(status)) {
+                    Node node = brickInfo.getNode();
+                    if (node != null) {
+                        // find nodeInfo
+                        String nodeStatus = newStatus.getNodeStatus(node);
+                        if (StringUtils.isBlank(nodeStatus) || nodeStatus.equals("KO")) {
+                            errors.add(node + " DOWN");
+                            problems.add (new NodeDown(new Date(), volume, node));
+                            problems.add (new NodeDownRemoval(new Date(), node));
+                        }
+                    }
+                }
+            }
+
+            systemVolumeInfo.setStatus(errors.size() == 0 ? "OK" : String.join(" / ", errors));
+
+            systemVolumeInfo.setBricks(bricksInfo);
+
+            systemVolumeInfo.setOptions(options);
+
+            return new VolumeAggregate(systemVolumeInfo, problems, inconsistencies);
+        }
+
+        private void setInBrickInfo(SystemBrickInformation brickInfo, String attribute, Object value, Object previous, Set<String> errors, String errorTag) {
+            if (previous == null || StringUtils.isBlank(""+previous)) {
+                brickInfo.set(attribute, value);
+            } else if (!previous.equals(value)) {
+                errors.add("DIFB. " + errorTag);
+                inconsistencies.add(" - brickId " + brickInfo.getId() + " got " + value + " while value for previous node was " + previous);
+            }
+        }
+
+        private void setInVolumeStatus(SystemVolumeInformation systemVolumeInfo, String attribute, String value, String previous, boolean append, Set<String> errors, String errorTag) {
+            if (StringUtils.isNotBlank(value)) {
+                if (StringUtils.isBlank(previous)) {
+                    systemVolumeInfo.set(attribute, value);
+                } else if (!previous.equals(value)) {
+                    errors.add("DIF " + errorTag);
+                    if (append) {
+                        systemVolumeInfo.set(attribute, previous + "," + value);
+                    } else {
+                        inconsistencies.add(" - for volume " + systemVolumeInfo.getVolume()
+                                + " - got " + attribute + "  " + value + " while value for previous node was " + previous);
+                    }
+                }
+            }
+        }
+    }
+}
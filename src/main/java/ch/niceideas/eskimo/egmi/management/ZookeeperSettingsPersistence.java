@@ -0,0 +1,146 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+package ch.niceideas.eskimo.egmi.management;
+
+import ch.niceideas.eskimo.egmi.zookeeper.ZookeeperService;
+import org.apache.log4j.Logger;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Runtime settings shared through zookeeper, so that a standby instance holds the settings of the master and can take
+ * over right away.
+ * <br>
+ * Settings are read from the copy cached by {@link ZookeeperService}, which a watch keeps up to date, and written to
+ * zookeeper as well as to the local persistence. The local copy is updated with the changes made by other instances
+ * too and is used as long as zookeeper can't be reached or holds no settings yet.
+ * <br>
+ * Settings are only considered persisted once written to zookeeper, so that the runtime settings store keeps trying
+ * while zookeeper can't be reached. Settings changed by another instance since last seen are not overwritten : the
+ * local changes are applied on top of them.
+ */
+public class ZookeeperSettingsPersistence implements RuntimeSettingsPersistence {
+
+    private static final Logger logger = Logger.getLogger(ZookeeperSettingsPersistence.class);
+
+    private final ZookeeperService zookeeperService;
+    private final RuntimeSettingsPersistence localPersistence;
+
+    private Consumer<String> changeListener = null;
+    private String localSettings = null;
+
+    public ZookeeperSettingsPersistence(ZookeeperService zookeeperService, RuntimeSettingsPersistence localPersistence) {
+        this.zookeeperService = zookeeperService;
+        this.localPersistence = localPersistence;
+    }
+
+    @Override
+    public synchronized String load() throws IOException {
+        localSettings = localPersistence.load();
+        String sharedSettings = zookeeperService.getRuntimeSettings();
+        if (sharedSettings != null) {
+            return sharedSettings;
+        }
+        return localSettings;
+    }
+
+    @Override
+    public synchronized String persist(String previousSettings, String settings) throws IOException {
+        persistLocally(settings);
+        if (!zookeeperService.isZookeeperConnected()) {
+            throw new IOException("No zookeeper connection. Runtime settings only written locally for now.");
+        }
+        String sharedSettings;
+        try {
+            sharedSettings = zookeeperService.updateRuntimeSettings(
+                    currentSettings -> merge(previousSettings, settings, currentSettings));
+        } catch (IllegalStateException e) {
+            throw new IOException("Couldn't share runtime settings through zookeeper", e);
+        }
+        persistLocally(sharedSettings);
+        return sharedSettings;
+    }
+
+    @Override
+    public synchronized void setChangeListener(Consumer<String> listener) {
+        if (changeListener != null) {
+            zookeeperService.removeRuntimeSettingsListener(changeListener);
+        }
+        changeListener = settings -> {
+            try {
+                synchronized (this) {
+                    persistLocally(settings);
+                }
+            } catch (IOException e) {
+                logger.warn ("Couldn't write shared runtime settings locally : " + e.getMessage());
+            }
+            listener.accept(settings);
+        };
+        zookeeperService.addRuntimeSettingsListener(changeListener);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (changeListener != null) {
+            zookeeperService.removeRuntimeSettingsListener(changeListener);
+            changeListener = null;
+        }
+        localPersistence.close();
+    }
+
+    /*
+     * The changes from the previous settings applied on top of the shared ones, which differ from the previous ones
+     * when another instance changed them meanwhile.
+     */
+    static String merge(String previousSettings, String settings, String sharedSettings) {
+        if (sharedSettings == null || sharedSettings.equals(previousSettings)) {
+            return settings;
+        }
+        JSONObject merged = new JSONObject(sharedSettings);
+        JournaledFilePersistence.apply(merged, JournaledFilePersistence.diff(
+                previousSettings == null ? new JSONObject() : new JSONObject(previousSettings),
+                new JSONObject(settings)));
+        return merged.toString();
+    }
+
+    private void persistLocally(String settings) throws IOException {
+        if (settings.equals(localSettings)) {
+            return;
+        }
+        localPersistence.persist(localSettings, settings);
+        localSettings = settings;
+    }
+}
@@ -36,18 +36,67 @@ package ch.niceideas.eskimo.egmi.model;
 
 import ch.niceideas.common.json.JsonWrapper;
 import ch.niceideas.common.utils.StringUtils;
-import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.util.*;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
+/**
+ * The status of a single node, as reported by the node itself.
+ * <br>
+ * The JSON representation is what is built from the gluster commands output and what is exposed. Queries are answered
+ * from a typed index built from it on first use and dropped whenever the status is altered, either through
+ * {@link #setValueForPath(String, Object)} or through the JSON object handed out by {@link #getJSONObject()}. JSON
+ * objects and arrays returned by {@link #getValueForPath(String)} are to be read only, changes made to them are not
+ * seen by the index.
+ */
 public class NodeStatus extends JsonWrapper {
 
+    private transient volatile NodeStatusIndex index = null;
+
     public NodeStatus(String jsonString)  {
         super (jsonString);
     }
 
+    private NodeStatusIndex getIndex() {
+        NodeStatusIndex current = index;
+        if (current == null) {
+            current = new NodeStatusIndex(super.getJSONObject());
+            index = current;
+        }
+        return current;
+    }
+
+    /**
+     * Callers may alter the returned object, the index is rebuilt from it on next use.
+     */
+    @Override
+    public JSONObject getJSONObject() {
+        index = null;
+        return super.getJSONObject();
+    }
+
+    @Override
+    public void setValueForPath(String path, Object value) {
+        super.setValueForPath(path, value);
+        index = null;
+    }
+
+    /**
+     * @return a copy of this status flagged as stale, i.e. not freshly fetched from the node
+     */
+    public NodeStatus asStale() {
+        NodeStatus staleStatus = new NodeStatus(getFormattedValue());
+        staleStatus.getJSONObject().put("stale", true);
+        return staleStatus;
+    }
+
+    public boolean isStale() {
+        return super.getJSONObject().optBoolean("stale", false);
+    }
+
     public boolean isPoolStatusError() {
         String poolError = getValueForPathAsString("pool-status-error");
         return StringUtils.isNotBlank(poolError) && poolError.equals("KO");
@@ -58,9 +107,7 @@ public class NodeStatus extends JsonWrapper {
             throw new NodeStatusException("Pool status fetching failed.");
         }
 
-        JSONArray peerArray = getJSONObject().getJSONArray("peers");
-        return peerArray.toList().stream()
-                .map(map -> (String) ((Map<?, ?>)map).get("hostname"))
+        return getIndex().getPeerHostnames().stream()
                 .map(Node::from)
                 .collect(Collectors.toSet());
     }
@@ -70,48 +117,23 @@ public class NodeStatus extends JsonWrapper {
             throw new NodeStatusException("Pool status fetching failed.");
         }
 
-        JSONArray peerArray = getJSONObject().getJSONArray("peers");
+        NodeStatusIndex nodeIndex = getIndex();
 
         NodeInformation retInfo = new NodeInformation();
 
-        peerArray.toList().stream()
-                .filter(map -> {
-                    String host = (String) ((Map<?, ?>)map).get("hostname");
-                    return StringUtils.isNotBlank(host) &&
-                            (host.equals ("localhost") || node.matches(host));
-                })
-                .map(map -> (String) ((Map<?, ?>)map).get("state"))
-                .forEach(retInfo::setState);
+        String state = nodeIndex.getPeerState(node);
+        if (state != null) {
+            retInfo.setState(state);
+        }
 
         // identify volume on nodes and count bricks
-        Set<String> nodeVolumes = new TreeSet<>();
-        int brickCounter = 0;
-        if (getJSONObject().has("volumes")) {
-            JSONArray volumeArray = getJSONObject().getJSONArray("volumes");
-            for (int i = 0; i < volumeArray.length(); i++) {
+        Map<BrickId, Volume> nodeBricks = nodeIndex.getNodeBricksAndVolumes(node);
 
-                JSONObject volume = volumeArray.getJSONObject(i);
-
-                String volumeName = volume.getString("name");
-                if (StringUtils.isNotBlank(volumeName)) {
-
-                    JSONArray brickArray = volume.getJSONArray("bricks");
-                    for (int j = 0; j < brickArray.length(); j++) {
-
-                        JSONObject brick = brickArray.getJSONObject(j);
-
-                        String brickNode = brick.getString("node");
-                        if (StringUtils.isNotBlank(brickNode) && node.matches(brickNode)) {
-                            nodeVolumes.add(volumeName);
-                            brickCounter++;
-                        }
-                    }
-                }
-            }
-        }
+        Set<String> nodeVolumes = new TreeSet<>();
+        nodeBricks.values().forEach(volume -> nodeVolumes.add(volume.getName()));
 
         retInfo.setVolumes(nodeVolumes);
-        retInfo.setBrickCount(brickCounter);
+        retInfo.setBrickCount(nodeBricks.size());
 
         return retInfo;
     }
@@ -131,15 +153,7 @@ public class NodeStatus extends JsonWrapper {
             throw new NodeStatusException("Volume status fetching failed.");
         }
 
-        if (!getJSONObject().has("volumes")) {
-            return Collections.emptySet();
-        }
-
-        JSONArray volumeArray = getJSONObject().getJSONArray("volumes");
-        return volumeArray.toList().stream()
-                .map(map -> (String) ((Map<?, ?>)map).get("name"))
-                .map(Volume::from)
-                .collect(Collectors.toSet());
+        return getIndex().getAllVolumes();
     }
 
     public Set<Node> getVolumeNodes (Volume volume) throws NodeStatusException {
@@ -149,76 +163,19 @@ public class NodeStatus extends JsonWrapper {
     }
 
     public Set<BrickId> getVolumeBrickIds(Volume volume) throws NodeStatusException{
-
-        Set<BrickId> retSet = new HashSet<>();
-
         if (isVolumeStatusError()) {
             throw new NodeStatusException("Volume status fetching failed.");
         }
 
-        if (!getJSONObject().has("volumes")) {
-            return Collections.emptySet();
-        }
-
-        JSONArray volumeArray = getJSONObject().getJSONArray("volumes");
-        for (int i = 0; i < volumeArray.length(); i++) {
-
-            JSONObject volumeInfo = volumeArray.getJSONObject(i);
-
-            String volumeName = volumeInfo.getString("name");
-            if (volume.matches(volumeName)) {
-
-                JSONArray brickArray = volumeInfo.getJSONArray("bricks");
-                for (int j = 0; j < brickArray.length(); j++) {
-
-                    JSONObject brick = brickArray.getJSONObject(j);
-
-                    String node = brick.getString("node");
-                    String path = brick.getString("path");
-                    retSet.add(BrickId.fromNodeAndPath(Node.from(node), path));
-                }
-            }
-        }
-
-        return retSet;
+        return getIndex().getVolumeBrickIds(volume);
     }
 
     public Map<BrickId, Volume> getNodeBricksAndVolumes(Node host) throws NodeStatusException{
-
-        Map<BrickId, Volume> retMap = new HashMap<>();
-
         if (isVolumeStatusError()) {
             throw new NodeStatusException("Volume status fetching failed.");
         }
 
-        if (!getJSONObject().has("volumes")) {
-            return Collections.emptyMap();
-        }
-
-        JSONArray volumeArray = getJSONObject().getJSONArray("volumes");
-        for (int i = 0; i < volumeArray.length(); i++) {
-
-            JSONObject volume = volumeArray.getJSONObject(i);
-
-            String volumeName = volume.getString("name");
-            if (StringUtils.isNotBlank(volumeName)) {
-
-                JSONArray brickArray = volume.getJSONArray("bricks");
-                for (int j = 0; j < brickArray.length(); j++) {
-
-                    JSONObject brick = brickArray.getJSONObject(j);
-
-                    String node = brick.getString("node");
-
-                    if (host.matches(node)) {
-                        String path = brick.getString("path");
-                        retMap.put(BrickId.fromNodeAndPath (Node.from(node), path), Volume.from (volumeName));
-                    }
-                }
-            }
-        }
-
-        return retMap;
+        return getIndex().getNodeBricksAndVolumes(host);
     }
 
     public NodeVolumeInformation getVolumeInformation(Volume volume) throws NodeStatusException {
@@ -226,27 +183,12 @@ public class NodeStatus extends JsonWrapper {
             throw new NodeStatusException("Volume status fetching failed.");
         }
 
-        if (!getJSONObject().has("volumes")) {
+        NodeStatusIndex nodeIndex = getIndex();
+        if (!nodeIndex.hasVolumes()) {
             return null;
         }
 
-        JSONArray volumeArray = getJSONObject().getJSONArray("volumes");
-
-        NodeVolumeInformation retInfo = new NodeVolumeInformation();
-
-        volumeArray.toList().stream()
-                .filter(map -> {
-                    String name = (String) ((Map<?, ?>)map).get("name");
-                    return volume.matches (name);
-                })
-                .map(map -> ((Map<?, ?>)map).entrySet())
-                .forEach(
-                        entries -> entries.stream()
-                                .filter( entry -> !entry.getKey().equals("bricks") && !entry.getKey().equals("options"))
-                                .forEach(entry -> retInfo.set ((String)entry.getKey(), entry.getValue()) )
-                );
-
-        return retInfo;
+        return nodeIndex.getVolumeInformation(volume);
     }
 
     public Map<String, String> getReconfiguredOptions (Volume volume) throws NodeStatusException {
@@ -254,36 +196,7 @@ public class NodeStatus extends JsonWrapper {
             throw new NodeStatusException("Brick status fetching failed.");
         }
 
-        if (!getJSONObject().has("volumes")) {
-            return Collections.emptyMap();
-        }
-
-        JSONArray volumeArray = getJSONObject().getJSONArray("volumes");
-
-        Map<String, String> retMap = new HashMap<>();
-
-        volumeArray.toList().stream()
-                .filter(map -> {
-                    String name = (String) ((Map<?, ?>)map).get("name");
-                    return volume.matches(name);
-                })
-                .map(map -> ((Map<?, ?>)map).entrySet())
-                .forEach(
-                        entries -> entries.stream()
-                                .filter( entry -> entry.getKey().equals("options"))
-                                .forEach(entry -> {
-
-                                    @SuppressWarnings("unchecked")
-                                    Map<String, String> options = (Map<String, String>) entry.getValue();
-                                    for (String optionKey : options.keySet()) {
-                                        String optionValue = options.get(optionKey);
-                                        retMap.put (optionKey, optionValue);
-                                    }
-                                })
-                );
-
-        return retMap;
-
+        return getIndex().getReconfiguredOptions(volume);
     }
 
     public Map<BrickId, NodeBrickInformation> getVolumeBricksInformation(Volume volume) throws NodeStatusException {
@@ -291,46 +204,7 @@ public class NodeStatus extends JsonWrapper {
             throw new NodeStatusException("Brick status fetching failed.");
         }
 
-        if (!getJSONObject().has("volumes")) {
-            return Collections.emptyMap();
-        }
-
-        JSONArray volumeArray = getJSONObject().getJSONArray("volumes");
-
-        Map<BrickId, NodeBrickInformation> retMap = new HashMap<>();
-
-        volumeArray.toList().stream()
-                .filter(map -> {
-                    String name = (String) ((Map<?, ?>)map).get("name");
-                    return volume.matches(name);
-                })
-                .map(map -> ((Map<?, ?>)map).entrySet())
-                .forEach(
-                        entries -> entries.stream()
-                                .filter( entry -> entry.getKey().equals("bricks"))
-                                .forEach(entry -> {
-
-                                    @SuppressWarnings("unchecked")
-                                    List<Map<?, ?>> brickInformations = (List<Map<?, ?>>) entry.getValue();
-                                    for (Map<?, ?> brickInformation : brickInformations) {
-                                        String node = (String) brickInformation.get("node");
-                                        String path = (String) brickInformation.get("path");
-                                        BrickId brickId = BrickId.fromNodeAndPath(Node.from(node), path);
-                                        if (StringUtils.isNotBlank(node) && StringUtils.isNotBlank(path)) {
-
-                                            NodeBrickInformation brickInfo = retMap.computeIfAbsent(brickId, (key) -> new NodeBrickInformation());
-
-                                            //noinspection unchecked
-                                            brickInfo.setAll ((Map<? extends String, ?>) brickInformation);
-
-                                            //noinspection unchecked
-                                            //brickInfoMap.putAll((Map<? extends String, ? extends String>) brickInformation);
-                                        }
-                                    }
-                                })
-                );
-
-        return retMap;
+        return getIndex().getVolumeBricksInformation(volume);
     }
 
     public void setPeerInformation(int peerNumber, String uid, String hostname, String state) {
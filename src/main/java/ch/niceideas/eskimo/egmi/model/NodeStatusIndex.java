@@ -0,0 +1,231 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+
+package ch.niceideas.eskimo.egmi.model;
+
+import ch.niceideas.common.utils.StringUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.*;
+
+/**
+ * Typed view of a {@link NodeStatus}, indexed by volume and by brick node.
+ * <br>
+ * It is built in a single pass over the JSON representation and never altered afterwards. The objects it returns are
+ * copies callers are free to modify.
+ */
+final class NodeStatusIndex {
+
+    private static final String VOLUMES = "volumes";
+    private static final String BRICKS = "bricks";
+    private static final String OPTIONS = "options";
+
+    private final List<Peer> peers;
+    private final boolean hasVolumes;
+    private final Map<Volume, VolumeEntry> volumes;
+    private final Map<String, Map<BrickId, Volume>> bricksByNode;
+
+    NodeStatusIndex (JSONObject json) {
+
+        List<Peer> peerList = new ArrayList<>();
+        JSONArray peerArray = json.optJSONArray("peers");
+        if (peerArray != null) {
+            for (int i = 0; i < peerArray.length(); i++) {
+                JSONObject peer = peerArray.optJSONObject(i);
+                if (peer != null) {
+                    peerList.add(new Peer(optString(peer, "hostname"), optString(peer, "state")));
+                }
+            }
+        }
+        peers = Collections.unmodifiableList(peerList);
+
+        hasVolumes = json.has(VOLUMES);
+
+        Map<Volume, VolumeEntry> volumeMap = new LinkedHashMap<>();
+        Map<String, Map<BrickId, Volume>> nodeBrickMap = new LinkedHashMap<>();
+
+        JSONArray volumeArray = json.optJSONArray(VOLUMES);
+        if (volumeArray != null) {
+            for (int i = 0; i < volumeArray.length(); i++) {
+                JSONObject volumeJSON = volumeArray.optJSONObject(i);
+                String volumeName = volumeJSON != null ? optString(volumeJSON, "name") : null;
+                if (StringUtils.isBlank(volumeName)) {
+                    continue;
+                }
+                Volume volume = Volume.from(volumeName);
+                VolumeEntry entry = volumeMap.computeIfAbsent(volume, key -> new VolumeEntry());
+
+                for (String key : volumeJSON.keySet()) {
+                    if (!key.equals(BRICKS) && !key.equals(OPTIONS)) {
+                        entry.info.set(key, unwrap(volumeJSON.get(key)));
+                    }
+                }
+
+                JSONObject options = volumeJSON.optJSONObject(OPTIONS);
+                if (options != null) {
+                    for (String optionKey : options.keySet()) {
+                        Object optionValue = unwrap(options.get(optionKey));
+                        entry.options.put(optionKey, optionValue == null ? null : optionValue.toString());
+                    }
+                }
+
+                JSONArray brickArray = volumeJSON.optJSONArray(BRICKS);
+                if (brickArray != null) {
+                    for (int j = 0; j < brickArray.length(); j++) {
+                        JSONObject brick = brickArray.optJSONObject(j);
+                        String node = brick != null ? optString(brick, "node") : null;
+                        String path = brick != null ? optString(brick, "path") : null;
+                        if (StringUtils.isBlank(node) || StringUtils.isBlank(path)) {
+                            continue;
+                        }
+                        BrickId brickId = BrickId.fromNodeAndPath(Node.from(node), path);
+
+                        NodeBrickInformation brickInfo = entry.bricks.computeIfAbsent(brickId, key -> new NodeBrickInformation());
+                        for (String key : brick.keySet()) {
+                            brickInfo.set(key, unwrap(brick.get(key)));
+                        }
+
+                        nodeBrickMap.computeIfAbsent(node.toLowerCase(), key -> new LinkedHashMap<>()).put(brickId, volume);
+                    }
+                }
+            }
+        }
+
+        volumes = Collections.unmodifiableMap(volumeMap);
+        bricksByNode = Collections.unmodifiableMap(nodeBrickMap);
+    }
+
+    private static Object unwrap (Object value) {
+        return JSONObject.NULL.equals(value) ? null : value;
+    }
+
+    private static String optString (JSONObject json, String key) {
+        Object value = unwrap(json.opt(key));
+        return value == null ? null : value.toString();
+    }
+
+    List<String> getPeerHostnames() {
+        List<String> hostnames = new ArrayList<>(peers.size());
+        for (Peer peer : peers) {
+            hostnames.add(peer.hostname);
+        }
+        return hostnames;
+    }
+
+    /**
+     * @return the state of the last peer entry matching the node, or null if there is none
+     */
+    String getPeerState (Node node) {
+        String state = null;
+        for (Peer peer : peers) {
+            if (StringUtils.isNotBlank(peer.hostname) && (peer.hostname.equals("localhost") || node.matches(peer.hostname))) {
+                state = peer.state;
+            }
+        }
+        return state;
+    }
+
+    boolean hasVolumes() {
+        return hasVolumes;
+    }
+
+    Set<Volume> getAllVolumes() {
+        return new LinkedHashSet<>(volumes.keySet());
+    }
+
+    Set<BrickId> getVolumeBrickIds (Volume volume) {
+        VolumeEntry entry = volumes.get(volume);
+        return entry == null ? new LinkedHashSet<>() : new LinkedHashSet<>(entry.bricks.keySet());
+    }
+
+    Map<BrickId, Volume> getNodeBricksAndVolumes (Node node) {
+        Map<BrickId, Volume> nodeBricks = bricksByNode.get(node.getAddress().toLowerCase());
+        return nodeBricks == null ? new LinkedHashMap<>() : new LinkedHashMap<>(nodeBricks);
+    }
+
+    NodeVolumeInformation getVolumeInformation (Volume volume) {
+        NodeVolumeInformation copy = new NodeVolumeInformation();
+        VolumeEntry entry = volumes.get(volume);
+        if (entry != null) {
+            copy.setStatus(entry.info.getStatus());
+            copy.setType(entry.info.getType());
+            copy.setOwner(entry.info.getOwner());
+            copy.setNbShards(entry.info.getNbShards());
+            copy.setNbReplicas(entry.info.getNbReplicas());
+            copy.setNbArbiters(entry.info.getNbArbiters());
+            copy.setNbBricks(entry.info.getNbBricks());
+        }
+        return copy;
+    }
+
+    Map<String, String> getReconfiguredOptions (Volume volume) {
+        VolumeEntry entry = volumes.get(volume);
+        return entry == null ? new LinkedHashMap<>() : new LinkedHashMap<>(entry.options);
+    }
+
+    Map<BrickId, NodeBrickInformation> getVolumeBricksInformation (Volume volume) {
+        Map<BrickId, NodeBrickInformation> retMap = new LinkedHashMap<>();
+        VolumeEntry entry = volumes.get(volume);
+        if (entry != null) {
+            entry.bricks.forEach((brickId, brickInfo) -> {
+                NodeBrickInformation copy = new NodeBrickInformation();
+                copy.setNumber(brickInfo.getNumber());
+                copy.setStatus(brickInfo.getStatus());
+                copy.setDevice(brickInfo.getDevice());
+                copy.setFree(brickInfo.getFree());
+                copy.setTotal(brickInfo.getTotal());
+                copy.setFsType(brickInfo.getFsType());
+                retMap.put(brickId, copy);
+            });
+        }
+        return retMap;
+    }
+
+    private static final class Peer {
+        private final String hostname;
+        private final String state;
+
+        private Peer(String hostname, String state) {
+            this.hostname = hostname;
+            this.state = state;
+        }
+    }
+
+    private static final class VolumeEntry {
+        private final NodeVolumeInformation info = new NodeVolumeInformation();
+        private final Map<String, String> options = new LinkedHashMap<>();
+        private final Map<BrickId, NodeBrickInformation> bricks = new LinkedHashMap<>();
+    }
+}
@@ -39,21 +39,76 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.Serializable;
-import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+/**
+ * The status of the whole system as computed by the master, i.e. one entry per node and one entry per volume with its
+ * bricks.
+ * <br>
+ * Nodes, volumes and bricks are looked up through hash indexes built from the JSON representation on first lookup and
+ * maintained by {@link #addNodeInfo(Node, String, NodeInformation)} and {@link #addVolumeInfo(SystemVolumeInformation)}.
+ * The indexes reference the JSON objects themselves, so that changes made to these in place are seen by both.
+ */
 public class SystemStatus extends JsonWrapper {
 
+    private transient Map<String, JSONObject> nodeIndex = null;
+    private transient Map<String, VolumeIndexEntry> volumeIndex = null;
+
     public SystemStatus(String jsonString)  {
         super (jsonString);
     }
 
-    private JSONArray getVolumes() {
-        return getJSONObject().getJSONArray("volumes");
+    @Override
+    public void setValueForPath(String path, Object value) {
+        super.setValueForPath(path, value);
+        synchronized (this) {
+            nodeIndex = null;
+            volumeIndex = null;
+        }
+    }
+
+    private synchronized Map<String, JSONObject> getNodeIndex() {
+        if (nodeIndex == null) {
+            nodeIndex = new HashMap<>();
+            JSONArray nodeArray = getJSONObject().optJSONArray("nodes");
+            if (nodeArray != null) {
+                for (int i = 0; i < nodeArray.length(); i++) {
+                    indexNode(nodeArray.getJSONObject(i));
+                }
+            }
+        }
+        return nodeIndex;
+    }
+
+    private void indexNode(JSONObject nodeInfo) {
+        // the first entry wins, as the linear lookups it replaces did
+        nodeIndex.putIfAbsent(nodeInfo.getString("host").toLowerCase(), nodeInfo);
+    }
+
+    private synchronized Map<String, VolumeIndexEntry> getVolumeIndex() {
+        if (volumeIndex == null) {
+            volumeIndex = new HashMap<>();
+            JSONArray volumeArray = getJSONObject().optJSONArray("volumes");
+            if (volumeArray != null) {
+                for (int i = 0; i < volumeArray.length(); i++) {
+                    indexVolume(volumeArray.getJSONObject(i));
+                }
+            }
+        }
+        return volumeIndex;
+    }
+
+    private void indexVolume(JSONObject volumeInfo) {
+        volumeIndex.putIfAbsent(volumeInfo.getString("volume"), new VolumeIndexEntry(volumeInfo));
+    }
+
+    private VolumeIndexEntry getVolumeEntry(Volume volume) {
+        if (volume.getName() == null) {
+            return null;
+        }
+        return getVolumeIndex().get(volume.getName());
     }
 
     private JSONArray getNodes() {
@@ -70,50 +125,30 @@ public class SystemStatus extends JsonWrapper {
     }
 
     protected JSONObject getVolumeInfo(Volume volume) {
-        JSONArray volumeArray = getVolumes();
-        return IntStream.range(0, volumeArray.length())
-                .mapToObj(volumeArray::getJSONObject)
-                .filter(volumeInfo -> volume.matches(volumeInfo.getString("volume")))
-                .findAny().orElse(null);
+        VolumeIndexEntry entry = getVolumeEntry(volume);
+        return entry == null ? null : entry.volumeInfo;
     }
 
     protected JSONObject getNodeInfo(Node host) {
-        JSONArray nodeArray = getNodes();
-        return IntStream.range(0, nodeArray.length())
-                .mapToObj(nodeArray::getJSONObject)
-                .filter(nodeInfo -> host.matches (nodeInfo.getString("host")))
-                .findAny().orElse(null);
+        if (host.getAddress() == null) {
+            return null;
+        }
+        return getNodeIndex().get(host.getAddress().toLowerCase());
     }
 
     protected JSONArray getBrickArray (Volume volume) {
-        JSONArray volumeArray = getVolumes();
-        return IntStream.range(0, volumeArray.length())
-                .mapToObj(volumeArray::getJSONObject)
-                .filter(volumeInfo -> volume.matches (volumeInfo.getString("volume")))
-                .map(volumeInfo -> volumeInfo.getJSONArray("bricks"))
-                .findAny().orElse(null);
+        VolumeIndexEntry entry = getVolumeEntry(volume);
+        return entry == null ? null : entry.volumeInfo.getJSONArray("bricks");
     }
 
     protected JSONObject getOptions(Volume volume) {
-        JSONArray volumeArray = getVolumes();
-        return IntStream.range(0, volumeArray.length())
-                .mapToObj(volumeArray::getJSONObject)
-                .filter(volumeInfo -> volume.matches(volumeInfo.getString("volume")))
-                .map(volumeInfo -> volumeInfo.getJSONObject("options"))
-                .findAny().orElse(null);
+        VolumeIndexEntry entry = getVolumeEntry(volume);
+        return entry == null ? null : entry.volumeInfo.getJSONObject("options");
     }
 
     protected JSONObject getBrickInfo (Volume volume, BrickId brickId) {
-        JSONArray brickArray = getBrickArray(volume);
-
-        if (brickArray == null) {
-            return null;
-        }
-
-        return IntStream.range(0, brickArray.length())
-                .mapToObj(brickArray::getJSONObject)
-                .filter(brickInfo -> brickInfo.getString("id").equals(brickId.toString()))
-                .findAny().orElse(null);
+        VolumeIndexEntry entry = getVolumeEntry(volume);
+        return entry == null ? null : entry.getBricks().get(brickId.toString());
     }
 
     public String getNodeStatus(Node host) {
@@ -130,6 +165,39 @@ public class SystemStatus extends JsonWrapper {
         nodeInfo.put("status", newStatus);
     }
 
+    public void flagNodeTimedOut(Node host) {
+        JSONObject nodeInfo = Optional.ofNullable(getNodeInfo(host)).orElseThrow(IllegalStateException::new);
+        nodeInfo.put("timed_out", true);
+    }
+
+    public boolean isNodeTimedOut(Node host) {
+        JSONObject nodeInfo = getNodeInfo(host);
+        return nodeInfo != null && nodeInfo.optBoolean("timed_out", false);
+    }
+
+    public void flagNodeStale(Node host) {
+        JSONObject nodeInfo = Optional.ofNullable(getNodeInfo(host)).orElseThrow(IllegalStateException::new);
+        nodeInfo.put("stale", true);
+    }
+
+    public boolean isNodeStale(Node host) {
+        JSONObject nodeInfo = getNodeInfo(host);
+        return nodeInfo != null && nodeInfo.optBoolean("stale", false);
+    }
+
+    public void setNodeCircuitBreaker(Node host, JSONObject circuitBreakerStatus) {
+        JSONObject nodeInfo = Optional.ofNullable(getNodeInfo(host)).orElseThrow(IllegalStateException::new);
+        nodeInfo.put("circuit_breaker", circuitBreakerStatus);
+    }
+
+    public String getNodeCircuitBreakerState(Node host) {
+        JSONObject nodeInfo = getNodeInfo(host);
+        if (nodeInfo == null || !nodeInfo.has("circuit_breaker")) {
+            return null;
+        }
+        return nodeInfo.getJSONObject("circuit_breaker").getString("state");
+    }
+
     public String getBrickStatus(Volume volume, BrickId brickId) {
         JSONObject brickInfo = getBrickInfo(volume, brickId);
         if (brickInfo == null) {
@@ -157,14 +225,11 @@ public class SystemStatus extends JsonWrapper {
     }
 
     public boolean hasBricksOnNode(Volume volume, Node host) {
-        JSONArray brickArray = getBrickArray(volume);
-        if (brickArray == null) {
+        VolumeIndexEntry entry = getVolumeEntry(volume);
+        if (entry == null || host.getAddress() == null) {
             return false;
         }
-
-        return IntStream.range(0, brickArray.length())
-                .mapToObj(brickArray::getJSONObject)
-                .anyMatch(brickInfo -> brickInfo.getString("id").contains(host.getAddress()));
+        return entry.getBrickNodes().contains(host.getAddress().toLowerCase());
     }
 
     public String getVolumeStatus(Volume volume) {
@@ -176,18 +241,44 @@ public class SystemStatus extends JsonWrapper {
         return volumeInfo.getString("status");
     }
 
+    /**
+     * @return an independent copy of this status, for changes to be made to it without affecting readers of this one
+     */
+    public SystemStatus copy() {
+        return new SystemStatus(getJSONObject().toString());
+    }
+
     public void addNodeInfo(Node node, String status, NodeInformation nodeInfo) {
 
-        JSONArray nodeArray;
-        if (!getJSONObject().has("nodes")) {
-            nodeArray = new JSONArray();
-            getJSONObject().put("nodes", nodeArray);
-        } else {
-            nodeArray = getJSONObject().getJSONArray("nodes");
+        JSONObject volumeObject = buildNodeInfo(node, status, nodeInfo);
+        getOrCreateArray("nodes").put(volumeObject);
+
+        synchronized (this) {
+            if (nodeIndex != null) {
+                indexNode(volumeObject);
+            }
         }
+    }
+
+    /**
+     * Replace the entry of the node, keeping its position in the node list, or add it if there is none yet.
+     */
+    public void replaceNodeInfo(Node node, String status, NodeInformation nodeInfo) {
+        JSONArray nodeArray = getOrCreateArray("nodes");
+        int position = findEntry(nodeArray, "host", node.getAddress());
+        if (position < 0) {
+            addNodeInfo(node, status, nodeInfo);
+            return;
+        }
+        nodeArray.put(position, buildNodeInfo(node, status, nodeInfo));
+        synchronized (this) {
+            nodeIndex = null;
+        }
+    }
+
+    private JSONObject buildNodeInfo(Node node, String status, NodeInformation nodeInfo) {
 
         JSONObject volumeObject = new JSONObject();
-        nodeArray.put(volumeObject);
 
         String volumes = null;
         Serializable brickCount = null;
@@ -208,20 +299,97 @@ public class SystemStatus extends JsonWrapper {
         volumeObject.put ("status", status);
         volumeObject.put ("volumes", volumes);
         volumeObject.put ("nbr_bricks", brickCount);
+
+        return volumeObject;
     }
 
     public void addVolumeInfo(SystemVolumeInformation systemVolumeInfo) {
 
-        JSONArray volumeArray;
-        if (!getJSONObject().has("volumes")) {
-            volumeArray = new JSONArray();
-            getJSONObject().put("volumes", volumeArray);
-        } else {
-            volumeArray = getJSONObject().getJSONArray("volumes");
+        JSONObject volumeObject = new JSONObject();
+        systemVolumeInfo.fillIn (volumeObject);
+        getOrCreateArray("volumes").put(volumeObject);
+
+        synchronized (this) {
+            if (volumeIndex != null) {
+                indexVolume(volumeObject);
+            }
         }
+    }
 
+    /**
+     * Replace the entry of the volume, keeping its position in the volume list, or add it if there is none yet.
+     */
+    public void replaceVolumeInfo(SystemVolumeInformation systemVolumeInfo) {
+        JSONArray volumeArray = getOrCreateArray("volumes");
+        int position = findEntry(volumeArray, "volume", systemVolumeInfo.getVolume().getName());
+        if (position < 0) {
+            addVolumeInfo(systemVolumeInfo);
+            return;
+        }
         JSONObject volumeObject = new JSONObject();
         systemVolumeInfo.fillIn (volumeObject);
-        volumeArray.put(volumeObject);
+        volumeArray.put(position, volumeObject);
+        synchronized (this) {
+            volumeIndex = null;
+        }
+    }
+
+    private JSONArray getOrCreateArray(String key) {
+        JSONArray array = getJSONObject().optJSONArray(key);
+        if (array == null) {
+            array = new JSONArray();
+            getJSONObject().put(key, array);
+        }
+        return array;
+    }
+
+    private static int findEntry(JSONArray array, String key, String value) {
+        for (int i = 0; i < array.length(); i++) {
+            if (array.getJSONObject(i).optString(key).equalsIgnoreCase(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Bricks of a volume by brick id, and the nodes running them, indexed on first use since volumes are complete
+     * when added.
+     */
+    private static final class VolumeIndexEntry {
+
+        private final JSONObject volumeInfo;
+        private Map<String, JSONObject> bricks = null;
+        private Set<String> brickNodes = null;
+
+        private VolumeIndexEntry(JSONObject volumeInfo) {
+            this.volumeInfo = volumeInfo;
+        }
+
+        private synchronized Map<String, JSONObject> getBricks() {
+            if (bricks == null) {
+                Map<String, JSONObject> brickMap = new HashMap<>();
+                Set<String> nodes = new HashSet<>();
+                JSONArray brickArray = volumeInfo.getJSONArray("bricks");
+                for (int i = 0; i < brickArray.length(); i++) {
+                    JSONObject brickInfo = brickArray.getJSONObject(i);
+                    String id = brickInfo.optString("id", null);
+                    if (id == null) {
+                        continue;
+                    }
+                    brickMap.putIfAbsent(id, brickInfo);
+                    int separator = id.indexOf(':');
+                    nodes.add((separator > 0 ? id.substring(0, separator) : id).toLowerCase());
+                }
+                bricks = brickMap;
+                brickNodes = nodes;
+            }
+            return bricks;
+        }
+
+        private synchronized Set<String> getBrickNodes() {
+            getBricks();
+            return brickNodes;
+        }
     }
 }
@@ -1,11 +1,13 @@
 package ch.niceideas.eskimo.egmi.problems;
 
 import ch.niceideas.common.http.HttpClientException;
+import ch.niceideas.common.utils.StringUtils;
 import ch.niceideas.eskimo.egmi.gluster.command.AbstractGlusterSimpleOperation;
 import ch.niceideas.eskimo.egmi.gluster.command.GlusterPoolList;
 import ch.niceideas.eskimo.egmi.gluster.command.result.GlusterPoolListResult;
 import ch.niceideas.eskimo.egmi.gluster.command.result.SimpleOperationResult;
 import ch.niceideas.eskimo.egmi.management.GraphPartitionDetector;
+import ch.niceideas.eskimo.egmi.management.PeerComponents;
 import ch.niceideas.eskimo.egmi.model.Node;
 import ch.niceideas.eskimo.egmi.model.NodeStatus;
 import ch.niceideas.eskimo.egmi.model.NodeStatusException;
@@ -15,6 +17,7 @@ import org.apache.log4j.Logger;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -61,6 +64,18 @@ public abstract class AbstractProblem implements Problem{
                 .collect(Collectors.toSet());
     }
 
+    /**
+     * @return the time the given timeout property (in seconds) expires at, counted from the given date, or the date
+     * itself if the property is not set.
+     */
+    protected static long getTimeoutExpiry(Date date, String timeoutProperty, ConfigurationOwner configOwner) {
+        String timeoutSecondsString = configOwner.getEnvironmentProperty(timeoutProperty);
+        if (StringUtils.isBlank(timeoutSecondsString)) {
+            return date.getTime();
+        }
+        return date.getTime() + Long.parseLong(timeoutSecondsString.trim()) * 1000;
+    }
+
     protected static Optional<Node> getFirstNode(Set<Node> nodes) {
         return nodes.stream()
                 .sorted()
@@ -75,9 +90,9 @@ public abstract class AbstractProblem implements Problem{
             return Collections.emptySet();
         }
 
-        Map<Node, GraphPartitionDetector.GraphNode> nodeNetwork = GraphPartitionDetector.buildNodeGraph(activeNodes, nodesStatus);
+        PeerComponents components = GraphPartitionDetector.getPeerComponents(activeNodes, nodesStatus);
 
-        Map<Node, Integer> counters = GraphPartitionDetector.buildPeerTimesVolumeCounters(activeNodes, nodeNetwork, nodesStatus);
+        Map<Node, Integer> counters = GraphPartitionDetector.buildPeerTimesVolumeCounters(activeNodes, components, nodesStatus);
 
         AtomicInteger currentCount = new AtomicInteger(Integer.MIN_VALUE);
         AtomicReference<Node> host = new AtomicReference<>();
@@ -88,7 +103,7 @@ public abstract class AbstractProblem implements Problem{
                     }
                 });
 
-        Set<Node> retSet = GraphPartitionDetector.buildPeerNetwork(nodeNetwork, host.get());
+        Set<Node> retSet = components.getReachableNodes(host.get());
         retSet.retainAll(activeNodes);
         return retSet;
     }
@@ -62,8 +62,8 @@ public class BrickOffline extends AbstractProblem implements Problem {
     private final BrickId brickId;
 
     @Override
-    public String getProblemId() {
-        return "BRICK_OFFLINE-" + volume + "-" + brickId;
+    public ProblemKey getProblemKey() {
+        return ProblemKey.of("BRICK_OFFLINE", volume, brickId);
     }
 
     @Override
@@ -83,6 +83,16 @@ public class BrickOffline extends AbstractProblem implements Problem {
         return 4;
     }
 
+    @Override
+    public Set<ProblemResource> getResources() {
+        return Set.of(ProblemResource.volume(volume), ProblemResource.node(brickId.getNode()));
+    }
+
+    @Override
+    public long getActionableTime(ConfigurationOwner configOwner) {
+        return getTimeoutExpiry(date, "problem.brickOffline.timeout", configOwner);
+    }
+
     @Override
     public final boolean solve(GlusterRemoteManager glusterRemoteManager, CommandContext context) throws ResolutionStopException {
 
@@ -101,7 +111,7 @@ public class BrickOffline extends AbstractProblem implements Problem {
             if (age >= brickOfflineTimeout) {
 
                 // 1. Confirm a brick is offline
-                Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getAllNodeStatus();
+                Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getSharedNodeStatus();
 
                 Node node = brickId.getNode();
 
@@ -35,6 +35,7 @@
 package ch.niceideas.eskimo.egmi.problems;
 
 import ch.niceideas.common.http.HttpClient;
+import ch.niceideas.eskimo.egmi.gluster.ClusterMutationListener;
 import ch.niceideas.eskimo.egmi.management.ManagementException;
 import ch.niceideas.eskimo.egmi.management.ManagementService;
 import ch.niceideas.eskimo.egmi.model.Node;
@@ -53,9 +54,25 @@ public class CommandContext implements ResolutionLogger, RuntimeSettingsOwner, C
     private final ResolutionLogger logger;
     private final RuntimeSettingsOwner rtSettingsOwner;
     private final ConfigurationOwner configOwner;
+    private final ClusterMutationListener mutationListener;
 
     public CommandContext (HttpClient httpClient, int glusterCommandServerPort, ManagementService managementService) {
-        this (httpClient, glusterCommandServerPort, managementService, managementService, managementService);
+        this (httpClient, glusterCommandServerPort, managementService, null);
+    }
+
+    public CommandContext (HttpClient httpClient, int glusterCommandServerPort, ManagementService managementService,
+                           ClusterMutationListener mutationListener) {
+        this (httpClient, glusterCommandServerPort, managementService, managementService, managementService, mutationListener);
+    }
+
+    /**
+     * To be called whenever an operation changing the cluster has been sent, so that the status snapshots taken
+     * before are not used anymore.
+     */
+    public void clusterMutated() {
+        if (mutationListener != null) {
+            mutationListener.clusterMutated();
+        }
     }
 
     public void info(String s) {
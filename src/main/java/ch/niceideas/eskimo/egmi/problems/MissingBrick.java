@@ -63,8 +63,8 @@ public class MissingBrick extends AbstractProblem implements Problem{
     private final int nbrBricks;
 
     @Override
-    public String getProblemId() {
-        return "MISSING_BRICK-" + volume + "-" + (targetNbrBricks - nbrBricks) ;
+    public ProblemKey getProblemKey() {
+        return ProblemKey.of("MISSING_BRICK", volume, targetNbrBricks - nbrBricks);
     }
 
     @Override
@@ -83,6 +83,11 @@ public class MissingBrick extends AbstractProblem implements Problem{
         return 7;
     }
 
+    @Override
+    public Set<ProblemResource> getResources() {
+        return Set.of(ProblemResource.volume(volume));
+    }
+
     @Override
     public final boolean solve(GlusterRemoteManager glusterRemoteManager, CommandContext context) throws ResolutionSkipException, ResolutionStopException {
 
@@ -91,7 +96,7 @@ public class MissingBrick extends AbstractProblem implements Problem{
         try {
 
             // 1. Get active nodes
-            Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getAllNodeStatus();
+            Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getSharedNodeStatus();
 
             Set<Node> activeNodes = getActiveConnectedNodes(nodesStatus);
 
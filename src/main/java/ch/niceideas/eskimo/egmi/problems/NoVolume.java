@@ -62,8 +62,8 @@ public class NoVolume extends AbstractProblem implements Problem {
     private final Volume volume;
 
     @Override
-    public String getProblemId() {
-        return "NO_VOLUME-" + volume;
+    public ProblemKey getProblemKey() {
+        return ProblemKey.of("NO_VOLUME", volume);
     }
 
     @Override
@@ -82,6 +82,20 @@ public class NoVolume extends AbstractProblem implements Problem {
         return 6;
     }
 
+    @Override
+    public Set<ProblemResource> getResources() {
+        return Set.of(ProblemResource.volume(volume));
+    }
+
+    @Override
+    public long getActionableTime(ConfigurationOwner configOwner) {
+        // managed volumes are created right away, others are forgotten after a while
+        if (configOwner.getConfiguredVolumes().contains(volume)) {
+            return 0;
+        }
+        return getTimeoutExpiry(date, "problem.noVolume.timeout", configOwner);
+    }
+
     @Override
     public final boolean solve(GlusterRemoteManager glusterRemoteManager, CommandContext context) throws ResolutionStopException {
 
@@ -118,7 +132,7 @@ public class NoVolume extends AbstractProblem implements Problem {
             try {
 
                 // 2.1 Get up Nodes in cluster sorted by number of bricks
-                return createVolume(volume, glusterRemoteManager, context);
+                return createVolume(volume, glusterRemoteManager.getSharedNodeStatus(), context);
 
             } catch (GlusterRemoteException | NodeStatusException e) {
                 logger.error (e, e);
@@ -127,8 +141,11 @@ public class NoVolume extends AbstractProblem implements Problem {
         }
     }
 
-    public static boolean createVolume(Volume volume, GlusterRemoteManager glusterRemoteManager, CommandContext context) throws GlusterRemoteException, NodeStatusException, ResolutionStopException {
-        Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getAllNodeStatus();
+    /**
+     * Create and start the volume on the active nodes according to the given status of all nodes, shared by the
+     * problem solvers or freshly fetched for a user action.
+     */
+    public static boolean createVolume(Volume volume, Map<Node, NodeStatus> nodesStatus, CommandContext context) throws NodeStatusException, ResolutionStopException {
 
         Set<Node> activeNodes = getActiveConnectedNodes(nodesStatus);
 
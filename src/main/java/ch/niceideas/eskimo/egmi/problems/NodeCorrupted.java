@@ -64,8 +64,8 @@ public class NodeCorrupted extends AbstractProblem implements Problem {
 
 
     @Override
-    public String getProblemId() {
-        return "NODE_CORRUPTED-" + host;
+    public ProblemKey getProblemKey() {
+        return ProblemKey.of("NODE_CORRUPTED", host);
     }
 
     @Override
@@ -84,6 +84,14 @@ public class NodeCorrupted extends AbstractProblem implements Problem {
         return 1;
     }
 
+    /**
+     * Resetting the host wipes its bricks, of any volume, which aren't known upfront.
+     */
+    @Override
+    public Set<ProblemResource> getResources() {
+        return Set.of(ProblemResource.cluster());
+    }
+
     @Override
     public final boolean solve(GlusterRemoteManager glusterRemoteManager, CommandContext context) throws ResolutionStopException, ResolutionSkipException {
 
@@ -92,7 +100,7 @@ public class NodeCorrupted extends AbstractProblem implements Problem {
         try {
 
             // 1. find out if node can be added to a larger cluster
-            Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getAllNodeStatus();
+            Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getSharedNodeStatus();
 
             // 1.1 Find all nodes in Nodes Status not being KO
             Set<Node> activeNodes = getActiveNodes(nodesStatus);
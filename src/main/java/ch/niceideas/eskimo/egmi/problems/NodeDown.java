@@ -62,8 +62,8 @@ public class NodeDown extends AbstractProblem implements Problem {
     private final Node host;
 
     @Override
-    public String getProblemId() {
-        return "NODE_DOWN-" + volume + "-" + host;
+    public ProblemKey getProblemKey() {
+        return ProblemKey.of("NODE_DOWN", volume, host);
     }
 
     @Override
@@ -86,6 +86,16 @@ public class NodeDown extends AbstractProblem implements Problem {
         return 3;
     }
 
+    @Override
+    public Set<ProblemResource> getResources() {
+        return Set.of(ProblemResource.volume(volume), ProblemResource.node(host));
+    }
+
+    @Override
+    public long getActionableTime(ConfigurationOwner configOwner) {
+        return getTimeoutExpiry(date, "problem.nodeDown.timeout", configOwner);
+    }
+
     @Override
     public final boolean solve(GlusterRemoteManager glusterRemoteManager, CommandContext context) throws ResolutionSkipException, ResolutionStopException {
 
@@ -104,7 +114,7 @@ public class NodeDown extends AbstractProblem implements Problem {
             if (age >= nodeDeadTimeout) {
 
                 // 1. Find out if node is still down
-                Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getAllNodeStatus();
+                Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getSharedNodeStatus();
 
                 // 1.1 Find all nodes in Nodes Status not being KO
                 Set<Node> activeNodes = getActiveConnectedNodes(nodesStatus);
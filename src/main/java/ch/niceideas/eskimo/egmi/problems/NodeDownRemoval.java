@@ -67,8 +67,8 @@ public class NodeDownRemoval extends AbstractProblem implements Problem {
     private final Node host;
 
     @Override
-    public String getProblemId() {
-        return "NODE_DOWN-REMOVAL-" + host;
+    public ProblemKey getProblemKey() {
+        return ProblemKey.of("NODE_DOWN-REMOVAL", host);
     }
 
     @Override
@@ -87,6 +87,16 @@ public class NodeDownRemoval extends AbstractProblem implements Problem {
         return 4;
     }
 
+    @Override
+    public Set<ProblemResource> getResources() {
+        return Set.of(ProblemResource.node(host), ProblemResource.peerPool());
+    }
+
+    @Override
+    public long getActionableTime(ConfigurationOwner configOwner) {
+        return getTimeoutExpiry(date, "problem.nodeDownRemoval.timeout", configOwner);
+    }
+
     @Override
     public final boolean solve(GlusterRemoteManager glusterRemoteManager, CommandContext context) throws ResolutionStopException {
 
@@ -105,7 +115,7 @@ public class NodeDownRemoval extends AbstractProblem implements Problem {
             if (age >= nodeDeadTimeout) {
 
                 // 1. Find out if node is still down
-                Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getAllNodeStatus();
+                Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getSharedNodeStatus();
 
                 // 1.1 Find all nodes in Nodes Status not being KO
                 Set<Node> activeNodes = getActiveConnectedNodes(nodesStatus);
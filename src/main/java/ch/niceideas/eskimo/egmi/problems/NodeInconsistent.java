@@ -66,8 +66,8 @@ public class NodeInconsistent extends AbstractProblem implements Problem {
 
 
     @Override
-    public String getProblemId() {
-        return "NODE_INCONSISTENT-" + host + "-" + other;
+    public ProblemKey getProblemKey() {
+        return ProblemKey.of("NODE_INCONSISTENT", host, other);
     }
 
     @Override
@@ -86,6 +86,14 @@ public class NodeInconsistent extends AbstractProblem implements Problem {
         return 1;
     }
 
+    /**
+     * Removing the bricks of the host touches every volume having a brick on it, which isn't known upfront.
+     */
+    @Override
+    public Set<ProblemResource> getResources() {
+        return Set.of(ProblemResource.cluster());
+    }
+
     @Override
     public final boolean solve(GlusterRemoteManager glusterRemoteManager, CommandContext context) throws ResolutionStopException, ResolutionSkipException {
 
@@ -94,7 +102,7 @@ public class NodeInconsistent extends AbstractProblem implements Problem {
         try {
 
             // 1. find out if node can be added to a larger cluster
-            Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getAllNodeStatus();
+            Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getSharedNodeStatus();
 
             // 1.1 Find all nodes in Nodes Status not being KO
             Set<Node> activeNodes = getActiveNodes(nodesStatus);
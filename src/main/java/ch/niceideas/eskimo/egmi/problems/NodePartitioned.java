@@ -42,6 +42,7 @@ import ch.niceideas.eskimo.egmi.gluster.GlusterRemoteManager;
 import ch.niceideas.eskimo.egmi.gluster.command.*;
 import ch.niceideas.eskimo.egmi.gluster.command.result.SimpleOperationResult;
 import ch.niceideas.eskimo.egmi.management.GraphPartitionDetector;
+import ch.niceideas.eskimo.egmi.management.PeerComponents;
 import ch.niceideas.eskimo.egmi.model.*;
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
@@ -70,8 +71,8 @@ public class NodePartitioned extends AbstractProblem implements Problem {
 
 
     @Override
-    public String getProblemId() {
-        return "NODE_PARTITIONED-" + host;
+    public ProblemKey getProblemKey() {
+        return ProblemKey.of("NODE_PARTITIONED", host);
     }
 
     @Override
@@ -99,7 +100,7 @@ public class NodePartitioned extends AbstractProblem implements Problem {
         try {
 
             // 1. find out if node can be added to a larger cluster
-            Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getAllNodeStatus();
+            Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getSharedNodeStatus();
 
             // 1.1 Find all nodes in Nodes Status not being KO
             Set<Node> activeNodes = getActiveNodes(nodesStatus);
@@ -111,9 +112,9 @@ public class NodePartitioned extends AbstractProblem implements Problem {
 
             // 1.2 Find those that are not partitioned => candidates
             // 1.3 if none, find those that have the highest connection count => candidates
-            Map<Node, GraphPartitionDetector.GraphNode> nodeNetwork = GraphPartitionDetector.buildNodeGraph(activeNodes, nodesStatus);
+            PeerComponents components = GraphPartitionDetector.getPeerComponents(activeNodes, nodesStatus);
 
-            Map<Node, Integer> counters = GraphPartitionDetector.buildPeerTimesVolumeCounters(activeNodes, nodeNetwork, nodesStatus);
+            Map<Node, Integer> counters = GraphPartitionDetector.buildPeerTimesVolumeCounters(activeNodes, components, nodesStatus);
 
             final AtomicInteger highestCount = new AtomicInteger(Integer.MIN_VALUE);
             for (Node current : counters.keySet()) {
@@ -122,7 +123,7 @@ public class NodePartitioned extends AbstractProblem implements Problem {
                 }
             }
 
-            Set<Node> hostPeers = GraphPartitionDetector.buildPeerNetwork(nodeNetwork, host);
+            Set<Node> hostPeers = components.getReachableNodes(host);
 
             Set<Node> candidates = counters.keySet().stream()
                     .filter (curHost -> counters.get(curHost) == highestCount.get())
@@ -144,7 +145,7 @@ public class NodePartitioned extends AbstractProblem implements Problem {
 
             // find a candidate with no intersection with own peers
             Set<Node> isolatedCandidates = candidates.stream()
-                    .map(candidate -> new Pair<>(candidate, GraphPartitionDetector.buildPeerNetwork(nodeNetwork, candidate)))
+                    .map(candidate -> new Pair<>(candidate, components.getReachableNodes(candidate)))
                     .filter(pair -> {
                         pair.getValue().retainAll(hostPeers);
                         return pair.getValue().size() == 0;
@@ -37,9 +37,15 @@ package ch.niceideas.eskimo.egmi.problems;
 import ch.niceideas.eskimo.egmi.gluster.GlusterRemoteManager;
 import ch.niceideas.eskimo.egmi.model.SystemStatus;
 
+import java.util.Set;
+
 public interface Problem extends Comparable <Problem>{
 
-    String getProblemId();
+    ProblemKey getProblemKey();
+
+    default String getProblemId() {
+        return getProblemKey().toString();
+    }
 
     String getProblemType();
 
@@ -47,5 +53,22 @@ public interface Problem extends Comparable <Problem>{
 
     int getPriority();
 
+    /**
+     * @return the parts of the cluster solving this problem changes. Problems with conflicting resources are solved
+     * one after the other, in priority order, others may be solved concurrently. By default a problem conflicts with
+     * all others.
+     */
+    default Set<ProblemResource> getResources() {
+        return Set.of(ProblemResource.cluster());
+    }
+
+    /**
+     * @return the time (epoch milliseconds) from which trying to solve this problem makes sense, typically once the
+     * timeout after which it is considered definitive has passed. By default a problem is immediately actionable.
+     */
+    default long getActionableTime(ConfigurationOwner configOwner) {
+        return 0;
+    }
+
     boolean solve(GlusterRemoteManager glusterRemoteManager, CommandContext context) throws ResolutionSkipException, ResolutionStopException;
 }
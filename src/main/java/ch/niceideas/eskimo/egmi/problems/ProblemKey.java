@@ -0,0 +1,94 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+package ch.niceideas.eskimo.egmi.problems;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Identifies a problem by its kind and the parts of the cluster it is about, e.g. NODE_DOWN for a volume and a node.
+ * <br>
+ * Two keys are equal when their kind and parts are equal. The rendered key - kind and parts separated by dashes - is
+ * computed once, it serves as problem id for display and its hash as hash of the key.
+ */
+public final class ProblemKey {
+
+    private final String kind;
+    private final List<Object> parts;
+    private final String id;
+
+    private ProblemKey(String kind, List<Object> parts) {
+        this.kind = kind;
+        this.parts = parts;
+        this.id = parts.isEmpty() ? kind : kind + "-" + parts.stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining("-"));
+    }
+
+    public static ProblemKey of(String kind, Object... parts) {
+        return new ProblemKey(kind, Collections.unmodifiableList(Arrays.asList(parts)));
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public List<Object> getParts() {
+        return parts;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ProblemKey)) {
+            return false;
+        }
+        ProblemKey other = (ProblemKey) o;
+        return kind.equals(other.kind) && parts.equals(other.parts);
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+}
@@ -35,9 +35,14 @@
 package ch.niceideas.eskimo.egmi.problems;
 
 import ch.niceideas.common.http.HttpClient;
+import ch.niceideas.common.utils.TimerWheel;
+import ch.niceideas.eskimo.egmi.gluster.GlusterRemoteException;
 import ch.niceideas.eskimo.egmi.gluster.GlusterRemoteManager;
+import ch.niceideas.eskimo.egmi.management.ActionException;
 import ch.niceideas.eskimo.egmi.management.ManagementService;
+import ch.niceideas.eskimo.egmi.model.Node;
 import ch.niceideas.eskimo.egmi.model.SystemStatus;
+import lombok.Data;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -45,8 +50,13 @@ import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 @Component
@@ -55,6 +65,9 @@ public class ProblemManager {
 
     private static final Logger logger = Logger.getLogger(ProblemManager.class);
 
+    private static final long ACTIONABLE_WHEEL_TICK_MILLIS = 1000;
+    private static final int ACTIONABLE_WHEEL_SIZE = 512;
+
     @Value("${remote.egmi.port}")
     private int glusterCommandServerPort = 18999;
 
@@ -67,76 +80,289 @@ public class ProblemManager {
     @Autowired
     private HttpClient httpClient;
 
+    @Value("${problem.resolution.parallelism:4}")
+    private int resolutionParallelism = 4;
+
+    private ExecutorService resolutionExecutor = null;
+
+    /** Problems not actionable yet, keyed by problem id, expiring when they become actionable */
+    private TimerWheel<ProblemKey> actionableWheel = null;
+    private ExecutorService timedResolutionExecutor = null;
+    private final Set<ProblemKey> dueProblemKeys = ConcurrentHashMap.newKeySet();
+
     /** For tests */
     void setManagementService (ManagementService managementService) {
         this.managementService = managementService;
     }
+    void setResolutionParallelism (int resolutionParallelism) {
+        this.resolutionParallelism = resolutionParallelism;
+    }
+    void setHttpClient (HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+    void setGlusterRemoteManager (GlusterRemoteManager glusterRemoteManager) {
+        this.glusterRemoteManager = glusterRemoteManager;
+    }
 
-    private final Map<String, Problem> problems = new HashMap<>();
+    /*
+     * Problems are added and recognized by the status update, removed by the resolution - possibly from the timed
+     * resolution thread - and summarized for logging, hence a concurrent map. Counters per problem type are kept in
+     * sync with it as problems come and go.
+     */
+    private final Map<ProblemKey, Problem> problems = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> problemTypeCounters = new ConcurrentHashMap<>();
 
     public void addProblem(Problem problem) {
-        Problem previous = problems.get (problem.getProblemId());
-        if (previous != null) {
-            logger.debug ("Problem " + problem.getProblemId() + " is already known");
+        ProblemKey key = problem.getProblemKey();
+        if (problems.putIfAbsent (key, problem) != null) {
+            logger.debug ("Problem " + key + " is already known");
         } else {
-            problems.put (problem.getProblemId(), problem);
+            problemTypeCounters.computeIfAbsent(problem.getProblemType(), type -> new LongAdder()).increment();
+        }
+    }
+
+    private void removeProblem(ProblemKey key) {
+        Problem removed = problems.remove(key);
+        if (removed != null) {
+            problemTypeCounters.get(removed.getProblemType()).decrement();
         }
+        if (actionableWheel != null) {
+            actionableWheel.cancel(key);
+        }
+    }
+
+    private void clearProblems() {
+        problems.keySet().forEach(this::removeProblem);
     }
 
+    /**
+     * @return the number of known problems per problem type, sorted by type, e.g. "1 Node Down, 2 Wrong Option"
+     */
     public String getProblemSummary() {
-        Map<String, AtomicInteger> problemCounter = new HashMap<>();
-        problems.values().forEach(problem -> problemCounter.computeIfAbsent(problem.getProblemType(), (key) -> new AtomicInteger(0)).incrementAndGet());
-        return String.join(", ", problemCounter.keySet().stream()
-                .map(problemType -> problemCounter.get(problemType).get() + " " + problemType)
-                .collect(Collectors.toSet()));
+        return new TreeMap<>(problemTypeCounters).entrySet().stream()
+                .filter(entry -> entry.getValue().sum() > 0)
+                .map(entry -> entry.getValue().sum() + " " + entry.getKey())
+                .collect(Collectors.joining(", "));
     }
 
     public void recognize(SystemStatus newStatus) {
-        new HashSet<>(problems.keySet()).stream()
-                .map (problems::get)
+        problems.values().stream()
                 .filter(problem -> !problem.recognize (newStatus))
-                .forEach(problem-> problems.remove(problem.getProblemId()));
+                .map(Problem::getProblemKey)
+                .collect(Collectors.toList())
+                .forEach(this::removeProblem);
     }
 
+    /**
+     * Try to solve all known problems that are actionable, in priority order. Those that are not actionable yet are
+     * resolved as soon as they become actionable, see {@link Problem#getActionableTime(ConfigurationOwner)}.
+     * <br>
+     * A problem is only started once all problems of higher priority (or same priority and submitted before) it
+     * conflicts with are done, see {@link Problem#getResources()}. Problems that don't conflict are solved
+     * concurrently on a pool of resolutionParallelism threads.
+     * <br>
+     * A ResolutionStopException - or any unexpected exception, rethrown at the end - raised by a solver prevents any
+     * problem not started yet from being tried in this iteration.
+     *
+     * @return true if at least a problem has been solved
+     */
     public boolean resolutionIteration(SystemStatus newStatus) {
-        List<Problem> sortedProblems = new ArrayList<>(problems.values());
-        Collections.sort(sortedProblems);
-        boolean atLeastAProblemSolved = false;
+        long now = System.currentTimeMillis();
+        List<Problem> actionableProblems = new ArrayList<>();
+        for (Problem problem : problems.values()) {
+            long actionableTime = problem.getActionableTime(managementService);
+            if (actionableTime > now) {
+                getActionableWheel().schedule(problem.getProblemKey(), actionableTime);
+            } else {
+                actionableProblems.add(problem);
+            }
+        }
+        return resolve(actionableProblems);
+    }
+
+    /**
+     * Called on the thread of the timer wheel when a problem becomes actionable. The resolution happens on another
+     * thread since it needs to wait for the status update lock.
+     */
+    private void problemActionable(ProblemKey key) {
+        dueProblemKeys.add(key);
+        getTimedResolutionExecutor().execute(this::resolveDueProblems);
+    }
 
+    /**
+     * Solve the problems that became actionable since the last status update, without waiting for the next one.
+     */
+    void resolveDueProblems() {
+        if (dueProblemKeys.isEmpty()) {
+            return;
+        }
         try {
-            boolean zeroPrioritySolved = false;
-            for (Problem problem : sortedProblems) {
+            managementService.executeInLock(() -> {
+                List<Problem> dueProblems = new ArrayList<>();
+                for (Iterator<ProblemKey> iterator = dueProblemKeys.iterator(); iterator.hasNext(); ) {
+                    Problem problem = problems.get(iterator.next());
+                    iterator.remove();
+                    if (problem != null && problem.getActionableTime(managementService) <= System.currentTimeMillis()) {
+                        dueProblems.add(problem);
+                    }
+                }
+                if (!dueProblems.isEmpty()) {
+                    logger.info ("- Solving " + dueProblems.size() + " problem(s) having become actionable");
+                    refreshSharedNodeStatus(dueProblems);
+                    resolve(dueProblems);
+                }
+            });
+        } catch (ActionException | RuntimeException e) {
+            logger.error (e, e);
+        }
+    }
+
+    /**
+     * Problems becoming actionable are solved up to a status period after the last status collection, on a status
+     * that may have changed meanwhile, e.g. a node down coming back. The nodes these problems are about are queried
+     * again and merged into the status shared with solvers. Problems not bound to any node make solvers fetch the
+     * status of all nodes again.
+     */
+    private void refreshSharedNodeStatus(List<Problem> dueProblems) {
+        Set<Node> nodes = new HashSet<>();
+        boolean allBoundToNodes = true;
+        for (Problem problem : dueProblems) {
+            Set<Node> problemNodes = problem.getResources().stream()
+                    .filter(resource -> resource.getType() == ProblemResource.Type.NODE)
+                    .map(resource -> Node.from(resource.getName()))
+                    .collect(Collectors.toSet());
+            allBoundToNodes &= !problemNodes.isEmpty();
+            nodes.addAll(problemNodes);
+        }
+
+        if (allBoundToNodes) {
+            try {
+                glusterRemoteManager.getRefreshedNodeStatus(nodes);
+                return;
+            } catch (GlusterRemoteException e) {
+                logger.warn (e.getMessage());
+                logger.debug (e, e);
+            }
+        }
+        glusterRemoteManager.invalidateSharedNodeStatus();
+    }
 
-                // If some zero priority problem has been solved, don't try to solve anything else in same iteration
-                /*
-                if (problem.getPriority() != 0 && zeroPrioritySolved) {
+    private boolean resolve(List<Problem> problemsToSolve) {
+        List<Problem> sortedProblems = new ArrayList<>(problemsToSolve);
+        Collections.sort(sortedProblems);
+
+        Executor executor = resolutionParallelism > 1 ? getResolutionExecutor() : Runnable::run;
+
+        Set<ProblemKey> solvedProblemKeys = ConcurrentHashMap.newKeySet();
+        AtomicBoolean stopped = new AtomicBoolean(false);
+        AtomicBoolean lostLeadership = new AtomicBoolean(false);
+        AtomicReference<RuntimeException> unexpected = new AtomicReference<>();
+
+        List<ScheduledResolution> scheduled = new ArrayList<>();
+        for (Problem problem : sortedProblems) {
+
+            Set<ProblemResource> resources = problem.getResources();
+            CompletableFuture<?>[] conflicting = scheduled.stream()
+                    .filter(previous -> ProblemResource.conflict(previous.getResources(), resources))
+                    .map(ScheduledResolution::getFuture)
+                    .toArray(CompletableFuture<?>[]::new);
+
+            CompletableFuture<Void> future = CompletableFuture.allOf(conflicting).thenRunAsync(() -> {
+                if (stopped.get()) {
                     return;
                 }
-                */
-
                 try {
                     // always check leadership before moving forward
                     if (!managementService.isMaster()) {
-                        problems.clear();
-                        return false;
+                        lostLeadership.set(true);
+                        stopped.set(true);
+                        return;
                     }
-                    if (problem.solve(glusterRemoteManager, new CommandContext(httpClient, glusterCommandServerPort, managementService))) {
-
-                        atLeastAProblemSolved = true;
-                        problems.remove(problem.getProblemId());
-
-                        if (problem.getPriority() == 0) {
-                            zeroPrioritySolved = true;
-                        }
+                    if (problem.solve(glusterRemoteManager, new CommandContext(httpClient, glusterCommandServerPort, managementService, glusterRemoteManager))) {
+                        solvedProblemKeys.add(problem.getProblemKey());
                     }
                 } catch (ResolutionSkipException e) {
                     logger.error (e, e);
+                } catch (ResolutionStopException e) {
+                    logger.error (e, e);
+                    stopped.set(true);
+                } catch (RuntimeException e) {
+                    unexpected.compareAndSet(null, e);
+                    stopped.set(true);
                 }
+            }, executor);
+
+            scheduled.add(new ScheduledResolution(resources, future));
+        }
+
+        CompletableFuture.allOf(scheduled.stream()
+                .map(ScheduledResolution::getFuture)
+                .toArray(CompletableFuture<?>[]::new)).join();
+
+        if (lostLeadership.get()) {
+            clearProblems();
+            return false;
+        }
+
+        solvedProblemKeys.forEach(this::removeProblem);
+        if (unexpected.get() != null) {
+            throw unexpected.get();
+        }
+        return !solvedProblemKeys.isEmpty();
+    }
+
+    private synchronized ExecutorService getResolutionExecutor() {
+        if (resolutionExecutor == null) {
+            AtomicInteger threadCounter = new AtomicInteger();
+            resolutionExecutor = Executors.newFixedThreadPool(resolutionParallelism, runnable -> {
+                Thread thread = new Thread(runnable, "egmi-resolution-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return resolutionExecutor;
+    }
+
+    private synchronized TimerWheel<ProblemKey> getActionableWheel() {
+        if (actionableWheel == null) {
+            actionableWheel = new TimerWheel<>("egmi-problem-deadlines", ACTIONABLE_WHEEL_TICK_MILLIS, ACTIONABLE_WHEEL_SIZE, this::problemActionable);
+            actionableWheel.start();
+        }
+        return actionableWheel;
+    }
+
+    private synchronized ExecutorService getTimedResolutionExecutor() {
+        if (timedResolutionExecutor == null) {
+            timedResolutionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "egmi-timed-resolution");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return timedResolutionExecutor;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        synchronized (this) {
+            if (resolutionExecutor != null) {
+                resolutionExecutor.shutdownNow();
+                resolutionExecutor = null;
+            }
+            if (actionableWheel != null) {
+                actionableWheel.close();
+                actionableWheel = null;
+            }
+            if (timedResolutionExecutor != null) {
+                timedResolutionExecutor.shutdownNow();
+                timedResolutionExecutor = null;
             }
-        } catch (ResolutionStopException e) {
-            logger.error (e, e);
         }
+    }
 
-        return atLeastAProblemSolved;
+    @Data
+    private static class ScheduledResolution {
+        private final Set<ProblemResource> resources;
+        private final CompletableFuture<Void> future;
     }
 }
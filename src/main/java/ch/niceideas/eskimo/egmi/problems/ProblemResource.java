@@ -0,0 +1,101 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+package ch.niceideas.eskimo.egmi.problems;
+
+import ch.niceideas.eskimo.egmi.model.Node;
+import ch.niceideas.eskimo.egmi.model.Volume;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Set;
+
+/**
+ * A part of the cluster a problem resolution changes. Two problems touching a same resource - or any of them touching
+ * the whole cluster - conflict and are never solved concurrently.
+ */
+@Getter
+@EqualsAndHashCode
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ProblemResource {
+
+    public enum Type {
+        VOLUME,
+        NODE,
+        PEER_POOL,
+        CLUSTER
+    }
+
+    private static final ProblemResource PEER_POOL = new ProblemResource(Type.PEER_POOL, "");
+    private static final ProblemResource CLUSTER = new ProblemResource(Type.CLUSTER, "");
+
+    private final Type type;
+    private final String name;
+
+    public static ProblemResource volume(Volume volume) {
+        return new ProblemResource(Type.VOLUME, volume.getName());
+    }
+
+    public static ProblemResource node(Node node) {
+        return new ProblemResource(Type.NODE, node.getAddress().toLowerCase());
+    }
+
+    /** The trusted storage pool, changed by peer probes and detaches */
+    public static ProblemResource peerPool() {
+        return PEER_POOL;
+    }
+
+    /** Anything and everything, conflicting with all other resources */
+    public static ProblemResource cluster() {
+        return CLUSTER;
+    }
+
+    public static boolean conflict(Set<ProblemResource> resources, Set<ProblemResource> others) {
+        if (resources.contains(CLUSTER) || others.contains(CLUSTER)) {
+            return true;
+        }
+        for (ProblemResource resource : resources) {
+            if (others.contains(resource)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return name.isEmpty() ? type.name() : type + ":" + name;
+    }
+}
@@ -48,6 +48,7 @@ import org.apache.log4j.Logger;
 
 import java.util.Date;
 import java.util.Map;
+import java.util.Set;
 
 @EqualsAndHashCode(callSuper = true)
 @Getter
@@ -61,8 +62,8 @@ public class VolumeNotStarted extends AbstractProblem implements Problem {
     private final Volume volume;
 
     @Override
-    public String getProblemId() {
-        return "VOLUME_DOWN-" + volume;
+    public ProblemKey getProblemKey() {
+        return ProblemKey.of("VOLUME_DOWN", volume);
     }
 
     @Override
@@ -81,6 +82,11 @@ public class VolumeNotStarted extends AbstractProblem implements Problem {
         return 4;
     }
 
+    @Override
+    public Set<ProblemResource> getResources() {
+        return Set.of(ProblemResource.volume(volume));
+    }
+
     @Override
     public final boolean solve(GlusterRemoteManager glusterRemoteManager, CommandContext context) throws ResolutionStopException {
 
@@ -91,7 +97,7 @@ public class VolumeNotStarted extends AbstractProblem implements Problem {
             // 1. Confirm volume is not started
             Node host = null;
 
-            Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getAllNodeStatus();
+            Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getSharedNodeStatus();
             for (Node node : nodesStatus.keySet()) {
 
                 NodeStatus nodeStatus = nodesStatus.get(node);
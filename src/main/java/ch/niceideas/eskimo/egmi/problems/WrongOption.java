@@ -64,8 +64,8 @@ public class WrongOption extends AbstractProblem implements Problem{
     private final String expectedValue;
 
     @Override
-    public String getProblemId() {
-        return "WRONG_OPTION-" + volume + "-" + optionKey + "-" + expectedValue;
+    public ProblemKey getProblemKey() {
+        return ProblemKey.of("WRONG_OPTION", volume, optionKey, expectedValue);
     }
 
     @Override
@@ -89,6 +89,11 @@ public class WrongOption extends AbstractProblem implements Problem{
         return 8;
     }
 
+    @Override
+    public Set<ProblemResource> getResources() {
+        return Set.of(ProblemResource.volume(volume));
+    }
+
     @Override
     public final boolean solve(GlusterRemoteManager glusterRemoteManager, CommandContext context) throws ResolutionStopException {
 
@@ -97,7 +102,7 @@ public class WrongOption extends AbstractProblem implements Problem{
         try {
 
             // 1. Get active nodes
-            Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getAllNodeStatus();
+            Map<Node, NodeStatus> nodesStatus = glusterRemoteManager.getSharedNodeStatus();
 
             Set<Node> activeNodes = getActiveConnectedNodes(nodesStatus);
 
@@ -40,4 +40,13 @@ public interface ElectionCallback {
     void onMasterChanged (String masterHostname);
 
     void onMasterGained ();
+
+    /**
+     * Called with the runtime settings shared through zookeeper when the session starts and whenever they change.
+     *
+     * @param version the zookeeper data version of the settings
+     */
+    default void onRuntimeSettingsChanged (byte[] settings, int version) {
+        // not interested by default
+    }
 }
@@ -36,8 +36,10 @@ package ch.niceideas.eskimo.egmi.zookeeper;
 
 import lombok.Getter;
 import org.apache.log4j.Logger;
+import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.data.Stat;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -55,6 +57,7 @@ public class ElectionProcess implements Runnable, Closeable {
     private static final String PROCESS_NODE_PREFIX = "/p_";
     private static final String MASTER_TRACKER_NODE = "/master_id";
     private static final String DATA_NODE_FOLDER = "/data_nodes";
+    private static final String RUNTIME_SETTINGS_NODE = "/runtime_settings";
 
     private final Object sessionMonitor = new Object();
 
@@ -116,6 +119,10 @@ public class ElectionProcess implements Runnable, Closeable {
                     id.getBytes(StandardCharsets.UTF_8));
         }
 
+        // every instance watches the shared runtime settings so that they are up to date when becoming master
+        zooKeeperManager.getOrCreateNode(EGMI_ROOT_NODE + RUNTIME_SETTINGS_NODE);
+        notifyRuntimeSettings();
+
         if (masterElection) {
 
             logger.info("[Process: " + id + "] Ensuring master tracker node exists on " + EGMI_ROOT_NODE + MASTER_TRACKER_NODE);
@@ -162,6 +169,30 @@ public class ElectionProcess implements Runnable, Closeable {
         return zooKeeperManager.getChildren(EGMI_ROOT_NODE + DATA_NODE_FOLDER, false);
     }
 
+    /**
+     * @return the zookeeper data version of the settings written
+     * @throws KeeperException.BadVersionException if the settings have been changed since the expected version
+     */
+    public int setRuntimeSettings(byte[] settings, int expectedVersion) throws KeeperException.BadVersionException {
+        return zooKeeperManager.setData(EGMI_ROOT_NODE + RUNTIME_SETTINGS_NODE, settings, expectedVersion);
+    }
+
+    /**
+     * Read the settings without setting a watch, the watch set on every notification being still in place.
+     */
+    public byte[] getRuntimeSettings(Stat stat) {
+        return zooKeeperManager.getData(EGMI_ROOT_NODE + RUNTIME_SETTINGS_NODE, false, stat);
+    }
+
+    /*
+     * Watches are triggered once only, so the watch is set again with every read.
+     */
+    private void notifyRuntimeSettings() {
+        Stat stat = new Stat();
+        byte[] settings = zooKeeperManager.getData(EGMI_ROOT_NODE + RUNTIME_SETTINGS_NODE, true, stat);
+        callback.onRuntimeSettingsChanged(settings, stat.getVersion());
+    }
+
     public class ProcessNodeWatcher implements Watcher {
 
         @Override
@@ -175,6 +206,10 @@ public class ElectionProcess implements Runnable, Closeable {
                     attemptForLeaderPosition();
                 }
 
+            } else if (Event.EventType.NodeDataChanged.equals(eventType)
+                    && event.getPath().equals(EGMI_ROOT_NODE + RUNTIME_SETTINGS_NODE)) {
+                notifyRuntimeSettings();
+
             } else if (Event.EventType.NodeDataChanged.equals(eventType)
                     && event.getPath().toLowerCase().contains(MASTER_TRACKER_NODE)) {
                 String newMaster = new String (zooKeeperManager.getData(event.getPath(), true), StandardCharsets.UTF_8);
@@ -58,9 +58,33 @@ public class ZookeeperManager implements Closeable {
         zooKeeper = new ZooKeeper(zookeepersUrl, zookeeperSessionTimeout, processNodeWatcher);
     }
 
-    public void setData (final String nodePath, final byte[] data) {
+    public boolean isConnected() {
+        return zooKeeper.getState().isConnected();
+    }
+
+    /**
+     * @return the new version of the node data
+     */
+    public int setData (final String nodePath, final byte[] data) {
         try {
-            zooKeeper.setData(nodePath, data, -1);
+            return setData(nodePath, data, -1);
+        } catch (KeeperException.BadVersionException e) {
+            logger.error (e, e);
+            throw new IllegalStateException(e); // no version checked
+        }
+    }
+
+    /**
+     * Set the node data only if its version is still the expected one.
+     *
+     * @return the new version of the node data
+     * @throws KeeperException.BadVersionException if the node data has been changed since the expected version
+     */
+    public int setData (final String nodePath, final byte[] data, final int expectedVersion) throws KeeperException.BadVersionException {
+        try {
+            return zooKeeper.setData(nodePath, data, expectedVersion).getVersion();
+        } catch (KeeperException.BadVersionException e) {
+            throw e;
         } catch (KeeperException | InterruptedException e) {
             logger.error (e, e);
             throw new IllegalStateException(e);
@@ -68,8 +92,12 @@ public class ZookeeperManager implements Closeable {
     }
 
     public byte[] getData (final String nodePath, final boolean watch) {
+        return getData(nodePath, watch, null);
+    }
+
+    public byte[] getData (final String nodePath, final boolean watch, final Stat stat) {
         try {
-            return zooKeeper.getData(nodePath, watch, null);
+            return zooKeeper.getData(nodePath, watch, stat);
         } catch (KeeperException | InterruptedException e) {
             logger.error (e, e);
             throw new IllegalStateException(e);
@@ -35,7 +35,10 @@
 package ch.niceideas.eskimo.egmi.zookeeper;
 
 import ch.niceideas.common.utils.StringUtils;
+import lombok.Data;
 import org.apache.log4j.Logger;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
@@ -44,10 +47,14 @@ import org.springframework.stereotype.Component;
 import javax.annotation.PreDestroy;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 @Component
 @Scope(value = ConfigurableBeanFactory.SCOPE_SINGLETON)
@@ -55,13 +62,19 @@ public class ZookeeperService {
 
     private static final Logger logger = Logger.getLogger(ZookeeperService.class);
 
+    private static final int MAX_RUNTIME_SETTINGS_UPDATE_ATTEMPTS = 10;
+
     private final AtomicBoolean master = new AtomicBoolean(false);
 
     private final AtomicReference<String> masterTracker = new AtomicReference<>();
 
+    private final AtomicReference<SharedSettings> runtimeSettings = new AtomicReference<>(new SharedSettings(null, -1));
+    private final List<Consumer<String>> runtimeSettingsListeners = new CopyOnWriteArrayList<>();
+
     private boolean stopping = false;
+    private boolean zookeeperUsed = false;
 
-    private ElectionProcess electionProcess;
+    private volatile ElectionProcess electionProcess;
 
     @PreDestroy
     public void destroy() {
@@ -135,6 +148,7 @@ public class ZookeeperService {
                 zookeeperSessionTimeout = 5000;
             }
             final int timeout = zookeeperSessionTimeout;
+            zookeeperUsed = true;
 
             Executors.newSingleThreadExecutor(r -> {
                 Thread t = new Thread(r);
@@ -159,6 +173,11 @@ public class ZookeeperService {
                                 logger.info ("Master gained.");
                                 master.set(true);
                             }
+
+                            @Override
+                            public void onRuntimeSettingsChanged(byte[] settings, int version) {
+                                runtimeSettingsReceived(decode(settings), version);
+                            }
                         });
 
                         electionProcess.run();
@@ -190,6 +209,105 @@ public class ZookeeperService {
         return masterTracker.get();
     }
 
+    /**
+     * @return false when running standalone or with both master and nodes forced, in which case zookeeper is never
+     * connected to
+     */
+    public boolean isZookeeperUsed() {
+        return zookeeperUsed;
+    }
+
+    public boolean isZookeeperConnected() {
+        ElectionProcess process = electionProcess;
+        return process != null
+                && process.getZooKeeperManager() != null
+                && process.getZooKeeperManager().isConnected();
+    }
+
+    /**
+     * @return the locally cached copy of the runtime settings shared through zookeeper, kept up to date by a watch, or
+     * null if none have been shared yet
+     */
+    public String getRuntimeSettings() {
+        return runtimeSettings.get().getSettings();
+    }
+
+    /**
+     * Write the runtime settings returned by the updater for the shared settings last seen by this instance, provided
+     * no other instance changed them since. Otherwise the shared settings are read again and the updater applied
+     * again to them.
+     * <br>
+     * Other instances changes read this way are not notified to the listeners, the settings written being based on
+     * them already.
+     *
+     * @return the settings written
+     */
+    public String updateRuntimeSettings(UnaryOperator<String> updater) {
+        ElectionProcess process = electionProcess;
+        if (!isZookeeperConnected()) {
+            throw new IllegalStateException("No zookeeper connection !");
+        }
+        SharedSettings seen = runtimeSettings.get();
+        if (seen.getVersion() < 0) {
+            seen = readRuntimeSettings(process); // not notified yet
+        }
+        for (int attempt = 1; ; attempt++) {
+            String settings = updater.apply(seen.getSettings());
+            try {
+                int version = process.setRuntimeSettings(settings.getBytes(StandardCharsets.UTF_8), seen.getVersion());
+                runtimeSettings.accumulateAndGet(new SharedSettings(settings, version), ZookeeperService::mostRecent);
+                return settings;
+
+            } catch (KeeperException.BadVersionException e) {
+                if (attempt >= MAX_RUNTIME_SETTINGS_UPDATE_ATTEMPTS) {
+                    throw new IllegalStateException("Runtime settings kept being changed concurrently", e);
+                }
+                logger.info ("Runtime settings changed by another instance meanwhile. Updating them again.");
+                seen = readRuntimeSettings(process);
+            }
+        }
+    }
+
+    private SharedSettings readRuntimeSettings(ElectionProcess process) {
+        Stat stat = new Stat();
+        SharedSettings read = new SharedSettings(decode(process.getRuntimeSettings(stat)), stat.getVersion());
+        runtimeSettings.accumulateAndGet(read, ZookeeperService::mostRecent);
+        return read;
+    }
+
+    private static String decode(byte[] settings) {
+        return settings == null || settings.length == 0 ? null : new String(settings, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Listeners are notified of the runtime settings shared through zookeeper whenever another instance changes them.
+     */
+    public void addRuntimeSettingsListener(Consumer<String> listener) {
+        runtimeSettingsListeners.add(listener);
+    }
+
+    public void removeRuntimeSettingsListener(Consumer<String> listener) {
+        runtimeSettingsListeners.remove(listener);
+    }
+
+    /*
+     * A notification may be delivered after this instance wrote more recent settings itself, in which case it is
+     * ignored, as are the notifications of the settings written by this instance.
+     */
+    void runtimeSettingsReceived(String settings, int version) {
+        SharedSettings received = new SharedSettings(settings, version);
+        if (runtimeSettings.getAndAccumulate(received, ZookeeperService::mostRecent).getVersion() >= version) {
+            return;
+        }
+        if (settings != null) {
+            runtimeSettingsListeners.forEach(listener -> listener.accept(settings));
+        }
+    }
+
+    private static SharedSettings mostRecent(SharedSettings current, SharedSettings other) {
+        return other.getVersion() > current.getVersion() ? other : current;
+    }
+
     public String getConfiguredNodes() {
 
         if (electionProcess == null || electionProcess.getZooKeeperManager() == null) {
@@ -202,4 +320,10 @@ public class ZookeeperService {
         return String.join(",", dataNodes);
 
     }
+
+    @Data
+    private static class SharedSettings {
+        private final String settings;
+        private final int version;
+    }
 }
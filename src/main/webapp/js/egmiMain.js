@@ -302,6 +302,9 @@ egmi.Main = function() {
 
                 nodeRow += "<td class=\"status-node-cell\">"
                     + (node.status && node.status !== "" ? node.status : "-")
+                    + (node.timed_out ? " (TIMED OUT)" : "")
+                    + (node.stale ? " (STALE)" : "")
+                    + (node.circuit_breaker && node.circuit_breaker.state !== "CLOSED" ? " (" + node.circuit_breaker.state.replace("_", "-") + ")" : "")
                     + "</td>";
 
                 nodeRow += "<td class=\"status-node-cell status-node-cell-left\">"
@@ -0,0 +1,149 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+
+package ch.niceideas.common.http;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncHttpClientTest {
+
+    private HttpServer server = null;
+    private AsyncHttpClient client = null;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/echo", exchange -> {
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            byte[] body = ("query=" + exchange.getRequestURI().getRawQuery() + "\nheader=" + ifNoneMatch).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("ETag", "\"abc\"");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.createContext("/large", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream os = exchange.getResponseBody()) {
+                for (int i = 0; i < 10000; i++) {
+                    os.write(("line " + i + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        });
+        server.start();
+
+        client = new AsyncHttpClient(5, 20, 30);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        client.close();
+        server.stop(0);
+    }
+
+    private String baseUrl() {
+        return "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Test
+    public void testSendRequest() throws Exception {
+
+        Properties headers = new Properties();
+        headers.setProperty("If-None-Match", "\"xyz\"");
+
+        try (HttpClientResponse response = client.sendRequest(baseUrl() + "/echo?command=pool&options=all detail", headers).get(10, TimeUnit.SECONDS)) {
+            assertEquals (200, response.getStatusCode());
+            assertEquals ("\"abc\"", response.getHeader("etag"));
+            assertEquals ("query=command=pool&options=all%20detail\nheader=\"xyz\"", response.asString(StandardCharsets.UTF_8));
+            assertTrue (response.getTargetHost().endsWith(":" + server.getAddress().getPort()));
+        }
+    }
+
+    @Test
+    public void testChunkedResponse() throws Exception {
+
+        try (HttpClientResponse response = client.sendRequest(baseUrl() + "/large", null).get(10, TimeUnit.SECONDS)) {
+            String[] lines = response.asString(StandardCharsets.UTF_8).split("\n");
+            assertEquals (10000, lines.length);
+            assertEquals ("line 9999", lines[9999]);
+        }
+    }
+
+    @Test
+    public void testFanOut() throws Exception {
+
+        List<CompletableFuture<HttpClientResponse>> pendingResponses = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            pendingResponses.add(client.sendRequest(baseUrl() + "/echo?request=" + i, null));
+        }
+
+        CompletableFuture.allOf(pendingResponses.toArray(new CompletableFuture[0])).get(20, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 50; i++) {
+            try (HttpClientResponse response = pendingResponses.get(i).get()) {
+                assertTrue (response.asString(StandardCharsets.UTF_8).startsWith("query=request=" + i + "\n"));
+            }
+        }
+    }
+
+    @Test
+    public void testFailures() {
+
+        ExecutionException exception = assertThrows (ExecutionException.class,
+                () -> client.sendRequest("not a valid url !", null).get(10, TimeUnit.SECONDS));
+        assertTrue (exception.getCause() instanceof HttpClientException);
+
+        int port = server.getAddress().getPort();
+        server.stop(0);
+
+        exception = assertThrows (ExecutionException.class,
+                () -> client.sendRequest("127.0.0.1:" + port + "/echo", null).get(30, TimeUnit.SECONDS));
+        assertTrue (exception.getCause() instanceof HttpClientException);
+    }
+}
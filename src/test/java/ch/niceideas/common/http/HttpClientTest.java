@@ -35,15 +35,63 @@
 
 package ch.niceideas.common.http;
 
+import ch.niceideas.common.utils.LineTokenizer;
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.Test;
 
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.regex.Matcher;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class HttpClientTest {
 
+    @Test
+    public void testStreamedResponse() throws Exception {
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/lines", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream os = exchange.getResponseBody()) {
+                for (int i = 0; i < 10000; i++) {
+                    os.write(("line " + i + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        });
+        server.start();
+
+        HttpClient client = new HttpClient();
+        try {
+            String url = "127.0.0.1:" + server.getAddress().getPort() + "/lines";
+
+            // more requests than pooled connections per route : every response needs to be released
+            for (int i = 0; i < 10; i++) {
+                try (HttpClientResponse response = client.sendRequest(url);
+                     LineTokenizer lines = new LineTokenizer(response.getContentStream(), StandardCharsets.UTF_8)) {
+                    assertEquals ("line 0", lines.nextLine());
+                    if (i % 2 == 0) {
+                        int count = 1;
+                        while (lines.nextLine() != null) {
+                            count++;
+                        }
+                        assertEquals (10000, count);
+                    }
+                }
+            }
+
+            try (HttpClientResponse response = client.sendRequest(url)) {
+                assertTrue (response.asString(StandardCharsets.UTF_8).endsWith("line 9999\n"));
+            }
+
+        } finally {
+            client.close();
+            server.stop(0);
+        }
+    }
+
     @Test
     public void testRequestValidationPattern() {
 
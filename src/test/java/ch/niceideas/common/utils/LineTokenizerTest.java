@@ -0,0 +1,98 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+
+package ch.niceideas.common.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LineTokenizerTest {
+
+    private List<String> tokenize(InputStream input) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (LineTokenizer tokenizer = new LineTokenizer(input, StandardCharsets.UTF_8)) {
+            for (String line = tokenizer.nextLine(); line != null; line = tokenizer.nextLine()) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private List<String> tokenize(String content) throws IOException {
+        return tokenize(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testSameAsSplit() throws Exception {
+        for (String content : new String[] {
+                "a\nb\nc",
+                "a\nb\nc\n",
+                "a\n\nb\n\n\n",
+                "\n\na\n\n\nb",
+                "single",
+                "a\r\nb\r\n",
+                "é à ü\n日本語\n"}) {
+            assertEquals (Arrays.asList(content.split("\n")), tokenize(content), content);
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        assertTrue (tokenize("").isEmpty());
+        assertTrue (tokenize("\n\n").isEmpty());
+    }
+
+    @Test
+    public void testLongLinesAcrossReads() throws Exception {
+        String longLine = "x".repeat(50000);
+        String content = longLine + "\n" + "y".repeat(10) + "\n" + longLine;
+
+        // deliver the content in small chunks to cross read buffer boundaries
+        InputStream trickleInput = new FilterInputStream(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+
+        assertEquals (Arrays.asList(longLine, "y".repeat(10), longLine), tokenize(trickleInput));
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+
+package ch.niceideas.common.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimerWheelTest {
+
+    private final List<String> expired = new ArrayList<>();
+
+    private final TimerWheel<String> wheel = new TimerWheel<>("test-wheel", 100, 8, expired::add, 0);
+
+    @Test
+    public void testNominal() {
+
+        wheel.schedule("a", 250);
+        wheel.schedule("b", 120);
+        wheel.schedule("c", 5000); // several rounds of the wheel
+        assertEquals(3, wheel.size());
+
+        wheel.advance(199);
+        assertEquals(List.of(), expired);
+
+        wheel.advance(200);
+        assertEquals(List.of("b"), expired);
+
+        wheel.advance(300);
+        assertEquals(List.of("b", "a"), expired);
+
+        wheel.advance(4999);
+        assertEquals(List.of("b", "a"), expired);
+        assertEquals(5000L, wheel.getDeadline("c"));
+
+        wheel.advance(5100);
+        assertEquals(List.of("b", "a", "c"), expired);
+        assertEquals(0, wheel.size());
+        assertNull(wheel.getDeadline("c"));
+    }
+
+    @Test
+    public void testPastDeadline() {
+
+        wheel.advance(1000);
+
+        wheel.schedule("late", 10);
+        wheel.advance(1099);
+        assertEquals(List.of(), expired);
+        wheel.advance(1100);
+        assertEquals(List.of("late"), expired);
+    }
+
+    @Test
+    public void testRescheduleAndCancel() {
+
+        wheel.schedule("a", 150);
+        wheel.schedule("a", 850);
+        wheel.schedule("b", 150);
+        assertTrue(wheel.cancel("b"));
+        assertFalse(wheel.cancel("b"));
+
+        wheel.advance(800);
+        assertEquals(List.of(), expired);
+
+        wheel.advance(900);
+        assertEquals(List.of("a"), expired);
+
+        wheel.schedule("c", 1000);
+        wheel.clear();
+        wheel.advance(2000);
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    public void testHandlerFailure() {
+
+        TimerWheel<String> failingWheel = new TimerWheel<>("test-wheel", 100, 8, key -> {
+            expired.add(key);
+            throw new IllegalStateException(key);
+        }, 0);
+
+        failingWheel.schedule("a", 10);
+        failingWheel.schedule("b", 20);
+        failingWheel.advance(100);
+        assertEquals(List.of("a", "b"), expired);
+    }
+
+    @Test
+    public void testStart() throws Exception {
+
+        List<String> expiredLive = new ArrayList<>();
+        TimerWheel<String> liveWheel = new TimerWheel<>("test-wheel", 10, 8, key -> {
+            synchronized (expiredLive) {
+                expiredLive.add(key);
+                expiredLive.notifyAll();
+            }
+        });
+        try {
+            liveWheel.start();
+            liveWheel.schedule("a", System.currentTimeMillis() + 50);
+            synchronized (expiredLive) {
+                long end = System.currentTimeMillis() + 5000;
+                while (expiredLive.isEmpty() && System.currentTimeMillis() < end) {
+                    expiredLive.wait(100);
+                }
+            }
+            assertEquals(List.of("a"), expiredLive);
+        } finally {
+            liveWheel.close();
+        }
+    }
+}
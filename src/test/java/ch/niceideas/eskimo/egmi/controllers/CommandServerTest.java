@@ -35,14 +35,21 @@
 package ch.niceideas.eskimo.egmi.controllers;
 
 import ch.niceideas.common.utils.ProcessHelper;
+import ch.niceideas.common.utils.StreamUtils;
+import ch.niceideas.eskimo.egmi.gluster.command.result.GlusterNodeSnapshotResult;
+import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class CommandServerTest {
 
@@ -106,4 +113,85 @@ public class CommandServerTest {
 
         assertEquals("/usr/sbin/gluster --mode=script volume replace-brick spark_data 192.168.10.72:/var/lib/gluster/volume_bricks/spark_data 192.168.10.74:/var/lib/gluster/volume_bricks/spark_data commit force --mode=script", String.join ("\n", commandList));
     }
+
+    @Test
+    public void testNodeSnapshot() throws Exception {
+        MockHttpServletRequest httpReq = new MockHttpServletRequest();
+        MockHttpServletResponse httpResp = new MockHttpServletResponse();
+        commandServer.nodeSnapshot(httpReq, httpResp);
+
+        assertEquals (200, httpResp.getStatus());
+        assertNull (httpResp.getHeader("Content-Encoding"));
+
+        JSONObject snapshot = new JSONObject(httpResp.getContentAsString(StandardCharsets.UTF_8));
+        assertEquals ("OK", snapshot.getJSONObject(GlusterNodeSnapshotResult.POOL_LIST).getString(GlusterNodeSnapshotResult.OUTPUT));
+        assertEquals (200, snapshot.getJSONObject(GlusterNodeSnapshotResult.VOLUME_STATUS).getInt(GlusterNodeSnapshotResult.STATUS));
+
+        assertEquals("/usr/sbin/gluster --mode=script pool list\n" +
+                "/usr/sbin/gluster --mode=script volume info\n" +
+                "/usr/sbin/gluster --mode=script volume status all detail", String.join ("\n", commandList));
+    }
+
+    @Test
+    public void testNodeSnapshotCompressed() throws Exception {
+        MockHttpServletRequest httpReq = new MockHttpServletRequest();
+        httpReq.addHeader("Accept-Encoding", "gzip, deflate");
+        MockHttpServletResponse httpResp = new MockHttpServletResponse();
+        commandServer.nodeSnapshot(httpReq, httpResp);
+
+        assertEquals ("gzip", httpResp.getHeader("Content-Encoding"));
+
+        String content = new String (
+                StreamUtils.getBytes(new GZIPInputStream(new ByteArrayInputStream(httpResp.getContentAsByteArray()))),
+                StandardCharsets.UTF_8);
+
+        JSONObject snapshot = new JSONObject(content);
+        assertEquals ("OK", snapshot.getJSONObject(GlusterNodeSnapshotResult.VOLUME_INFO).getString(GlusterNodeSnapshotResult.OUTPUT));
+    }
+
+    @Test
+    public void testGlusterCommandNotModified() {
+        MockHttpServletRequest httpReq = new MockHttpServletRequest();
+        MockHttpServletResponse httpResp = new MockHttpServletResponse();
+        String result = commandServer.execute(httpReq, httpResp, "volume", "info", "");
+
+        assertEquals ("OK", result);
+        String etag = httpResp.getHeader("ETag");
+        assertNotNull (etag);
+
+        httpReq = new MockHttpServletRequest();
+        httpReq.addHeader("If-None-Match", etag);
+        httpResp = new MockHttpServletResponse();
+        result = commandServer.execute(httpReq, httpResp, "volume", "info", "");
+
+        assertEquals (304, httpResp.getStatus());
+        assertEquals ("", result);
+
+        httpReq = new MockHttpServletRequest();
+        httpReq.addHeader("If-None-Match", "\"other\"");
+        httpResp = new MockHttpServletResponse();
+        result = commandServer.execute(httpReq, httpResp, "volume", "info", "");
+
+        assertEquals (200, httpResp.getStatus());
+        assertEquals ("OK", result);
+    }
+
+    @Test
+    public void testNodeSnapshotNotModifiedSections() throws Exception {
+        MockHttpServletResponse httpResp = new MockHttpServletResponse();
+        commandServer.nodeSnapshot(new MockHttpServletRequest(), httpResp);
+
+        JSONObject snapshot = new JSONObject(httpResp.getContentAsString(StandardCharsets.UTF_8));
+        String poolListETag = snapshot.getJSONObject(GlusterNodeSnapshotResult.POOL_LIST).getString(GlusterNodeSnapshotResult.ETAG);
+
+        MockHttpServletRequest httpReq = new MockHttpServletRequest();
+        httpReq.addHeader("If-None-Match", poolListETag + ", \"other\"");
+        httpResp = new MockHttpServletResponse();
+        commandServer.nodeSnapshot(httpReq, httpResp);
+
+        // all sections have the same output here
+        snapshot = new JSONObject(httpResp.getContentAsString(StandardCharsets.UTF_8));
+        assertEquals (304, snapshot.getJSONObject(GlusterNodeSnapshotResult.POOL_LIST).getInt(GlusterNodeSnapshotResult.STATUS));
+        assertFalse (snapshot.getJSONObject(GlusterNodeSnapshotResult.POOL_LIST).has(GlusterNodeSnapshotResult.OUTPUT));
+    }
 }
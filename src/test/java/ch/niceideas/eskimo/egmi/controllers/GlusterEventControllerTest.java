@@ -0,0 +1,94 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+package ch.niceideas.eskimo.egmi.controllers;
+
+import ch.niceideas.eskimo.egmi.management.GlusterEventService;
+import ch.niceideas.eskimo.egmi.model.Node;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GlusterEventControllerTest {
+
+    private final GlusterEventController glusterEventController = new GlusterEventController();
+
+    private String lastSource = null;
+    private JSONObject lastEvent = null;
+
+    @BeforeEach
+    public void setUp() {
+        glusterEventController.setGlusterEventService(new GlusterEventService() {
+            @Override
+            public Set<Node> handleEvent(String sourceAddress, JSONObject event) {
+                lastSource = sourceAddress;
+                lastEvent = event;
+                return Collections.emptySet();
+            }
+        });
+    }
+
+    @Test
+    public void testReceiveEvent() {
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("192.168.10.71");
+
+        assertEquals ("{\"status\": \"OK\"}", glusterEventController.receiveEvent(
+                "{\"nodeid\": \"c1c8bd49\", \"ts\": 1468303352, \"event\": \"VOLUME_STOP\", \"message\": {\"name\": \"test\"}}",
+                request));
+
+        assertEquals ("192.168.10.71", lastSource);
+        assertEquals ("VOLUME_STOP", lastEvent.getString("event"));
+    }
+
+    @Test
+    public void testReceiveInvalidEvent() {
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        assertEquals ("{\n" +
+                "    \"error\": \"Passed event is empty\",\n" +
+                "    \"status\": \"KO\"\n" +
+                "}", glusterEventController.receiveEvent("", request));
+
+        assertTrue (glusterEventController.receiveEvent("not json", request).contains("\"status\": \"KO\""));
+    }
+}
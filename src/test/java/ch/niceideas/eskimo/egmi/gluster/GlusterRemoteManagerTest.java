@@ -39,19 +39,36 @@ import ch.niceideas.common.http.HttpClientException;
 import ch.niceideas.common.http.HttpClientResponse;
 import ch.niceideas.common.utils.ResourceUtils;
 import ch.niceideas.common.utils.StreamUtils;
+import ch.niceideas.eskimo.egmi.gluster.command.GlusterPeerProbe;
+import ch.niceideas.eskimo.egmi.gluster.command.result.GlusterNodeSnapshotResult;
 import ch.niceideas.eskimo.egmi.gluster.command.result.GlusterVolumeInfoResult;
 import ch.niceideas.eskimo.egmi.management.ManagementService;
 import ch.niceideas.eskimo.egmi.model.Node;
 import ch.niceideas.eskimo.egmi.model.NodeStatus;
+import ch.niceideas.eskimo.egmi.problems.CommandContext;
+import com.sun.net.httpserver.HttpServer;
 import org.apache.hc.core5.http.ClassicHttpResponse;
 import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.io.entity.StringEntity;
 import org.junit.jupiter.api.BeforeEach;
+import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 
@@ -134,7 +151,7 @@ public class GlusterRemoteManagerTest {
         };
 
         grm.setHttpClient(mockClient);
-
+        grm.setNodeStatusCollectionMode(GlusterRemoteManager.CollectionMode.SEQUENTIAL);
 
         grm.setManagementService(new ManagementService(false) {
 
@@ -157,4 +174,726 @@ public class GlusterRemoteManagerTest {
 
     }
 
+    @Test
+    public void testGetNodeStatusPipelined() throws Exception {
+
+        HttpClient mockClient = new HttpClient() {
+
+            @Override
+            public HttpClientResponse sendRequest(String url) throws HttpClientException {
+                switch (url) {
+                    case "192.168.10.71:18999/command?command=pool&subcommand=list&options=":
+                        return buildResponse("GlusterRemoteManagerTest/result-pool-list.txt");
+                    case "192.168.10.71:18999/command?command=volume&subcommand=info&options=":
+                        return buildResponse("GlusterRemoteManagerTest/result-volume-info.txt");
+                    case "192.168.10.71:18999/command?command=volume&subcommand=status&options=all%20detail":
+                        return buildResponse("GlusterRemoteManagerTest/result-volume-status.txt");
+                    default:
+                        throw new HttpClientException("Unexpected URL " + url);
+                }
+            }
+        };
+
+        grm.setHttpClient(mockClient);
+        grm.setNodeStatusCollectionMode(GlusterRemoteManager.CollectionMode.PIPELINED);
+
+        grm.setManagementService(new ManagementService(false) {
+
+            @Override
+            public String getContextRoot() {
+                return "";
+            }
+        });
+
+        NodeStatus nodeStatus = grm.getNodeStatus(Node.from("192.168.10.71"));
+        assertNotNull(nodeStatus);
+
+        String expectedStatusString = StreamUtils.getAsString(ResourceUtils.getResourceAsStream("GlusterRemoteManagerTest/NodeStatusResult.txt"));
+        NodeStatus expectedStatus = new NodeStatus(expectedStatusString);
+
+        assertTrue (expectedStatus.getJSONObject().similar(nodeStatus.getJSONObject()));
+
+        grm.destroy();
+    }
+
+    @Test
+    public void testGetAllNodeStatusDeadline() throws Exception {
+
+        HttpClient mockClient = new HttpClient() {
+
+            @Override
+            public HttpClientResponse sendRequest(String url) throws HttpClientException {
+                try {
+                    if (url.startsWith("192.168.10.72:")) {
+                        Thread.sleep(20000);
+                    } else if (url.startsWith("192.168.10.73:")) {
+                        throw new HttpClientException("Connection refused");
+                    }
+
+                    switch (url) {
+                        case "192.168.10.71:18999/command?command=pool&subcommand=list&options=":
+                            return buildResponse("GlusterRemoteManagerTest/result-pool-list.txt");
+                        case "192.168.10.71:18999/command?command=volume&subcommand=info&options=":
+                            return buildResponse("GlusterRemoteManagerTest/result-volume-info.txt");
+                        case "192.168.10.71:18999/command?command=volume&subcommand=status&options=all%20detail":
+                            return buildResponse("GlusterRemoteManagerTest/result-volume-status.txt");
+                        default:
+                            throw new HttpClientException("Unexpected URL " + url);
+                    }
+
+                } catch (InterruptedException e) {
+                    throw new HttpClientException(e.getMessage(), e);
+                }
+            }
+        };
+
+        grm.setHttpClient(mockClient);
+        grm.setNodeStatusCollectionMode(GlusterRemoteManager.CollectionMode.PIPELINED);
+        grm.setNodeStatusDeadlineSeconds(2);
+
+        grm.setManagementService(new ManagementService(false) {
+
+            @Override
+            public String getContextRoot() {
+                return "";
+            }
+
+            @Override
+            public Set<Node> getAllNodes() {
+                return new HashSet<>(Set.of(Node.from("192.168.10.71"), Node.from("192.168.10.72"), Node.from("192.168.10.73")));
+            }
+        });
+
+        long start = System.currentTimeMillis();
+        GlusterRemoteManager.NodeStatusCollection collection = grm.collectAllNodeStatus();
+        assertTrue (System.currentTimeMillis() - start < 10000);
+
+        Map<Node, NodeStatus> allNodeStatus = collection.getNodesStatus();
+        assertEquals (1, allNodeStatus.size());
+        assertNotNull (allNodeStatus.get(Node.from("192.168.10.71")));
+
+        assertEquals (1, collection.getTimedOutNodes().size());
+        assertTrue (collection.getTimedOutNodes().contains(Node.from("192.168.10.72")));
+
+        grm.destroy();
+    }
+
+    @Test
+    public void testGetAllNodeStatusStale() throws Exception {
+
+        AtomicBoolean slowNode = new AtomicBoolean(false);
+        AtomicBoolean failingNode = new AtomicBoolean(false);
+        AtomicInteger slowNodeCalls = new AtomicInteger();
+
+        HttpClient mockClient = new HttpClient() {
+
+            @Override
+            public HttpClientResponse sendRequest(String url) throws HttpClientException {
+                try {
+                    if (url.startsWith("192.168.10.72:")) {
+                        slowNodeCalls.incrementAndGet();
+                        if (slowNode.get()) {
+                            Thread.sleep(20000);
+                        }
+                    } else if (failingNode.get()) {
+                        throw new HttpClientException("Connection refused");
+                    }
+
+                    if (url.endsWith("/command?command=pool&subcommand=list&options=")) {
+                        return buildResponse("GlusterRemoteManagerTest/result-pool-list.txt");
+                    } else if (url.endsWith("/command?command=volume&subcommand=info&options=")) {
+                        return buildResponse("GlusterRemoteManagerTest/result-volume-info.txt");
+                    } else if (url.endsWith("/command?command=volume&subcommand=status&options=all%20detail")) {
+                        return buildResponse("GlusterRemoteManagerTest/result-volume-status.txt");
+                    }
+                    throw new HttpClientException("Unexpected URL " + url);
+
+                } catch (InterruptedException e) {
+                    throw new HttpClientException(e.getMessage(), e);
+                }
+            }
+        };
+
+        grm.setHttpClient(mockClient);
+        grm.setNodeStatusCollectionMode(GlusterRemoteManager.CollectionMode.SEQUENTIAL);
+        grm.setNodeStatusDeadlineSeconds(2);
+
+        grm.setManagementService(new ManagementService(false) {
+
+            @Override
+            public String getContextRoot() {
+                return "";
+            }
+
+            @Override
+            public Set<Node> getAllNodes() {
+                return new HashSet<>(Set.of(Node.from("192.168.10.71"), Node.from("192.168.10.72")));
+            }
+        });
+
+        GlusterRemoteManager.NodeStatusCollection collection = grm.collectAllNodeStatus();
+        Map<Node, NodeStatus> allNodeStatus = collection.getNodesStatus();
+        assertEquals (2, allNodeStatus.size());
+        assertFalse (allNodeStatus.get(Node.from("192.168.10.72")).isStale());
+        assertTrue (collection.getStaleNodes().isEmpty());
+
+        // node 72 becomes slow : its last good status is used
+        slowNode.set(true);
+        collection = grm.collectAllNodeStatus();
+        allNodeStatus = collection.getDisplayedNodesStatus();
+        assertEquals (2, allNodeStatus.size());
+        assertTrue (allNodeStatus.get(Node.from("192.168.10.72")).isStale());
+        assertFalse (allNodeStatus.get(Node.from("192.168.10.71")).isStale());
+        assertEquals (Set.of(Node.from("192.168.10.72")), collection.getStaleNodes());
+        assertEquals (Set.of(Node.from("192.168.10.72")), collection.getTimedOutNodes());
+
+        // stale statuses are never shared with problem solvers
+        assertEquals (Set.of(Node.from("192.168.10.71")), collection.getNodesStatus().keySet());
+        assertEquals (Set.of(Node.from("192.168.10.71")), grm.getSharedNodeStatus().keySet());
+
+        // the pending refresh is awaited again instead of querying the node again
+        int callsBefore = slowNodeCalls.get();
+        allNodeStatus = grm.collectAllNodeStatus().getDisplayedNodesStatus();
+        assertTrue (allNodeStatus.get(Node.from("192.168.10.72")).isStale());
+        assertEquals (callsBefore, slowNodeCalls.get());
+
+        // a node failing, as opposed to timing out, never gets a stale status
+        failingNode.set(true);
+        collection = grm.collectAllNodeStatus();
+        assertNull (collection.getDisplayedNodesStatus().get(Node.from("192.168.10.71")));
+        assertEquals (Set.of(Node.from("192.168.10.72")), collection.getStaleNodes());
+        failingNode.set(false);
+
+        // no stale status served beyond the staleness bound
+        grm.setNodeStatusMaxStalenessSeconds(0);
+        collection = grm.collectAllNodeStatus();
+        assertEquals (1, collection.getNodesStatus().size());
+        assertTrue (collection.getStaleNodes().isEmpty());
+
+        grm.destroy();
+    }
+
+    @Test
+    public void testGetSharedNodeStatus() throws Exception {
+
+        AtomicInteger poolListCalls = new AtomicInteger();
+
+        HttpClient mockClient = new HttpClient() {
+
+            @Override
+            public HttpClientResponse sendRequest(String url) throws HttpClientException {
+                if (url.endsWith("/command?command=pool&subcommand=list&options=")) {
+                    poolListCalls.incrementAndGet();
+                    return buildResponse("GlusterRemoteManagerTest/result-pool-list.txt");
+                } else if (url.endsWith("/command?command=volume&subcommand=info&options=")) {
+                    return buildResponse("GlusterRemoteManagerTest/result-volume-info.txt");
+                } else if (url.endsWith("/command?command=volume&subcommand=status&options=all%20detail")) {
+                    return buildResponse("GlusterRemoteManagerTest/result-volume-status.txt");
+                } else if (url.endsWith("/command?command=peer&subcommand=probe&options=192.168.10.72")) {
+                    return buildContentResponse(200, "peer probe: success");
+                }
+                throw new HttpClientException("Unexpected URL " + url);
+            }
+        };
+
+        ManagementService ms = new ManagementService(false) {
+
+            @Override
+            public String getContextRoot() {
+                return "";
+            }
+
+            @Override
+            public Set<Node> getAllNodes() {
+                return new HashSet<>(Set.of(Node.from("192.168.10.71")));
+            }
+        };
+
+        grm.setHttpClient(mockClient);
+        grm.setNodeStatusCollectionMode(GlusterRemoteManager.CollectionMode.SEQUENTIAL);
+        grm.setManagementService(ms);
+
+        Map<Node, NodeStatus> allNodeStatus = grm.getAllNodeStatus();
+        assertEquals (1, poolListCalls.get());
+
+        // solvers share the last status
+        assertSame (allNodeStatus, grm.getSharedNodeStatus());
+        assertSame (allNodeStatus, grm.getSharedNodeStatus());
+        assertEquals (1, poolListCalls.get());
+        assertThrows (UnsupportedOperationException.class, () -> grm.getSharedNodeStatus().clear());
+
+        // an operation changing the cluster invalidates it
+        long version = grm.getClusterVersion();
+        new GlusterPeerProbe(mockClient, Node.from("192.168.10.72")).execute(
+                Node.from("192.168.10.71"), new CommandContext(mockClient, 18999, ms, grm));
+        assertEquals (version + 1, grm.getClusterVersion());
+
+        Map<Node, NodeStatus> refreshed = grm.getSharedNodeStatus();
+        assertNotSame (allNodeStatus, refreshed);
+        assertEquals (2, poolListCalls.get());
+        assertSame (refreshed, grm.getSharedNodeStatus());
+
+        // as does the freshness bound
+        grm.setSnapshotMaxAgeSeconds(0);
+        Thread.sleep(5);
+        assertNotSame (refreshed, grm.getSharedNodeStatus());
+        assertEquals (3, poolListCalls.get());
+
+        grm.destroy();
+    }
+
+    @Test
+    public void testGetLiveNodes() throws Exception {
+
+        List<String> urls = new ArrayList<>();
+
+        HttpClient mockClient = new HttpClient() {
+
+            @Override
+            public HttpClientResponse sendRequest(String url) throws HttpClientException {
+                synchronized (urls) {
+                    urls.add(url);
+                }
+                try {
+                    if (url.startsWith("192.168.10.72:")) {
+                        Thread.sleep(20000);
+                    } else if (url.startsWith("192.168.10.73:")) {
+                        throw new HttpClientException("Connection refused");
+                    }
+
+                    if (url.endsWith("/command?command=pool&subcommand=list&options=")) {
+                        return buildResponse("GlusterRemoteManagerTest/result-pool-list.txt");
+                    }
+                    throw new HttpClientException("Unexpected URL " + url);
+
+                } catch (InterruptedException e) {
+                    throw new HttpClientException(e.getMessage(), e);
+                }
+            }
+        };
+
+        grm.setHttpClient(mockClient);
+        grm.setLivenessAsyncTransport(false);
+
+        grm.setManagementService(new ManagementService(false) {
+
+            @Override
+            public String getContextRoot() {
+                return "";
+            }
+
+            @Override
+            public Set<Node> getAllNodes() {
+                return new HashSet<>(Set.of(Node.from("192.168.10.71"), Node.from("192.168.10.72"), Node.from("192.168.10.73")));
+            }
+        });
+
+        long start = System.currentTimeMillis();
+        Set<Node> liveNodes = grm.getLiveNodes(2);
+        assertTrue (System.currentTimeMillis() - start < 10000);
+
+        assertEquals (1, liveNodes.size());
+        assertTrue (liveNodes.contains(Node.from("192.168.10.71")));
+
+        // only the peer list is fetched
+        synchronized (urls) {
+            assertEquals (3, urls.size());
+            assertTrue (urls.stream().allMatch(url -> url.endsWith("/command?command=pool&subcommand=list&options=")));
+        }
+
+        grm.destroy();
+    }
+
+    @Test
+    public void testGetLiveNodesAsync() throws Exception {
+
+        byte[] poolList = StreamUtils.getAsString(ResourceUtils.getResourceAsStream("GlusterRemoteManagerTest/result-pool-list.txt"))
+                .getBytes(StandardCharsets.UTF_8);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/command", exchange -> {
+            exchange.sendResponseHeaders(200, poolList.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(poolList);
+            }
+        });
+        server.start();
+
+        try {
+            grm.setHttpClient(new HttpClient() {
+                @Override
+                public HttpClientResponse sendRequest(String url) throws HttpClientException {
+                    throw new HttpClientException("Blocking client should not be used " + url);
+                }
+            });
+            grm.setGlusterCommandServerPort(server.getAddress().getPort());
+
+            grm.setManagementService(new ManagementService(false) {
+
+                @Override
+                public String getContextRoot() {
+                    return "";
+                }
+
+                @Override
+                public Set<Node> getAllNodes() {
+                    // the server only listens on 127.0.0.1
+                    return new HashSet<>(Set.of(Node.from("127.0.0.1"), Node.from("127.0.0.2")));
+                }
+            });
+
+            Set<Node> liveNodes = grm.getLiveNodes(10);
+            assertEquals (Set.of(Node.from("127.0.0.1")), liveNodes);
+
+        } finally {
+            grm.destroy();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testGetNodeStatusFromSnapshot() throws Exception {
+
+        JSONObject snapshot = new JSONObject();
+        snapshot.put(GlusterNodeSnapshotResult.POOL_LIST, buildSnapshotSection("GlusterRemoteManagerTest/result-pool-list.txt"));
+        snapshot.put(GlusterNodeSnapshotResult.VOLUME_INFO, buildSnapshotSection("GlusterRemoteManagerTest/result-volume-info.txt"));
+        snapshot.put(GlusterNodeSnapshotResult.VOLUME_STATUS, buildSnapshotSection("GlusterRemoteManagerTest/result-volume-status.txt"));
+
+        List<String> urls = new ArrayList<>();
+
+        HttpClient mockClient = new HttpClient() {
+
+            @Override
+            public HttpClientResponse sendRequest(String url) throws HttpClientException {
+                synchronized (urls) {
+                    urls.add(url);
+                }
+                if (url.equals("192.168.10.71:18999/node-snapshot")) {
+                    return buildContentResponse(200, snapshot.toString());
+                }
+                throw new HttpClientException("Unexpected URL " + url);
+            }
+        };
+
+        grm.setHttpClient(mockClient);
+        grm.setNodeStatusCollectionMode(GlusterRemoteManager.CollectionMode.SNAPSHOT);
+
+        grm.setManagementService(new ManagementService(false) {
+
+            @Override
+            public String getContextRoot() {
+                return "";
+            }
+        });
+
+        NodeStatus nodeStatus = grm.getNodeStatus(Node.from("192.168.10.71"));
+        assertNotNull(nodeStatus);
+
+        assertEquals (1, urls.size());
+
+        String expectedStatusString = StreamUtils.getAsString(ResourceUtils.getResourceAsStream("GlusterRemoteManagerTest/NodeStatusResult.txt"));
+        NodeStatus expectedStatus = new NodeStatus(expectedStatusString);
+
+        assertTrue (expectedStatus.getJSONObject().similar(nodeStatus.getJSONObject()));
+
+        grm.destroy();
+    }
+
+    @Test
+    public void testRefreshNodes() throws Exception {
+
+        AtomicInteger poolListCalls = new AtomicInteger();
+
+        HttpClient mockClient = new HttpClient() {
+
+            @Override
+            public HttpClientResponse sendRequest(String url) throws HttpClientException {
+                if (url.endsWith("/command?command=pool&subcommand=list&options=")) {
+                    poolListCalls.incrementAndGet();
+                    return buildResponse("GlusterRemoteManagerTest/result-pool-list.txt");
+                } else if (url.endsWith("/command?command=volume&subcommand=info&options=")) {
+                    return buildResponse("GlusterRemoteManagerTest/result-volume-info.txt");
+                } else if (url.endsWith("/command?command=volume&subcommand=status&options=all%20detail")) {
+                    return buildResponse("GlusterRemoteManagerTest/result-volume-status.txt");
+                }
+                throw new HttpClientException("Unexpected URL " + url);
+            }
+        };
+
+        grm.setHttpClient(mockClient);
+        grm.setNodeStatusCollectionMode(GlusterRemoteManager.CollectionMode.SEQUENTIAL);
+        grm.setManagementService(new ManagementService(false) {
+
+            @Override
+            public String getContextRoot() {
+                return "";
+            }
+
+            @Override
+            public Set<Node> getAllNodes() {
+                return new HashSet<>(Set.of(Node.from("192.168.10.71"), Node.from("192.168.10.72")));
+            }
+        });
+
+        Map<Node, NodeStatus> allNodeStatus = grm.getAllNodeStatus();
+        assertEquals (2, poolListCalls.get());
+        long version = grm.getClusterVersion();
+
+        // an event refreshes the affected node right away and drops the shared status
+        grm.refreshNodes(Set.of(Node.from("192.168.10.72")));
+        assertEquals (version + 1, grm.getClusterVersion());
+
+        // an event affecting no node changes nothing
+        grm.refreshNodes(Collections.emptySet());
+        assertEquals (version + 1, grm.getClusterVersion());
+
+        // the next full collection picks up that refresh instead of querying the node again
+        Map<Node, NodeStatus> refreshed = grm.getSharedNodeStatus();
+        assertNotSame (allNodeStatus, refreshed);
+        assertEquals (2, refreshed.size());
+        assertEquals (4, poolListCalls.get());
+
+        // but only once
+        grm.getAllNodeStatus();
+        assertEquals (6, poolListCalls.get());
+
+        // a partial refresh is merged into the shared status, which stays valid
+        Map<Node, NodeStatus> shared = grm.getSharedNodeStatus();
+        Map<Node, NodeStatus> partial = grm.getRefreshedNodeStatus(Set.of(Node.from("192.168.10.71")));
+        assertEquals (Set.of(Node.from("192.168.10.71")), partial.keySet());
+        assertEquals (7, poolListCalls.get());
+
+        Map<Node, NodeStatus> merged = grm.getSharedNodeStatus();
+        assertNotSame (shared, merged);
+        assertSame (partial.get(Node.from("192.168.10.71")), merged.get(Node.from("192.168.10.71")));
+        assertSame (shared.get(Node.from("192.168.10.72")), merged.get(Node.from("192.168.10.72")));
+        assertEquals (7, poolListCalls.get());
+
+        grm.destroy();
+    }
+
+    @Test
+    public void testRefreshNodesWhileFetching() throws Exception {
+
+        AtomicBoolean blocking = new AtomicBoolean(true);
+        AtomicReference<CountDownLatch> release = new AtomicReference<>(new CountDownLatch(1));
+        AtomicInteger slowNodeCalls = new AtomicInteger();
+
+        HttpClient mockClient = new HttpClient() {
+
+            @Override
+            public HttpClientResponse sendRequest(String url) throws HttpClientException {
+                try {
+                    if (url.startsWith("192.168.10.72:") && url.endsWith("/command?command=pool&subcommand=list&options=")) {
+                        slowNodeCalls.incrementAndGet();
+                        if (blocking.get()) {
+                            release.get().await();
+                        }
+                    }
+
+                    if (url.endsWith("/command?command=pool&subcommand=list&options=")) {
+                        return buildResponse("GlusterRemoteManagerTest/result-pool-list.txt");
+                    } else if (url.endsWith("/command?command=volume&subcommand=info&options=")) {
+                        return buildResponse("GlusterRemoteManagerTest/result-volume-info.txt");
+                    } else if (url.endsWith("/command?command=volume&subcommand=status&options=all%20detail")) {
+                        return buildResponse("GlusterRemoteManagerTest/result-volume-status.txt");
+                    }
+                    throw new HttpClientException("Unexpected URL " + url);
+
+                } catch (InterruptedException e) {
+                    throw new HttpClientException(e.getMessage(), e);
+                }
+            }
+        };
+
+        grm.setHttpClient(mockClient);
+        grm.setNodeStatusCollectionMode(GlusterRemoteManager.CollectionMode.SEQUENTIAL);
+        grm.setNodeStatusDeadlineSeconds(1);
+        grm.setManagementService(new ManagementService(false) {
+
+            @Override
+            public String getContextRoot() {
+                return "";
+            }
+
+            @Override
+            public Set<Node> getAllNodes() {
+                return new HashSet<>(Set.of(Node.from("192.168.10.71"), Node.from("192.168.10.72")));
+            }
+        });
+
+        // node 72 is still being fetched when the collection returns
+        GlusterRemoteManager.NodeStatusCollection collection = grm.collectAllNodeStatus();
+        assertEquals (Set.of(Node.from("192.168.10.72")), collection.getTimedOutNodes());
+        assertEquals (1, slowNodeCalls.get());
+
+        // an event about it is not answered by the fetch started before the event but by a new one after it
+        grm.refreshNodes(Set.of(Node.from("192.168.10.72")));
+        blocking.set(false);
+        release.get().countDown();
+
+        collection = grm.collectAllNodeStatus();
+        assertEquals (2, collection.getNodesStatus().size());
+        assertEquals (2, slowNodeCalls.get());
+
+        // a partial refresh, following an action, always queries the node again as well
+        release.set(new CountDownLatch(1));
+        blocking.set(true);
+        grm.collectAllNodeStatus();
+        assertEquals (3, slowNodeCalls.get());
+
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            blocking.set(false);
+            release.get().countDown();
+        });
+        releaser.start();
+        Map<Node, NodeStatus> partial = grm.getRefreshedNodeStatus(Set.of(Node.from("192.168.10.72")));
+        assertEquals (Set.of(Node.from("192.168.10.72")), partial.keySet());
+        assertEquals (4, slowNodeCalls.get());
+
+        grm.destroy();
+    }
+
+    @Test
+    public void testGetNodeStatusSnapshotFallback() throws Exception {
+
+        AtomicInteger snapshotCalls = new AtomicInteger();
+
+        HttpClient mockClient = new HttpClient() {
+
+            @Override
+            public HttpClientResponse sendRequest(String url) throws HttpClientException {
+                switch (url) {
+                    case "192.168.10.71:18999/node-snapshot":
+                        snapshotCalls.incrementAndGet();
+                        return buildContentResponse(404, "Not Found");
+                    case "192.168.10.71:18999/command?command=pool&subcommand=list&options=":
+                        return buildResponse("GlusterRemoteManagerTest/result-pool-list.txt");
+                    case "192.168.10.71:18999/command?command=volume&subcommand=info&options=":
+                        return buildResponse("GlusterRemoteManagerTest/result-volume-info.txt");
+                    case "192.168.10.71:18999/command?command=volume&subcommand=status&options=all%20detail":
+                        return buildResponse("GlusterRemoteManagerTest/result-volume-status.txt");
+                    default:
+                        throw new HttpClientException("Unexpected URL " + url);
+                }
+            }
+        };
+
+        grm.setHttpClient(mockClient);
+        grm.setNodeStatusCollectionMode(GlusterRemoteManager.CollectionMode.SNAPSHOT);
+
+        grm.setManagementService(new ManagementService(false) {
+
+            @Override
+            public String getContextRoot() {
+                return "";
+            }
+        });
+
+        NodeStatus nodeStatus = grm.getNodeStatus(Node.from("192.168.10.71"));
+
+        String expectedStatusString = StreamUtils.getAsString(ResourceUtils.getResourceAsStream("GlusterRemoteManagerTest/NodeStatusResult.txt"));
+        NodeStatus expectedStatus = new NodeStatus(expectedStatusString);
+
+        assertTrue (expectedStatus.getJSONObject().similar(nodeStatus.getJSONObject()));
+
+        // the unsupported snapshot endpoint isn't requested again
+        nodeStatus = grm.getNodeStatus(Node.from("192.168.10.71"));
+        assertTrue (expectedStatus.getJSONObject().similar(nodeStatus.getJSONObject()));
+        assertEquals (1, snapshotCalls.get());
+
+        grm.destroy();
+    }
+
+    @Test
+    public void testGetNodeStatusSnapshotTransientError() throws Exception {
+
+        AtomicInteger snapshotCalls = new AtomicInteger();
+
+        HttpClient mockClient = new HttpClient() {
+
+            @Override
+            public HttpClientResponse sendRequest(String url) throws HttpClientException {
+                switch (url) {
+                    case "192.168.10.71:18999/node-snapshot":
+                        snapshotCalls.incrementAndGet();
+                        return buildContentResponse(503, "Service Unavailable");
+                    case "192.168.10.71:18999/command?command=pool&subcommand=list&options=":
+                        return buildResponse("GlusterRemoteManagerTest/result-pool-list.txt");
+                    case "192.168.10.71:18999/command?command=volume&subcommand=info&options=":
+                        return buildResponse("GlusterRemoteManagerTest/result-volume-info.txt");
+                    case "192.168.10.71:18999/command?command=volume&subcommand=status&options=all%20detail":
+                        return buildResponse("GlusterRemoteManagerTest/result-volume-status.txt");
+                    default:
+                        throw new HttpClientException("Unexpected URL " + url);
+                }
+            }
+        };
+
+        grm.setHttpClient(mockClient);
+        grm.setNodeStatusCollectionMode(GlusterRemoteManager.CollectionMode.SNAPSHOT);
+
+        grm.setManagementService(new ManagementService(false) {
+
+            @Override
+            public String getContextRoot() {
+                return "";
+            }
+        });
+
+        NodeStatus nodeStatus = grm.getNodeStatus(Node.from("192.168.10.71"));
+
+        String expectedStatusString = StreamUtils.getAsString(ResourceUtils.getResourceAsStream("GlusterRemoteManagerTest/NodeStatusResult.txt"));
+        NodeStatus expectedStatus = new NodeStatus(expectedStatusString);
+
+        assertTrue (expectedStatus.getJSONObject().similar(nodeStatus.getJSONObject()));
+
+        // a failure other than an unsupported endpoint doesn't prevent from trying again
+        nodeStatus = grm.getNodeStatus(Node.from("192.168.10.71"));
+        assertTrue (expectedStatus.getJSONObject().similar(nodeStatus.getJSONObject()));
+        assertEquals (2, snapshotCalls.get());
+
+        grm.destroy();
+    }
+
+    private JSONObject buildSnapshotSection (String resource) throws IOException {
+        JSONObject section = new JSONObject();
+        section.put(GlusterNodeSnapshotResult.STATUS, 200);
+        section.put(GlusterNodeSnapshotResult.OUTPUT, StreamUtils.getAsString(ResourceUtils.getResourceAsStream(resource)));
+        return section;
+    }
+
+    private HttpClientResponse buildResponse (String resource) throws HttpClientException {
+        try {
+            return buildContentResponse(200, StreamUtils.getAsString(ResourceUtils.getResourceAsStream(resource)));
+        } catch (IOException e) {
+            throw new HttpClientException(e.getMessage(), e);
+        }
+    }
+
+    private HttpClientResponse buildContentResponse (int code, String content) throws HttpClientException {
+
+        ClassicHttpResponse respProxy = (ClassicHttpResponse) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {ClassicHttpResponse.class}, (proxy, method, args) -> {
+
+            switch (method.getName()) {
+                case "getEntity":
+                    return new StringEntity(content);
+                case "getCode":
+                    return code;
+                case "getReasonPhrase":
+                    return code == 200 ? "Ok" : "Error";
+                case "getHeaders":
+                    return new Header[0];
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        return new HttpClientResponse(respProxy, "127.0.0.1");
+    }
 }
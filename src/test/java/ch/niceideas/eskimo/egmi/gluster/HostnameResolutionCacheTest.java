@@ -0,0 +1,126 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+
+package ch.niceideas.eskimo.egmi.gluster;
+
+import ch.niceideas.eskimo.egmi.model.Node;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HostnameResolutionCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger resolutionCount = new AtomicInteger();
+
+    private HostnameResolutionCache cache = null;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new HostnameResolutionCache(600, 60, clock::get);
+    }
+
+    @Test
+    public void testPositiveCaching() throws Exception {
+
+        Node node = Node.from("192.168.10.71");
+
+        assertEquals ("192.168.10.72", cache.resolve(node, "node2", this::resolveOk));
+        assertEquals ("192.168.10.72", cache.resolve(node, "node2", this::resolveOk));
+        assertEquals (1, resolutionCount.get());
+
+        // other reporting node is another entry
+        assertEquals ("192.168.10.72", cache.resolve(Node.from("192.168.10.73"), "node2", this::resolveOk));
+        assertEquals (2, resolutionCount.get());
+
+        assertEquals (1, cache.getHitCount());
+        assertEquals (2, cache.getMissCount());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(601));
+
+        assertEquals ("192.168.10.72", cache.resolve(node, "node2", this::resolveOk));
+        assertEquals (3, resolutionCount.get());
+    }
+
+    @Test
+    public void testNegativeCaching() throws Exception {
+
+        Node node = Node.from("192.168.10.71");
+
+        assertThrows(IllegalStateException.class, () -> cache.resolve(node, "unknown", this::resolveFailed));
+        assertThrows(IllegalStateException.class, () -> cache.resolve(node, "unknown", this::resolveFailed));
+        assertEquals (1, resolutionCount.get());
+        assertEquals (1, cache.getHitCount());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(61));
+
+        assertThrows(IllegalStateException.class, () -> cache.resolve(node, "unknown", this::resolveFailed));
+        assertEquals (2, resolutionCount.get());
+    }
+
+    @Test
+    public void testInvalidationOnPeerChange() throws Exception {
+
+        Node node = Node.from("192.168.10.71");
+
+        cache.updatePeerUids(node, List.of("uid1", "uid2"));
+        cache.resolve(node, "node2", this::resolveOk);
+
+        cache.updatePeerUids(node, List.of("uid2", "uid1"));
+        cache.resolve(node, "node2", this::resolveOk);
+        assertEquals (1, resolutionCount.get());
+
+        cache.updatePeerUids(node, List.of("uid1", "uid3"));
+        assertEquals (0, cache.size());
+
+        cache.resolve(node, "node2", this::resolveOk);
+        assertEquals (2, resolutionCount.get());
+    }
+
+    private String resolveOk() {
+        resolutionCount.incrementAndGet();
+        return "192.168.10.72";
+    }
+
+    private String resolveFailed() {
+        resolutionCount.incrementAndGet();
+        throw new IllegalStateException("Could not find PING result");
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+
+package ch.niceideas.eskimo.egmi.gluster;
+
+import ch.niceideas.common.http.HttpClientException;
+import ch.niceideas.eskimo.egmi.model.Node;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NodeCircuitBreakerTest {
+
+    private static final Node NODE = Node.from("192.168.10.71");
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger callCount = new AtomicInteger();
+
+    private NodeCircuitBreaker breaker = null;
+
+    @BeforeEach
+    public void setUp() {
+        breaker = new NodeCircuitBreaker(3, 10, 30, clock::get);
+    }
+
+    private String failingCall(Node node) throws GlusterRemoteException {
+        callCount.incrementAndGet();
+        throw new GlusterRemoteException(new HttpClientException("Connection refused"));
+    }
+
+    private String succeedingCall(Node node) {
+        callCount.incrementAndGet();
+        return "OK";
+    }
+
+    private void elapse(int seconds) {
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+
+    @Test
+    public void testOpensAfterThreshold() {
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals (NodeCircuitBreaker.State.CLOSED, breaker.getState(NODE));
+            assertThrows (GlusterRemoteException.class, () -> breaker.call(NODE, this::failingCall));
+        }
+        assertEquals (NodeCircuitBreaker.State.OPEN, breaker.getState(NODE));
+        assertEquals (3, callCount.get());
+
+        // short-circuited
+        CircuitOpenException exception = assertThrows (CircuitOpenException.class, () -> breaker.call(NODE, this::succeedingCall));
+        assertTrue (exception.getMessage().contains("Connection refused"));
+        assertEquals (3, callCount.get());
+
+        JSONObject status = breaker.getStatus().get(NODE);
+        assertEquals ("OPEN", status.getString("state"));
+        assertEquals (3, status.getInt("failures"));
+        assertEquals (10, status.getLong("retry_in_seconds"));
+    }
+
+    @Test
+    public void testSuccessResetsFailures() throws Exception {
+
+        assertThrows (GlusterRemoteException.class, () -> breaker.call(NODE, this::failingCall));
+        assertThrows (GlusterRemoteException.class, () -> breaker.call(NODE, this::failingCall));
+        assertEquals ("OK", breaker.call(NODE, this::succeedingCall));
+        assertThrows (GlusterRemoteException.class, () -> breaker.call(NODE, this::failingCall));
+
+        assertEquals (NodeCircuitBreaker.State.CLOSED, breaker.getState(NODE));
+        assertEquals (1, breaker.getStatus().get(NODE).getInt("failures"));
+    }
+
+    @Test
+    public void testHalfOpenProbeBackoff() throws Exception {
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows (GlusterRemoteException.class, () -> breaker.call(NODE, this::failingCall));
+        }
+
+        // failed probe doubles the backoff
+        elapse(10);
+        assertThrows (GlusterRemoteException.class, () -> breaker.call(NODE, this::failingCall));
+        assertEquals (4, callCount.get());
+        assertEquals (NodeCircuitBreaker.State.OPEN, breaker.getState(NODE));
+
+        elapse(10);
+        assertThrows (CircuitOpenException.class, () -> breaker.call(NODE, this::succeedingCall));
+        assertEquals (4, callCount.get());
+
+        // backoff is capped by the max backoff
+        elapse(10);
+        assertThrows (GlusterRemoteException.class, () -> breaker.call(NODE, this::failingCall));
+        assertEquals (30, breaker.getStatus().get(NODE).getLong("retry_in_seconds"));
+
+        // successful probe closes the circuit
+        elapse(30);
+        assertEquals ("OK", breaker.call(NODE, this::succeedingCall));
+        assertEquals (NodeCircuitBreaker.State.CLOSED, breaker.getState(NODE));
+        assertNull (breaker.getStatus().get(NODE));
+    }
+
+    @Test
+    public void testSingleProbeWhenHalfOpen() throws Exception {
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows (GlusterRemoteException.class, () -> breaker.call(NODE, this::failingCall));
+        }
+        elapse(10);
+
+        String result = breaker.call(NODE, node -> {
+            // concurrent calls are rejected while the probe is in flight
+            assertEquals (NodeCircuitBreaker.State.HALF_OPEN, breaker.getState(NODE));
+            assertThrows (CircuitOpenException.class, () -> breaker.call(NODE, this::succeedingCall));
+            return "probe";
+        });
+        assertEquals ("probe", result);
+        assertEquals (NodeCircuitBreaker.State.CLOSED, breaker.getState(NODE));
+    }
+
+    @Test
+    public void testCancellationReachesPendingCall() {
+
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> result = breaker.callAsync(NODE, node -> pending);
+
+        // the caller gives up on the liveness deadline
+        result.cancel(true);
+        assertTrue (pending.isCancelled());
+    }
+
+    @Test
+    public void testDisabled() {
+
+        breaker = new NodeCircuitBreaker(0, 10, 30, clock::get);
+        for (int i = 0; i < 10; i++) {
+            assertThrows (GlusterRemoteException.class, () -> breaker.call(NODE, this::failingCall));
+        }
+        assertEquals (10, callCount.get());
+        assertEquals (NodeCircuitBreaker.State.CLOSED, breaker.getState(NODE));
+    }
+}
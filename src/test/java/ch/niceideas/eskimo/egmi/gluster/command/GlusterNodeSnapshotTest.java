@@ -0,0 +1,164 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+
+package ch.niceideas.eskimo.egmi.gluster.command;
+
+import ch.niceideas.common.http.HttpClient;
+import ch.niceideas.common.http.HttpClientResponse;
+import ch.niceideas.common.utils.ResourceUtils;
+import ch.niceideas.common.utils.StreamUtils;
+import ch.niceideas.eskimo.egmi.gluster.command.result.GlusterNodeSnapshotResult;
+import ch.niceideas.eskimo.egmi.model.BrickId;
+import ch.niceideas.eskimo.egmi.model.Node;
+import ch.niceideas.eskimo.egmi.model.Volume;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlusterNodeSnapshotTest extends AbstractCommandTest {
+
+    @Test
+    public void testCommand() throws Exception {
+
+        JSONObject snapshot = new JSONObject();
+        snapshot.put(GlusterNodeSnapshotResult.POOL_LIST, buildSection(200, "command/GlusterPoolListResult.txt"));
+        snapshot.put(GlusterNodeSnapshotResult.VOLUME_INFO, buildSection(200, "command/GlusterVolumeInfoResult.txt"));
+        snapshot.put(GlusterNodeSnapshotResult.VOLUME_STATUS, buildSection(500, "command/GlusterVolumeStatusResult.txt"));
+        response.set(snapshot.toString());
+
+        GlusterNodeSnapshot command = new GlusterNodeSnapshot(mockClient);
+        GlusterNodeSnapshotResult result = command.execute(Node.from("127.0.0.1"), context);
+        assertNotNull (result);
+        assertFalse (result.isError());
+
+        assertEquals ("127.0.0.1:12345/node-snapshot", url.get());
+
+        assertEquals (4, result.getPoolList().size());
+        assertEquals ("192.168.10.74", result.getPoolList().getHostname(1));
+
+        assertTrue (result.getVolumeInfo().getAllVolumes().contains(Volume.from("test1")));
+
+        assertTrue (result.getVolumeStatus().isError());
+    }
+
+    @Test
+    public void testNonAsciiOutput() throws Exception {
+
+        String volumeInfo = StreamUtils.getAsString(ResourceUtils.getResourceAsStream("command/GlusterVolumeInfoResult.txt"))
+                .replace("volume_bricks/test1", "volume_bricks/données_1");
+
+        JSONObject snapshot = new JSONObject();
+        snapshot.put(GlusterNodeSnapshotResult.POOL_LIST, buildSection(200, "command/GlusterPoolListResult.txt"));
+        snapshot.put(GlusterNodeSnapshotResult.VOLUME_INFO, new JSONObject()
+                .put(GlusterNodeSnapshotResult.STATUS, 200)
+                .put(GlusterNodeSnapshotResult.OUTPUT, volumeInfo));
+        snapshot.put(GlusterNodeSnapshotResult.VOLUME_STATUS, buildSection(500, "command/GlusterVolumeStatusResult.txt"));
+
+        // encoded as the command server does
+        HttpClient utf8Client = new HttpClient() {
+            @Override
+            public HttpClientResponse sendRequest(String url) {
+                return new HttpClientResponse(200, "Ok", Collections.emptyMap(), snapshot.toString().getBytes(StandardCharsets.UTF_8), "127.0.0.1");
+            }
+        };
+
+        GlusterNodeSnapshotResult result = new GlusterNodeSnapshot(utf8Client).execute(Node.from("127.0.0.1"), context);
+        assertFalse (result.isError());
+
+        assertTrue (result.getVolumeInfo().getBrickIds(Volume.from("test1")).contains(
+                BrickId.fromNodeAndPath(Node.from("192.168.10.71"), "/var/lib/gluster/volume_bricks/données_1")));
+    }
+
+    @Test
+    public void testConditionalExecution() throws Exception {
+
+        JSONObject fullSnapshot = new JSONObject();
+        fullSnapshot.put(GlusterNodeSnapshotResult.POOL_LIST, buildSection(200, "command/GlusterPoolListResult.txt").put(GlusterNodeSnapshotResult.ETAG, "\"pool\""));
+        fullSnapshot.put(GlusterNodeSnapshotResult.VOLUME_INFO, buildSection(200, "command/GlusterVolumeInfoResult.txt").put(GlusterNodeSnapshotResult.ETAG, "\"info\""));
+        fullSnapshot.put(GlusterNodeSnapshotResult.VOLUME_STATUS, buildSection(200, "command/GlusterVolumeStatusResult.txt").put(GlusterNodeSnapshotResult.ETAG, "\"status\""));
+
+        JSONObject partialSnapshot = new JSONObject();
+        partialSnapshot.put(GlusterNodeSnapshotResult.POOL_LIST, new JSONObject().put(GlusterNodeSnapshotResult.STATUS, 304).put(GlusterNodeSnapshotResult.ETAG, "\"pool\""));
+        partialSnapshot.put(GlusterNodeSnapshotResult.VOLUME_INFO, new JSONObject().put(GlusterNodeSnapshotResult.STATUS, 304).put(GlusterNodeSnapshotResult.ETAG, "\"info\""));
+        partialSnapshot.put(GlusterNodeSnapshotResult.VOLUME_STATUS, buildSection(200, "command/GlusterVolumeStatusResult.txt").put(GlusterNodeSnapshotResult.ETAG, "\"status\""));
+
+        List<String> sentETags = new ArrayList<>();
+
+        HttpClient conditionalClient = new HttpClient() {
+
+            @Override
+            public HttpClientResponse sendRequest(String url) {
+                sentETags.add(null);
+                return new HttpClientResponse(200, "Ok", Collections.emptyMap(), fullSnapshot.toString().getBytes(StandardCharsets.UTF_8), "127.0.0.1");
+            }
+
+            @Override
+            public HttpClientResponse sendRequest(String url, Properties requestParams) {
+                sentETags.add(requestParams.getProperty("If-None-Match"));
+                return new HttpClientResponse(200, "Ok", Collections.emptyMap(), partialSnapshot.toString().getBytes(StandardCharsets.UTF_8), "127.0.0.1");
+            }
+        };
+
+        CommandResultCache resultCache = new CommandResultCache();
+        GlusterNodeSnapshot command = new GlusterNodeSnapshot(conditionalClient);
+
+        GlusterNodeSnapshotResult first = command.execute(Node.from("127.0.0.1"), context, resultCache);
+        GlusterNodeSnapshotResult second = command.execute(Node.from("127.0.0.1"), context, resultCache);
+
+        assertFalse (second.isError());
+        assertEquals ("\"pool\", \"info\"", sentETags.get(1));
+
+        assertSame (first.getPoolList(), second.getPoolList());
+        // the volume info is altered by the volume status, each user gets its own copy
+        assertNotSame (first.getVolumeInfo(), second.getVolumeInfo());
+        assertEquals (first.getVolumeInfo().getAllVolumes(), second.getVolumeInfo().getAllVolumes());
+        assertNotSame (first.getVolumeStatus(), second.getVolumeStatus());
+        assertEquals (2, resultCache.getReuseCount());
+    }
+
+    private JSONObject buildSection (int status, String resource) throws IOException {
+        JSONObject section = new JSONObject();
+        section.put(GlusterNodeSnapshotResult.STATUS, status);
+        section.put(GlusterNodeSnapshotResult.OUTPUT, StreamUtils.getAsString(ResourceUtils.getResourceAsStream(resource)));
+        return section;
+    }
+}
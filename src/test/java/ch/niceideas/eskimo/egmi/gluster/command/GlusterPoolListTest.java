@@ -42,6 +42,7 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class GlusterPoolListTest extends AbstractCommandTest {
 
@@ -65,5 +66,40 @@ public class GlusterPoolListTest extends AbstractCommandTest {
         assertEquals ("Connected", result.getState(3));
     }
 
+    @Test
+    public void testCommandXml() throws Exception {
+
+        response.set(StreamUtils.getAsString(ResourceUtils.getResourceAsStream("command/GlusterPoolListResult.xml")));
+
+        GlusterPoolList command = new GlusterPoolList(mockClient, true);
+        GlusterPoolListResult result = command.execute(Node.from("127.0.0.1"), context);
+        assertNotNull (result);
+        assertEquals ("127.0.0.1:12345/command?command=pool&subcommand=list&options=--xml", url.get());
+
+        assertEquals (4, result.size());
+
+        assertEquals ("192.168.10.74", result.getHostname(1));
+        assertEquals ("localhost", result.getHostname(3));
+
+        assertEquals ("e4c4dadd-19b1-433c-b6e3-32a31325e4a0", result.getUid(1));
+        assertEquals ("bef24025-ac9e-4ff4-8f63-d72644c5b708", result.getUid(3));
+
+        assertEquals ("Disconnected", result.getState(1));
+        assertEquals ("Connected", result.getState(3));
+    }
+
+    @Test
+    public void testCommandXmlError() throws Exception {
+
+        response.set("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" +
+                "<cliOutput><opRet>-1</opRet><opErrno>0</opErrno><opErrstr>Cannot connect to glusterd</opErrstr></cliOutput>");
+
+        GlusterPoolListResult result = new GlusterPoolList(mockClient, true).execute(Node.from("127.0.0.1"), context);
+
+        assertTrue (result.isError());
+        assertEquals ("Cannot connect to glusterd", result.getError());
+        assertEquals (0, result.size());
+    }
+
 
 }
@@ -34,22 +34,25 @@
 
 package ch.niceideas.eskimo.egmi.gluster.command;
 
+import ch.niceideas.common.http.AsyncHttpClient;
+import ch.niceideas.common.http.HttpClient;
+import ch.niceideas.common.http.HttpClientException;
+import ch.niceideas.common.http.HttpClientResponse;
 import ch.niceideas.common.utils.ResourceUtils;
 import ch.niceideas.common.utils.StreamUtils;
 import ch.niceideas.eskimo.egmi.gluster.command.result.GlusterVolumeInfoResult;
 import ch.niceideas.eskimo.egmi.model.BrickId;
 import ch.niceideas.eskimo.egmi.model.Node;
+import ch.niceideas.eskimo.egmi.model.NodeStatus;
 import ch.niceideas.eskimo.egmi.model.Volume;
 import org.junit.jupiter.api.Test;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Set;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class GlusterVolumeInfoTest extends AbstractCommandTest {
 
@@ -80,5 +83,175 @@ public class GlusterVolumeInfoTest extends AbstractCommandTest {
         assertEquals("transport.address-family: inet", sortedOptions.get(2));
     }
 
+    @Test
+    public void testCommandXml() throws Exception {
+
+        response.set(StreamUtils.getAsString(ResourceUtils.getResourceAsStream("command/GlusterVolumeInfoResult.xml")));
+
+        GlusterVolumeInfo command = new GlusterVolumeInfo(mockClient, true);
+        GlusterVolumeInfoResult result = command.execute(Node.from("127.0.0.1"), context);
+        assertNotNull (result);
+        assertFalse (result.isError());
+        assertEquals ("127.0.0.1:12345/command?command=volume&subcommand=info&options=--xml", url.get());
+
+        String volumes = result.getAllVolumes().stream().map(Volume::getName).collect(Collectors.joining(","));
+        assertEquals ("test1,test2", volumes);
+
+        Map<Integer, BrickId> test2Bricks = result.getNumberedBrickIds(Volume.from("test2"));
+        assertEquals (3, test2Bricks.size());
+        assertEquals ("192.168.10.71:/var/lib/gluster/volume_bricks/test2_bis_1", test2Bricks.get(1).toString());
+        assertEquals ("192.168.10.73:/var/lib/gluster/volume_bricks/test2_bis_3", test2Bricks.get(3).toString());
+
+        List<String> sortedOptions = new ArrayList<>(result.getVolumeReconfiguredOptions(Volume.from("test1")));
+        sortedOptions.sort(Comparator.naturalOrder());
+        assertEquals(Arrays.asList(
+                "nfs.disable: on",
+                "performance.client-io-threads: off",
+                "storage.owner-uid: 3301",
+                "transport.address-family: inet"), sortedOptions);
+
+        assertEquals (Set.of(Volume.from("test2")), result.getNotStartedVolumes());
+
+        NodeStatus nodeStatus = new NodeStatus("{}");
+        result.feedVolumeInfoInStatus(nodeStatus, Volume.from("test1"), 0);
+        result.feedVolumeInfoInStatus(nodeStatus, Volume.from("test2"), 1);
+
+        assertEquals ("Replicate", nodeStatus.getValueForPathAsString("volumes.0.type"));
+        assertEquals ("3301", nodeStatus.getValueForPathAsString("volumes.0.owner"));
+        assertEquals ("1", nodeStatus.getValueForPathAsString("volumes.0.nb_shards"));
+        assertEquals ("3", nodeStatus.getValueForPathAsString("volumes.0.nb_replicas"));
+        assertNull (nodeStatus.getValueForPath("volumes.0.nb_arbiters"));
+        assertEquals ("3", nodeStatus.getValueForPathAsString("volumes.0.nb_bricks"));
+
+        // same figures as "Number of Bricks: 1 x (2 + 1) = 3"
+        assertEquals ("1", nodeStatus.getValueForPathAsString("volumes.1.nb_shards"));
+        assertEquals ("2", nodeStatus.getValueForPathAsString("volumes.1.nb_replicas"));
+        assertEquals ("1", nodeStatus.getValueForPathAsString("volumes.1.nb_arbiters"));
+        assertEquals ("3", nodeStatus.getValueForPathAsString("volumes.1.nb_bricks"));
+    }
+
+    @Test
+    public void testConditionalExecution() throws Exception {
+
+        String output = StreamUtils.getAsString(ResourceUtils.getResourceAsStream("command/GlusterVolumeInfoResult.txt"));
+        List<String> sentETags = new ArrayList<>();
+
+        HttpClient conditionalClient = new HttpClient() {
+
+            @Override
+            public HttpClientResponse sendRequest(String url) {
+                sentETags.add(null);
+                return new HttpClientResponse(200, "Ok", Map.of("ETag", "\"abcd\""), output.getBytes(Charset.defaultCharset()), "127.0.0.1");
+            }
+
+            @Override
+            public HttpClientResponse sendRequest(String url, Properties requestParams) {
+                sentETags.add(requestParams.getProperty("If-None-Match"));
+                return new HttpClientResponse(304, "Not Modified", Map.of("ETag", "\"abcd\""), new byte[0], "127.0.0.1");
+            }
+        };
+
+        CommandResultCache resultCache = new CommandResultCache();
+
+        GlusterVolumeInfo command = new GlusterVolumeInfo(conditionalClient);
+        GlusterVolumeInfoResult result = command.execute(Node.from("127.0.0.1"), context, resultCache);
+        result.overrideStatus(Volume.from("test1"), "VOL_NOT_STARTED");
 
+        GlusterVolumeInfoResult secondResult = command.execute(Node.from("127.0.0.1"), context, resultCache);
+
+        assertNotSame (result, secondResult);
+        assertEquals (Arrays.asList(null, "\"abcd\""), sentETags);
+        assertEquals (1, resultCache.getReuseCount());
+
+        // status overrides of a user of the result don't leak to the others
+        assertEquals ("test1,test2", secondResult.getAllVolumes().stream().map(Volume::getName).collect(Collectors.joining(",")));
+        NodeStatus nodeStatus = new NodeStatus("{}");
+        secondResult.feedVolumeInfoInStatus(nodeStatus, Volume.from("test1"), 0);
+        assertEquals ("OK", nodeStatus.getValueForPathAsString("volumes.0.status"));
+
+        secondResult.overrideStatus(Volume.from("test2"), "SKIP_TEMP_OP");
+        GlusterVolumeInfoResult thirdResult = command.execute(Node.from("127.0.0.1"), context, resultCache);
+        assertNotSame (secondResult, thirdResult);
+        thirdResult.feedVolumeInfoInStatus(nodeStatus, Volume.from("test2"), 1);
+        assertEquals ("OK", nodeStatus.getValueForPathAsString("volumes.1.status"));
+        assertEquals ("VOL_NOT_STARTED", getStatus(result, Volume.from("test1")));
+    }
+
+    @Test
+    public void testNotModifiedWithoutCachedResult() throws Exception {
+
+        String output = StreamUtils.getAsString(ResourceUtils.getResourceAsStream("command/GlusterVolumeInfoResult.txt"));
+        List<String> sentETags = new ArrayList<>();
+        CommandResultCache resultCache = new CommandResultCache();
+
+        HttpClient conditionalClient = new HttpClient() {
+
+            @Override
+            public HttpClientResponse sendRequest(String url) {
+                sentETags.add(null);
+                return new HttpClientResponse(200, "Ok", Map.of("ETag", "\"abcd\""), output.getBytes(Charset.defaultCharset()), "127.0.0.1");
+            }
+
+            @Override
+            public HttpClientResponse sendRequest(String url, Properties requestParams) {
+                sentETags.add(requestParams.getProperty("If-None-Match"));
+                // cached result dropped while the request was in flight
+                resultCache.clear();
+                return new HttpClientResponse(304, "Not Modified", Map.of("ETag", "\"abcd\""), new byte[0], "127.0.0.1");
+            }
+        };
+
+        GlusterVolumeInfo command = new GlusterVolumeInfo(conditionalClient);
+        command.execute(Node.from("127.0.0.1"), context, resultCache);
+
+        GlusterVolumeInfoResult result = command.execute(Node.from("127.0.0.1"), context, resultCache);
+        assertEquals (Arrays.asList(null, "\"abcd\"", null), sentETags);
+        assertEquals (List.of(Volume.from("test1"), Volume.from("test2")), result.getAllVolumes());
+
+        sentETags.clear();
+        try (AsyncHttpClient asyncClient = new AsyncHttpClient(5, 200, 60) {
+                @Override
+                public CompletableFuture<HttpClientResponse> sendRequest(String url, Properties requestHeaders) {
+                    try {
+                        return CompletableFuture.completedFuture(requestHeaders == null
+                                ? conditionalClient.sendRequest(url)
+                                : conditionalClient.sendRequest(url, requestHeaders));
+                    } catch (HttpClientException e) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                }
+            }) {
+            GlusterVolumeInfoResult asyncResult = command.executeAsync(Node.from("127.0.0.1"), context, asyncClient, resultCache).get();
+            assertEquals (Arrays.asList("\"abcd\"", null), sentETags);
+            assertEquals (List.of(Volume.from("test1"), Volume.from("test2")), asyncResult.getAllVolumes());
+        }
+    }
+
+    @Test
+    public void testResultsOfRemovedNodesEvicted() throws Exception {
+
+        String output = StreamUtils.getAsString(ResourceUtils.getResourceAsStream("command/GlusterVolumeInfoResult.txt"));
+        HttpClient conditionalClient = new HttpClient() {
+            @Override
+            public HttpClientResponse sendRequest(String url) {
+                return new HttpClientResponse(200, "Ok", Map.of("ETag", "\"abcd\""), output.getBytes(Charset.defaultCharset()), "127.0.0.1");
+            }
+        };
+
+        CommandResultCache resultCache = new CommandResultCache();
+        GlusterVolumeInfo command = new GlusterVolumeInfo(conditionalClient);
+        command.execute(Node.from("192.168.10.7"), context, resultCache);
+        command.execute(Node.from("192.168.10.71"), context, resultCache);
+
+        resultCache.retainNodes(Set.of(Node.from("192.168.10.71")));
+
+        assertNull (resultCache.getETag(command.buildCommandUrl(Node.from("192.168.10.7"), context)));
+        assertEquals ("\"abcd\"", resultCache.getETag(command.buildCommandUrl(Node.from("192.168.10.71"), context)));
+    }
+
+    private static String getStatus (GlusterVolumeInfoResult result, Volume volume) {
+        NodeStatus nodeStatus = new NodeStatus("{}");
+        result.feedVolumeInfoInStatus(nodeStatus, volume, 0);
+        return nodeStatus.getValueForPathAsString("volumes.0.status");
+    }
 }
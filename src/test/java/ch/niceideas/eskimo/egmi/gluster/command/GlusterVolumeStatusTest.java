@@ -41,6 +41,7 @@ import ch.niceideas.eskimo.egmi.gluster.command.result.GlusterVolumeStatusResult
 import ch.niceideas.eskimo.egmi.model.BrickId;
 import ch.niceideas.eskimo.egmi.model.Node;
 import ch.niceideas.eskimo.egmi.model.NodeStatus;
+import ch.niceideas.eskimo.egmi.model.Volume;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -80,5 +81,49 @@ public class GlusterVolumeStatusTest extends AbstractCommandTest {
                 "]}]}", nodeStatus.getFormattedValue());
     }
 
+    @Test
+    public void testCommandXml() throws Exception {
+
+        response.set(StreamUtils.getAsString(ResourceUtils.getResourceAsStream("command/GlusterVolumeInfoResult.xml")));
+        GlusterVolumeInfoResult volumeInfo = new GlusterVolumeInfo(mockClient, true).execute(Node.from("127.0.0.1"), context);
+
+        response.set(StreamUtils.getAsString(ResourceUtils.getResourceAsStream("command/GlusterVolumeStatusResult.xml")));
+
+        GlusterVolumeStatus command = new GlusterVolumeStatus(mockClient, () -> volumeInfo, true);
+        GlusterVolumeStatusResult result = command.execute(Node.from("127.0.0.1"), context);
+        assertNotNull (result);
+        assertEquals ("127.0.0.1:12345/command?command=volume&subcommand=status&options=all%20detail%20--xml", url.get());
+
+        NodeStatus nodeStatus = new NodeStatus("{}");
+
+        result.feedVolumeStatusInStatus(nodeStatus, 0, 0, BrickId.fromIdentifier("192.168.10.71:/var/lib/gluster/volume_bricks/test1"));
+        result.feedVolumeStatusInStatus(nodeStatus, 0, 1, BrickId.fromIdentifier("192.168.10.72:/var/lib/gluster/volume_bricks/test2"));
+
+        assertEquals ("{\"volumes\": [{\"bricks\": [\n" +
+                "    {\n" +
+                "        \"total\": \"40.0GB\",\n" +
+                "        \"port\": \"49152\",\n" +
+                "        \"fs_type\": \"xfs\",\n" +
+                "        \"free\": \"33.2GB\",\n" +
+                "        \"device\": \"/dev/sda1\",\n" +
+                "        \"status\": \"OK\",\n" +
+                "        \"peer_id\": \"bef24025-ac9e-4ff4-8f63-d72644c5b708\"\n" +
+                "    },\n" +
+                "    {\n" +
+                "        \"total\": \"40.0GB\",\n" +
+                "        \"fs_type\": \"xfs\",\n" +
+                "        \"free\": \"33.2GB\",\n" +
+                "        \"device\": \"/dev/sda1\",\n" +
+                "        \"status\": \"OFFLINE\",\n" +
+                "        \"peer_id\": \"00d9023e-c098-411c-bd43-1e81927fc9ab\"\n" +
+                "    }\n" +
+                "]}]}", nodeStatus.getFormattedValue());
+
+        // volumes that are not started are only known from the volume info
+        NodeStatus volumeStatus = new NodeStatus("{}");
+        volumeInfo.feedVolumeInfoInStatus(volumeStatus, Volume.from("test2"), 0);
+        assertEquals (GlusterVolumeStatusResult.VOL_NOT_STARTED_FLAG, volumeStatus.getValueForPathAsString("volumes.0.status"));
+    }
+
 
 }
@@ -0,0 +1,160 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+package ch.niceideas.eskimo.egmi.management;
+
+import ch.niceideas.eskimo.egmi.gluster.GlusterRemoteManager;
+import ch.niceideas.eskimo.egmi.model.Node;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlusterEventServiceTest {
+
+    private final GlusterEventService glusterEventService = new GlusterEventService();
+
+    private final List<Set<Node>> refreshedNodes = new ArrayList<>();
+    private final AtomicInteger statusUpdateRequests = new AtomicInteger();
+
+    private StubEventSender sender;
+
+    @BeforeEach
+    public void setUp() {
+        glusterEventService.setGlusterRemoteManager(new GlusterRemoteManager() {
+            @Override
+            public void refreshNodes(Set<Node> nodes) {
+                refreshedNodes.add(nodes);
+            }
+        });
+        glusterEventService.setManagementService(new ManagementService(false) {
+            @Override
+            public Set<Node> getAllNodes() {
+                return new HashSet<>(Set.of(Node.from("192.168.10.71"), Node.from("192.168.10.72"), Node.from("192.168.10.73")));
+            }
+            @Override
+            public void requestStatusUpdate() {
+                statusUpdateRequests.incrementAndGet();
+            }
+            @Override
+            public void info(String s) {
+                // no messaging service in tests
+            }
+        });
+        sender = new StubEventSender(glusterEventService);
+    }
+
+    @Test
+    public void testPeerEvent() throws Exception {
+
+        Set<Node> refreshed = sender.send("192.168.10.71", "PEER_DISCONNECT", Map.of("host", "192.168.10.72", "state", "Peer in Cluster"));
+
+        assertEquals (Set.of(Node.from("192.168.10.71"), Node.from("192.168.10.72")), refreshed);
+        assertEquals (List.of(refreshed), refreshedNodes);
+        assertEquals (1, statusUpdateRequests.get());
+    }
+
+    @Test
+    public void testBrickEvent() throws Exception {
+
+        Set<Node> refreshed = sender.send("192.168.10.71", "BRICK_DISCONNECTED",
+                Map.of("peer", "192.168.10.73", "volume", "test", "brick", "192.168.10.73:/var/lib/gluster/volume_bricks/test"));
+
+        assertEquals (Set.of(Node.from("192.168.10.71"), Node.from("192.168.10.73")), refreshed);
+        assertEquals (1, statusUpdateRequests.get());
+    }
+
+    @Test
+    public void testVolumeEvent() throws Exception {
+
+        Set<Node> refreshed = sender.send("192.168.10.72", "VOLUME_STOP", Map.of("name", "test", "force", "0"));
+
+        assertEquals (Set.of(Node.from("192.168.10.72")), refreshed);
+        assertEquals (1, statusUpdateRequests.get());
+    }
+
+    @Test
+    public void testUnmanagedNodesAreNotRefreshed() throws Exception {
+
+        Set<Node> refreshed = sender.send("192.168.10.99", "PEER_ATTACH", Map.of("host", "192.168.10.98"));
+
+        assertTrue (refreshed.isEmpty());
+        assertEquals (1, statusUpdateRequests.get());
+    }
+
+    @Test
+    public void testIgnoredEvent() throws Exception {
+
+        Set<Node> refreshed = sender.send("192.168.10.71", "QUOTA_CROSSED_SOFT_LIMIT", Map.of("volume", "test", "path", "/"));
+
+        assertTrue (refreshed.isEmpty());
+        assertTrue (refreshedNodes.isEmpty());
+        assertEquals (0, statusUpdateRequests.get());
+    }
+
+    @Test
+    public void testGetBrickHost() {
+        assertEquals ("192.168.10.73", GlusterEventService.getBrickHost("192.168.10.73:/var/lib/gluster/volume_bricks/test"));
+        assertNull (GlusterEventService.getBrickHost("/var/lib/gluster/volume_bricks/test"));
+        assertNull (GlusterEventService.getBrickHost(""));
+    }
+
+    /**
+     * Stands for glustereventsd, posting events in the format of the gluster events API.
+     */
+    private static class StubEventSender {
+
+        private final GlusterEventService target;
+
+        StubEventSender (GlusterEventService target) {
+            this.target = target;
+        }
+
+        Set<Node> send (String sourceAddress, String event, Map<String, String> message) throws ManagementException {
+            JSONObject payload = new JSONObject();
+            payload.put("nodeid", "c1c8bd49-5ea1-4fce-a7a1-6fd4ab4ce1d6");
+            payload.put("ts", System.currentTimeMillis() / 1000);
+            payload.put("event", event);
+            payload.put("message", new JSONObject(message));
+            return target.handleEvent(sourceAddress, new JSONObject(payload.toString()));
+        }
+    }
+}
@@ -45,8 +45,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class GraphPartitionDetectorTest {
 
@@ -140,6 +139,61 @@ public class GraphPartitionDetectorTest {
                 nodeGraph.get(node5).getPeers().stream().map(gNode -> gNode.getHost().getAddress()).collect(Collectors.joining(",")));
     }
 
+    @Test
+    public void testPeerComponents() throws Exception {
+
+        Map<Node, NodeStatus> nodesStatus = getNodesStatus (true);
+
+        PeerComponents components = GraphPartitionDetector.getPeerComponents(nodesStatus.keySet(), nodesStatus);
+
+        // node1 and node2 only know node3 which knows them both back
+        assertEquals(2, components.getComponentCount());
+        assertEquals(components.getComponent(node1), components.getComponent(node3));
+        assertEquals(components.getComponent(node2), components.getComponent(node3));
+        assertEquals(components.getComponent(node4), components.getComponent(node5));
+        assertNotEquals(components.getComponent(node1), components.getComponent(node4));
+        assertEquals(-1, components.getComponent(Node.from("192.168.56.26")));
+
+        assertEquals(3, components.getReachableCount(node1));
+        assertEquals(2, components.getReachableCount(node5));
+        assertEquals(0, components.getReachableCount(Node.from("192.168.56.26")));
+
+        // changes made to the same status map are taken into account
+        nodesStatus.put(node4, new NodeStatus("{peers: []}"));
+        nodesStatus.put(node5, new NodeStatus("{peers: []}"));
+        PeerComponents changed = GraphPartitionDetector.getPeerComponents(nodesStatus.keySet(), nodesStatus);
+        assertNotEquals(changed.getComponent(node4), changed.getComponent(node5));
+    }
+
+    @Test
+    public void testPeerComponentsDirected() throws Exception {
+
+        // chain 1 -> 2 <-> 3 -> 4, 5 isolated
+        Map<Node, NodeStatus> nodesStatus = new HashMap<>(){{
+            put(node1, new NodeStatus("{peers: [{uid: 'a', hostname: '192.168.56.22', state: 'OK'}]}"));
+            put(node2, new NodeStatus("{peers: [{uid: 'a', hostname: '192.168.56.23', state: 'OK'}]}"));
+            put(node3, new NodeStatus("{peers: [{uid: 'a', hostname: '192.168.56.22', state: 'OK'}, {uid: 'a', hostname: '192.168.56.24', state: 'OK'}]}"));
+            put(node4, new NodeStatus("{peers: []}"));
+            put(node5, new NodeStatus("{peers: []}"));
+        }};
+
+        PeerComponents components = GraphPartitionDetector.getPeerComponents(nodesStatus.keySet(), nodesStatus);
+
+        assertEquals(4, components.getComponentCount());
+        assertEquals(components.getComponent(node2), components.getComponent(node3));
+
+        assertEquals("192.168.56.21,192.168.56.22,192.168.56.23,192.168.56.24",
+                components.getReachableNodes(node1).stream().map(Node::getAddress).sorted().collect(Collectors.joining(",")));
+        assertEquals("192.168.56.22,192.168.56.23,192.168.56.24",
+                components.getReachableNodes(node2).stream().map(Node::getAddress).sorted().collect(Collectors.joining(",")));
+        assertEquals("192.168.56.22,192.168.56.23,192.168.56.24",
+                components.getReachableNodes(node3).stream().map(Node::getAddress).sorted().collect(Collectors.joining(",")));
+        assertEquals("192.168.56.24",
+                components.getReachableNodes(node4).stream().map(Node::getAddress).sorted().collect(Collectors.joining(",")));
+        assertEquals("192.168.56.25",
+                components.getReachableNodes(node5).stream().map(Node::getAddress).sorted().collect(Collectors.joining(",")));
+    }
+
     /* Set partial to true to have only partially connected network */
     private Map<Node, NodeStatus> getNodesStatus(boolean partial) {
         return new HashMap<>(){{
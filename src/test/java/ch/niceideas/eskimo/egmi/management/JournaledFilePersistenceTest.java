@@ -0,0 +1,217 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+package ch.niceideas.eskimo.egmi.management;
+
+import ch.niceideas.common.json.JsonWrapper;
+import ch.niceideas.common.utils.FileUtils;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class JournaledFilePersistenceTest {
+
+    private File tmp = null;
+    private File file = null;
+    private File journal = null;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tmp = File.createTempFile("test", "egmi-journal");
+        assertTrue (tmp.delete());
+        assertTrue (tmp.mkdir());
+        file = new File(tmp, "egmi-runtime-config.json");
+        journal = new File(tmp, "egmi-runtime-config.json" + JournaledFilePersistence.JOURNAL_SUFFIX);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        FileUtils.delete(tmp);
+    }
+
+    @Test
+    public void testDiffAndApply() {
+
+        JSONObject previous = new JSONObject("{\"discovered-nodes\": \"a,b\", \"static-nodes\": \"c\", \"other\": \"d\"}");
+        JSONObject current = new JSONObject("{\"discovered-nodes\": \"a,b,e\", \"other\": \"d\", \"discovered-volumes\": \"v\"}");
+
+        JSONObject record = JournaledFilePersistence.diff(previous, current);
+        assertTrue (new JSONObject("{\"set\": {\"discovered-nodes\": \"a,b,e\", \"discovered-volumes\": \"v\"}, \"unset\": [\"static-nodes\"]}").similar(record));
+
+        JournaledFilePersistence.apply(previous, record);
+        assertTrue (current.similar(previous));
+
+        assertTrue (JournaledFilePersistence.diff(current, current).isEmpty());
+    }
+
+    @Test
+    public void testDiffAndApplyNested() {
+
+        JSONObject previous = new JSONObject("{\"nodes\": {\"a\": {\"state\": \"up\"}, \"b\": {\"state\": \"up\"}}, \"list\": [1, 2]}");
+        JSONObject current = new JSONObject("{\"nodes\": {\"a\": {\"state\": \"down\"}, \"c\": {\"state\": \"up\"}}, \"list\": [1, 2, 3]}");
+
+        JSONObject record = JournaledFilePersistence.diff(previous, current);
+        assertTrue (new JSONObject("{" +
+                "\"set\": {\"list\": [1, 2, 3]}, " +
+                "\"update\": {\"nodes\": {" +
+                    "\"set\": {\"c\": {\"state\": \"up\"}}, " +
+                    "\"update\": {\"a\": {\"set\": {\"state\": \"down\"}}}, " +
+                    "\"unset\": [\"b\"]}}}").similar(record));
+
+        JournaledFilePersistence.apply(previous, record);
+        assertTrue (current.similar(previous));
+
+        // a nested update applies to settings not holding the object yet
+        JSONObject empty = new JSONObject();
+        JournaledFilePersistence.apply(empty, new JSONObject("{\"update\": {\"nodes\": {\"set\": {\"a\": 1}}}}"));
+        assertTrue (new JSONObject("{\"nodes\": {\"a\": 1}}").similar(empty));
+    }
+
+    @Test
+    public void testJournalAndCompaction() throws Exception {
+
+        JournaledFilePersistence persistence = new JournaledFilePersistence(file, 3);
+        try (RuntimeSettingsStore store = new RuntimeSettingsStore(persistence, 0)) {
+
+            setValue(store, "discovered-nodes", "192.168.10.71");
+            setValue(store, "discovered-nodes", "192.168.10.71,192.168.10.72");
+
+            // only the journal is written, one small record per change
+            assertFalse (file.exists());
+            assertEquals (2, persistence.getJournalRecords());
+            assertEquals (2, Files.readAllLines(journal.toPath()).size());
+            assertEquals ("{\"set\":{\"discovered-nodes\":\"192.168.10.71,192.168.10.72\"}}", Files.readAllLines(journal.toPath()).get(1));
+
+            // replayed on load
+            assertEquals ("192.168.10.71,192.168.10.72", new JSONObject(new JournaledFilePersistence(file, 3).load()).getString("discovered-nodes"));
+
+            // compacted once the threshold is reached
+            setValue(store, "discovered-volumes", "test");
+            assertTrue (file.exists());
+            assertFalse (journal.exists());
+            assertEquals (0, persistence.getJournalRecords());
+
+            setValue(store, "static-nodes", "192.168.10.73");
+            assertTrue (journal.exists());
+        }
+
+        // compacted on close
+        assertFalse (journal.exists());
+        JsonWrapper settings = new JsonWrapper(new String(FileUtils.read(file)));
+        assertEquals ("192.168.10.71,192.168.10.72", settings.getValueForPathAsString("discovered-nodes"));
+        assertEquals ("test", settings.getValueForPathAsString("discovered-volumes"));
+        assertEquals ("192.168.10.73", settings.getValueForPathAsString("static-nodes"));
+    }
+
+    @Test
+    public void testIncompleteRecordIsDropped() throws Exception {
+
+        Files.writeString(file.toPath(), "{\"discovered-nodes\": \"192.168.10.71\"}");
+        Files.writeString(journal.toPath(),
+                "{\"set\":{\"discovered-volumes\":\"test\"}}\n" +
+                "{\"set\":{\"discovered-nodes\":\"192.168.10.71,192.16",
+                StandardCharsets.UTF_8, StandardOpenOption.CREATE);
+
+        JournaledFilePersistence persistence = new JournaledFilePersistence(file, 100);
+        JSONObject settings = new JSONObject(persistence.load());
+
+        assertEquals ("192.168.10.71", settings.getString("discovered-nodes"));
+        assertEquals ("test", settings.getString("discovered-volumes"));
+
+        // compacted right away so that further records aren't appended after the incomplete one
+        assertFalse (journal.exists());
+        assertTrue (settings.similar(new JSONObject(new JournaledFilePersistence(file, 100).load())));
+    }
+
+    @Test
+    public void testCorruptRecordIsSkipped() throws Exception {
+
+        Files.writeString(file.toPath(), "{\"discovered-nodes\": \"192.168.10.71\"}");
+        Files.writeString(journal.toPath(),
+                "{\"set\":{\"discovered-volumes\":\"test\"}}\n" +
+                "{\"set\":{\"discovered-nodes\":\"192.168.10.71,192.16{\"set\":{\"static-nodes\":\"192.168.10.73\"}}\n" +
+                "{\"set\":{\"discovered-volumes\":\"test,test2\"}}\n",
+                StandardCharsets.UTF_8, StandardOpenOption.CREATE);
+
+        JournaledFilePersistence persistence = new JournaledFilePersistence(file, 100);
+        JSONObject settings = new JSONObject(persistence.load());
+
+        // the records following the corrupt one are still applied
+        assertEquals ("192.168.10.71", settings.getString("discovered-nodes"));
+        assertEquals ("test,test2", settings.getString("discovered-volumes"));
+
+        assertFalse (journal.exists());
+        assertTrue (settings.similar(new JSONObject(new JournaledFilePersistence(file, 100).load())));
+    }
+
+    @Test
+    public void testFailedAppendIsNotContinued() throws Exception {
+
+        File deviceFull = new File("/dev/full");
+        assumeTrue (deviceFull.exists());
+
+        Files.writeString(file.toPath(), "{\"discovered-nodes\": \"192.168.10.71\"}");
+
+        JournaledFilePersistence persistence = new JournaledFilePersistence(file, 100);
+        String previous = persistence.load();
+
+        // every append fails, without the partial record being removable
+        Files.createSymbolicLink(journal.toPath(), deviceFull.toPath());
+
+        String settings = "{\"discovered-nodes\": \"192.168.10.71,192.168.10.72\"}";
+        assertThrows (IOException.class, () -> persistence.persist(previous, settings));
+
+        // retried as a compaction, dropping the damaged journal
+        assertEquals (settings, persistence.persist(previous, settings));
+        assertFalse (Files.exists(journal.toPath(), LinkOption.NOFOLLOW_LINKS));
+        assertTrue (new JSONObject(settings).similar(new JSONObject(new JournaledFilePersistence(file, 100).load())));
+    }
+
+    private static void setValue(RuntimeSettingsStore store, String key, String value) throws ManagementException {
+        store.update(settings -> {
+            settings.setValueForPath(key, value);
+            return settings;
+        });
+    }
+}
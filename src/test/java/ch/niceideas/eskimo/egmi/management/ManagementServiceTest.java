@@ -37,18 +37,21 @@ package ch.niceideas.eskimo.egmi.management;
 import ch.niceideas.common.utils.FileUtils;
 import ch.niceideas.common.utils.ResourceUtils;
 import ch.niceideas.common.utils.StreamUtils;
+import ch.niceideas.eskimo.egmi.gluster.GlusterRemoteManager;
 import ch.niceideas.eskimo.egmi.model.Node;
 import ch.niceideas.eskimo.egmi.model.NodeStatus;
 import ch.niceideas.eskimo.egmi.model.SystemStatus;
 import ch.niceideas.eskimo.egmi.model.Volume;
 import ch.niceideas.eskimo.egmi.problems.Problem;
 import ch.niceideas.eskimo.egmi.problems.ProblemManager;
+import ch.niceideas.eskimo.egmi.zookeeper.ZookeeperService;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -80,6 +83,39 @@ public class ManagementServiceTest {
         ms.setMessagingService(new MessagingService(100));
     }
 
+    @Test
+    public void testCheckLiveness() throws Exception {
+
+        AtomicReference<Set<Node>> liveNodes = new AtomicReference<>(Set.of(Node.from("192.168.56.21"), Node.from("192.168.56.22")));
+
+        ms.setGlusterRemoteManager(new GlusterRemoteManager() {
+            @Override
+            public Set<Node> getLiveNodes(int deadlineSeconds) {
+                return liveNodes.get();
+            }
+        });
+        ms.setZoopeeerService(new ZookeeperService(null, null, 0, null, true, "dummy") {
+            @Override
+            public boolean isMaster() {
+                return true;
+            }
+        });
+
+        // first check only records liveness
+        assertFalse (ms.checkLiveness());
+        assertFalse (ms.checkLiveness());
+
+        // node going down
+        liveNodes.set(Set.of(Node.from("192.168.56.21")));
+        assertTrue (ms.checkLiveness());
+        assertFalse (ms.checkLiveness());
+
+        // node coming back
+        liveNodes.set(Set.of(Node.from("192.168.56.21"), Node.from("192.168.56.22")));
+        assertTrue (ms.checkLiveness());
+        assertFalse (ms.checkLiveness());
+    }
+
     @Test
     public void testComputeNumberBricks_LOG_DISPATCH() {
 
@@ -409,6 +445,146 @@ public class ManagementServiceTest {
         assertTrue (expected.getJSONObject().similar(ss.getJSONObject()));
     }
 
+    @Test
+    public void testGetSystemStatusParallel() throws Exception {
+
+        ms.setTestConfig("192.168.56.20", "test1,test2");
+        ms.setParallelVolumeAggregation(true);
+
+        File tmp = File.createTempFile("test", "egmi-mgmt-service");
+        assertTrue (tmp.delete());
+        assertTrue (tmp.mkdir());
+
+        ms.setTestConfigStoragePath (tmp.getAbsolutePath());
+
+        Map<Node, NodeStatus> nodesStatus = new HashMap<>(){{
+            put (Node.from ("192.168.56.21"), node1);
+            put (Node.from ("192.168.56.22"), node2);
+            put (Node.from ("192.168.56.23"), node3);
+            put (Node.from ("192.168.56.24"), node4);
+        }};
+
+        Set<Node> allNodes = ms.getRuntimeNodes(nodesStatus);
+
+        Set<Volume> allVolumes = ms.getRuntimeVolumes(nodesStatus);
+
+        SystemStatus ss = ms.getSystemStatus("testhost", nodesStatus, allNodes, allVolumes);
+
+        SystemStatus expected = new SystemStatus(StreamUtils.getAsString(ResourceUtils.getResourceAsStream("ManagementServiceTest/options/resultSystemStatus.json")));
+
+        assertTrue (expected.getJSONObject().similar(ss.getJSONObject()));
+
+        FileUtils.delete(tmp);
+    }
+
+    @Test
+    public void testRefreshVolumeStatus() throws Exception {
+
+        ms.setTestConfig("192.168.56.20", "test1,test2");
+
+        File tmp = File.createTempFile("test", "egmi-mgmt-service");
+        assertTrue (tmp.delete());
+        assertTrue (tmp.mkdir());
+
+        ms.setTestConfigStoragePath (tmp.getAbsolutePath());
+
+        Map<Node, NodeStatus> nodesStatus = new HashMap<>(){{
+            put (Node.from ("192.168.56.21"), node1);
+            put (Node.from ("192.168.56.22"), node2);
+            put (Node.from ("192.168.56.23"), node3);
+            put (Node.from ("192.168.56.24"), node4);
+        }};
+
+        Set<Node> allNodes = ms.getRuntimeNodes(nodesStatus);
+        Set<Volume> allVolumes = ms.getRuntimeVolumes(nodesStatus);
+
+        SystemStatus full = ms.getSystemStatus("testhost", nodesStatus, allNodes, allVolumes);
+
+        List<Set<Node>> queriedNodes = new ArrayList<>();
+        ms.setGlusterRemoteManager(new GlusterRemoteManager() {
+            @Override
+            public Map<Node, NodeStatus> getRefreshedNodeStatus(Set<Node> nodes) {
+                queriedNodes.add(new HashSet<>(nodes));
+                Map<Node, NodeStatus> refreshed = new HashMap<>(nodesStatus);
+                refreshed.keySet().retainAll(nodes);
+                return refreshed;
+            }
+        });
+
+        // a new volume is fetched from any node up
+        Volume newVolume = Volume.from("spark_eventlog");
+        Set<Volume> previousVolumes = new TreeSet<>(allVolumes);
+        previousVolumes.remove(newVolume);
+
+        SystemStatus previous = ms.getSystemStatus("testhost", nodesStatus, allNodes, previousVolumes);
+        String previousJson = previous.getJSONObject().toString();
+        ms.setLastStatus(previous);
+
+        ms.refreshVolumeStatus(newVolume);
+
+        assertEquals (List.of(Set.of(Node.from("192.168.56.21"))), queriedNodes);
+
+        SystemStatus refreshed = ms.getSystemStatus();
+        assertNotSame (previous, refreshed);
+        assertEquals (previousJson, previous.getJSONObject().toString()); // copy on write
+        assertEquals (full.getVolumeStatus(newVolume), refreshed.getVolumeStatus(newVolume));
+        assertEquals (3, refreshed.getNumberOfBricks(newVolume));
+        assertTrue (refreshed.hasBricksOnNode(newVolume, Node.from("192.168.56.24")));
+
+        // a known volume is fetched from the nodes running its bricks
+        queriedNodes.clear();
+        Volume volume = Volume.from("kafka_data");
+        ms.refreshVolumeStatus(volume);
+
+        assertEquals (List.of(Set.of(Node.from("192.168.56.21"), Node.from("192.168.56.23"), Node.from("192.168.56.24"))), queriedNodes);
+        assertNotSame (refreshed, ms.getSystemStatus());
+        assertEquals (full.getVolumeStatus(volume), ms.getSystemStatus().getVolumeStatus(volume));
+        assertEquals (refreshed.getNodeList(), ms.getSystemStatus().getNodeList());
+
+        FileUtils.delete(tmp);
+    }
+
+    @Test
+    public void testRefreshNodeStatus() throws Exception {
+
+        ms.setTestConfig("192.168.56.21", "test1,test2");
+
+        File tmp = File.createTempFile("test", "egmi-mgmt-service");
+        assertTrue (tmp.delete());
+        assertTrue (tmp.mkdir());
+
+        ms.setTestConfigStoragePath (tmp.getAbsolutePath());
+
+        Map<Node, NodeStatus> nodesStatus = new HashMap<>(){{
+            put (Node.from ("192.168.56.21"), node1);
+            put (Node.from ("192.168.56.24"), node4);
+        }};
+
+        ms.setGlusterRemoteManager(new GlusterRemoteManager() {
+            @Override
+            public Map<Node, NodeStatus> getRefreshedNodeStatus(Set<Node> nodes) {
+                Map<Node, NodeStatus> refreshed = new HashMap<>(nodesStatus);
+                refreshed.keySet().retainAll(nodes);
+                return refreshed;
+            }
+        });
+
+        ms.setLastStatus(ms.getSystemStatus("testhost", nodesStatus, Set.of(Node.from("192.168.56.21")), Collections.emptySet()));
+
+        // added node shows up
+        ms.refreshNodeStatus(Node.from("192.168.56.24"));
+        assertEquals (List.of(Node.from("192.168.56.21"), Node.from("192.168.56.24")), ms.getSystemStatus().getNodeList());
+        assertEquals ("OK", ms.getSystemStatus().getNodeStatus(Node.from("192.168.56.24")));
+
+        // node not answering is replaced in place
+        nodesStatus.remove(Node.from("192.168.56.21"));
+        ms.refreshNodeStatus(Node.from("192.168.56.21"));
+        assertEquals (List.of(Node.from("192.168.56.21"), Node.from("192.168.56.24")), ms.getSystemStatus().getNodeList());
+        assertEquals ("KO", ms.getSystemStatus().getNodeStatus(Node.from("192.168.56.21")));
+
+        FileUtils.delete(tmp);
+    }
+
     private static class SystemStatusForTest extends SystemStatus {
         public SystemStatusForTest(String jsonString) {
             super(jsonString);
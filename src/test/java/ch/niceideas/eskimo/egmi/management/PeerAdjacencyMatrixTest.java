@@ -0,0 +1,119 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+package ch.niceideas.eskimo.egmi.management;
+
+import ch.niceideas.eskimo.egmi.model.Node;
+import ch.niceideas.eskimo.egmi.model.NodeStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PeerAdjacencyMatrixTest {
+
+    private final Node node1 = Node.from("192.168.56.21");
+    private final Node node2 = Node.from("192.168.56.22");
+    private final Node node3 = Node.from("192.168.56.23");
+    private final Node node4 = Node.from("192.168.56.24");
+
+    @Test
+    public void testAsymmetricPeering() throws Exception {
+
+        Set<Node> allNodes = new LinkedHashSet<>(List.of(node1, node2, node3, node4));
+
+        // node1 and node2 know each other, node3 knows node1 that doesn't know it back, node4 is down
+        Map<Node, NodeStatus> nodesStatus = new HashMap<>() {{
+            put(node1, new NodeStatus("{peers: [{uid: 'a', hostname: '192.168.56.22', state: 'OK'}]}"));
+            put(node2, new NodeStatus("{peers: [{uid: 'a', hostname: '192.168.56.21', state: 'OK'}]}"));
+            put(node3, new NodeStatus("{peers: [{uid: 'a', hostname: '192.168.56.21', state: 'OK'}, {uid: 'a', hostname: '192.168.56.30', state: 'OK'}]}"));
+        }};
+
+        PeerAdjacencyMatrix matrix = PeerAdjacencyMatrix.build(allNodes, nodesStatus);
+
+        assertEquals(5, matrix.size());
+        assertEquals(0, matrix.ordinalOf(node1));
+        assertEquals(3, matrix.ordinalOf(node4));
+        assertEquals(4, matrix.ordinalOf(Node.from("192.168.56.30")));
+        assertEquals(-1, matrix.ordinalOf(Node.from("192.168.56.31")));
+
+        assertTrue(matrix.isUp(0));
+        assertTrue(matrix.isUp(2));
+        assertFalse(matrix.isUp(3));
+        assertFalse(matrix.isUp(4));
+
+        assertTrue(matrix.isPeer(2, 0));
+        assertFalse(matrix.isPeer(0, 2));
+        assertArrayEquals(new int[]{0, 4}, matrix.getPeers(2));
+
+        assertTrue(matrix.isIndividuallyConsistent(0));
+        assertTrue(matrix.isIndividuallyConsistent(1));
+        assertFalse(matrix.isIndividuallyConsistent(2)); // neither node1 nor the unknown peer know it back
+        assertFalse(matrix.isIndividuallyConsistent(3));
+
+        assertEquals(2, matrix.nextAsymmetricPeer(0, 0));
+        assertEquals(-1, matrix.nextAsymmetricPeer(0, 3));
+        assertEquals(-1, matrix.nextAsymmetricPeer(1, 0));
+        assertEquals(-1, matrix.nextAsymmetricPeer(2, 0));
+    }
+
+    @Test
+    public void testSeveralWords() throws Exception {
+
+        Set<Node> allNodes = new LinkedHashSet<>();
+        Map<Node, NodeStatus> nodesStatus = new HashMap<>();
+        for (int i = 0; i < 150; i++) {
+            allNodes.add(Node.from("10.0.0." + i));
+        }
+        // every node knows node 0, node 0 only knows node 70
+        for (int i = 1; i < 150; i++) {
+            nodesStatus.put(Node.from("10.0.0." + i), new NodeStatus("{peers: [{uid: 'a', hostname: '10.0.0.0', state: 'OK'}]}"));
+        }
+        nodesStatus.put(Node.from("10.0.0.0"), new NodeStatus("{peers: [{uid: 'a', hostname: '10.0.0.70', state: 'OK'}]}"));
+
+        PeerAdjacencyMatrix matrix = PeerAdjacencyMatrix.build(allNodes, nodesStatus);
+        int origin = matrix.ordinalOf(Node.from("10.0.0.0"));
+        int known = matrix.ordinalOf(Node.from("10.0.0.70"));
+
+        List<Integer> asymmetric = new ArrayList<>();
+        for (int other = matrix.nextAsymmetricPeer(origin, 0); other >= 0; other = matrix.nextAsymmetricPeer(origin, other + 1)) {
+            asymmetric.add(other);
+        }
+        assertEquals(148, asymmetric.size());
+        assertFalse(asymmetric.contains(known));
+        assertFalse(asymmetric.contains(origin));
+        assertTrue(matrix.isIndividuallyConsistent(origin));
+        assertTrue(matrix.isIndividuallyConsistent(known));
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+package ch.niceideas.eskimo.egmi.management;
+
+import ch.niceideas.common.json.JsonWrapper;
+import ch.niceideas.common.utils.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RuntimeSettingsStoreTest {
+
+    private File tmp = null;
+    private File file = null;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tmp = File.createTempFile("test", "egmi-runtime-settings");
+        assertTrue (tmp.delete());
+        assertTrue (tmp.mkdir());
+        file = new File(tmp, "egmi-runtime-config.json");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        FileUtils.delete(tmp);
+    }
+
+    @Test
+    public void testReadWrite() throws Exception {
+
+        try (RuntimeSettingsStore store = new RuntimeSettingsStore(file, 0)) {
+            assertTrue (store.read().isEmpty());
+            assertEquals (0, store.getVersion());
+
+            JsonWrapper settings = store.read();
+            settings.setValueForPath("discovered-nodes", "192.168.10.71,192.168.10.72");
+            store.write(settings);
+
+            assertEquals (1, store.getVersion());
+            assertEquals (1, store.getPersistedVersion());
+            assertTrue (file.exists());
+            assertFalse (new File(tmp, "egmi-runtime-config.json.tmp").exists());
+
+            // reads are copies
+            store.read().setValueForPath("discovered-nodes", "changed");
+            assertEquals ("192.168.10.71,192.168.10.72", store.read().getValueForPathAsString("discovered-nodes"));
+
+            // unchanged settings are not written again
+            store.write(store.read());
+            assertEquals (1, store.getVersion());
+        }
+
+        try (RuntimeSettingsStore store = new RuntimeSettingsStore(file, 0)) {
+            assertEquals ("192.168.10.71,192.168.10.72", store.read().getValueForPathAsString("discovered-nodes"));
+        }
+    }
+
+    @Test
+    public void testWriteBehindCoalescesChanges() throws Exception {
+
+        try (RuntimeSettingsStore store = new RuntimeSettingsStore(file, 60000)) {
+
+            for (int i = 1; i <= 3; i++) {
+                int value = i;
+                store.update(settings -> {
+                    settings.setValueForPath("discovered-volumes", "volume" + value);
+                    return settings;
+                });
+            }
+
+            // served from memory while not written yet
+            assertEquals (3, store.getVersion());
+            assertEquals (0, store.getPersistedVersion());
+            assertFalse (file.exists());
+            assertEquals ("volume3", store.read().getValueForPathAsString("discovered-volumes"));
+
+            store.flush();
+            assertEquals (3, store.getPersistedVersion());
+            assertEquals ("volume3", new JsonWrapper(new String(FileUtils.read(file))).getValueForPathAsString("discovered-volumes"));
+        }
+    }
+
+    @Test
+    public void testCloseWritesPendingChanges() throws Exception {
+
+        RuntimeSettingsStore store = new RuntimeSettingsStore(file, 60000);
+        JsonWrapper settings = store.read();
+        settings.setValueForPath("static-nodes", "192.168.10.73");
+        store.write(settings);
+        assertFalse (file.exists());
+
+        store.close();
+
+        try (RuntimeSettingsStore reopened = new RuntimeSettingsStore(file, 60000)) {
+            assertEquals ("192.168.10.73", reopened.read().getValueForPathAsString("static-nodes"));
+        }
+    }
+
+    @Test
+    public void testWriteBehind() throws Exception {
+
+        try (RuntimeSettingsStore store = new RuntimeSettingsStore(file, 10)) {
+            JsonWrapper settings = store.read();
+            settings.setValueForPath("static-nodes", "192.168.10.73");
+            store.write(settings);
+
+            long start = System.currentTimeMillis();
+            while (store.getPersistedVersion() < 1 && System.currentTimeMillis() - start < 10000) {
+                Thread.sleep(10);
+            }
+            assertEquals (1, store.getPersistedVersion());
+            assertTrue (file.exists());
+        }
+    }
+
+    @Test
+    public void testChangesMadeWhileWritingAreWritten() throws Exception {
+
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (RuntimeSettingsStore store = new RuntimeSettingsStore(new RuntimeSettingsPersistence() {
+            @Override
+            public String load() {
+                return null;
+            }
+
+            @Override
+            public String persist(String previousSettings, String settings) throws IOException {
+                writing.countDown();
+                try {
+                    assertTrue (release.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return settings;
+            }
+        }, 10)) {
+
+            JsonWrapper settings = store.read();
+            settings.setValueForPath("static-nodes", "192.168.10.73");
+            store.write(settings);
+            assertTrue (writing.await(10, TimeUnit.SECONDS));
+
+            // lands while the first version is being written
+            settings.setValueForPath("static-nodes", "192.168.10.74");
+            store.write(settings);
+            release.countDown();
+
+            waitForPersistedVersion(store, 2);
+            assertEquals (2, store.getPersistedVersion());
+        }
+    }
+
+    @Test
+    public void testFailedWritesBackOff() throws Exception {
+
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicBoolean failing = new AtomicBoolean(true);
+
+        try (RuntimeSettingsStore store = new RuntimeSettingsStore(new RuntimeSettingsPersistence() {
+            @Override
+            public String load() {
+                return null;
+            }
+
+            @Override
+            public String persist(String previousSettings, String settings) throws IOException {
+                attempts.incrementAndGet();
+                if (failing.get()) {
+                    throw new IOException("Disk full");
+                }
+                return settings;
+            }
+        }, 10)) {
+
+            JsonWrapper settings = store.read();
+            settings.setValueForPath("static-nodes", "192.168.10.73");
+            store.write(settings);
+
+            // 10, 20, 40, 80, 160 and 320 ms apart : 6 attempts in 630 ms instead of about 60
+            Thread.sleep(700);
+            assertTrue (attempts.get() >= 2);
+            assertTrue (attempts.get() <= 8);
+            assertEquals (0, store.getPersistedVersion());
+
+            failing.set(false);
+            waitForPersistedVersion(store, 1);
+            assertEquals (1, store.getPersistedVersion());
+        }
+    }
+
+    private static void waitForPersistedVersion(RuntimeSettingsStore store, long version) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        while (store.getPersistedVersion() < version && System.currentTimeMillis() - start < 10000) {
+            Thread.sleep(10);
+        }
+    }
+}
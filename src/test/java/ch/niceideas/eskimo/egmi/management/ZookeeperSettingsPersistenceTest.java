@@ -0,0 +1,248 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+package ch.niceideas.eskimo.egmi.management;
+
+import ch.niceideas.common.json.JsonWrapper;
+import ch.niceideas.common.utils.FileUtils;
+import ch.niceideas.eskimo.egmi.zookeeper.ZookeeperService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZookeeperSettingsPersistenceTest {
+
+    private File tmp = null;
+
+    private final SharedNode sharedNode = new SharedNode();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tmp = File.createTempFile("test", "egmi-zookeeper-settings");
+        assertTrue (tmp.delete());
+        assertTrue (tmp.mkdir());
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        FileUtils.delete(tmp);
+    }
+
+    @Test
+    public void testStandbyIsKeptWarm() throws Exception {
+
+        File masterFile = new File(tmp, "master.json");
+        File standbyFile = new File(tmp, "standby.json");
+
+        try (RuntimeSettingsStore master = createStore(masterFile, true, 0);
+             RuntimeSettingsStore standby = createStore(standbyFile, true, 0)) {
+
+            assertTrue (standby.read().isEmpty());
+
+            setValue(master, "discovered-nodes", "192.168.10.71,192.168.10.72");
+
+            // the standby sees the change right away, and keeps a local copy of it
+            assertEquals ("192.168.10.71,192.168.10.72", standby.read().getValueForPathAsString("discovered-nodes"));
+            assertEquals ("192.168.10.71,192.168.10.72", readFile(standbyFile).getValueForPathAsString("discovered-nodes"));
+            assertEquals ("192.168.10.71,192.168.10.72", readFile(masterFile).getValueForPathAsString("discovered-nodes"));
+
+            // after a failover, the new master goes on from there
+            setValue(standby, "discovered-volumes", "test");
+            JsonWrapper settings = master.read();
+            assertEquals ("192.168.10.71,192.168.10.72", settings.getValueForPathAsString("discovered-nodes"));
+            assertEquals ("test", settings.getValueForPathAsString("discovered-volumes"));
+        }
+
+        assertTrue (sharedNode.listeners.isEmpty());
+    }
+
+    @Test
+    public void testPendingLocalChangesWin() throws Exception {
+
+        try (RuntimeSettingsStore master = createStore(new File(tmp, "master.json"), true, 0);
+             RuntimeSettingsStore other = createStore(new File(tmp, "other.json"), true, 60000)) {
+
+            other.read();
+            setValue(other, "static-nodes", "192.168.10.73");
+
+            setValue(master, "static-nodes", "192.168.10.74");
+            assertEquals ("192.168.10.73", other.read().getValueForPathAsString("static-nodes"));
+
+            other.flush();
+            assertEquals ("192.168.10.73", master.read().getValueForPathAsString("static-nodes"));
+        }
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+
+        File file = new File(tmp, "egmi-runtime-config.json");
+        Files.writeString(file.toPath(), "{\"discovered-nodes\": \"192.168.10.71\"}");
+
+        // the local copy is used as long as zookeeper can't be reached
+        try (RuntimeSettingsStore store = createStore(file, false, 60000)) {
+            assertEquals ("192.168.10.71", store.read().getValueForPathAsString("discovered-nodes"));
+            setValue(store, "discovered-volumes", "test");
+
+            // and kept up to date, but the change is not persisted until shared
+            assertThrows (ManagementException.class, store::flush);
+            assertEquals ("test", readFile(file).getValueForPathAsString("discovered-volumes"));
+            assertEquals (0, store.getPersistedVersion());
+            assertNull (sharedNode.data);
+        }
+
+        // and shared settings win otherwise
+        sharedNode.data = "{\"discovered-nodes\": \"192.168.10.72\"}";
+        try (RuntimeSettingsStore store = createStore(file, true, 0)) {
+            assertEquals ("192.168.10.72", store.read().getValueForPathAsString("discovered-nodes"));
+        }
+    }
+
+    @Test
+    public void testChangesSharedOnceReconnected() throws Exception {
+
+        AtomicBoolean connected = new AtomicBoolean(false);
+
+        try (RuntimeSettingsStore store = createStore(new File(tmp, "master.json"), connected, 10)) {
+            setValue(store, "static-nodes", "192.168.10.73");
+            Thread.sleep(100);
+            assertEquals (0, store.getPersistedVersion());
+            assertNull (sharedNode.data);
+
+            // the write behind keeps trying
+            connected.set(true);
+            long start = System.currentTimeMillis();
+            while (store.getPersistedVersion() < 1 && System.currentTimeMillis() - start < 10000) {
+                Thread.sleep(10);
+            }
+            assertEquals (1, store.getPersistedVersion());
+            assertEquals ("192.168.10.73", new JsonWrapper(sharedNode.data).getValueForPathAsString("static-nodes"));
+        }
+    }
+
+    @Test
+    public void testConcurrentChangesAreMerged() throws Exception {
+
+        File file = new File(tmp, "master.json");
+
+        try (RuntimeSettingsStore store = createStore(file, true, 0)) {
+            setValue(store, "static-nodes", "192.168.10.73");
+
+            // changed by another instance, not notified yet
+            sharedNode.data = "{\"static-nodes\": \"192.168.10.73\", \"discovered-volumes\": \"test\"}";
+
+            setValue(store, "discovered-nodes", "192.168.10.71");
+
+            for (JsonWrapper settings : List.of(new JsonWrapper(sharedNode.data), store.read(), readFile(file))) {
+                assertEquals ("192.168.10.73", settings.getValueForPathAsString("static-nodes"));
+                assertEquals ("test", settings.getValueForPathAsString("discovered-volumes"));
+                assertEquals ("192.168.10.71", settings.getValueForPathAsString("discovered-nodes"));
+            }
+        }
+    }
+
+    @Test
+    public void testMerge() {
+        assertEquals ("{\"a\":\"2\"}", ZookeeperSettingsPersistence.merge("{\"a\":\"1\"}", "{\"a\":\"2\"}", null));
+        assertEquals ("{\"a\":\"2\"}", ZookeeperSettingsPersistence.merge("{\"a\":\"1\"}", "{\"a\":\"2\"}", "{\"a\":\"1\"}"));
+
+        JsonWrapper merged = new JsonWrapper(ZookeeperSettingsPersistence.merge(
+                "{\"a\":\"1\",\"b\":\"1\"}", "{\"a\":\"2\"}", "{\"a\":\"1\",\"b\":\"1\",\"c\":\"3\"}"));
+        assertEquals ("2", merged.getValueForPathAsString("a"));
+        assertFalse (merged.getJSONObject().has("b"));
+        assertEquals ("3", merged.getValueForPathAsString("c"));
+    }
+
+    private RuntimeSettingsStore createStore(File file, boolean connected, long writeDelayMillis) {
+        return createStore(file, new AtomicBoolean(connected), writeDelayMillis);
+    }
+
+    private RuntimeSettingsStore createStore(File file, AtomicBoolean connected, long writeDelayMillis) {
+        ZookeeperService zookeeperService = new ZookeeperService(null, null, 0, null, true, "dummy") {
+            @Override
+            public boolean isZookeeperConnected() {
+                return connected.get();
+            }
+            @Override
+            public String getRuntimeSettings() {
+                return connected.get() ? sharedNode.data : null;
+            }
+            @Override
+            public String updateRuntimeSettings(UnaryOperator<String> updater) {
+                String settings = updater.apply(sharedNode.data);
+                sharedNode.data = settings;
+                sharedNode.listeners.forEach(listener -> listener.accept(settings));
+                return settings;
+            }
+            @Override
+            public void addRuntimeSettingsListener(Consumer<String> listener) {
+                sharedNode.listeners.add(listener);
+            }
+            @Override
+            public void removeRuntimeSettingsListener(Consumer<String> listener) {
+                sharedNode.listeners.remove(listener);
+            }
+        };
+        return new RuntimeSettingsStore(
+                new ZookeeperSettingsPersistence(zookeeperService, new SnapshotFilePersistence(file)), writeDelayMillis);
+    }
+
+    private static JsonWrapper readFile(File file) throws Exception {
+        return new JsonWrapper(new String(FileUtils.read(file)));
+    }
+
+    private static void setValue(RuntimeSettingsStore store, String key, String value) throws ManagementException {
+        store.update(settings -> {
+            settings.setValueForPath(key, value);
+            return settings;
+        });
+    }
+
+    /**
+     * Stands for the zookeeper node holding the shared settings and the instances watching it.
+     */
+    private static class SharedNode {
+        private volatile String data = null;
+        private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+    }
+}
@@ -90,7 +90,7 @@ public abstract class AbstractScenarioTest {
         ms.setGlusterRemoteManager(new GlusterRemoteManager() {
 
             @Override
-            public Map<Node, NodeStatus> getAllNodeStatus() throws GlusterRemoteException {
+            public NodeStatusCollection collectAllNodeStatus() throws GlusterRemoteException {
                 try {
                     Map<Node, NodeStatus> retMap = new HashMap<>();
                     for (Node node : new Node[]{
@@ -103,7 +103,7 @@ public abstract class AbstractScenarioTest {
                             retMap.put(node, new NodeStatus(StreamUtils.getAsString(nodeStatusIs)));
                         }
                     }
-                    return retMap;
+                    return NodeStatusCollection.of(retMap);
                 } catch (IOException e) {
                     throw new GlusterRemoteException(e);
                 }
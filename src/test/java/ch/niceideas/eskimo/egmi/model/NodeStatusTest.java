@@ -0,0 +1,140 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+
+package ch.niceideas.eskimo.egmi.model;
+
+import ch.niceideas.common.utils.ResourceUtils;
+import ch.niceideas.common.utils.StreamUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NodeStatusTest {
+
+    private NodeStatus nodeStatus;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        nodeStatus = new NodeStatus(StreamUtils.getAsString(ResourceUtils.getResourceAsStream("GlusterRemoteManagerTest/NodeStatusResult.txt")));
+    }
+
+    @Test
+    public void testQueries() throws Exception {
+
+        assertEquals (4, nodeStatus.getAllPeers().size());
+        assertEquals (Set.of(Volume.from("test1"), Volume.from("test2")), nodeStatus.getAllVolumes());
+
+        NodeInformation nodeInfo = nodeStatus.getNodeInformation(Node.from("192.168.10.72"));
+        assertEquals ("Connected", nodeInfo.getState());
+        assertEquals (Set.of("test1", "test2"), nodeInfo.getVolumes());
+        assertEquals (2, nodeInfo.getBrickCount());
+
+        Map<BrickId, Volume> nodeBricks = nodeStatus.getNodeBricksAndVolumes(Node.from("192.168.10.73"));
+        assertEquals (Map.of(BrickId.fromIdentifier("192.168.10.73:/var/lib/gluster/volume_bricks/test3"), Volume.from("test1")), nodeBricks);
+
+        NodeVolumeInformation volumeInfo = nodeStatus.getVolumeInformation(Volume.from("test1"));
+        assertEquals ("Replicate", volumeInfo.getType());
+        assertEquals ("3", volumeInfo.getNbBricks());
+
+        assertEquals ("on", nodeStatus.getReconfiguredOptions(Volume.from("test1")).get("nfs__disable"));
+
+        Map<BrickId, NodeBrickInformation> bricks = nodeStatus.getVolumeBricksInformation(Volume.from("test1"));
+        assertEquals (3, bricks.size());
+        NodeBrickInformation brickInfo = bricks.get(BrickId.fromIdentifier("192.168.10.71:/var/lib/gluster/volume_bricks/test1"));
+        assertEquals (1, brickInfo.getNumber());
+        assertEquals ("33.2GB", brickInfo.getFree());
+
+        // unknown volume
+        assertNotNull (nodeStatus.getVolumeInformation(Volume.from("unknown")));
+        assertTrue (nodeStatus.getVolumeBrickIds(Volume.from("unknown")).isEmpty());
+    }
+
+    @Test
+    public void testReturnedObjectsAreCopies() throws Exception {
+
+        nodeStatus.getVolumeInformation(Volume.from("test1")).setType("Distribute");
+        nodeStatus.getVolumeBricksInformation(Volume.from("test1")).clear();
+        nodeStatus.getNodeBricksAndVolumes(Node.from("192.168.10.71")).clear();
+
+        assertEquals ("Replicate", nodeStatus.getVolumeInformation(Volume.from("test1")).getType());
+        assertEquals (3, nodeStatus.getVolumeBricksInformation(Volume.from("test1")).size());
+        assertEquals (2, nodeStatus.getNodeBricksAndVolumes(Node.from("192.168.10.71")).size());
+    }
+
+    @Test
+    public void testIndexDroppedOnChange() throws Exception {
+
+        assertEquals ("Replicate", nodeStatus.getVolumeInformation(Volume.from("test1")).getType());
+
+        nodeStatus.setValueForPath("volumes.0.type", "Distribute");
+        nodeStatus.setBrickInformation(0, 4, BrickId.fromIdentifier("192.168.10.74:/var/lib/gluster/volume_bricks/test4"));
+
+        assertEquals ("Distribute", nodeStatus.getVolumeInformation(Volume.from("test1")).getType());
+        assertEquals (4, nodeStatus.getVolumeBrickIds(Volume.from("test1")).size());
+        assertEquals (1, nodeStatus.getNodeInformation(Node.from("192.168.10.74")).getBrickCount());
+    }
+
+    @Test
+    public void testIndexDroppedOnJSONObjectAccess() throws Exception {
+
+        assertEquals ("Replicate", nodeStatus.getVolumeInformation(Volume.from("test1")).getType());
+
+        nodeStatus.getJSONObject().getJSONArray("volumes").getJSONObject(0).put("type", "Distribute");
+
+        assertEquals ("Distribute", nodeStatus.getVolumeInformation(Volume.from("test1")).getType());
+    }
+
+    @Test
+    public void testBrickOrderPreserved() throws Exception {
+
+        assertEquals (
+                new ArrayList<>(nodeStatus.getVolumeBrickIds(Volume.from("test1"))),
+                new ArrayList<>(nodeStatus.getVolumeBricksInformation(Volume.from("test1")).keySet()));
+    }
+
+    @Test
+    public void testErrors() {
+
+        NodeStatus errorStatus = new NodeStatus("{\"pool-status-error\": \"KO\", \"volume-status-error\": \"KO\"}");
+
+        assertThrows (NodeStatusException.class, errorStatus::getAllPeers);
+        assertThrows (NodeStatusException.class, errorStatus::getAllVolumes);
+        assertThrows (NodeStatusException.class, () -> errorStatus.getVolumeInformation(Volume.from("test1")));
+    }
+}
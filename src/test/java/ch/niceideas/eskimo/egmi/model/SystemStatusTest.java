@@ -0,0 +1,118 @@
+/*
+ * This file is part of the eskimo project referenced at www.eskimo.sh. The licensing information below apply just as
+ * well to this individual file than to the Eskimo Project as a whole.
+ *
+ *  Copyright 2019 - 2023 eskimo.sh / https://www.eskimo.sh - All rights reserved.
+ * Author : eskimo.sh / https://www.eskimo.sh
+ *
+ * Eskimo is available under a dual licensing model : commercial and GNU AGPL.
+ * If you did not acquire a commercial licence for Eskimo, you can still use it and consider it free software under the
+ * terms of the GNU Affero Public License. You can redistribute it and/or modify it under the terms of the GNU Affero
+ * Public License  as published by the Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ * Compliance to each and every aspect of the GNU Affero Public License is mandatory for users who did no acquire a
+ * commercial license.
+ *
+ * Eskimo is distributed as a free software under GNU AGPL in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Affero Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License along with Eskimo. If not,
+ * see <https://www.gnu.org/licenses/> or write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA.
+ *
+ * You can be released from the requirements of the license by purchasing a commercial license. Buying such a
+ * commercial license is mandatory as soon as :
+ * - you develop activities involving Eskimo without disclosing the source code of your own product, software,
+ *   platform, use cases or scripts.
+ * - you deploy eskimo as part of a commercial product, platform or software.
+ * For more information, please contact eskimo.sh at https://www.eskimo.sh
+ *
+ * The above copyright notice and this licensing notice shall be included in all copies or substantial portions of the
+ * Software.
+ */
+
+package ch.niceideas.eskimo.egmi.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SystemStatusTest {
+
+    private static SystemVolumeInformation buildVolumeInfo (String volume, String status, String... bricks) {
+        SystemVolumeInformation volumeInfo = new SystemVolumeInformation();
+        volumeInfo.setVolume(Volume.from(volume));
+        volumeInfo.setStatus(status);
+        volumeInfo.setOptions(Map.of("nfs__disable", "on"));
+
+        Map<BrickId, SystemBrickInformation> brickInfos = new HashMap<>();
+        int number = 1;
+        for (String brick : bricks) {
+            BrickId brickId = BrickId.fromIdentifier(brick);
+            SystemBrickInformation brickInfo = new SystemBrickInformation();
+            brickInfo.setId(brickId.toString());
+            brickInfo.setNode(brickId.getNode());
+            brickInfo.setPath(brickId.getPath());
+            brickInfo.setNumberOverride("" + (number++));
+            brickInfo.setStatus("OK");
+            brickInfos.put(brickId, brickInfo);
+        }
+        volumeInfo.setBricks(brickInfos);
+        return volumeInfo;
+    }
+
+    @Test
+    public void testLookupsMaintainedOnAdd() {
+
+        SystemStatus status = new SystemStatus("{}");
+
+        status.addNodeInfo(Node.from("192.168.10.71"), "OK", null);
+        assertEquals ("OK", status.getNodeStatus(Node.from("192.168.10.71")));
+
+        // added after the index is built
+        status.addNodeInfo(Node.from("192.168.10.72"), "KO", null);
+        assertEquals ("KO", status.getNodeStatus(Node.from("192.168.10.72")));
+
+        status.overrideNodeStatus(Node.from("192.168.10.72"), "OK");
+        assertEquals ("OK", status.getNodeStatus(Node.from("192.168.10.72")));
+        assertEquals ("OK", status.getJSONObject().getJSONArray("nodes").getJSONObject(1).getString("status"));
+
+        assertNull (status.getVolumeStatus(Volume.from("test1")));
+
+        status.addVolumeInfo(buildVolumeInfo("test1", "OK",
+                "192.168.10.71:/var/lib/gluster/volume_bricks/test1",
+                "192.168.10.72:/var/lib/gluster/volume_bricks/test1"));
+
+        assertEquals ("OK", status.getVolumeStatus(Volume.from("test1")));
+        assertEquals (2, status.getNumberOfBricks(Volume.from("test1")));
+        assertEquals ("on", status.getOptionValue(Volume.from("test1"), "nfs__disable"));
+        assertEquals ("OK", status.getBrickStatus(Volume.from("test1"), BrickId.fromIdentifier("192.168.10.72:/var/lib/gluster/volume_bricks/test1")));
+        assertNull (status.getBrickStatus(Volume.from("test1"), BrickId.fromIdentifier("192.168.10.73:/var/lib/gluster/volume_bricks/test1")));
+
+        assertTrue (status.hasBricksOnNode(Volume.from("test1"), Node.from("192.168.10.71")));
+        assertFalse (status.hasBricksOnNode(Volume.from("test1"), Node.from("192.168.10.7")));
+        assertFalse (status.hasBricksOnNode(Volume.from("test2"), Node.from("192.168.10.71")));
+    }
+
+    @Test
+    public void testLookupsFromJSON() {
+
+        SystemStatus source = new SystemStatus("{}");
+        source.addNodeInfo(Node.from("192.168.10.71"), "OK", null);
+        source.addVolumeInfo(buildVolumeInfo("test1", "VOL_NOT_STARTED", "192.168.10.71:/var/lib/gluster/volume_bricks/test1"));
+
+        SystemStatus status = new SystemStatus(source.getFormattedValue());
+
+        assertEquals (Set.of(Node.from("192.168.10.71")), Set.copyOf(status.getNodeList()));
+        assertEquals ("OK", status.getNodeStatus(Node.from("192.168.10.71")));
+        assertEquals ("VOL_NOT_STARTED", status.getVolumeStatus(Volume.from("test1")));
+        assertTrue (status.hasBricksOnNode(Volume.from("test1"), Node.from("192.168.10.71")));
+
+        assertThrows (IllegalStateException.class, () -> status.getNodeStatus(Node.from("192.168.10.99")));
+    }
+}
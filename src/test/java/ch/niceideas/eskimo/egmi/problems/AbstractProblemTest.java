@@ -155,7 +155,7 @@ public abstract class AbstractProblemTest<T extends Problem> {
         grm = new GlusterRemoteManager() {
 
             @Override
-            public Map<Node, NodeStatus> getAllNodeStatus() throws GlusterRemoteException {
+            public NodeStatusCollection collectAllNodeStatus() throws GlusterRemoteException {
                 try {
                     Map<Node, NodeStatus> retMap = new HashMap<>();
                     for (Node node : new Node[]{
@@ -168,7 +168,7 @@ public abstract class AbstractProblemTest<T extends Problem> {
                             retMap.put(node, new NodeStatus(StreamUtils.getAsString(nodeStatusIs)));
                         }
                     }
-                    return retMap;
+                    return NodeStatusCollection.of(retMap);
                 } catch (IOException e) {
                     throw new GlusterRemoteException(e);
                 }
@@ -34,13 +34,21 @@
 
 package ch.niceideas.eskimo.egmi.problems;
 
+import ch.niceideas.eskimo.egmi.gluster.GlusterRemoteManager;
 import ch.niceideas.eskimo.egmi.model.Node;
+import ch.niceideas.eskimo.egmi.model.NodeStatus;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class NodeDownRemovalTest extends AbstractProblemTest<NodeDownRemoval> {
@@ -60,4 +68,52 @@ public class NodeDownRemovalTest extends AbstractProblemTest<NodeDownRemoval> {
                 "192.168.10.71:1234/command?command=peer&subcommand=detach&options=192.168.10.72%20force",
                 String.join("\n", urls));
     }
+
+    @Test
+    public void testNodeBackBeforeBecomingActionable() throws Exception {
+
+        // the status shared with solvers, taken when the node was down
+        Map<Node, NodeStatus> staleStatus = grm.getAllNodeStatus();
+
+        // the node comes back before the problem becomes actionable
+        Map<Node, NodeStatus> currentStatus = new HashMap<>(staleStatus);
+        currentStatus.put(Node.from("192.168.10.72"), new NodeStatus(staleStatus.get(Node.from("192.168.10.73")).getFormattedValue()));
+
+        Set<Node> refreshedNodes = ConcurrentHashMap.newKeySet();
+        AtomicReference<Map<Node, NodeStatus>> sharedStatus = new AtomicReference<>(staleStatus);
+
+        ProblemManager problemManager = new ProblemManager();
+        problemManager.setManagementService(ms);
+        problemManager.setHttpClient(mockClient);
+        problemManager.setGlusterRemoteManager(new GlusterRemoteManager() {
+            @Override
+            public Map<Node, NodeStatus> getSharedNodeStatus() {
+                return sharedStatus.get();
+            }
+            @Override
+            public Map<Node, NodeStatus> getRefreshedNodeStatus(Set<Node> nodes) {
+                refreshedNodes.addAll(nodes);
+                sharedStatus.set(currentStatus);
+                return currentStatus;
+            }
+        });
+
+        problemManager.addProblem(new NodeDownRemoval(new Date(System.currentTimeMillis() + 1500), Node.from("192.168.10.72")));
+
+        // not actionable yet
+        assertFalse (problemManager.resolutionIteration(null));
+        assertEquals ("1 Vol. Node Down Removal", problemManager.getProblemSummary());
+
+        long end = System.currentTimeMillis() + 10000;
+        while (!problemManager.getProblemSummary().isEmpty() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals ("", problemManager.getProblemSummary());
+
+        // solved on the status refreshed when becoming actionable : the node is not detached
+        assertEquals ("", String.join("\n", urls));
+        assertEquals (Set.of(Node.from("192.168.10.72")), refreshedNodes);
+
+        problemManager.destroy();
+    }
 }
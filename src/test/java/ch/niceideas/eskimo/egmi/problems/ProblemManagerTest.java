@@ -1,10 +1,27 @@
 package ch.niceideas.eskimo.egmi.problems;
 
+import ch.niceideas.eskimo.egmi.gluster.GlusterRemoteManager;
 import ch.niceideas.eskimo.egmi.management.ManagementService;
+import ch.niceideas.eskimo.egmi.model.Node;
+import ch.niceideas.eskimo.egmi.model.NodeStatus;
+import ch.niceideas.eskimo.egmi.model.SystemStatus;
+import ch.niceideas.eskimo.egmi.model.Volume;
 import ch.niceideas.eskimo.egmi.problems.test.TestProblem;
+import ch.niceideas.eskimo.egmi.problems.test.TestVolumeProblem;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class ProblemManagerTest {
 
@@ -84,4 +101,203 @@ public class ProblemManagerTest {
                 "test2-test2_1\n" +
                 "test3-test3_1\n", sb.toString());
     }
+
+    @Test
+    public void testResolutionIteration_concurrent() {
+
+        problemManager.setManagementService(new ManagementService() {
+            @Override
+            public boolean isMaster() {
+                return true;
+            }
+        });
+        problemManager.setResolutionParallelism(4);
+
+        StringBuilder sb = new StringBuilder();
+
+        // both first problems only get past the barrier if they are solved concurrently
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        Runnable awaitBarrier = () -> {
+            try {
+                barrier.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        problemManager.addProblem(new TestVolumeProblem(1, "test1", "a", sb, Volume.from("a"), awaitBarrier));
+        problemManager.addProblem(new TestVolumeProblem(1, "test1", "b", sb, Volume.from("b"), awaitBarrier));
+        problemManager.addProblem(new TestVolumeProblem(2, "test2", "a", sb, Volume.from("a"), () -> {}));
+
+        // conflicting with all others
+        problemManager.addProblem(new TestProblem(3, "test3", "all", sb));
+
+        assertTrue (problemManager.resolutionIteration(null));
+
+        String[] order = sb.toString().split("\n");
+        assertEquals (4, order.length);
+        assertTrue (Arrays.asList(order).indexOf("test1-a") < Arrays.asList(order).indexOf("test2-a"));
+        assertEquals ("test3-all", order[3]);
+
+        assertEquals ("", problemManager.getProblemSummary());
+
+        problemManager.destroy();
+    }
+
+    @Test
+    public void testResolutionIteration_brickRewritesSerialized() {
+
+        problemManager.setManagementService(new ManagementService() {
+            @Override
+            public boolean isMaster() {
+                return true;
+            }
+            @Override
+            public void info(String s) {
+                // not reported
+            }
+        });
+        problemManager.setResolutionParallelism(4);
+
+        // both solvers start with fetching the status, it tells whether they overlap
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger calls = new AtomicInteger();
+        problemManager.setGlusterRemoteManager(new GlusterRemoteManager() {
+            @Override
+            public Map<Node, NodeStatus> getSharedNodeStatus() {
+                calls.incrementAndGet();
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                return new HashMap<>();
+            }
+        });
+
+        // the inconsistent node holds a brick of the volume missing one
+        problemManager.addProblem(new NodeInconsistent(new Date(), Node.from("192.168.10.72"), Node.from("192.168.10.71")));
+        problemManager.addProblem(new MissingBrick(new Date(), Volume.from("test"), 2, 1));
+
+        problemManager.resolutionIteration(null);
+
+        assertEquals (2, calls.get());
+        assertEquals (1, maxRunning.get());
+
+        problemManager.destroy();
+    }
+
+    @Test
+    public void testResolutionIteration_stop() {
+
+        problemManager.setManagementService(new ManagementService() {
+            @Override
+            public boolean isMaster() {
+                return true;
+            }
+        });
+
+        StringBuilder sb = new StringBuilder();
+
+        problemManager.addProblem(new TestProblem(1, "test1", "test1_1", sb) {
+            @Override
+            public boolean solve(GlusterRemoteManager glusterRemoteManager, CommandContext context) {
+                throw new IllegalStateException("test");
+            }
+        });
+        problemManager.addProblem(new TestProblem(2, "test2", "test2_1", sb));
+
+        assertThrows (IllegalStateException.class, () -> problemManager.resolutionIteration(null));
+
+        // second problem was never tried
+        assertEquals ("", sb.toString());
+        assertEquals ("1 test1, 1 test2", Arrays.stream(problemManager.getProblemSummary().split(", ")).sorted().collect(Collectors.joining(", ")));
+    }
+
+    @Test
+    public void testResolutionIteration_actionableTime() throws Exception {
+
+        problemManager.setManagementService(new ManagementService() {
+            @Override
+            public boolean isMaster() {
+                return true;
+            }
+        });
+
+        // the shared status is dropped before solving problems having become actionable
+        problemManager.setGlusterRemoteManager(new GlusterRemoteManager());
+
+        StringBuilder sb = new StringBuilder();
+        long actionableTime = System.currentTimeMillis() + 1500;
+
+        problemManager.addProblem(new TestProblem(1, "test1", "test1_1", sb) {
+            @Override
+            public long getActionableTime(ConfigurationOwner configOwner) {
+                return actionableTime;
+            }
+            @Override
+            public boolean solve(GlusterRemoteManager glusterRemoteManager, CommandContext context) {
+                synchronized (sb) {
+                    super.solve(glusterRemoteManager, context);
+                    sb.notifyAll();
+                }
+                return true;
+            }
+        });
+        problemManager.addProblem(new TestProblem(2, "test2", "test2_1", sb));
+
+        // not actionable yet : not tried
+        assertTrue (problemManager.resolutionIteration(null));
+        assertEquals ("test2-test2_1\n", sb.toString());
+
+        // solved when it becomes actionable, without any further resolution iteration
+        synchronized (sb) {
+            long end = System.currentTimeMillis() + 10000;
+            while (sb.indexOf("test1") < 0 && System.currentTimeMillis() < end) {
+                sb.wait(100);
+            }
+            assertEquals ("test2-test2_1\ntest1-test1_1\n", sb.toString());
+        }
+        assertTrue (System.currentTimeMillis() >= actionableTime);
+
+        long end = System.currentTimeMillis() + 5000;
+        while (!problemManager.getProblemSummary().isEmpty() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals ("", problemManager.getProblemSummary());
+
+        problemManager.destroy();
+    }
+
+    @Test
+    public void testProblemRegistry() {
+
+        StringBuilder sb = new StringBuilder();
+
+        problemManager.addProblem(new TestProblem(1, "test1", "test1_1", sb));
+        problemManager.addProblem(new TestProblem(1, "test1", "test1_2", sb));
+        problemManager.addProblem(new TestProblem(2, "test2", "test2_1", sb));
+        problemManager.addProblem(new TestProblem(2, "test2", "test2_1", sb));
+        problemManager.addProblem(new TestProblem(3, "test3", "test3_1", sb) {
+            @Override
+            public boolean recognize(SystemStatus newStatus) {
+                return false;
+            }
+        });
+
+        assertEquals ("2 test1, 1 test2, 1 test3", problemManager.getProblemSummary());
+
+        problemManager.recognize(null);
+        assertEquals ("2 test1, 1 test2", problemManager.getProblemSummary());
+
+        assertEquals (ProblemKey.of("NODE_DOWN", Volume.from("a"), Node.from("192.168.10.71")),
+                new NodeDown(new Date(), Volume.from("a"), Node.from("192.168.10.71")).getProblemKey());
+        assertEquals ("NODE_DOWN-a-192.168.10.71",
+                new NodeDown(new Date(), Volume.from("a"), Node.from("192.168.10.71")).getProblemId());
+        assertNotEquals (ProblemKey.of("NODE_DOWN", Volume.from("a-192.168.10.71")),
+                ProblemKey.of("NODE_DOWN", Volume.from("a"), Node.from("192.168.10.71")));
+    }
 }
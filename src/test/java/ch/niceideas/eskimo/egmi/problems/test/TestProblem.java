@@ -5,6 +5,7 @@ import ch.niceideas.eskimo.egmi.model.SystemStatus;
 import ch.niceideas.eskimo.egmi.problems.AbstractProblem;
 import ch.niceideas.eskimo.egmi.problems.CommandContext;
 import ch.niceideas.eskimo.egmi.problems.Problem;
+import ch.niceideas.eskimo.egmi.problems.ProblemKey;
 import lombok.RequiredArgsConstructor;
 
 @RequiredArgsConstructor
@@ -16,8 +17,8 @@ public class TestProblem extends AbstractProblem implements Problem {
     final StringBuilder sb;
 
     @Override
-    public String getProblemId() {
-        return type + "-" + id;
+    public ProblemKey getProblemKey() {
+        return ProblemKey.of(type, id);
     }
 
     @Override
@@ -0,0 +1,34 @@
+package ch.niceideas.eskimo.egmi.problems.test;
+
+import ch.niceideas.eskimo.egmi.gluster.GlusterRemoteManager;
+import ch.niceideas.eskimo.egmi.model.Volume;
+import ch.niceideas.eskimo.egmi.problems.CommandContext;
+import ch.niceideas.eskimo.egmi.problems.ProblemResource;
+
+import java.util.Set;
+
+public class TestVolumeProblem extends TestProblem {
+
+    private final Volume volume;
+    private final Runnable action;
+
+    public TestVolumeProblem(int priority, String type, String id, StringBuilder sb, Volume volume, Runnable action) {
+        super(priority, type, id, sb);
+        this.volume = volume;
+        this.action = action;
+    }
+
+    @Override
+    public Set<ProblemResource> getResources() {
+        return Set.of(ProblemResource.volume(volume));
+    }
+
+    @Override
+    public boolean solve(GlusterRemoteManager glusterRemoteManager, CommandContext context) {
+        action.run();
+        synchronized (sb) {
+            sb.append(getProblemId()).append("\n");
+        }
+        return true;
+    }
+}